@@ -0,0 +1,132 @@
+/*
+ * Class:        RandomStreamBenchmark
+ * Description:  JMH micro-benchmarks for the RandomStream implementations
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmarks measuring the cost of the basic operations of every
+ * @ref RandomStream implementation of this package: `nextDouble`,
+ * `nextArrayOfDouble`, `nextInt`, `resetNextSubstream` and `clone`. Each
+ * generator is measured with and without increased precision (see
+ * @ref RandomStreamBase.increasedPrecision). The results are reported in
+ * nanoseconds per operation (per generated value for `nextArrayOfDouble`).
+ * Run them with the `jmh` Gradle task, which also enables the JMH `gc`
+ * profiler to report the allocation rate of each operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomStreamBenchmark {
+
+   @Param({ "MRG32k3a", "MRG31k3p", "LFSR113", "LFSR258", "WELL512",
+            "WELL607", "WELL1024", "MT19937", "F2NL607", "RandRijndael",
+            "MRG32k3aL", "Philox4x32" })
+   public String generator;
+
+   @Param({ "false", "true" })
+   public boolean increasedPrecision;
+
+   // Number of values generated by each call to nextArrayOfDouble.
+   private static final int ARRAY_SIZE = 1024;
+
+   private RandomStreamBase stream;
+   private double[] u;
+
+   /**
+    * Creates the stream given by its simple class name.
+    *  @param name         simple name of a class of this package
+    *  @return a new stream of this class
+    */
+   static RandomStreamBase createStream (String name) {
+      switch (name) {
+         case "MRG32k3a":     return new MRG32k3a();
+         case "MRG31k3p":     return new MRG31k3p();
+         case "LFSR113":      return new LFSR113();
+         case "LFSR258":      return new LFSR258();
+         case "WELL512":      return new WELL512();
+         case "WELL607":      return new WELL607();
+         case "WELL1024":     return new WELL1024();
+         case "MT19937":      return new MT19937 (new LFSR113());
+         case "F2NL607":      return new F2NL607();
+         case "RandRijndael": return new RandRijndael();
+         case "MRG32k3aL":    return new MRG32k3aL();
+         case "Philox4x32":   return new Philox4x32();
+         default:
+            throw new IllegalArgumentException ("Unknown generator: " + name);
+      }
+   }
+
+   @Setup
+   public void setup() {
+      stream = createStream (generator);
+      stream.increasedPrecision (increasedPrecision);
+      u = new double[ARRAY_SIZE];
+   }
+
+   @Benchmark
+   public double nextDouble() {
+      return stream.nextDouble();
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(ARRAY_SIZE)
+   public double[] nextArrayOfDouble() {
+      stream.nextArrayOfDouble (u, 0, u.length);
+      return u;
+   }
+
+   @Benchmark
+   public int nextInt() {
+      return stream.nextInt (0, 999);
+   }
+
+   @Benchmark
+   public RandomStreamBase resetNextSubstream() {
+      stream.resetNextSubstream();
+      return stream;
+   }
+
+   @Benchmark
+   public RandomStreamBase cloneStream() {
+      return stream.clone();
+   }
+}
@@ -36,6 +36,14 @@ import umontreal.ssj.probdist.*;
  * @f]
  * and 0 elsewhere.
  *
+ * The variates are generated by inversion, except when the stream is a
+ * @ref umontreal.ssj.rng.RandomStreamBase for which
+ * `unbiasedIntegers(true)` was called: they are then obtained directly from
+ * the random bits of the stream by its `nextInt` and `nextArrayOfInt`
+ * methods, which is faster and exactly unbiased, but is not a monotone
+ * function of a uniform and should not be used with quasi-Monte Carlo
+ * point sets.
+ *
  * <div class="SSJ-bigskip"></div>
  *
  * @ingroup randvar_discrete
@@ -71,6 +79,28 @@ public class UniformIntGen extends RandomVariateGenInt {
       return UniformIntDist.inverseF (i, j, s.nextDouble());
    }
 
+   // true if the integers can be taken directly from the random bits
+   private boolean fromBits() {
+      return stream instanceof RandomStreamBase &&
+             ((RandomStreamBase) stream).isUnbiasedIntegers();
+   }
+
+   public int nextInt() {
+      if (fromBits())
+         return stream.nextInt (left, right);
+      return super.nextInt();
+   }
+
+   public void nextArrayOfInt (int[] v, int start, int n) {
+      if (fromBits()) {
+         if (n < 0)
+            throw new IllegalArgumentException ("n must be positive.");
+         stream.nextArrayOfInt (left, right, v, start, n);
+      }
+      else
+         super.nextArrayOfInt (v, start, n);
+   }
+
    /**
     * Returns the parameter @f$i@f$.
     */
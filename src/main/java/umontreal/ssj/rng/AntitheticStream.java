@@ -25,6 +25,10 @@
  */
 package umontreal.ssj.rng;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * This container class allows the user to force any  @ref RandomStream to
  * return antithetic variates. That is,  #nextDouble returns @f$1-u@f$
@@ -61,6 +65,36 @@ public class AntitheticStream implements RandomStream {
       st.resetNextSubstream();
    }
 
+   /**
+    * Writes an identifier of this class followed by the state of the
+    * base stream to `out`, since this stream has no state of its own. This
+    * is used by  RandomStreamManager.saveStates.
+    *  @param out          the output to which the state is written
+    *  @exception IOException if an I/O error occurs
+    *  @exception UnsupportedOperationException if the state of the
+    * base stream cannot be saved
+    */
+   public void writeState (DataOutput out) throws IOException {
+      out.writeInt (getClass().getName().hashCode());
+      RandomStreamManager.writeState (st, out);
+   }
+
+   /**
+    * Restores the state of the base stream from `in`, where it was written
+    * by  #writeState.
+    *  @param in           the input from which the state is read
+    *  @exception IOException if an I/O error occurs, or if the saved
+    * state is not a state of this class
+    *  @exception UnsupportedOperationException if the state of the
+    * base stream cannot be restored
+    */
+   public void readState (DataInput in) throws IOException {
+      if (in.readInt() != getClass().getName().hashCode())
+         throw new IOException ("The saved state is not a state of " +
+                                getClass().getName());
+      RandomStreamManager.readState (st, in);
+   }
+
 	/**
 	 * Returns a string starting with `"Antithetic of "` and finishing with the result of the call
 	 * to the `toString` method of the generator.
@@ -25,6 +25,10 @@
  */
 package umontreal.ssj.rng;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * This container class permits one to apply the baker’s transformation to
  * the output of any  @ref RandomStream. It transforms each @f$u \in[0,1]@f$
@@ -67,6 +71,36 @@ public class BakerTransformedStream implements RandomStream {
       st.resetNextSubstream();
    }
 
+   /**
+    * Writes an identifier of this class followed by the state of the
+    * base stream to `out`, since this stream has no state of its own. This
+    * is used by  RandomStreamManager.saveStates.
+    *  @param out          the output to which the state is written
+    *  @exception IOException if an I/O error occurs
+    *  @exception UnsupportedOperationException if the state of the
+    * base stream cannot be saved
+    */
+   public void writeState (DataOutput out) throws IOException {
+      out.writeInt (getClass().getName().hashCode());
+      RandomStreamManager.writeState (st, out);
+   }
+
+   /**
+    * Restores the state of the base stream from `in`, where it was written
+    * by  #writeState.
+    *  @param in           the input from which the state is read
+    *  @exception IOException if an I/O error occurs, or if the saved
+    * state is not a state of this class
+    *  @exception UnsupportedOperationException if the state of the
+    * base stream cannot be restored
+    */
+   public void readState (DataInput in) throws IOException {
+      if (in.readInt() != getClass().getName().hashCode())
+         throw new IOException ("The saved state is not a state of " +
+                                getClass().getName());
+      RandomStreamManager.readState (st, in);
+   }
+
 /**
  * Returns a string starting with `"Baker transformation of "` and finishing
  * with the result of the call to the `toString` method of the generator.
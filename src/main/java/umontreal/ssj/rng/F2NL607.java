@@ -25,6 +25,10 @@
  */
 package umontreal.ssj.rng;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import umontreal.ssj.util.ArithmeticMod;
 import umontreal.ssj.util.PrintfFormat;
 
@@ -482,6 +486,24 @@ public class F2NL607 extends WELL607base {
       return retour;
    }
 
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      super.writeGeneratorState (out);
+      out.writeInt (nlState.length);
+      writeInts (out, nlStream);
+      writeInts (out, nlSubstream);
+      writeInts (out, nlState);
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      super.readGeneratorState (in);
+      if (in.readInt() != nlState.length)
+         throw new IOException ("The saved state was obtained with other " +
+                                "nonlinear components");
+      readInts (in, nlStream);
+      readInts (in, nlSubstream);
+      readInts (in, nlState);
+   }
+
    public String toString() {
       StringBuffer sb = new StringBuffer();
 
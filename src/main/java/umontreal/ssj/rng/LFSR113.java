@@ -25,6 +25,9 @@
 package umontreal.ssj.rng;
 
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Extends  @ref RandomStreamBase using a composite linear feedback shift
@@ -312,6 +315,21 @@ public class LFSR113 extends RandomStreamBase {
    }
 
 
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      writeInts (out, stream);
+      writeInts (out, substream);
+      writeInts (out, new int[] {z0, z1, z2, z3});
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      readInts (in, stream);
+      readInts (in, substream);
+      z0 = in.readInt();
+      z1 = in.readInt();
+      z2 = in.readInt();
+      z3 = in.readInt();
+   }
+
    public String toString()  {
       if (name == null)
          return "The state of the LFSR113 is: { " +
@@ -345,7 +363,13 @@ public class LFSR113 extends RandomStreamBase {
       return nextNumber() * NORM;
    }
 
+   protected int nextBits() {
+      return (int) nextNumber();
+   }
+
    public int nextInt (int i, int j) {
+      if (unbiased)
+         return super.nextInt (i, j);
       if (i > j)
          throw new IllegalArgumentException(i + " is larger than " + j + ".");
       long d = j-i+1L;
@@ -25,6 +25,9 @@
 package umontreal.ssj.rng;
 
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 /*
 import umontreal.ssj.util.BitVector;
 import umontreal.ssj.util.BitMatrix;
@@ -332,6 +335,22 @@ public class LFSR258 extends RandomStreamBase {
     }
 
 
+    protected void writeGeneratorState (DataOutput out) throws IOException {
+       writeLongs (out, stream);
+       writeLongs (out, substream);
+       writeLongs (out, new long[] {z0, z1, z2, z3, z4});
+    }
+
+    protected void readGeneratorState (DataInput in) throws IOException {
+       readLongs (in, stream);
+       readLongs (in, substream);
+       z0 = in.readLong();
+       z1 = in.readLong();
+       z2 = in.readLong();
+       z3 = in.readLong();
+       z4 = in.readLong();
+    }
+
     public String toString() {
         if (name == null)
             return "The state of the LFSR258 is: " +
@@ -369,7 +388,17 @@ public class LFSR258 extends RandomStreamBase {
     }
 
 
+   protected int nextBits() {
+      return (int) (nextNumber() >>> 32);
+   }
+
+   protected long nextBits64() {
+      return nextNumber();
+   }
+
    public int nextInt (int i, int j) {
+      if (unbiased)
+         return super.nextInt (i, j);
       if (i > j)
           throw new IllegalArgumentException(i + " is larger than " + j + ".");
       long d = j-i+1;
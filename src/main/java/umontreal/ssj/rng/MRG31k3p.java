@@ -29,6 +29,9 @@ import umontreal.ssj.rng.RandomStream;
 import umontreal.ssj.rng.RandomStreamBase;
 import umontreal.ssj.util.ArithmeticMod;
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Extends the abstract class  @ref RandomStreamBase, thus implementing the
@@ -65,6 +68,8 @@ public class MRG31k3p extends RandomStreamBase {
    private static final int MASK2 = 65535;      //2^16 - 1
    private static final int MULT2 = 21069;
    private static final double NORM = 4.656612873077392578125e-10;
+   private static final double INVTWO24 = 5.9604644775390625e-8;  //2^(-24)
+   private static final double EPSILON = 5.5511151231257827e-17;  //2^(-54)
    //private static final double NORM = 1.0 / (M1 + 1.0);
 
    //state variables
@@ -80,6 +85,9 @@ public class MRG31k3p extends RandomStreamBase {
    private int[] substream;
    private static int[] curr_stream = {12345, 12345, 12345,
                                        12345, 12345, 12345};
+   // seed of the first stream, as given by setPackageSeed
+   private static int[] first_stream = {12345, 12345, 12345,
+                                        12345, 12345, 12345};
 
    //streams constants :
    private static final int[][] A1p0 =
@@ -129,6 +137,40 @@ public class MRG31k3p extends RandomStreamBase {
 
    }
 
+   //computes v = A^e v mod m for the 3-dimensional vector v,
+   //using the binary decomposition of e
+   private static void matPowVect(int[][] A, long e, int[] v, int m) {
+      int[][] W = new int[3][3];
+      for(int i = 0; i < 3; i++)
+         for(int j = 0; j < 3; j++)
+            W[i][j] = A[i][j];
+      while (e > 0) {
+         if ((e & 1L) != 0)
+            ArithmeticMod.matVecModM(W, v, v, m);
+         e >>>= 1;
+         if (e > 0)
+            ArithmeticMod.matMatModM(W, W, W, m);
+      }
+   }
+
+   //multiply the first half of v by A^e with a modulo of m1
+   //and the second half by B^e with a modulo of m2
+   private static void multMatPowVect(int[] v, int[][] A, int m1,
+                                      int[][] B, int m2, long e) {
+      int[] vv = new int[3];
+      for(int i = 0; i < 3; i++)
+         vv[i] = v[i];
+      matPowVect(A, e, vv, m1);
+      for(int i = 0; i < 3; i++)
+         v[i] = vv[i];
+
+      for(int i = 0; i < 3; i++)
+         vv[i] = v[i + 3];
+      matPowVect(B, e, vv, m2);
+      for(int i = 0; i < 3; i++)
+         v[i + 3] = vv[i];
+   }
+
    /**
     * Constructs a new stream, initialized at its beginning. Its seed is
     * @f$Z = 2^{134}@f$ steps away from the previous seed.
@@ -149,6 +191,19 @@ public class MRG31k3p extends RandomStreamBase {
       multMatVect(curr_stream, A1p134, M1, A2p134, M2);
    }
 
+   // constructs a stream with the given initial seed, without changing
+   // the seed of the next stream
+   private MRG31k3p (String name, int[] seed) {
+      this.name = name;
+      prec53 = false;
+      anti = false;
+      stream = new int[6];
+      substream = new int[6];
+      for(int i = 0; i < 6; i++)
+         stream[i] = seed[i];
+      resetStartStream();
+   }
+
    /**
     * Constructs a new stream with the identifier `name` (used when
     * formatting the stream state).
@@ -182,8 +237,33 @@ public class MRG31k3p extends RandomStreamBase {
 
       if (seed[5] >= M2 || seed[3] >= M2 || seed[4] >= M2)
          throw new IllegalArgumentException ("The last 3 values must be less than " + M2);
-      for (int i = 0; i < 6;  ++i)
+      for (int i = 0; i < 6;  ++i) {
          curr_stream[i] = seed[i];
+         first_stream[i] = seed[i];
+      }
+   }
+
+   /**
+    * Returns a new stream whose initial seed is that of the stream number
+    * `k` created from the package seed, i.e., @f$kZ@f$ steps ahead of the
+    * seed given to  #setPackageSeed(int[]) (or of the default seed). For
+    * `k` = 0, 1, 2, ..., the returned streams are identical to those
+    * obtained by creating streams successively with the constructor, just
+    * after the package seed has been set. The jump ahead costs
+    * @f$O(\log k)@f$ operations, so this method can be used, e.g., to give
+    * each worker of a parallel simulation its own stream directly. The seed
+    * of the next stream created by the constructor is not changed.
+    *  @param k            the index of the stream, starting at 0
+    *  @return the stream number `k`
+    */
+   public static MRG31k3p streamAt (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      int[] seed = new int[6];
+      for (int i = 0; i < 6;  ++i)
+         seed[i] = first_stream[i];
+      multMatPowVect(seed, A1p134, M1, A2p134, M2, k);
+      return new MRG31k3p (null, seed);
    }
 
    /**
@@ -234,6 +314,25 @@ public class MRG31k3p extends RandomStreamBase {
       resetStartSubstream();
    }
 
+   /**
+    * Reinitializes the stream to the beginning of its substream number `k`
+    * (the first substream has number 0): @f$B_g@f$ and @f$C_g@f$ are set
+    * to the state @f$kW@f$ steps ahead of @f$I_g@f$. This gives exactly the
+    * same state as  #resetStartStream followed by `k` calls to
+    * #resetNextSubstream, but it requires only @f$O(\log k)@f$ operations.
+    * Since there are @f$V = 2^{62}@f$ substreams in each stream, `k`
+    * should be smaller than @f$2^{62}@f$.
+    *  @param k            the index of the substream, starting at 0
+    */
+   public void resetToSubstream (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      for(int i = 0; i < 6; i++)
+         substream[i] = stream[i];
+      multMatPowVect(substream, A1p72, M1, A2p72, M2, k);
+      resetStartSubstream();
+   }
+
 /**
  * Returns the current state @f$C_g@f$ of this stream. This is a vector of 6
  * integers represented. This method is convenient if we want to save the
@@ -260,6 +359,23 @@ public int[] getState() {
       return retour;
    }
 
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      writeInts (out, stream);
+      writeInts (out, substream);
+      writeInts (out, new int[] {x11, x12, x13, x21, x22, x23});
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      readInts (in, stream);
+      readInts (in, substream);
+      x11 = in.readInt();
+      x12 = in.readInt();
+      x13 = in.readInt();
+      x21 = in.readInt();
+      x22 = in.readInt();
+      x23 = in.readInt();
+   }
+
    public String toString() {
       if(name == null)
          return "The state of the MRG31k3p is: " +
@@ -312,4 +428,139 @@ public int[] getState() {
          return (x11 - x21) * NORM;
    }
 
+
+   // Next value of the first component, given x12 and x13.
+   private static int nextComp1 (int x12, int x13) {
+      int y1 = ((x12 & MASK12) << 22) + (x12 >>> 9)
+               + ((x13 & MASK13) << 7) + (x13 >>> 24);
+      if(y1 < 0 || y1 >= M1)
+         y1 -= M1;
+      y1 += x13;
+      if(y1 < 0 || y1 >= M1)
+         y1 -= M1;
+      return y1;
+   }
+
+   // Next value of the second component, given x21 and x23.
+   private static int nextComp2 (int x21, int x23) {
+      int y1 = ((x21 & MASK2) << 15) + (MULT2 * (x21 >>> 16));
+      if(y1 < 0 || y1 >= M2)
+         y1 -= M2;
+      int y2 = ((x23 & MASK2) << 15) + (MULT2 * (x23 >>> 16));
+      if(y2 < 0 || y2 >= M2)
+         y2 -= M2;
+      y2 += x23;
+      if(y2 < 0 || y2 >= M2)
+         y2 -= M2;
+      y2 += y1;
+      if(y2 < 0 || y2 >= M2)
+         y2 -= M2;
+      return y2;
+   }
+
+   // Combines the outputs of the two components, as in nextValue.
+   private static double combine (int y1, int y2) {
+      return (y1 <= y2) ? (y1 - y2 + M1) * NORM : (y1 - y2) * NORM;
+   }
+
+   /**
+    * Fills `u[start..start+n-1]` with the same numbers as `n` successive
+    * calls to  #nextDouble, but much faster: the state is kept in local
+    * variables during the whole operation, and the recurrence is unrolled
+    * three steps at a time so that no state shifting is needed. When the
+    * precision has been increased, each number is built directly from two
+    * successive steps of the recurrence.
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      checkArrayBounds (u.length, start, n);
+      int s11 = x11, s12 = x12, s13 = x13;
+      int s21 = x21, s22 = x22, s23 = x23;
+      final int end = start + n;
+      int ii = start;
+      if (prec53) {
+         for (; ii < end; ii++) {
+            int p1 = nextComp1 (s12, s13);
+            int p2 = nextComp2 (s21, s23);
+            int q1 = nextComp1 (s11, s12);
+            int q2 = nextComp2 (p2, s22);
+            s13 = s11;  s12 = p1;  s11 = q1;
+            s23 = s21;  s22 = p2;  s21 = q2;
+            u[ii] = (combine (p1, p2) + combine (q1, q2) * INVTWO24) % 1.0
+                    + EPSILON;
+         }
+      } else {
+         // After three steps, the new state is (r1, q1, p1; r2, q2, p2).
+         for (; ii + 2 < end; ii += 3) {
+            int p1 = nextComp1 (s12, s13);
+            int p2 = nextComp2 (s21, s23);
+            int q1 = nextComp1 (s11, s12);
+            int q2 = nextComp2 (p2, s22);
+            int r1 = nextComp1 (p1, s11);
+            int r2 = nextComp2 (q2, s21);
+            s13 = p1;  s12 = q1;  s11 = r1;
+            s23 = p2;  s22 = q2;  s21 = r2;
+            u[ii]     = combine (p1, p2);
+            u[ii + 1] = combine (q1, q2);
+            u[ii + 2] = combine (r1, r2);
+         }
+         for (; ii < end; ii++) {
+            int p1 = nextComp1 (s12, s13);
+            int p2 = nextComp2 (s21, s23);
+            s13 = s12;  s12 = s11;  s11 = p1;
+            s23 = s22;  s22 = s21;  s21 = p2;
+            u[ii] = combine (p1, p2);
+         }
+      }
+      x11 = s11;  x12 = s12;  x13 = s13;
+      x21 = s21;  x22 = s22;  x23 = s23;
+      if (anti)
+         for (ii = start; ii < end; ii++)
+            u[ii] = 1.0 - u[ii];
+   }
+
+   /**
+    * Fills `u[start..start+n-1]` with the same integers as `n` successive
+    * calls to  #nextInt(int,int), keeping the state in local variables
+    * during the whole operation.
+    *  @param i            the smallest possible integer to put in `u`
+    *  @param j            the largest possible integer to put in `u`
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfInt (int i, int j, int[] u, int start, int n) {
+      if (unbiased) {
+         super.nextArrayOfInt (i, j, u, start, n);
+         return;
+      }
+      if(i > j)
+         throw new IllegalArgumentException(i + " is larger than " +
+                                            j + ".");
+      checkArrayBounds (u.length, start, n);
+      final double range = j - i + 1.0;
+      int s11 = x11, s12 = x12, s13 = x13;
+      int s21 = x21, s22 = x22, s23 = x23;
+      for (int ii = start; ii < start + n; ii++) {
+         int p1 = nextComp1 (s12, s13);
+         int p2 = nextComp2 (s21, s23);
+         s13 = s12;  s12 = s11;  s11 = p1;
+         s23 = s22;  s22 = s21;  s21 = p2;
+         double v = combine (p1, p2);
+         if (prec53) {
+            p1 = nextComp1 (s12, s13);
+            p2 = nextComp2 (s21, s23);
+            s13 = s12;  s12 = s11;  s11 = p1;
+            s23 = s22;  s22 = s21;  s21 = p2;
+            v = (v + combine (p1, p2) * INVTWO24) % 1.0 + EPSILON;
+         }
+         if (anti)
+            v = 1.0 - v;
+         u[ii] = i + (int)(v * range);
+      }
+      x11 = s11;  x12 = s12;  x13 = s13;
+      x21 = s21;  x22 = s22;  x23 = s23;
+   }
 }
\ No newline at end of file
@@ -27,6 +27,9 @@ package umontreal.ssj.rng;
 import umontreal.ssj.util.ArithmeticMod;
 import umontreal.ssj.util.PrintfFormat;
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Extends the abstract class  @ref RandomStreamBase by using as a backbone
@@ -58,6 +61,7 @@ public class MRG32k3a extends RandomStreamBase {
    private static final double two17    =  131072.0;
    private static final double two53    =  9007199254740992.0;
    private static final double invtwo24 = 5.9604644775390625e-8;
+   private static final double EPSILON  = 5.5511151231257827e-17;  //2^(-54)
    private static final double norm   = 2.328306549295727688e-10;
    //    private static final double norm   = 1.0 / (m1 + 1.0);
 
@@ -112,6 +116,9 @@ public class MRG32k3a extends RandomStreamBase {
    // Default seed of the package for the first stream
    private static double nextSeed[] = {12345, 12345, 12345,
                                        12345, 12345, 12345};
+   // Seed of the first stream, as given by setPackageSeed
+   private static double packageSeed[] = {12345, 12345, 12345,
+                                          12345, 12345, 12345};
    private double Cg0, Cg1, Cg2, Cg3, Cg4, Cg5;
    private double Bg[] = new double[6];
    private double Ig[] = new double[6];
@@ -138,6 +145,41 @@ public class MRG32k3a extends RandomStreamBase {
          v[i + 3] = vv[i];
    }
 
+   //computes v = A^e v mod m for the 3-dimensional vector v,
+   //using the binary decomposition of e
+   private static void matPowVect(double[][] A, long e, double[] v,
+                                  double m) {
+      double[][] W = new double[3][3];
+      for(int i = 0; i < 3; i++)
+         for(int j = 0; j < 3; j++)
+            W[i][j] = A[i][j];
+      while (e > 0) {
+         if ((e & 1L) != 0)
+            ArithmeticMod.matVecModM(W, v, v, m);
+         e >>>= 1;
+         if (e > 0)
+            ArithmeticMod.matMatModM(W, W, W, m);
+      }
+   }
+
+   //multiply the first half of v by A^e with a modulo of m1
+   //and the second half by B^e with a modulo of m2
+   private static void multMatPowVect(double[] v, double[][] A, double m1,
+                                      double[][] B, double m2, long e) {
+      double[] vv = new double[3];
+      for(int i = 0; i < 3; i++)
+         vv[i] = v[i];
+      matPowVect(A, e, vv, m1);
+      for(int i = 0; i < 3; i++)
+         v[i] = vv[i];
+
+      for(int i = 0; i < 3; i++)
+         vv[i] = v[i + 3];
+      matPowVect(B, e, vv, m2);
+      for(int i = 0; i < 3; i++)
+         v[i + 3] = vv[i];
+   }
+
    /**
     * Constructs a new stream, initializes its seed @f$I_g@f$, sets
     * @f$B_g@f$ and @f$C_g@f$ equal to @f$I_g@f$, and sets its antithetic
@@ -156,6 +198,17 @@ public class MRG32k3a extends RandomStreamBase {
       multMatVect(nextSeed, A1p127, m1, A2p127, m2);
    }
 
+   // Constructs a stream with the given initial seed, without changing
+   // the seed of the next stream.
+   private MRG32k3a (String name, double[] seed) {
+      this.name = name;
+      anti = false;
+      prec53 = false;
+      for(int i = 0; i < 6; i++)
+         Ig[i] = seed[i];
+      resetStartStream();
+   }
+
    /**
     * Constructs a new stream with an identifier `name` (used when
     * printing the stream state).
@@ -179,8 +232,33 @@ public class MRG32k3a extends RandomStreamBase {
    public static void setPackageSeed (long seed[]) {
       // Must use long because there is no unsigned int type.
       validateSeed (seed);
-      for (int i = 0; i < 6;  ++i)
+      for (int i = 0; i < 6;  ++i) {
          nextSeed[i] = seed[i];
+         packageSeed[i] = seed[i];
+      }
+   }
+
+   /**
+    * Returns a new stream whose initial seed is that of the stream number
+    * `k` created from the package seed, i.e., @f$kZ@f$ steps ahead of the
+    * seed given to  #setPackageSeed(long[]) (or of the default seed). For
+    * `k` = 0, 1, 2, ..., the returned streams are identical to those
+    * obtained by creating streams successively with the constructor, just
+    * after the package seed has been set. The jump ahead costs
+    * @f$O(\log k)@f$ operations, so this method can be used, e.g., to give
+    * each worker of a parallel simulation its own stream directly. The seed
+    * of the next stream created by the constructor is not changed.
+    *  @param k            the index of the stream, starting at 0
+    *  @return the stream number `k`
+    */
+   public static MRG32k3a streamAt (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      double[] seed = new double[6];
+      for (int i = 0; i < 6;  ++i)
+         seed[i] = packageSeed[i];
+      multMatPowVect(seed, A1p127, m1, A2p127, m2, k);
+      return new MRG32k3a (null, seed);
    }
 
    /**
@@ -223,6 +301,25 @@ public class MRG32k3a extends RandomStreamBase {
       resetStartSubstream();
    }
 
+   /**
+    * Reinitializes the stream to the beginning of its substream number `k`
+    * (the first substream has number 0): @f$B_g@f$ and @f$C_g@f$ are set
+    * to the state @f$kW@f$ steps ahead of @f$I_g@f$. This gives exactly the
+    * same state as  #resetStartStream followed by `k` calls to
+    * #resetNextSubstream, but it requires only @f$O(\log k)@f$ operations.
+    * Since there are @f$V = 2^{51}@f$ substreams in each stream, `k`
+    * should be smaller than @f$2^{51}@f$.
+    *  @param k            the index of the substream, starting at 0
+    */
+   public void resetToSubstream (long k) {
+      if (k < 0)
+         throw new IllegalArgumentException ("k must be non-negative");
+      for (int i = 0; i < 6;  ++i)
+         Bg[i] = Ig[i];
+      multMatPowVect(Bg, A1p76, m1, A2p76, m2, k);
+      resetStartSubstream();
+   }
+
 /**
  * Returns the current state @f$C_g@f$ of this stream. This is a vector of 6
  * integers. This method is convenient if we want to save the state for
@@ -234,6 +331,30 @@ public long[] getState() {
                          (long)Cg3, (long)Cg4, (long)Cg5};
    }
 
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      // all the components are smaller than 2^32
+      for (int i = 0; i < 6; i++)
+         out.writeInt ((int) (long) Ig[i]);
+      for (int i = 0; i < 6; i++)
+         out.writeInt ((int) (long) Bg[i]);
+      double[] cg = {Cg0, Cg1, Cg2, Cg3, Cg4, Cg5};
+      for (int i = 0; i < 6; i++)
+         out.writeInt ((int) (long) cg[i]);
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      for (int i = 0; i < 6; i++)
+         Ig[i] = in.readInt() & 0xffffffffL;
+      for (int i = 0; i < 6; i++)
+         Bg[i] = in.readInt() & 0xffffffffL;
+      Cg0 = in.readInt() & 0xffffffffL;
+      Cg1 = in.readInt() & 0xffffffffL;
+      Cg2 = in.readInt() & 0xffffffffL;
+      Cg3 = in.readInt() & 0xffffffffL;
+      Cg4 = in.readInt() & 0xffffffffL;
+      Cg5 = in.readInt() & 0xffffffffL;
+   }
+
    /**
     * Returns a string containing the name and the current state @f$C_g@f$
     * of this stream.
@@ -337,6 +458,130 @@ public long[] getState() {
    }
 
 
+   // Returns p mod m1, for |p| < 2^53.
+   private static double modM1 (double p) {
+      int k = (int)(p / m1);
+      p -= k * m1;
+      if (p < 0.0)
+         p += m1;
+      return p;
+   }
+
+   // Returns p mod m2, for |p| < 2^53.
+   private static double modM2 (double p) {
+      int k = (int)(p / m2);
+      p -= k * m2;
+      if (p < 0.0)
+         p += m2;
+      return p;
+   }
+
+   // Combines the outputs of the two components, as in nextValue.
+   private static double combine (double p1, double p2) {
+      return (p1 > p2) ? (p1 - p2) * norm : (p1 - p2 + m1) * norm;
+   }
+
+   /**
+    * Fills `u[start..start+n-1]` with the same numbers as `n` successive
+    * calls to  #nextDouble, but much faster: the state is kept in local
+    * variables during the whole operation, and the recurrence is unrolled
+    * three steps at a time so that no state shifting is needed. When the
+    * precision has been increased, each number is built directly from two
+    * successive steps of the recurrence.
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      checkArrayBounds (u.length, start, n);
+      double s0 = Cg0, s1 = Cg1, s2 = Cg2;
+      double s3 = Cg3, s4 = Cg4, s5 = Cg5;
+      final int end = start + n;
+      int ii = start;
+      if (prec53) {
+         for (; ii < end; ii++) {
+            double p1 = modM1 (a12 * s1 - a13n * s0);
+            double p2 = modM2 (a21 * s5 - a23n * s3);
+            double q1 = modM1 (a12 * s2 - a13n * s1);
+            double q2 = modM2 (a21 * p2 - a23n * s4);
+            s0 = s2;  s1 = p1;  s2 = q1;
+            s3 = s5;  s4 = p2;  s5 = q2;
+            u[ii] = (combine (p1, p2) + combine (q1, q2) * invtwo24) % 1.0
+                    + EPSILON;
+         }
+      } else {
+         // After three steps, the new state is (p1, q1, r1; p2, q2, r2).
+         for (; ii + 2 < end; ii += 3) {
+            double p1 = modM1 (a12 * s1 - a13n * s0);
+            double p2 = modM2 (a21 * s5 - a23n * s3);
+            double q1 = modM1 (a12 * s2 - a13n * s1);
+            double q2 = modM2 (a21 * p2 - a23n * s4);
+            double r1 = modM1 (a12 * p1 - a13n * s2);
+            double r2 = modM2 (a21 * q2 - a23n * s5);
+            s0 = p1;  s1 = q1;  s2 = r1;
+            s3 = p2;  s4 = q2;  s5 = r2;
+            u[ii]     = combine (p1, p2);
+            u[ii + 1] = combine (q1, q2);
+            u[ii + 2] = combine (r1, r2);
+         }
+         for (; ii < end; ii++) {
+            double p1 = modM1 (a12 * s1 - a13n * s0);
+            double p2 = modM2 (a21 * s5 - a23n * s3);
+            s0 = s1;  s1 = s2;  s2 = p1;
+            s3 = s4;  s4 = s5;  s5 = p2;
+            u[ii] = combine (p1, p2);
+         }
+      }
+      Cg0 = s0;  Cg1 = s1;  Cg2 = s2;
+      Cg3 = s3;  Cg4 = s4;  Cg5 = s5;
+      if (anti)
+         for (ii = start; ii < end; ii++)
+            u[ii] = 1.0 - u[ii];
+   }
+
+   /**
+    * Fills `u[start..start+n-1]` with the same integers as `n` successive
+    * calls to  #nextInt(int,int), keeping the state in local variables
+    * during the whole operation.
+    *  @param i            the smallest possible integer to put in `u`
+    *  @param j            the largest possible integer to put in `u`
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfInt (int i, int j, int[] u, int start, int n) {
+      if (unbiased) {
+         super.nextArrayOfInt (i, j, u, start, n);
+         return;
+      }
+      if(i > j)
+         throw new IllegalArgumentException(i + " is larger than " +
+                                            j + ".");
+      checkArrayBounds (u.length, start, n);
+      final double range = j - i + 1.0;
+      double s0 = Cg0, s1 = Cg1, s2 = Cg2;
+      double s3 = Cg3, s4 = Cg4, s5 = Cg5;
+      for (int ii = start; ii < start + n; ii++) {
+         double p1 = modM1 (a12 * s1 - a13n * s0);
+         double p2 = modM2 (a21 * s5 - a23n * s3);
+         s0 = s1;  s1 = s2;  s2 = p1;
+         s3 = s4;  s4 = s5;  s5 = p2;
+         double v = combine (p1, p2);
+         if (prec53) {
+            p1 = modM1 (a12 * s1 - a13n * s0);
+            p2 = modM2 (a21 * s5 - a23n * s3);
+            s0 = s1;  s1 = s2;  s2 = p1;
+            s3 = s4;  s4 = s5;  s5 = p2;
+            v = (v + combine (p1, p2) * invtwo24) % 1.0 + EPSILON;
+         }
+         if (anti)
+            v = 1.0 - v;
+         u[ii] = i + (int)(v * range);
+      }
+      Cg0 = s0;  Cg1 = s1;  Cg2 = s2;
+      Cg3 = s3;  Cg4 = s4;  Cg5 = s5;
+   }
+
    private static void validateSeed (long seed[]) {
       if (seed.length < 6)
          throw new IllegalArgumentException ("Seed must contain 6 values");
@@ -27,6 +27,9 @@ package umontreal.ssj.rng;
 import umontreal.ssj.util.ArithmeticMod;
 import umontreal.ssj.util.PrintfFormat;
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * The same generator as  @ref MRG32k3a, except here it is implemented with
@@ -194,6 +197,30 @@ public class MRG32k3aL extends RandomStreamBase {
       return new long[]{Cg0, Cg1, Cg2, Cg3, Cg4, Cg5};
    }
 
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      // all the components are smaller than 2^32
+      for (int i = 0; i < 6; i++)
+         out.writeInt ((int) Ig[i]);
+      for (int i = 0; i < 6; i++)
+         out.writeInt ((int) Bg[i]);
+      long[] cg = {Cg0, Cg1, Cg2, Cg3, Cg4, Cg5};
+      for (int i = 0; i < 6; i++)
+         out.writeInt ((int) cg[i]);
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      for (int i = 0; i < 6; i++)
+         Ig[i] = in.readInt() & 0xffffffffL;
+      for (int i = 0; i < 6; i++)
+         Bg[i] = in.readInt() & 0xffffffffL;
+      Cg0 = in.readInt() & 0xffffffffL;
+      Cg1 = in.readInt() & 0xffffffffL;
+      Cg2 = in.readInt() & 0xffffffffL;
+      Cg3 = in.readInt() & 0xffffffffL;
+      Cg4 = in.readInt() & 0xffffffffL;
+      Cg5 = in.readInt() & 0xffffffffL;
+   }
+
    /**
     * @return the current state of the generator
     */
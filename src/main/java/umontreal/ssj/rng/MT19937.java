@@ -32,6 +32,8 @@ import java.io.ObjectOutputStream;
 import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
 
 /**
  * Implements the  @ref RandomStream interface via inheritance from
@@ -57,7 +59,7 @@ public class MT19937 extends RandomStreamBase {
 
    private static final int N = 624;
    private static final int M = 397;
-   private static final int[] MULT_MATRIX_A = {0x0, 0x9908B0DF};
+   private static final int MATRIX_A = 0x9908B0DF;
    private static final int UPPER_MASK = 0x80000000;
    private static final int LOWER_MASK = 0x7FFFFFFF;
 
@@ -129,6 +131,33 @@ public class MT19937 extends RandomStreamBase {
       fillSeed();
    }
 
+   /**
+    * Writes the state of the stream used to fill the initial state,
+    * which must be a  @ref RandomStreamBase, followed by the state of this
+    * stream.
+    *  @param out          the output to which the state is written
+    *  @exception IOException if an I/O error occurs
+    */
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      if (!(seedRng instanceof RandomStreamBase))
+         throw new UnsupportedOperationException
+            ("Cannot save the state of " + seedRng.getClass().getName());
+      ((RandomStreamBase) seedRng).writeState (out);
+      out.writeShort (state_i);
+      writeInts (out, state);
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      if (!(seedRng instanceof RandomStreamBase))
+         throw new UnsupportedOperationException
+            ("Cannot restore the state of " + seedRng.getClass().getName());
+      ((RandomStreamBase) seedRng).readState (in);
+      state_i = in.readShort();
+      if (state_i < 0 || state_i > N)
+         throw new IOException ("Invalid state of MT19937");
+      readInts (in, state);
+   }
+
    public String toString() {
       StringBuffer sb = new StringBuffer();
       if(name == null)
@@ -148,39 +177,82 @@ public class MT19937 extends RandomStreamBase {
    }
 
    protected double nextValue() {
-      int y;
+      long r = nextBits();
+      if (r <= 0)
+         r += 0x100000000L;
 
-      if(state_i >= N) {
-         int kk;
+      return r * NORM;
+   }
 
-         for(kk=0; kk < N - M; kk++) {
-            y = (state[kk] & UPPER_MASK) | (state[kk+1] & LOWER_MASK);
-            state[kk] = state[kk + M] ^ (y >>> 1) ^
-                        MULT_MATRIX_A[y & 0x1];
-         }
-         for(; kk < N - 1; kk++) {
-            y = (state[kk] & UPPER_MASK) | (state[kk+1] & LOWER_MASK);
-            state[kk] = state[kk + (M - N)] ^ (y >>> 1) ^
-                        MULT_MATRIX_A[y & 0x1];
-         }
-         y = (state[N-1] & UPPER_MASK) | (state[0] & LOWER_MASK);
-         state[N-1] = state[M-1] ^ (y >>> 1) ^
-                      MULT_MATRIX_A[y & 0x1];
+   // Regenerates the whole state array at once; its words are then
+   // tempered and returned one at a time.
+   private void nextBlock() {
+      final int[] st = state;
+      int y, kk;
 
-         state_i = 0;
+      for(kk=0; kk < N - M; kk++) {
+         y = (st[kk] & UPPER_MASK) | (st[kk+1] & LOWER_MASK);
+         st[kk] = st[kk + M] ^ (y >>> 1) ^ (-(y & 0x1) & MATRIX_A);
+      }
+      for(; kk < N - 1; kk++) {
+         y = (st[kk] & UPPER_MASK) | (st[kk+1] & LOWER_MASK);
+         st[kk] = st[kk + (M - N)] ^ (y >>> 1) ^ (-(y & 0x1) & MATRIX_A);
       }
+      y = (st[N-1] & UPPER_MASK) | (st[0] & LOWER_MASK);
+      st[N-1] = st[M-1] ^ (y >>> 1) ^ (-(y & 0x1) & MATRIX_A);
 
-      y = state[state_i++];
+      state_i = 0;
+   }
 
-      // Tempering */
+   private static int temper (int y) {
       y ^= (y >>> 11);
       y ^= (y << 7) & 0x9d2c5680;
       y ^= (y << 15) & 0xefc60000;
       y ^= (y >>> 18);
+      return y;
+   }
 
-      long r = (y <= 0) ? y + 0x100000000L : y;
+   protected int nextBits() {
+      if(state_i >= N)
+         nextBlock();
 
-      return r * NORM;
+      return temper (state[state_i++]);
+   }
+
+   /**
+    * Fills `u[start..start+n-1]` with the same numbers as `n` successive
+    * calls to  #nextDouble. Without increased precision, the numbers are
+    * taken directly from the state array, which is regenerated in one
+    * loop each time its 624 words have been used.
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      if (prec53) {
+         super.nextArrayOfDouble (u, start, n);
+         return;
+      }
+      checkArrayBounds (u.length, start, n);
+      final int end = start + n;
+      int ii = start;
+      while (ii < end) {
+         if (state_i >= N)
+            nextBlock();
+         final int[] st = state;
+         int si = state_i;
+         final int stop = Math.min (end, ii + N - si);
+         for (; ii < stop; ii++) {
+            long r = temper (st[si++]);
+            if (r <= 0)
+               r += 0x100000000L;
+            u[ii] = r * NORM;
+         }
+         state_i = si;
+      }
+      if (anti)
+         for (ii = start; ii < end; ii++)
+            u[ii] = 1.0 - u[ii];
    }
 
 }
\ No newline at end of file
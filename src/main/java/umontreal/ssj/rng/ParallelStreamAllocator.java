@@ -0,0 +1,186 @@
+/*
+ * Class:        ParallelStreamAllocator
+ * Description:  deterministic allocation of MRG32k3a streams to
+                 (experiment, replication, stream) triples
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Allocates  @ref MRG32k3a streams to simulation replications in a way that
+ * depends only on the identity of the replication, and not on the thread
+ * that runs it. Each experiment uses `numStreams` logical streams, numbered
+ * from 0 to `numStreams`@f$-1@f$ (e.g., one for the arrivals, one for the
+ * service times, etc.). The logical stream @f$s@f$ of experiment @f$e@f$ is
+ * the stream number @f$f + e\,\mathtt{numStreams} + s@f$ of
+ * @ref MRG32k3a (see  @ref MRG32k3a.streamAt), where @f$f@f$ is the index
+ * of the first stream given to the constructor, and replication @f$r@f$ uses
+ * its substream number @f$r@f$. Thus, the numbers used by replication @f$r@f$
+ * are exactly those it would use in a sequential program that calls
+ * `resetNextSubstream` on each stream after each replication, whatever the
+ * number of threads and the order in which the replications are run.
+ *
+ * All the methods of this class can be called concurrently by several
+ * threads without locking. Each call returns a new stream which is owned by
+ * the caller and must not be shared with other threads. The starting points
+ * of the streams are computed once, in @f$O(\log k)@f$ time (see
+ * @ref MRG32k3a.resetToSubstream), and kept in a concurrent cache.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class ParallelStreamAllocator {
+   private final long firstStream;
+   private final int numStreams;
+   // Starting points of the streams, indexed by their global number.
+   // Since these streams are never modified, concurrent readers can
+   // clone them safely.
+   private final ConcurrentHashMap<Long, MRG32k3a> starts =
+      new ConcurrentHashMap<Long, MRG32k3a>();
+
+   /**
+    * Constructs an allocator using `numStreams` logical streams per
+    * experiment, starting with the first stream of  @ref MRG32k3a.
+    *  @param numStreams   number of logical streams per experiment
+    */
+   public ParallelStreamAllocator (int numStreams) {
+      this (0, numStreams);
+   }
+
+   /**
+    * Constructs an allocator using `numStreams` logical streams per
+    * experiment, starting with stream number `firstStream` of
+    * @ref MRG32k3a. This can be used to prevent the streams of this
+    * allocator from overlapping the ones created by calling the
+    * constructor of  @ref MRG32k3a directly.
+    *  @param firstStream  global number of the first stream
+    *  @param numStreams   number of logical streams per experiment
+    */
+   public ParallelStreamAllocator (long firstStream, int numStreams) {
+      if (firstStream < 0)
+         throw new IllegalArgumentException ("firstStream must be non-negative");
+      if (numStreams <= 0)
+         throw new IllegalArgumentException ("numStreams must be positive");
+      this.firstStream = firstStream;
+      this.numStreams = numStreams;
+   }
+
+   /**
+    * Returns the number of logical streams per experiment.
+    *  @return the number of logical streams
+    */
+   public int getNumStreams() {
+      return numStreams;
+   }
+
+   /**
+    * Returns a new stream positioned at the beginning of the substream
+    * `replication` of the logical stream `streamId` of experiment
+    * `experiment`. Each call returns a different object, so the stream can
+    * be used freely by the calling thread; calling
+    * `resetStartSubstream` on it comes back to the beginning of the
+    * replication, while `resetStartStream` comes back to replication 0.
+    *  @param experiment   index of the experiment
+    *  @param streamId     index of the logical stream, in
+    *                      [0, `getNumStreams()`)
+    *  @param replication  index of the replication
+    *  @return the stream for this replication
+    */
+   public MRG32k3a getStream (long experiment, int streamId,
+                              long replication) {
+      if (experiment < 0)
+         throw new IllegalArgumentException ("experiment must be non-negative");
+      if (streamId < 0 || streamId >= numStreams)
+         throw new IllegalArgumentException ("streamId must be in [0, " +
+                                             numStreams + ")");
+      if (replication < 0)
+         throw new IllegalArgumentException ("replication must be non-negative");
+      long k = firstStream + experiment * numStreams + streamId;
+      MRG32k3a start = starts.get (k);
+      if (start == null) {
+         // Concurrent threads may compute the same stream; they all get
+         // identical objects, so it does not matter which one is kept.
+         start = MRG32k3a.streamAt (k);
+         MRG32k3a old = starts.putIfAbsent (k, start);
+         if (old != null)
+            start = old;
+      }
+      MRG32k3a stream = start.clone();
+      if (replication > 0)
+         stream.resetToSubstream (replication);
+      return stream;
+   }
+
+   /**
+    * Returns an array containing the `getNumStreams()` logical streams
+    * of experiment `experiment` for replication `replication`, in order
+    * of their index.
+    *  @param experiment   index of the experiment
+    *  @param replication  index of the replication
+    *  @return the streams for this replication
+    */
+   public MRG32k3a[] getStreams (long experiment, long replication) {
+      MRG32k3a[] streams = new MRG32k3a[numStreams];
+      for (int s = 0; s < numStreams; s++)
+         streams[s] = getStream (experiment, s, replication);
+      return streams;
+   }
+
+   /**
+    * Returns a  @ref RandomStreamFactory whose successive calls to
+    * `newInstance` return the logical streams 0, 1, 2, ... of experiment
+    * `experiment` for replication `replication`. This permits one to build
+    * a model that creates its streams through a factory in a deterministic
+    * way for each replication. The returned factory is meant to be used by
+    * a single thread; it throws a  @ref RandomStreamInstantiationException
+    * when more than `getNumStreams()` streams are requested.
+    *  @param experiment   index of the experiment
+    *  @param replication  index of the replication
+    *  @return a factory for the streams of this replication
+    */
+   public RandomStreamFactory getFactory (final long experiment,
+                                          final long replication) {
+      return new RandomStreamFactory() {
+         private int next = 0;
+
+         public RandomStream newInstance() {
+            if (next >= numStreams)
+               throw new RandomStreamInstantiationException (this,
+                  "All the " + numStreams + " streams of the replication " +
+                  "have already been created");
+            return getStream (experiment, next++, replication);
+         }
+
+         public String toString() {
+            return "Factory for the streams of replication " + replication +
+                   " of experiment " + experiment;
+         }
+      };
+   }
+
+   public String toString() {
+      return "Parallel stream allocator with " + numStreams +
+             " MRG32k3a streams per experiment, starting at stream " +
+             firstStream;
+   }
+}
@@ -0,0 +1,302 @@
+/*
+ * Class:        Philox4x32
+ * Description:  counter-based random number generator Philox-4x32-10
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Extends  @ref RandomStreamBase using the counter-based generator
+ * `Philox-4x32-10` of Salmon et al. (*Parallel random numbers: as easy as
+ * 1, 2, 3*, SC'11). The output is obtained by applying 10 rounds of a
+ * bijective function, parameterized by a 64-bit key, to a 128-bit counter;
+ * each application produces four 32-bit integers. The state of a stream is
+ * thus only its key and its counter, so any stream, substream and position
+ * within a substream can be reached in constant time, without jump
+ * matrices.
+ *
+ * Each stream has its own key: the key of the first stream is the package
+ * seed (0 by default, see  #setPackageSeed), and each new stream takes the
+ * next key. The 64 high bits of the counter give the substream number and
+ * the 64 low bits give the block number within the substream, so the values
+ * of @f$V@f$ and @f$W@f$ are @f$2^{64}@f$ and @f$2^{66}@f$, respectively
+ * (see  @ref RandomStream for their definition); the streams are not taken
+ * from a single sequence, so @f$Z@f$ is not defined. The `nextValue` method
+ * returns numbers with 32 bits of precision, never 0 or 1.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class Philox4x32 extends RandomStreamBase {
+
+   private static final long serialVersionUID = 261016L;
+   //La date de modification a l'envers, lire 16/10/2026
+
+   // generator constants
+   private static final int M0 = 0xD2511F53;
+   private static final int M1 = 0xCD9E8D57;
+   private static final int W0 = 0x9E3779B9;    // golden ratio
+   private static final int W1 = 0xBB67AE85;    // sqrt(3) - 1
+   // make sure that double values 0 and 1 never occur
+   private static final double NORM = 1.0 / 0x100000001L;   // 2^32 + 1
+
+   // key of the next created stream
+   private static long nextKey = 0;
+
+   private long key;          // key of this stream
+   private long substream;    // number of the current substream
+   private long block;        // number of the next block in the substream
+   private int[] out = new int[4];   // current block of outputs
+   private int index;         // index of the next output in out
+
+   /**
+    * Constructs a new stream, whose key is the one following the key of
+    * the previously created stream.
+    */
+   public Philox4x32() {
+      name = null;
+      synchronized (Philox4x32.class) {
+         key = nextKey++;
+      }
+      resetStartStream();
+   }
+
+   /**
+    * Constructs a new stream with the identifier `name` (used in the
+    * `toString` method).
+    *  @param name         name of the stream
+    */
+   public Philox4x32 (String name) {
+      this();
+      this.name = name;
+   }
+
+   private Philox4x32 (String name, long key) {
+      this.name = name;
+      this.key = key;
+      resetStartStream();
+   }
+
+   /**
+    * Sets the key of the next created stream to `seed`. The following
+    * streams get the keys `seed` + 1, `seed` + 2, etc.
+    *  @param seed         key of the next created stream
+    */
+   public static synchronized void setPackageSeed (long seed) {
+      nextKey = seed;
+   }
+
+   /**
+    * Returns a new stream with key `key`, that is, the stream number
+    * `key` counted from a package seed of 0. The next stream created by
+    * the constructor is not affected.
+    *  @param key          the key of the stream
+    *  @return the stream with this key
+    */
+   public static Philox4x32 streamAt (long key) {
+      return new Philox4x32 (null, key);
+   }
+
+   /**
+    * Sets the key of this stream to `seed` and resets the stream to its
+    * beginning. The keys of the other streams are not modified, so this
+    * stream may become identical to another one; this method should be
+    * used only in exceptional situations.
+    *  @param seed         the new key of this stream
+    */
+   public void setSeed (long seed) {
+      key = seed;
+      resetStartStream();
+   }
+
+   public void resetStartStream() {
+      substream = 0;
+      resetStartSubstream();
+   }
+
+   public void resetStartSubstream() {
+      block = 0;
+      index = 4;
+   }
+
+   public void resetNextSubstream() {
+      substream++;
+      resetStartSubstream();
+   }
+
+   /**
+    * Reinitializes the stream to the beginning of its substream number `k`
+    * (the first substream has number 0). This takes constant time.
+    *  @param k            the index of the substream, starting at 0
+    */
+   public void resetToSubstream (long k) {
+      substream = k;
+      resetStartSubstream();
+   }
+
+   /**
+    * Moves the stream to position `n` of its current substream, where
+    * position 0 is the beginning of the substream: the next call to
+    * `nextValue` returns the `n`-th value of the substream (counting from
+    * 0). This takes constant time.
+    *  @param n            the position in the substream
+    */
+   public void resetToPosition (long n) {
+      if (n < 0)
+         throw new IllegalArgumentException ("n must be non-negative");
+      block = n >>> 2;
+      index = (int) (n & 3);
+      if (index == 0)
+         index = 4;
+      else
+         philox (block++, substream, key, out);
+   }
+
+   /**
+    * Returns the current state of this stream as a vector of three 64-bit
+    * integers: the key, the substream number, and the position of the
+    * next value within the substream.
+    *  @return the current state of the generator
+    */
+   public long[] getState() {
+      return new long[] {key, substream, 4 * block - 4 + index};
+   }
+
+   /**
+    * Clones the current generator and return its copy.
+    *  @return A deep copy of the current generator
+    */
+   public Philox4x32 clone() {
+      Philox4x32 retour = (Philox4x32)super.clone();
+      retour.out = out.clone();
+      return retour;
+   }
+
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      writeLongs (out, getState());
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      key = in.readLong();
+      substream = in.readLong();
+      resetToPosition (in.readLong());
+   }
+
+   public String toString() {
+      long[] state = getState();
+      return "The state of " + (name == null ? "the Philox4x32" : name) +
+             " is: key = " + state[0] + ", substream = " + state[1] +
+             ", position = " + state[2];
+   }
+
+   /**
+    * Computes the Philox-4x32-10 function of the counter
+    * (`c0`, `c1`, `c2`, `c3`) with key (`k0`, `k1`), where the first word
+    * of each is the least significant, and puts the four 32-bit outputs in
+    * `out`.
+    */
+   static void philox (int c0, int c1, int c2, int c3, int k0, int k1,
+                       int[] out) {
+      for (int r = 0; r < 10; r++) {
+         if (r > 0) {
+            k0 += W0;
+            k1 += W1;
+         }
+         long p0 = (M0 & 0xffffffffL) * (c0 & 0xffffffffL);
+         long p1 = (M1 & 0xffffffffL) * (c2 & 0xffffffffL);
+         int n0 = (int) (p1 >>> 32) ^ c1 ^ k0;
+         int n2 = (int) (p0 >>> 32) ^ c3 ^ k1;
+         c1 = (int) p1;
+         c3 = (int) p0;
+         c0 = n0;
+         c2 = n2;
+      }
+      out[0] = c0;
+      out[1] = c1;
+      out[2] = c2;
+      out[3] = c3;
+   }
+
+   private static void philox (long block, long substream, long key,
+                               int[] out) {
+      philox ((int) block, (int) (block >>> 32),
+              (int) substream, (int) (substream >>> 32),
+              (int) key, (int) (key >>> 32), out);
+   }
+
+   private static double toDouble (int w) {
+      return ((w & 0xffffffffL) + 1L) * NORM;
+   }
+
+   protected double nextValue() {
+      if (index == 4) {
+         philox (block++, substream, key, out);
+         index = 0;
+      }
+      return toDouble (out[index++]);
+   }
+
+   protected int nextBits() {
+      if (index == 4) {
+         philox (block++, substream, key, out);
+         index = 0;
+      }
+      return out[index++];
+   }
+
+   /**
+    * Fills `u[start..start+n-1]` with the same numbers as `n` successive
+    * calls to  #nextDouble. Without increased precision, the four outputs
+    * of each application of the Philox function are written directly into
+    * `u`.
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      if (prec53) {
+         super.nextArrayOfDouble (u, start, n);
+         return;
+      }
+      checkArrayBounds (u.length, start, n);
+      final int end = start + n;
+      int ii = start;
+      // first use the outputs left in the current block
+      while (index < 4 && ii < end)
+         u[ii++] = toDouble (out[index++]);
+      for (; ii + 3 < end; ii += 4) {
+         philox (block++, substream, key, out);
+         u[ii]     = toDouble (out[0]);
+         u[ii + 1] = toDouble (out[1]);
+         u[ii + 2] = toDouble (out[2]);
+         u[ii + 3] = toDouble (out[3]);
+      }
+      for (; ii < end; ii++)
+         u[ii] = nextValue();
+      if (anti)
+         for (ii = start; ii < end; ii++)
+            u[ii] = 1.0 - u[ii];
+   }
+}
@@ -26,6 +26,9 @@ package umontreal.ssj.rng;
 
 import umontreal.ssj.util.PrintfFormat;
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * *USE*  @ref MRG32k3a *INSTEAD of this class*. This class implements the
@@ -440,6 +443,45 @@ public void advanceState (int e, int c) {
       return Cg;
    }
 
+   /**
+    * Writes the complete state of this stream to `out`, in the same
+    * format as  @ref RandomStreamBase.writeState(DataOutput).
+    *  @param out          the output to which the state is written
+    *  @exception IOException if an I/O error occurs
+    */
+   public void writeState (DataOutput out) throws IOException {
+      out.writeInt (getClass().getName().hashCode());
+      out.writeByte ((prec53 ? 1 : 0) | (anti ? 2 : 0));
+      for (int i = 0; i < 6; i++)
+         out.writeInt ((int) (long) Ig[i]);
+      for (int i = 0; i < 6; i++)
+         out.writeInt ((int) (long) Bg[i]);
+      for (int i = 0; i < 6; i++)
+         out.writeInt ((int) (long) Cg[i]);
+   }
+
+   /**
+    * Restores the state of this stream from `in`, where it was written by
+    * #writeState.
+    *  @param in           the input from which the state is read
+    *  @exception IOException if an I/O error occurs, or if the saved
+    * state is not a state of this class
+    */
+   public void readState (DataInput in) throws IOException {
+      if (in.readInt() != getClass().getName().hashCode())
+         throw new IOException ("The saved state is not a state of " +
+                                getClass().getName());
+      int flags = in.readByte();
+      prec53 = (flags & 1) != 0;
+      anti = (flags & 2) != 0;
+      for (int i = 0; i < 6; i++)
+         Ig[i] = in.readInt() & 0xffffffffL;
+      for (int i = 0; i < 6; i++)
+         Bg[i] = in.readInt() & 0xffffffffL;
+      for (int i = 0; i < 6; i++)
+         Cg[i] = in.readInt() & 0xffffffffL;
+   }
+
    public String toString() {
        PrintfFormat str = new PrintfFormat();
        
@@ -24,6 +24,12 @@
 package umontreal.ssj.rng;
 
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
 
 /**
  * Implements a RNG using the Rijndael block cipher algorithm (AES) with key
@@ -43,17 +49,31 @@ import java.io.Serializable;
  * page](http://www.esat.kuleuven.ac.be/~rijmen/rijndael/)
  * [http://www.esat.kuleuven.ac.be/~rijmen/rijndael/](http://www.esat.kuleuven.ac.be/~rijmen/rijndael/).
  *
+ * By default, the blocks are rather encrypted by the AES cipher of the
+ * Java platform (`javax.crypto`), which uses the AES instructions of the
+ * processor when they are available. The blocks are then encrypted in
+ * batches of #JCE_BATCH_BLOCKS successive states, and the outputs are
+ * buffered. Both implementations produce exactly the same sequence; the
+ * pure Java one can be selected with  #setUseJCE(boolean).
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class RandRijndael extends RandomStreamBase {
 
-   private static final long serialVersionUID = 70510L;
-   //La date de modification a l'envers, lire 10/05/2007
+   private static final long serialVersionUID = 261016L;
+   //La date de modification a l'envers, lire 16/10/2026
 
 
    private static final int BLOCK_SIZE = 16;
    private static final int JUMP_STREAM = 10;
    private static final int JUMP_SUBSTREAM = 5;
+   private static final byte[] KEY = {1,2,3,4,5,6,7,8,
+                                      9,10,11,12,13,14,15,16};
+
+   /**
+    * Number of blocks encrypted by each call to the `javax.crypto` cipher.
+    */
+   public static final int JCE_BATCH_BLOCKS = 32;
 
    //actually a Object[] containing 2 int[][]
    private static Object key;
@@ -63,15 +83,23 @@ public class RandRijndael extends RandomStreamBase {
    private byte[] substream;
 
    private byte[] state;
+   // The current block of output is output[outputEnd - BLOCK_SIZE ..
+   // outputEnd - 1], and output[outputEnd .. bufferEnd - 1] contains the
+   // encryption of the next states, if they were computed in advance.
    private byte[] output;
    private int outputPos;
+   private int outputEnd;
+   private int bufferEnd;
+
+   private boolean useJCE = true;
+   // Not serializable and not thread-safe; created when first needed.
+   private transient Cipher cipher;
+   private transient byte[] counters;
 
    static
    {
       try {
-         key = Rijndael_Algorithm.makeKey(new byte[]{1,2,3,4,5,6,7,8,
-                                          9,10,11,12,13,14,15,16},
-                                          BLOCK_SIZE);
+         key = Rijndael_Algorithm.makeKey(KEY, BLOCK_SIZE);
       } catch(Exception e) {
          //pour que Java soit certain que la clef est initialisee
          key = new Object[0];
@@ -174,6 +202,8 @@ public class RandRijndael extends RandomStreamBase {
       retour.substream = new byte[BLOCK_SIZE];
       retour.state = new byte[BLOCK_SIZE];
       retour.output = new byte[output.length];
+      retour.cipher = null;
+      retour.counters = null;
       for (int i = 0; i<BLOCK_SIZE; i++) {
          retour.stream[i] = stream[i];
          retour.substream[i] = substream[i];
@@ -197,6 +227,7 @@ public class RandRijndael extends RandomStreamBase {
    public void resetStartSubstream() {
       for(int i = 0; i < BLOCK_SIZE; i++)
          state[i] = substream[i];
+      outputEnd = bufferEnd = 0;
       nextOutput();
    }
 
@@ -205,6 +236,29 @@ public class RandRijndael extends RandomStreamBase {
       resetStartSubstream();
    }
 
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      out.write (stream);
+      out.write (substream);
+      out.write (state);
+      out.writeByte (outputPos - outputEnd + BLOCK_SIZE);
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      in.readFully (stream);
+      in.readFully (substream);
+      in.readFully (state);
+      int pos = in.readUnsignedByte();
+      if (pos > BLOCK_SIZE)
+         throw new IOException ("Invalid state of RandRijndael");
+      // state is the counter of the block following the current one
+      int i = 0;
+      while (i < BLOCK_SIZE && state[i]-- == 0)
+         i++;
+      outputEnd = bufferEnd = 0;
+      nextOutput();
+      outputPos += pos;
+   }
+
    public String toString() {
       StringBuffer sb = new StringBuffer();
       if(name == null)
@@ -216,19 +270,80 @@ public class RandRijndael extends RandomStreamBase {
          sb.append(state[i] + ", ");
       sb.append(state[BLOCK_SIZE - 1] + "]  ");
 
-      sb.append("position : " + outputPos);
+      sb.append("position : " + (outputPos - outputEnd + BLOCK_SIZE));
 
       return sb.toString();
    }
 
+   /**
+    * Selects the implementation of the Rijndael algorithm used by this
+    * stream: the AES cipher of `javax.crypto` if `use` is `true` (the
+    * default), or the pure Java implementation otherwise. This does not
+    * change the sequence of numbers produced by the stream. If the
+    * `javax.crypto` cipher cannot be created, the pure Java
+    * implementation is used.
+    *  @param use          `true` to use the `javax.crypto` cipher
+    */
+   public void setUseJCE (boolean use) {
+      useJCE = use;
+      // the blocks computed in advance are recomputed with the new backend
+      bufferEnd = outputEnd;
+   }
+
+   /**
+    * Returns `true` if this stream uses the AES cipher of `javax.crypto`.
+    *  @return `true` if the `javax.crypto` cipher is used
+    */
+   public boolean getUseJCE() {
+      return useJCE;
+   }
+
+   // Encrypts the blocks starting at the current state into output.
+   private void encrypt() {
+      if (useJCE && cipher == null) {
+         try {
+            cipher = Cipher.getInstance ("AES/ECB/NoPadding");
+            cipher.init (Cipher.ENCRYPT_MODE, new SecretKeySpec (KEY, "AES"));
+         } catch (GeneralSecurityException e) {
+            useJCE = false;
+         }
+      }
+      if (useJCE) {
+         final int len = JCE_BATCH_BLOCKS * BLOCK_SIZE;
+         if (counters == null)
+            counters = new byte[len + BLOCK_SIZE];
+         // the last block of counters is used to iterate the state
+         System.arraycopy (state, 0, counters, len, BLOCK_SIZE);
+         for (int i = 0; i < len; i += BLOCK_SIZE) {
+            System.arraycopy (counters, len, counters, i, BLOCK_SIZE);
+            iterate(counters, len);
+         }
+         if (output == null || output.length != len)
+            output = new byte[len];
+         try {
+            cipher.doFinal (counters, 0, len, output, 0);
+         } catch (GeneralSecurityException e) {
+            throw new IllegalStateException ("AES encryption failed", e);
+         }
+         bufferEnd = len;
+      }
+      else {
+         output = Rijndael_Algorithm.blockEncrypt(state, 0, key, BLOCK_SIZE);
+         bufferEnd = BLOCK_SIZE;
+      }
+      outputEnd = 0;
+   }
+
    private void nextOutput() {
-      output = Rijndael_Algorithm.blockEncrypt(state, 0, key, BLOCK_SIZE);
-      outputPos = 0;
+      if (outputEnd >= bufferEnd)
+         encrypt();
+      outputPos = outputEnd;
+      outputEnd += BLOCK_SIZE;
       iterate(state,0);
    }
 
    protected double nextValue() {
-      if(outputPos > BLOCK_SIZE - 4)
+      if(outputPos > outputEnd - 4)
          nextOutput();
 
 
@@ -25,6 +25,15 @@
 package umontreal.ssj.rng;
 
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 
 /**
  * This class provides a convenient foundation on which RNGs can be built. It
@@ -46,6 +55,23 @@ import java.io.Serializable;
  * designed primarily for RNGs that return numbers with around 30 to 32 bits
  * of precision.
  *
+ * The integers returned by  #nextInt are obtained from a single uniform by
+ * truncation, which is slightly biased when the range is large. After
+ * calling  #unbiasedIntegers(boolean) with `true`, they are rather obtained
+ * from the random bits returned by  #nextBits, with the multiply-and-shift
+ * method of Lemire (*Fast random integer generation in an interval*, ACM
+ * TOMACS, 2019), which uses no division except in rare cases and rejects
+ * the few values that would cause a bias. The subclasses whose backbone
+ * generator produces 32-bit or 64-bit words override  #nextBits and
+ * #nextBits64 to return these words directly.
+ *
+ * The complete state of a stream (the starting points of the stream and of
+ * its current substream, its current state, and its precision flags) can be
+ * saved with  #writeState(DataOutput) and restored with
+ * #readState(DataInput), in a compact binary format that does not depend on
+ * Java serialization. This permits one to checkpoint a long simulation and
+ * restart it later; see also  @ref RandomStreamManager.saveStates.
+ *
  *  @ref RandomStreamBase and its subclasses are implementing the
  * Serializable interface. Each class has a serial number wich represent the
  * class version. For instance `70510` means that the last change was the
@@ -68,6 +94,8 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
    // prec53 keeps track if the precision has been increased or not.
    protected boolean prec53 = false;
    protected boolean anti = false;  // Deprecated.
+   // unbiased keeps track if the integers are generated from random bits.
+   protected boolean unbiased = false;
 
    public abstract void resetStartStream();
    public abstract void resetStartSubstream();
@@ -98,6 +126,122 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
       prec53 = incp;
    }
 
+   /**
+    * After calling this method with `unbiased = true`,  #nextInt,
+    * #nextArrayOfInt and  #nextLong generate their integers from the
+    * random bits returned by  #nextBits or  #nextBits64, using the
+    * multiply-and-shift method with rejection of Lemire. Each integer is
+    * then exactly uniform over its range (assuming that the bits are
+    * uniform), and the number of random bits consumed by each integer is
+    * random (but equal to one word with probability at least 1/2, and
+    * very close to 1 for small ranges). The precision of the uniforms
+    * (see  #increasedPrecision) does not affect these integers. By
+    * default, or if this method is called with `unbiased = false`, each
+    * integer is obtained from one call to `nextDouble`, as described in
+    * #nextInt, so that the integers are monotone functions of the
+    * uniforms.
+    *  @param unbiased     `true` to generate the integers from random
+    *                      bits
+    */
+   public void unbiasedIntegers (boolean unbiased) {
+      this.unbiased = unbiased;
+   }
+
+   /**
+    * Returns `true` if the integers are generated from random bits (see
+    * #unbiasedIntegers(boolean)).
+    *  @return `true` if the integers are unbiased
+    */
+   public boolean isUnbiasedIntegers() {
+      return unbiased;
+   }
+
+   /**
+    * Returns 32 random bits from the stream, and advances the stream by
+    * one step. The default implementation keeps the 32 most significant
+    * bits of `nextValue`, which are not exactly uniform for generators
+    * that do not produce 32-bit words; the subclasses for which these
+    * words are available override this method to return them directly.
+    *  @return 32 random bits
+    */
+   protected int nextBits() {
+      return (int) (long) (nextValue() * 4294967296.0);
+   }
+
+   /**
+    * Returns 64 random bits from the stream. The default implementation
+    * concatenates the results of two calls to  #nextBits.
+    *  @return 64 random bits
+    */
+   protected long nextBits64() {
+      long hi = nextBits();
+      return (hi << 32) | (nextBits() & 0xffffffffL);
+   }
+
+   // Returns a uniform integer in [0, range - 1] for 1 <= range <= 2^32,
+   // with the multiply-and-shift method of Lemire.
+   private long nextBoundedBits (long range) {
+      long x = nextBits();
+      if (anti)
+         x = ~x;
+      long m = (x & 0xffffffffL) * range;
+      long low = m & 0xffffffffL;
+      if (low < range) {
+         long t = (0x100000000L - range) % range;   // 2^32 mod range
+         while (low < t) {
+            x = nextBits();
+            if (anti)
+               x = ~x;
+            m = (x & 0xffffffffL) * range;
+            low = m & 0xffffffffL;
+         }
+      }
+      return m >>> 32;
+   }
+
+   // Returns the 64 most significant bits of the unsigned 128-bit
+   // product x * y.
+   private static long unsignedMultiplyHigh (long x, long y) {
+      long x0 = x & 0xffffffffL, x1 = x >>> 32;
+      long y0 = y & 0xffffffffL, y1 = y >>> 32;
+      long p01 = x0 * y1, p10 = x1 * y0;
+      long mid = ((x0 * y0) >>> 32) + (p01 & 0xffffffffL) +
+                 (p10 & 0xffffffffL);
+      return x1 * y1 + (p01 >>> 32) + (p10 >>> 32) + (mid >>> 32);
+   }
+
+   /**
+    * Returns a random `long` between `i` and `j`, with all the values
+    * equally likely. This method always uses the random bits returned by
+    * #nextBits64 with the method of Lemire, whatever the last call to
+    * #unbiasedIntegers(boolean).
+    *  @param i            the smallest possible returned integer
+    *  @param j            the largest possible returned integer
+    *  @return a random integer between i and j
+    */
+   public long nextLong (long i, long j) {
+      if(i > j)
+         throw new IllegalArgumentException(i + " is larger than " +
+                                            j + ".");
+      long range = j - i + 1;   // 0 stands for 2^64
+      long x = nextBits64();
+      if (anti)
+         x = ~x;
+      if (range == 0)
+         return x;
+      long low = x * range;
+      if (Long.compareUnsigned (low, range) < 0) {
+         long t = Long.remainderUnsigned (-range, range);   // 2^64 mod range
+         while (Long.compareUnsigned (low, t) < 0) {
+            x = nextBits64();
+            if (anti)
+               x = ~x;
+            low = x * range;
+         }
+      }
+      return i + unsignedMultiplyHigh (x, range);
+   }
+
    /**
     * This method should return the next random number (between 0 and 1)
     * from the current stream. If the stream is set to the high precision
@@ -150,7 +294,9 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
     * Calls `nextDouble` once to create one integer between `i` and `j`.
     * This method always uses the highest order bits of the random number.
     * It should be overridden if a faster implementation exists for the
-    * specific generator.
+    * specific generator. If  #unbiasedIntegers(boolean) was called with
+    * `true`, the integer is rather generated from the random bits
+    * returned by  #nextBits, without bias.
     *  @param i            the smallest possible returned integer
     *  @param j            the largest possible returned integer
     *  @return a random integer between i and j
@@ -159,6 +305,8 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
       if(i > j)
          throw new IllegalArgumentException(i + " is larger than " +
                                             j + ".");
+      if (unbiased)
+         return i + (int) nextBoundedBits ((long) j - i + 1);
       // This works even for an interval [0, 2^31 - 1]. It would not with 
       // return i + (int)(nextDouble() * (j - i + 1));
       return i + (int)(nextDouble() * (j - i + 1.0));
@@ -167,7 +315,8 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
    /**
     * Calls `nextInt` `n` times to fill the array `u`. This method should
     * be overridden if a faster implementation exists for the specific
-    * generator.
+    * generator. If  #unbiasedIntegers(boolean) was called with `true`,
+    * the integers are generated directly from the random bits.
     *  @param i            the smallest possible integer to put in `u`
     *  @param j            the largest possible integer to put in `u`
     *  @param u            the array in which the numbers will be stored
@@ -187,10 +336,32 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
          throw new IllegalArgumentException("Must have a non-negative " +
                                             "number of elements.");
 
+      if (unbiased) {
+         if(i > j)
+            throw new IllegalArgumentException(i + " is larger than " +
+                                               j + ".");
+         final long range = (long) j - i + 1;
+         for(int ii = start; ii < start + n; ii++)
+            u[ii] = i + (int) nextBoundedBits (range);
+         return;
+      }
       for(int ii = start; ii < start + n; ii++)
          u[ii] = nextInt(i,j);
    }
 
+   // Checks the bounds given to the nextArrayOf... methods, for the
+   // subclasses that override them with a specialized implementation.
+   static void checkArrayBounds (int length, int start, int n) {
+      if (length < n + start)
+         throw new IndexOutOfBoundsException("The array is too small.");
+      if(start < 0)
+         throw new IndexOutOfBoundsException("Must start at a " +
+                                             "non-negative index.");
+      if(n < 0)
+         throw new IllegalArgumentException("Must have a non-negative " +
+                                            "number of elements.");
+   }
+
    /**
     * Use the `toString` method.
     */
@@ -208,6 +379,162 @@ public abstract class RandomStreamBase implements CloneableRandomStream,
             "   call the toStringFull() method instead.");
    }
 
+   /**
+    * Writes the complete state of this stream to `out`: the starting point
+    * of the stream, the starting point of its current substream, its
+    * current state, and the flags set by  #increasedPrecision,
+    * #unbiasedIntegers and the antithetic flag. The name of the stream is not
+    * saved. The state can be restored with  #readState(DataInput) on a
+    * stream of the same class, for example after restarting the program.
+    * The saved states of the generators of this package take from a few
+    * bytes to a few kilobytes (for  @ref MT19937).
+    *  @param out          the output to which the state is written
+    *  @exception IOException if an I/O error occurs
+    *  @exception UnsupportedOperationException if this generator does not
+    * support checkpoints
+    */
+   public void writeState (DataOutput out) throws IOException {
+      out.writeInt (getClass().getName().hashCode());
+      out.writeByte ((prec53 ? 1 : 0) | (anti ? 2 : 0) | (unbiased ? 4 : 0));
+      writeGeneratorState (out);
+   }
+
+   /**
+    * Restores the state of this stream from `in`, where it was written by
+    * #writeState(DataOutput) from a stream of the same class. After this
+    * call, this stream returns the same numbers as the saved stream, and
+    * its `reset...` methods have the same effect.
+    *  @param in           the input from which the state is read
+    *  @exception IOException if an I/O error occurs, or if the saved
+    * state is not a state of this class
+    *  @exception UnsupportedOperationException if this generator does not
+    * support checkpoints
+    */
+   public void readState (DataInput in) throws IOException {
+      if (in.readInt() != getClass().getName().hashCode())
+         throw new IOException ("The saved state is not a state of " +
+                                getClass().getName());
+      int flags = in.readByte();
+      readGeneratorState (in);
+      prec53 = (flags & 1) != 0;
+      anti = (flags & 2) != 0;
+      unbiased = (flags & 4) != 0;
+   }
+
+   /**
+    * Same as  #writeState(DataOutput), but writes the state at the
+    * current position of `buf`, which is advanced past the state.
+    *  @param buf          the buffer to which the state is written
+    *  @exception java.nio.BufferOverflowException if `buf` is too small
+    */
+   public void writeState (ByteBuffer buf) {
+      try {
+         writeState ((DataOutput) new DataOutputStream (new BufferOutput (buf)));
+      } catch (IOException e) {
+         throw new UncheckedIOException (e);
+      }
+   }
+
+   /**
+    * Same as  #readState(DataInput), but reads the state at the current
+    * position of `buf`, which is advanced past the state.
+    *  @param buf          the buffer from which the state is read
+    *  @exception UncheckedIOException if the buffer does not contain a
+    * state of this class
+    */
+   public void readState (ByteBuffer buf) {
+      try {
+         readState ((DataInput) new DataInputStream (new BufferInput (buf)));
+      } catch (IOException e) {
+         throw new UncheckedIOException (e);
+      }
+   }
+
+   /**
+    * Writes the state of the backbone generator to `out`, as described in
+    * #writeState(DataOutput). This method must be overridden by the
+    * subclasses that support checkpoints, together with
+    * #readGeneratorState; the default implementation throws an
+    * `UnsupportedOperationException`.
+    *  @param out          the output to which the state is written
+    *  @exception IOException if an I/O error occurs
+    */
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      throw new UnsupportedOperationException
+         (getClass().getName() + " does not support checkpoints");
+   }
+
+   /**
+    * Restores the state of the backbone generator from `in`, where it was
+    * written by  #writeGeneratorState.
+    *  @param in           the input from which the state is read
+    *  @exception IOException if an I/O error occurs
+    */
+   protected void readGeneratorState (DataInput in) throws IOException {
+      throw new UnsupportedOperationException
+         (getClass().getName() + " does not support checkpoints");
+   }
+
+   static void writeInts (DataOutput out, int[] a) throws IOException {
+      for (int x : a)
+         out.writeInt (x);
+   }
+
+   static void readInts (DataInput in, int[] a) throws IOException {
+      for (int i = 0; i < a.length; i++)
+         a[i] = in.readInt();
+   }
+
+   static void writeLongs (DataOutput out, long[] a) throws IOException {
+      for (long x : a)
+         out.writeLong (x);
+   }
+
+   static void readLongs (DataInput in, long[] a) throws IOException {
+      for (int i = 0; i < a.length; i++)
+         a[i] = in.readLong();
+   }
+
+   // Streams reading and writing directly in a ByteBuffer, so that the
+   // data streams consume exactly the bytes of the state.
+   private static class BufferOutput extends OutputStream {
+      private final ByteBuffer buf;
+
+      BufferOutput (ByteBuffer buf) {
+         this.buf = buf;
+      }
+
+      public void write (int b) {
+         buf.put ((byte) b);
+      }
+
+      public void write (byte[] b, int off, int len) {
+         buf.put (b, off, len);
+      }
+   }
+
+   private static class BufferInput extends InputStream {
+      private final ByteBuffer buf;
+
+      BufferInput (ByteBuffer buf) {
+         this.buf = buf;
+      }
+
+      public int read() {
+         return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+      }
+
+      public int read (byte[] b, int off, int len) {
+         if (len == 0)
+            return 0;
+         if (!buf.hasRemaining())
+            return -1;
+         len = Math.min (len, buf.remaining());
+         buf.get (b, off, len);
+         return len;
+      }
+   }
+
    /**
     * Clones the current generator and return its copy.
     *  @return A deep copy of the current generator
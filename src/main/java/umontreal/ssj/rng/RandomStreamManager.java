@@ -27,6 +27,9 @@ package umontreal.ssj.rng;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import umontreal.ssj.rng.RandomStream;
 
 /**
@@ -39,6 +42,11 @@ import umontreal.ssj.rng.RandomStream;
  * @ref RandomStream object can be registered to this stream manager (i.e.,
  * added to the list) and eventually unregistered (removed from the list).
  *
+ * The states of all the streams in the list can be saved with
+ * #saveStates and restored with  #restoreStates, for example to checkpoint
+ * a long simulation and restart it later in another program, in which the
+ * same streams are created and registered in the same order.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class RandomStreamManager {
@@ -119,6 +127,92 @@ public RandomStream add (RandomStream stream) {
    }
 
 
+   /**
+    * Writes the number of streams in the list followed by the complete
+    * state of each stream, in the order of the list, to `out` (see
+    * @ref RandomStreamBase.writeState(DataOutput)). The streams must be
+    * instances of  @ref RandomStreamBase or  @ref RandMrg, or wrappers
+    * such as  @ref AntitheticStream, @ref BakerTransformedStream,
+    * @ref TruncatedRandomStream,  @ref RandomStreamWithCache and
+    * @ref RandomStreamWithBoundedCache around such streams; the state of
+    * a wrapper includes the state of the stream it wraps.
+    *  @param out          the output to which the states are written
+    *  @exception IOException if an I/O error occurs
+    *  @exception UnsupportedOperationException if the state of a stream
+    * cannot be saved
+    */
+   public void saveStates (DataOutput out) throws IOException {
+      out.writeInt (streams.size());
+      for (int s = 0; s < streams.size(); s++)
+         writeState ((RandomStream)streams.get (s), out);
+   }
+
+   /**
+    * Restores the states of the streams in the list from `in`, where they
+    * were written by  #saveStates. The list must contain the same number
+    * of streams, of the same classes and in the same order, as when the
+    * states were saved.
+    *  @param in           the input from which the states are read
+    *  @exception IOException if an I/O error occurs, or if the saved
+    * states do not match the streams in the list
+    *  @exception UnsupportedOperationException if the state of a stream
+    * cannot be restored
+    */
+   public void restoreStates (DataInput in) throws IOException {
+      int n = in.readInt();
+      if (n != streams.size())
+         throw new IOException ("The checkpoint contains " + n +
+            " streams, but this manager contains " + streams.size());
+      for (int s = 0; s < streams.size(); s++)
+         readState ((RandomStream)streams.get (s), in);
+   }
+
+   // Writes the state of any stream supported by saveStates; also used by
+   // the wrappers to save the stream they wrap.
+   @SuppressWarnings("deprecation")
+   static void writeState (RandomStream stream, DataOutput out)
+      throws IOException {
+      if (stream instanceof RandomStreamBase)
+         ((RandomStreamBase)stream).writeState (out);
+      else if (stream instanceof RandMrg)
+         ((RandMrg)stream).writeState (out);
+      else if (stream instanceof AntitheticStream)
+         ((AntitheticStream)stream).writeState (out);
+      else if (stream instanceof BakerTransformedStream)
+         ((BakerTransformedStream)stream).writeState (out);
+      else if (stream instanceof TruncatedRandomStream)
+         ((TruncatedRandomStream)stream).writeState (out);
+      else if (stream instanceof RandomStreamWithCache)
+         ((RandomStreamWithCache)stream).writeState (out);
+      else if (stream instanceof RandomStreamWithBoundedCache)
+         ((RandomStreamWithBoundedCache)stream).writeState (out);
+      else
+         throw new UnsupportedOperationException
+            ("Cannot save the state of " + stream.getClass().getName());
+   }
+
+   @SuppressWarnings("deprecation")
+   static void readState (RandomStream stream, DataInput in)
+      throws IOException {
+      if (stream instanceof RandomStreamBase)
+         ((RandomStreamBase)stream).readState (in);
+      else if (stream instanceof RandMrg)
+         ((RandMrg)stream).readState (in);
+      else if (stream instanceof AntitheticStream)
+         ((AntitheticStream)stream).readState (in);
+      else if (stream instanceof BakerTransformedStream)
+         ((BakerTransformedStream)stream).readState (in);
+      else if (stream instanceof TruncatedRandomStream)
+         ((TruncatedRandomStream)stream).readState (in);
+      else if (stream instanceof RandomStreamWithCache)
+         ((RandomStreamWithCache)stream).readState (in);
+      else if (stream instanceof RandomStreamWithBoundedCache)
+         ((RandomStreamWithBoundedCache)stream).readState (in);
+      else
+         throw new UnsupportedOperationException
+            ("Cannot restore the state of " + stream.getClass().getName());
+   }
+
    public String toString() {
       StringBuffer sb = new StringBuffer (getClass().getName());
       sb.append ('[');
@@ -0,0 +1,418 @@
+/*
+ * Class:        RandomStreamWithBoundedCache
+ * Description:  random stream whose most recent uniforms are kept in a
+                 fixed-capacity cache for replay
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.rng;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * Similar to  @ref RandomStreamWithCache, but uses a bounded amount of
+ * memory, which makes it usable for replaying windows of a stream with
+ * common random numbers in long simulations. The uniforms obtained from
+ * the internal stream are numbered 0, 1, 2, ... in the order they are
+ * generated, and this number is called their *position*. The last
+ * `capacity` generated values are kept in a ring buffer of primitive
+ * `double`s; the older ones are either discarded, or, if the cache was
+ * constructed with spilling enabled, written to a memory-mapped temporary
+ * file, so that they can still be replayed without taking heap space.
+ *
+ * The current position can be saved with  #mark and restored with
+ * #rewind(long); after a rewind, the subsequent calls to  #nextDouble
+ * return the cached values until the most recently generated value has
+ * been returned again, after which new values are obtained from the
+ * internal stream and added to the cache. The `reset...` methods only
+ * reset the internal stream and do not affect the cache, as in
+ * @ref RandomStreamWithCache.
+ *
+ * When spilling is enabled,  #close should be called when the cache is
+ * no longer needed, to delete the temporary file.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class RandomStreamWithBoundedCache implements RandomStream, Closeable {
+   private RandomStream stream;
+   private double[] ring;
+   private long numGenerated = 0;   // number of values obtained from stream
+   private long position = 0;       // position of the next returned value
+   private long markPos = 0;
+   private SpillFile spill;         // null if spilling is disabled
+
+   /**
+    * Constructs a new cached random stream with internal stream `stream`,
+    * keeping at most the `capacity` most recently generated values in
+    * memory. If `spill` is `true`, older values are written to a
+    * memory-mapped temporary file instead of being discarded.
+    *  @param stream       the random stream whose uniforms are cached.
+    *  @param capacity     number of values kept in memory.
+    *  @param spill        `true` if older values are kept in a file.
+    *  @exception NullPointerException if `stream` is `null`.
+    *  @exception IllegalArgumentException if `capacity` is not positive.
+    *  @exception UncheckedIOException if the temporary file cannot be
+    * created.
+    */
+   public RandomStreamWithBoundedCache (RandomStream stream, int capacity,
+                                        boolean spill) {
+      if (stream == null)
+         throw new NullPointerException
+            ("The given random stream cannot be null");
+      if (capacity <= 0)
+         throw new IllegalArgumentException ("capacity must be positive");
+      this.stream = stream;
+      ring = new double[capacity];
+      if (spill)
+         this.spill = new SpillFile();
+   }
+
+   /**
+    * Equivalent to `RandomStreamWithBoundedCache (stream, capacity,
+    * false)`: the values older than the last `capacity` ones are
+    * discarded.
+    *  @param stream       the random stream whose uniforms are cached.
+    *  @param capacity     number of values kept in memory.
+    */
+   public RandomStreamWithBoundedCache (RandomStream stream, int capacity) {
+      this (stream, capacity, false);
+   }
+
+   /**
+    * Returns a reference to the random stream whose values are cached.
+    *  @return a reference to the random stream whose values are cached.
+    */
+   public RandomStream getCachedStream() {
+      return stream;
+   }
+
+   /**
+    * Returns the number of values kept in memory.
+    *  @return the capacity of the ring buffer.
+    */
+   public int getCapacity() {
+      return ring.length;
+   }
+
+   /**
+    * Returns `true` if the values that no longer fit in memory are
+    * written to a temporary file.
+    *  @return `true` if spilling is enabled.
+    */
+   public boolean isSpilling() {
+      return spill != null;
+   }
+
+   /**
+    * Returns the total number of values obtained from the internal stream
+    * since the construction of this object or the last call to
+    * #clearCache.
+    *  @return the number of generated values.
+    */
+   public long getNumGenerated() {
+      return numGenerated;
+   }
+
+   /**
+    * Returns the smallest position that can still be replayed. This is 0
+    * if spilling is enabled or if fewer than  #getCapacity values were
+    * generated.
+    *  @return the oldest cached position.
+    */
+   public long getOldestPosition() {
+      if (spill != null)
+         return 0;
+      return Math.max (0, numGenerated - ring.length);
+   }
+
+   /**
+    * Returns the position of the value that will be returned by the next
+    * call to  #nextDouble.
+    *  @return the current position.
+    */
+   public long getPosition() {
+      return position;
+   }
+
+   /**
+    * Saves the current position, which can be restored later with
+    * #rewind(), and returns it.
+    *  @return the current position.
+    */
+   public long mark() {
+      markPos = position;
+      return position;
+   }
+
+   /**
+    * Moves back to the position saved by the last call to  #mark (or to
+    * position 0 if  #mark was never called).
+    *  @exception IllegalStateException if this position is no longer in
+    * the cache.
+    */
+   public void rewind() {
+      rewind (markPos);
+   }
+
+   /**
+    * Sets the position of the next value returned by  #nextDouble to
+    * `pos`, which must be between  #getOldestPosition and
+    * #getNumGenerated inclusively.
+    *  @param pos          the new position.
+    *  @exception IllegalStateException if `pos` is no longer in the
+    * cache.
+    *  @exception IllegalArgumentException if `pos` is greater than the
+    * number of generated values.
+    */
+   public void rewind (long pos) {
+      if (pos > numGenerated)
+         throw new IllegalArgumentException
+            ("pos must not be greater than the number of generated values");
+      if (pos < getOldestPosition())
+         throw new IllegalStateException
+            ("The value at position " + pos + " is no longer in the cache");
+      position = pos;
+   }
+
+   /**
+    * Clears the cached values: the next value will be obtained from the
+    * internal stream and will have position 0.
+    */
+   public void clearCache() {
+      // the spilled values, if any, are simply overwritten
+      numGenerated = position = markPos = 0;
+   }
+
+   /**
+    * Releases the memory-mapped temporary file used to spill the older
+    * values, if any, and disables spilling. The spilled values are then
+    * discarded; if the current position was among them, it is moved to
+    * #getOldestPosition.
+    */
+   public void close() {
+      if (spill != null) {
+         spill.close();
+         spill = null;
+         position = Math.max (position, getOldestPosition());
+      }
+   }
+
+   /**
+    * Writes the capacity and spilling mode of this cache, the current and
+    * marked positions, the values that can still be replayed, and the
+    * state of the internal stream to `out`. If spilling is enabled, this
+    * includes the spilled values, so the saved state can be large. This
+    * is used by  RandomStreamManager.saveStates.
+    *  @param out          the output to which the state is written
+    *  @exception IOException if an I/O error occurs
+    *  @exception UnsupportedOperationException if the state of the
+    * internal stream cannot be saved
+    */
+   public void writeState (DataOutput out) throws IOException {
+      out.writeInt (getClass().getName().hashCode());
+      out.writeInt (ring.length);
+      out.writeBoolean (spill != null);
+      out.writeLong (position);
+      out.writeLong (markPos);
+      long oldest = getOldestPosition();
+      out.writeLong (oldest);
+      out.writeLong (numGenerated);
+      for (long pos = oldest; pos < numGenerated; pos++)
+         out.writeDouble (get (pos));
+      RandomStreamManager.writeState (stream, out);
+   }
+
+   /**
+    * Restores the state of this cache and of its internal stream from
+    * `in`, where they were written by  #writeState from a cache with the
+    * same capacity and spilling mode.
+    *  @param in           the input from which the state is read
+    *  @exception IOException if an I/O error occurs, or if the saved
+    * state is not a state of a cache with the capacity and spilling mode
+    * of this one
+    *  @exception UnsupportedOperationException if the state of the
+    * internal stream cannot be restored
+    */
+   public void readState (DataInput in) throws IOException {
+      if (in.readInt() != getClass().getName().hashCode())
+         throw new IOException ("The saved state is not a state of " +
+                                getClass().getName());
+      if (in.readInt() != ring.length || in.readBoolean() != (spill != null))
+         throw new IOException
+            ("The saved cache has another capacity or spilling mode");
+      long newPosition = in.readLong();
+      long newMark = in.readLong();
+      long oldest = in.readLong();
+      long n = in.readLong();
+      if (oldest < 0 || oldest > n || newPosition < oldest ||
+          newPosition > n || newMark < 0 || newMark > n ||
+          (spill != null && oldest != 0))
+         throw new IOException ("Invalid positions in the saved cache");
+      numGenerated = oldest;
+      while (numGenerated < n)
+         put (in.readDouble());
+      position = newPosition;
+      markPos = newMark;
+      RandomStreamManager.readState (stream, in);
+   }
+
+   public void resetStartStream () {
+      stream.resetStartStream();
+   }
+
+   public void resetStartSubstream () {
+      stream.resetStartSubstream();
+   }
+
+   public void resetNextSubstream () {
+      stream.resetNextSubstream();
+   }
+
+   // Returns the cached value at position pos < numGenerated.
+   private double get (long pos) {
+      if (pos >= numGenerated - ring.length)
+         return ring[(int) (pos % ring.length)];
+      return spill.get (pos);
+   }
+
+   // Adds a new value at position numGenerated.
+   private void put (double v) {
+      int i = (int) (numGenerated % ring.length);
+      if (spill != null && numGenerated >= ring.length)
+         spill.put (numGenerated - ring.length, ring[i]);
+      ring[i] = v;
+      ++numGenerated;
+   }
+
+   public double nextDouble () {
+      if (position < numGenerated)
+         return get (position++);
+      double v = stream.nextDouble();
+      put (v);
+      ++position;
+      return v;
+   }
+
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      int i = start;
+      final int end = start + n;
+      // values replayed from the cache
+      while (i < end && position < numGenerated) {
+         if (position < numGenerated - ring.length)
+            u[i++] = spill.get (position++);
+         else {
+            // copy the contiguous part of the ring buffer
+            int r = (int) (position % ring.length);
+            int len = (int) Math.min (end - i,
+                                      Math.min (ring.length - r,
+                                                numGenerated - position));
+            System.arraycopy (ring, r, u, i, len);
+            i += len;
+            position += len;
+         }
+      }
+      // new values
+      if (i < end) {
+         stream.nextArrayOfDouble (u, i, end - i);
+         for (; i < end; i++)
+            put (u[i]);
+         position = numGenerated;
+      }
+   }
+
+   public int nextInt (int i, int j) {
+      return i + (int) (nextDouble () * (j - i + 1));
+   }
+
+   public void nextArrayOfInt (int i, int j, int[] u, int start, int n) {
+      for (int x = start; x < start + n; x++)
+         u[x] = nextInt (i, j);
+   }
+
+   public String toString() {
+      return "Bounded cache of capacity " + ring.length +
+             (spill != null ? " with spilling" : "") + ", position " +
+             position + " of " + numGenerated + " generated values, on " +
+             stream.toString();
+   }
+
+
+   // Values spilled to a memory-mapped temporary file, in segments of
+   // 2^SEGMENT_BITS doubles mapped when first written.
+   private static class SpillFile {
+      private static final int SEGMENT_BITS = 20;
+      private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+      private File file;
+      private RandomAccessFile raf;
+      private ArrayList<DoubleBuffer> segments = new ArrayList<DoubleBuffer>();
+
+      SpillFile() {
+         try {
+            file = File.createTempFile ("ssj-cache", ".bin");
+            file.deleteOnExit();
+            raf = new RandomAccessFile (file, "rw");
+         } catch (IOException e) {
+            throw new UncheckedIOException
+               ("Cannot create the temporary file of the cache", e);
+         }
+      }
+
+      double get (long pos) {
+         return segments.get ((int) (pos >>> SEGMENT_BITS)).get
+            ((int) (pos & SEGMENT_MASK));
+      }
+
+      // Values are always put in increasing order of position.
+      void put (long pos, double v) {
+         int s = (int) (pos >>> SEGMENT_BITS);
+         if (s == segments.size()) {
+            long size = 8L << SEGMENT_BITS;
+            try {
+               segments.add (raf.getChannel().map
+                  (FileChannel.MapMode.READ_WRITE, s * size, size)
+                  .asDoubleBuffer());
+            } catch (IOException e) {
+               throw new UncheckedIOException
+                  ("Cannot extend the temporary file of the cache", e);
+            }
+         }
+         segments.get (s).put ((int) (pos & SEGMENT_MASK), v);
+      }
+
+      void close() {
+         segments.clear();
+         try {
+            raf.close();
+         } catch (IOException e) {}
+         file.delete();
+      }
+   }
+}
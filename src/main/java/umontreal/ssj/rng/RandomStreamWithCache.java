@@ -24,6 +24,9 @@
  */
 package umontreal.ssj.rng;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import cern.colt.list.DoubleArrayList;
 
 /**
@@ -41,7 +44,9 @@ import cern.colt.list.DoubleArrayList;
  * when generating uniforms is time-consuming. It can also help with
  * restoring the simulation to a certain state without setting
  * stream-specific seeds. However, using such caching may lead to memory
- * problems if a large quantity of random numbers are needed.
+ * problems if a large quantity of random numbers are needed; in that case,
+ * @ref RandomStreamWithBoundedCache keeps only a window of the most recent
+ * values in memory.
  *
  * <div class="SSJ-bigskip"></div>
  */
@@ -214,6 +219,55 @@ public class RandomStreamWithCache implements RandomStream {
    }
 
 
+   /**
+    * Writes the caching indicator, the cache index, the cached values and
+    * the state of the internal stream to `out`. This is used by
+    * RandomStreamManager.saveStates.
+    *  @param out          the output to which the state is written
+    *  @exception IOException if an I/O error occurs
+    *  @exception UnsupportedOperationException if the state of the
+    * internal stream cannot be saved
+    */
+   public void writeState (DataOutput out) throws IOException {
+      out.writeInt (getClass().getName().hashCode());
+      out.writeBoolean (caching);
+      out.writeInt (index);
+      out.writeInt (values.size());
+      for (int i = 0; i < values.size(); i++)
+         out.writeDouble (values.getQuick (i));
+      RandomStreamManager.writeState (stream, out);
+   }
+
+   /**
+    * Restores the caching indicator, the cache index, the cached values
+    * and the state of the internal stream from `in`, where they were
+    * written by  #writeState. The cached values are put in a new array
+    * list, so an array previously returned by  #getCachedValues is not
+    * modified.
+    *  @param in           the input from which the state is read
+    *  @exception IOException if an I/O error occurs, or if the saved
+    * state is not a state of this class
+    *  @exception UnsupportedOperationException if the state of the
+    * internal stream cannot be restored
+    */
+   public void readState (DataInput in) throws IOException {
+      if (in.readInt() != getClass().getName().hashCode())
+         throw new IOException ("The saved state is not a state of " +
+                                getClass().getName());
+      boolean newCaching = in.readBoolean();
+      int newIndex = in.readInt();
+      int n = in.readInt();
+      if (n < 0 || newIndex < 0 || newIndex > n)
+         throw new IOException ("Invalid cache index or size");
+      DoubleArrayList newValues = new DoubleArrayList (n);
+      for (int i = 0; i < n; i++)
+         newValues.add (in.readDouble());
+      RandomStreamManager.readState (stream, in);
+      caching = newCaching;
+      index = newIndex;
+      values = newValues;
+   }
+
    public void resetStartStream () {
       stream.resetStartStream();
    }
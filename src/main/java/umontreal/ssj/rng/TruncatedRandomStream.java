@@ -25,6 +25,9 @@
  */
 package umontreal.ssj.rng;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import umontreal.ssj.rng.RandomStream;
 
 /**
@@ -66,6 +69,36 @@ public class TruncatedRandomStream implements RandomStream {
       stream.resetNextSubstream ();
    }
 
+   /**
+    * Writes an identifier of this class followed by the state of the
+    * contained stream to `out`, since this stream has no state of its own. This
+    * is used by  RandomStreamManager.saveStates.
+    *  @param out          the output to which the state is written
+    *  @exception IOException if an I/O error occurs
+    *  @exception UnsupportedOperationException if the state of the
+    * contained stream cannot be saved
+    */
+   public void writeState (DataOutput out) throws IOException {
+      out.writeInt (getClass().getName().hashCode());
+      RandomStreamManager.writeState (stream, out);
+   }
+
+   /**
+    * Restores the state of the contained stream from `in`, where it was written
+    * by  #writeState.
+    *  @param in           the input from which the state is read
+    *  @exception IOException if an I/O error occurs, or if the saved
+    * state is not a state of this class
+    *  @exception UnsupportedOperationException if the state of the
+    * contained stream cannot be restored
+    */
+   public void readState (DataInput in) throws IOException {
+      if (in.readInt() != getClass().getName().hashCode())
+         throw new IOException ("The saved state is not a state of " +
+                                getClass().getName());
+      RandomStreamManager.readState (stream, in);
+   }
+
    public double nextDouble () {
       double v = stream.nextDouble ();
       return a + v * bminusa;
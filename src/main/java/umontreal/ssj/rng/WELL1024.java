@@ -26,6 +26,9 @@
 package umontreal.ssj.rng;
 
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * Implements the  @ref RandomStream interface via inheritance from
@@ -248,6 +251,20 @@ public class WELL1024 extends RandomStreamBase {
       resetStartSubstream();
    }
 
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      writeInts (out, stream);
+      writeInts (out, substream);
+      out.writeByte (state_i);
+      writeInts (out, state);
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      readInts (in, stream);
+      readInts (in, substream);
+      state_i = in.readUnsignedByte() & MASK;
+      readInts (in, state);
+   }
+
    public String toString()  {
       StringBuffer sb = new StringBuffer();
 
@@ -263,6 +280,12 @@ public class WELL1024 extends RandomStreamBase {
    }
 
    protected double nextValue() {
+      long result = nextBits();
+
+      return ((double) (result > 0 ? result : result + 0x100000000L) * NORM);
+   }
+
+   protected int nextBits() {
       int z0, z1, z2;
 
       z0    = state[(state_i + 31) & MASK];
@@ -277,9 +300,44 @@ public class WELL1024 extends RandomStreamBase {
                                      (z1 ^ (z1 << 7)) ^ (z2 ^ (z2 << 13));
       state_i = (state_i + 31) & MASK;
 
-      long result = state[state_i];
+      return state[state_i];
+   }
 
-      return ((double) (result > 0 ? result : result + 0x100000000L) * NORM);
+   /**
+    * Fills `u[start..start+n-1]` with the same numbers as `n` successive
+    * calls to  #nextDouble. Without increased precision, the state is
+    * advanced in a single loop that writes each output directly into `u`.
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      if (prec53) {
+         super.nextArrayOfDouble (u, start, n);
+         return;
+      }
+      checkArrayBounds (u.length, start, n);
+      final int[] st = state;
+      int si = state_i;
+      final int end = start + n;
+      for (int ii = start; ii < end; ii++) {
+         final int last = (si + 31) & MASK;
+         final int vm1 = st[(si + M1) & MASK];
+         final int vm2 = st[(si + M2) & MASK];
+         final int vm3 = st[(si + M3) & MASK];
+         final int z0 = st[last];
+         final int z1 = st[si] ^ (vm1 ^ (vm1 >>> 8));
+         final int z2 = (vm2 ^ (vm2 << 19)) ^ (vm3 ^ (vm3 << 14));
+         st[si] = z1 ^ z2;
+         final long result = st[last] = (z0 ^ (z0 << 11)) ^
+                                        (z1 ^ (z1 << 7)) ^ (z2 ^ (z2 << 13));
+         si = last;
+         u[ii] = (double) (result > 0 ? result : result + 0x100000000L) * NORM;
+      }
+      state_i = si;
+      if (anti)
+         for (int ii = start; ii < end; ii++)
+            u[ii] = 1.0 - u[ii];
    }
 
 /**
@@ -26,6 +26,9 @@
 package umontreal.ssj.rng;
 
 import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * This class implements the  @ref RandomStream interface via inheritance
@@ -248,6 +251,20 @@ public class WELL512 extends RandomStreamBase {
       resetStartSubstream();
    }
 
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      writeInts (out, stream);
+      writeInts (out, substream);
+      out.writeByte (state_i);
+      writeInts (out, state);
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      readInts (in, stream);
+      readInts (in, substream);
+      state_i = in.readUnsignedByte() & MASK;
+      readInts (in, state);
+   }
+
    public String toString()  {
       StringBuffer sb = new StringBuffer();
 
@@ -263,6 +280,12 @@ public class WELL512 extends RandomStreamBase {
    }
 
    protected double nextValue() {
+      long result = nextBits();
+
+      return (double)(result > 0 ? result : (result + 0x100000000L)) * NORM;
+   }
+
+   protected int nextBits() {
       int z0, z1, z2;
       z0 = state[(state_i + 15) & MASK];
       z1 = (state[state_i] ^ (state[state_i] << 16)) ^
@@ -275,9 +298,7 @@ public class WELL512 extends RandomStreamBase {
                            ((state[state_i] << 5) & 0xDA442D24));
       state_i = (state_i + 15) & MASK;
 
-      long result = state[state_i];
-
-      return (double)(result > 0 ? result : (result + 0x100000000L)) * NORM;
+      return state[state_i];
    }
 
 }
\ No newline at end of file
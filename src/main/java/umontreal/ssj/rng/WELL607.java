@@ -182,6 +182,47 @@ public class WELL607 extends WELL607base {
       return result * NORM;
    }
 
+   protected int nextBits() {
+      return nextInt();
+   }
+
+   /**
+    * Fills `u[start..start+n-1]` with the same numbers as `n` successive
+    * calls to  #nextDouble. Without increased precision, the state is
+    * advanced in a single loop that writes each output directly into `u`.
+    *  @param u            the array in which the numbers will be stored
+    *  @param start        the first index of `u` to be used
+    *  @param n            the number of random numbers to put in `u`
+    */
+   public void nextArrayOfDouble (double[] u, int start, int n) {
+      if (prec53) {
+         super.nextArrayOfDouble (u, start, n);
+         return;
+      }
+      checkArrayBounds (u.length, start, n);
+      final int[] st = state;
+      int si = state_i;
+      final int end = start + n;
+      for (int ii = start; ii < end; ii++) {
+         final int vm1 = st[(si + M1) & MASK_STATE];
+         final int vm2 = st[(si + M2) & MASK_STATE];
+         final int z0 = (st[(si + R1) & MASK_STATE] & MASKL) |
+                        (st[(si + R2) & MASK_STATE] & MASKU);
+         final int z1 = (st[si] ^ (st[si] >>> 19)) ^ (vm1 ^ (vm1 >>> 11));
+         final int z2 = (vm2 ^ (vm2 << 14)) ^ st[(si + M3) & MASK_STATE];
+         final int v1 = st[si] = z1 ^ z2;
+         si = (si - 1) & MASK_STATE;
+         long result = st[si] = (z0 ^ (z0 >>> 18)) ^ z1 ^ (v1 ^ (v1 << 5));
+         if (result <= 0)
+            result += 0x100000000L;
+         u[ii] = result * NORM;
+      }
+      state_i = si;
+      if (anti)
+         for (int ii = start; ii < end; ii++)
+            u[ii] = 1.0 - u[ii];
+   }
+
 /**
  * Clones the current generator and return its copy.
  *  @return A deep copy of the current generator
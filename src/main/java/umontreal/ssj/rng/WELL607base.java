@@ -126,6 +126,21 @@ abstract class WELL607base extends RandomStreamBase
    }
 
 
+   protected void writeGeneratorState (DataOutput out) throws IOException {
+      writeInts (out, stream);
+      writeInts (out, substream);
+      // only the R words used by the recurrence
+      writeInts (out, getState());
+   }
+
+   protected void readGeneratorState (DataInput in) throws IOException {
+      readInts (in, stream);
+      readInts (in, substream);
+      for (int i = 0; i < R; i++)
+         state[i] = in.readInt();
+      state_i = 0;
+   }
+
    // just like formatState, but not public
    String stringState ()
    {
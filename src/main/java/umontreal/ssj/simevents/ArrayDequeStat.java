@@ -0,0 +1,475 @@
+/*
+ * Class:        ArrayDequeStat
+ * Description:  list with statistical probes, stored in circular arrays
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents;
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import umontreal.ssj.stat.Tally;
+
+/**
+ * A list with the same statistical probes as  @ref ListWithStat, on its
+ * size as a function of time and on the sojourn times of its elements, but
+ * stored in a circular array, with the insertion times in a parallel array
+ * of `double`, instead of a list of nodes. Adding and removing elements at
+ * both ends take constant time and, once the arrays are large enough for
+ * the largest size reached by the list, no object is allocated.
+ *
+ * The list can serve as a first-in, first-out (FIFO) queue, with
+ * #addLast and  #removeFirst, or as a last-in, first-out (LIFO) stack,
+ * with  #addLast and  #removeLast. If it is constructed with a comparator,
+ * it is a priority queue: the elements are kept in ascending order, those
+ * that are equal in the order of their insertion, and they are added with
+ * #add and removed in this order with  #removeFirst. Inserting an element
+ * in the middle of the list, which the priority discipline does, takes a
+ * time proportional to the distance to the nearest end of the list.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class ArrayDequeStat<E> extends AbstractList<E> {
+   private Object[] elements;
+   private double[] times;    // insertion times of the elements
+   private int head = 0;      // index of the first element
+   private int size = 0;
+   private Comparator<? super E> comparator;
+
+   private boolean stats = false;
+   private double initTime;
+   private Accumulate blockSize;
+   private Tally blockSojourn;
+   private String name;
+   private Simulator sim;
+
+   /**
+    * Constructs a new empty list with name `name`, linked with the
+    * simulator `sim`, and ordered by `comparator` if it is not `null`.
+    *  @param sim          the simulator of this list
+    *  @param comparator   the order of the elements for the priority
+    *                      discipline, or `null`
+    *  @param name         name for the list object
+    */
+   public ArrayDequeStat (Simulator sim, Comparator<? super E> comparator,
+                          String name) {
+      if (sim == null)
+         throw new NullPointerException();
+      this.sim = sim;
+      this.comparator = comparator;
+      this.name = name;
+      elements = new Object[16];
+      times = new double[16];
+   }
+
+   /**
+    * Constructs a new empty list with name `name`, linked with the
+    * simulator `sim`.
+    *  @param sim          the simulator of this list
+    *  @param name         name for the list object
+    */
+   public ArrayDequeStat (Simulator sim, String name) {
+      this (sim, null, name);
+   }
+
+   /**
+    * Constructs a new empty list linked with the simulator `sim`.
+    *  @param sim          the simulator of this list
+    */
+   public ArrayDequeStat (Simulator sim) {
+      this (sim, null, null);
+   }
+
+   /**
+    * Constructs a new empty list using the default simulator.
+    */
+   public ArrayDequeStat() {
+      this (Simulator.getDefaultSimulator(), null, null);
+   }
+
+   /**
+    * Returns the simulator associated with this list.
+    *  @return the simulator associated with this list
+    */
+   public Simulator simulator() {
+      return sim;
+   }
+
+   /**
+    * Sets the simulator associated with this list. This list should be
+    * cleared after this method is called.
+    *  @param sim          the simulator of this list
+    */
+   public void setSimulator (Simulator sim) {
+      if (sim == null)
+         throw new NullPointerException();
+      this.sim = sim;
+      if (blockSize != null)
+         blockSize.setSimulator (sim);
+   }
+
+   /**
+    * Returns the comparator ordering this list, or `null` if the list is
+    * not a priority queue.
+    *  @return the comparator of the list
+    */
+   public Comparator<? super E> comparator() {
+      return comparator;
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public E get (int index) {
+      checkIndex (index, size);
+      return (E) elements[(head + index) & (elements.length - 1)];
+   }
+
+   /**
+    * Returns the time at which the element at position `index` was
+    * inserted in the list.
+    *  @param index        the position of the element
+    *  @return the insertion time of the element
+    */
+   public double getInsertionTime (int index) {
+      checkIndex (index, size);
+      return times[(head + index) & (elements.length - 1)];
+   }
+
+   /**
+    * Replaces the element at position `index`. As in  @ref ListWithStat,
+    * the insertion time is kept if the new element is equal to the old
+    * one; otherwise, the old element is counted as removed and the new one
+    * as inserted at the current time.
+    *  @exception UnsupportedOperationException if the list is ordered by
+    * a comparator.
+    */
+   @Override
+   @SuppressWarnings("unchecked")
+   public E set (int index, E element) {
+      if (comparator != null)
+         throw new UnsupportedOperationException ("set in an ordered list");
+      checkIndex (index, size);
+      int i = (head + index) & (elements.length - 1);
+      E old = (E) elements[i];
+      boolean equal = old == null || element == null ? old == element
+                                                      : old.equals (element);
+      if (!equal) {
+         if (stats)
+            blockSojourn.add (sim.time() - times[i]);
+         times[i] = sim.time();
+      }
+      elements[i] = element;
+      return old;
+   }
+
+   /**
+    * Adds `obj` at the end of this list or, if the list is ordered by a
+    * comparator, after the elements that are smaller or equal.
+    *  @param obj          the element to add
+    *  @return `true`
+    */
+   @Override
+   @SuppressWarnings("unchecked")
+   public boolean add (E obj) {
+      if (comparator == null) {
+         insert (size, obj);
+         return true;
+      }
+      int lo = 0, hi = size;
+      int mask = elements.length - 1;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (comparator.compare (obj, (E) elements[(head + mid) & mask]) < 0)
+            hi = mid;
+         else
+            lo = mid + 1;
+      }
+      insert (lo, obj);
+      return true;
+   }
+
+   /**
+    * Inserts `obj` at position `index`.
+    *  @exception UnsupportedOperationException if the list is ordered by
+    * a comparator.
+    */
+   @Override
+   public void add (int index, E obj) {
+      if (comparator != null)
+         throw new UnsupportedOperationException
+            ("Insertion at a given position in an ordered list");
+      checkIndex (index, size + 1);
+      insert (index, obj);
+   }
+
+   @Override
+   public E remove (int index) {
+      checkIndex (index, size);
+      return delete (index);
+   }
+
+   @Override
+   public void clear() {
+      if (stats)
+         initStat();
+      int mask = elements.length - 1;
+      for (int k = 0; k < size; k++)
+         elements[(head + k) & mask] = null;
+      head = 0;
+      size = 0;
+      modCount++;
+   }
+
+   /**
+    * @name Deque methods
+    *
+    * The methods of  @ref LinkedListStat, with the same behavior. The
+    * methods  #addFirst and  #addLast throw an
+    * `UnsupportedOperationException` if the list is ordered by a
+    * comparator.
+    *
+    * @{
+    */
+   public void addFirst (E obj) {
+      add (0, obj);
+   }
+   public void addLast (E obj) {
+      add (size, obj);
+   }
+   public E getFirst() {
+      if (size == 0)
+         throw new NoSuchElementException();
+      return get (0);
+   }
+   public E getLast() {
+      if (size == 0)
+         throw new NoSuchElementException();
+      return get (size - 1);
+   }
+   public E removeFirst() {
+      if (size == 0)
+         throw new NoSuchElementException();
+      return delete (0);
+   }
+   public E removeLast() {
+      if (size == 0)
+         throw new NoSuchElementException();
+      return delete (size - 1);
+   }
+
+   /**
+    * @}
+    */
+
+   private static void checkIndex (int index, int bound) {
+      if (index < 0 || index >= bound)
+         throw new IndexOutOfBoundsException ("Index: " + index);
+   }
+
+   // Inserts obj at position index, moving the elements of the shortest
+   // side of the list.
+   private void insert (int index, E obj) {
+      if (size == elements.length)
+         grow();
+      int mask = elements.length - 1;
+      if (index < size - index) {
+         head = (head - 1) & mask;
+         for (int k = 0; k < index; k++) {
+            int to = (head + k) & mask, from = (head + k + 1) & mask;
+            elements[to] = elements[from];
+            times[to] = times[from];
+         }
+      }
+      else
+         for (int k = size; k > index; k--) {
+            int to = (head + k) & mask, from = (head + k - 1) & mask;
+            elements[to] = elements[from];
+            times[to] = times[from];
+         }
+      int i = (head + index) & mask;
+      elements[i] = obj;
+      times[i] = sim.time();
+      size++;
+      modCount++;
+      if (stats)
+         blockSize.update (size);
+   }
+
+   // Removes the element at position index, moving the elements of the
+   // shortest side of the list.
+   @SuppressWarnings("unchecked")
+   private E delete (int index) {
+      int mask = elements.length - 1;
+      int i = (head + index) & mask;
+      E obj = (E) elements[i];
+      if (stats)
+         blockSojourn.add (sim.time() - times[i]);
+      if (index < size - 1 - index) {
+         for (int k = index; k > 0; k--) {
+            int to = (head + k) & mask, from = (head + k - 1) & mask;
+            elements[to] = elements[from];
+            times[to] = times[from];
+         }
+         elements[head] = null;
+         head = (head + 1) & mask;
+      }
+      else {
+         for (int k = index; k < size - 1; k++) {
+            int to = (head + k) & mask, from = (head + k + 1) & mask;
+            elements[to] = elements[from];
+            times[to] = times[from];
+         }
+         elements[(head + size - 1) & mask] = null;
+      }
+      size--;
+      modCount++;
+      if (stats)
+         blockSize.update (size);
+      return obj;
+   }
+
+   // Doubles the capacity, moving the elements to the start of the arrays.
+   private void grow() {
+      int n = elements.length;
+      Object[] newElements = new Object[2*n];
+      double[] newTimes = new double[2*n];
+      int r = n - head;
+      System.arraycopy (elements, head, newElements, 0, r);
+      System.arraycopy (elements, 0, newElements, r, head);
+      System.arraycopy (times, head, newTimes, 0, r);
+      System.arraycopy (times, 0, newTimes, r, head);
+      elements = newElements;
+      times = newTimes;
+      head = 0;
+   }
+
+  /**
+   * @name Statistic collection methods
+   * @{
+   */
+
+   /**
+    * Returns `true` if the list collects statistics about its size and
+    * sojourn times of elements, and `false` otherwise. By default,
+    * statistical collecting is turned off.
+    *  @return the status of statistical collecting
+    */
+   public boolean getStatCollecting() {
+      return stats;
+   }
+
+   /**
+    * Starts or stops collecting statistics on this list, as
+    * ListWithStat.setStatCollecting.
+    *  @param b            `true` to collect statistics
+    */
+   public void setStatCollecting (boolean b) {
+      if (b && !stats) {
+         if (blockSize == null)
+            blockSize = new Accumulate (sim, "List Size " + name);
+         if (blockSojourn == null)
+            blockSojourn = new Tally ("List Sojourn " + name);
+         blockSize.update (size);
+         stats = true;
+         initStat();
+      }
+      else
+         stats = false;
+   }
+
+   /**
+    * Reinitializes the two statistical probes created by
+    * {@link #setStatCollecting() setStatCollecting(true)} and makes an
+    * update for the probe on the list size.
+    *  @exception IllegalStateException if the statistical collection is
+    * disabled
+    */
+   public void initStat() {
+      if (!stats)
+         throw new IllegalStateException
+            ("initStat for a list that did not call setStatCollecting (true).");
+      blockSize.init();
+      blockSojourn.init();
+      blockSize.update (size);
+      initTime = sim.time();
+   }
+
+   /**
+    * Returns the last simulation time  #initStat was called.
+    *  @return the last simulation time  #initStat was called
+    */
+   public double getInitTime() {
+      return initTime;
+   }
+
+   /**
+    * Returns the statistical probe on the evolution of the size of the
+    * list as a function of the simulation time, which exists only if
+    * statistical collection has been enabled.
+    *  @return the probe on the size of the list
+    */
+   public Accumulate statSize() {
+      return blockSize;
+   }
+
+   /**
+    * Returns the statistical probe on the sojourn times of the objects in
+    * the list, which exists only if statistical collection has been
+    * enabled.
+    *  @return the probe on the sojourn times in the list
+    */
+   public Tally statSojourn() {
+      return blockSojourn;
+   }
+
+   /**
+    * Returns a statistical report on the list, in the same format as
+    * ListWithStat.report.
+    *  @return a statistical report, represented as a string
+    *  @exception IllegalStateException if no statistical probes exist
+    */
+   public String report() {
+      if (blockSojourn == null || blockSize == null)
+         throw new IllegalStateException
+            ("Calling report when no statistics were collected");
+
+      return ListWithStat.report (name, initTime, sim.time(), blockSize,
+                                  blockSojourn);
+   }
+
+   /**
+    * Returns the name associated to this list, or `null` if no name was
+    * assigned.
+    *  @return the name associated to this list
+    */
+   public String getName() {
+      return name;
+   }
+
+   /**
+    * @}
+    */
+}
@@ -118,9 +118,13 @@ public abstract class Continuous {
 
    /**
     * Initializes or reinitializes the continuous-time variable to `val`.
+    * With the Dormand-Prince method, if the variable is being integrated,
+    * the integration restarts from the current simulation time.
     *  @param val          initial value of the variable
     */
    public void init (double val) {
+      if (active)
+         sim.continuousState().stateChanged();
       value = val;
    }
 
@@ -48,6 +48,20 @@ import java.util.ArrayList;
  * Each integration step is scheduled as an event and added to the event
  * list.
  *
+ * The method  #selectDormandPrince selects instead an adaptive method: the
+ * values of all the active  @ref Continuous variables and
+ * @ref ContinuousVector objects are packed in a single state vector,
+ * integrated by the embedded Runge-Kutta method of order 5(4) of Dormand
+ * and Prince, whose step size is adjusted after each step to keep the
+ * estimated local error within the given tolerances. With this method, a
+ * step is computed at its start time and its result is applied at its end
+ * time; if a variable is reinitialized or integration is started or
+ * stopped in the middle of a step, the variables are set to their values
+ * at the current time, obtained by interpolation, and the integration
+ * restarts from that time. The  @ref StateEvent objects added with
+ * #addStateEvent happen exactly when their condition crosses zero, which
+ * is located by root finding on the interpolated trajectory.
+ *
  * <div class="SSJ-bigskip"></div>
  */
 public class ContinuousState {
@@ -56,7 +70,8 @@ public class ContinuousState {
    public enum IntegMethod{ 
       EULER,            // Euler integration method
       RUNGEKUTTA2,      // Runge-Kutta integration method of order 2
-      RUNGEKUTTA4       // Runge-Kutta integration method of order 4
+      RUNGEKUTTA4,      // Runge-Kutta integration method of order 4
+      DORMANDPRINCE     // Adaptive Dormand-Prince method of order 5(4)
    }
 
    private double stepSize;            // Integration step size.
@@ -69,6 +84,38 @@ public class ContinuousState {
    // The event that actually executes integration steps.
    private StepEvent stepEv = null;
 
+   // Coefficients of the Dormand-Prince method.
+   private static final double
+      C2 = 1.0/5.0, C3 = 3.0/10.0, C4 = 4.0/5.0, C5 = 8.0/9.0,
+      A21 = 1.0/5.0,
+      A31 = 3.0/40.0, A32 = 9.0/40.0,
+      A41 = 44.0/45.0, A42 = -56.0/15.0, A43 = 32.0/9.0,
+      A51 = 19372.0/6561.0, A52 = -25360.0/2187.0, A53 = 64448.0/6561.0,
+      A54 = -212.0/729.0,
+      A61 = 9017.0/3168.0, A62 = -355.0/33.0, A63 = 46732.0/5247.0,
+      A64 = 49.0/176.0, A65 = -5103.0/18656.0,
+      A71 = 35.0/384.0, A73 = 500.0/1113.0, A74 = 125.0/192.0,
+      A75 = -2187.0/6784.0, A76 = 11.0/84.0,
+      E1 = 71.0/57600.0, E3 = -71.0/16695.0, E4 = 71.0/1920.0,
+      E5 = -17253.0/339200.0, E6 = 22.0/525.0, E7 = -1.0/40.0,
+      D1 = -12715105075.0/11282082432.0, D3 = 87487479700.0/32700410799.0,
+      D4 = -10690763975.0/1880347072.0, D5 = 701980252875.0/199316789632.0,
+      D6 = -1453857185.0/822651844.0, D7 = 69997945.0/29380423.0;
+
+   private double absTol;              // Absolute error tolerance.
+   private double relTol;              // Relative error tolerance.
+   private double nextStep = 0.0;      // Proposed size of the next step.
+   private int dim = -1;               // Dimension of the state vector.
+   private double[] y, ynew, ystage, k1, k2, k3, k4, k5, k6, k7;
+   private double[] r2, r3, r4, r5;    // Coefficients of the interpolant.
+   private double tOld, hOld;          // Start and size of the pending step.
+   private boolean pending = false;    // A step is waiting to be applied.
+   private boolean fsal = false;       // k1 of the next step is in k7.
+   private boolean inStep = false;     // A step is being applied.
+   private static final int CROSSING_SAMPLES = 4;
+   private static final double ZERO_OFFSET = 1.0E-6;
+   private StateEvent crossing = null; // Event ending the pending step.
+
  // Class of event that executes an integration step.
    private class StepEvent extends Event {
       public StepEvent(Simulator sim) { super(sim); }
@@ -77,9 +124,11 @@ public class ContinuousState {
             case EULER:       oneStepEuler();  break;
             case RUNGEKUTTA2: oneStepRK();  break;
             case RUNGEKUTTA4: oneStepRK();  break;
+            case DORMANDPRINCE: oneStepDormandPrince();  return;
             default: throw new IllegalArgumentException 
                 ("Integration step with undefined method");
          }
+         checkStateEvents();
          this.schedule (stepSize);
          // if (afterInteg != null) afterInteg.actions();
       }
@@ -90,6 +139,8 @@ public class ContinuousState {
    }
 
    private List<Continuous> list;
+   private List<ContinuousVector> vectors;
+   private List<StateEvent> stateEvents;
    private Simulator sim;
 
    /**
@@ -100,6 +151,8 @@ public class ContinuousState {
     */
    protected ContinuousState (Simulator sim) {
       this.list = new ArrayList<Continuous>();
+      this.vectors = new ArrayList<ContinuousVector>();
+      this.stateEvents = new ArrayList<StateEvent>();
       this.sim = sim;
       assert sim != null;
    }
@@ -115,6 +168,53 @@ public class ContinuousState {
        return Collections.unmodifiableList (list);
    }
 
+   /**
+    * Returns the list of the vectors of continuous-time variables
+    * currently integrated by the simulator. As for
+    * #getContinuousVariables, the returned list cannot be modified
+    * directly.
+    */
+   public List<ContinuousVector> getContinuousVectors() {
+       return Collections.unmodifiableList (vectors);
+   }
+
+   /**
+    * Returns the list of state events monitored by the simulator. The
+    * returned list cannot be modified directly; one must use
+    * #addStateEvent or  #removeStateEvent instead.
+    */
+   public List<StateEvent> getStateEvents() {
+       return Collections.unmodifiableList (stateEvents);
+   }
+
+   /**
+    * Starts monitoring the state event `e`, which will be scheduled each
+    * time its condition crosses zero.
+    *  @param e            the state event
+    *  @exception IllegalArgumentException if `e` is linked to another
+    * simulator.
+    */
+   public void addStateEvent (StateEvent e) {
+      if (e.simulator() != sim)
+         throw new IllegalArgumentException
+            ("State event linked to another simulator");
+      e.last = Double.NaN;
+      stateEvents.add (e);
+      if (pending)
+         stateChanged();   // the pending step ignores e
+   }
+
+   /**
+    * Stops monitoring the state event `e`. The event is not cancelled if
+    * it is already scheduled.
+    *  @param e            the state event
+    */
+   public void removeStateEvent (StateEvent e) {
+      stateEvents.remove (e);
+      if (crossing == e)
+         crossing = null;
+   }
+
    /**
     * Starts the integration process that will change the state of
     * @ref Continuous variable at each integration step.
@@ -124,6 +224,12 @@ public class ContinuousState {
       if (stepEv == null) 
          stepEv = new StepEvent(sim);
       c.active = true;
+      if (integMethod == IntegMethod.DORMANDPRINCE) {
+         interrupt();
+         list.add (c);
+         restart();
+         return;
+      }
       // Inserts this in list of active variables.
       if (list.isEmpty()) {
          stepEv.schedule (stepSize);
@@ -137,11 +243,49 @@ public class ContinuousState {
     * calling `stopInteg`.
     */
    protected void stopInteg(Continuous c) {
+      if (integMethod == IntegMethod.DORMANDPRINCE) {
+         interrupt();
+         c.active = false;
+         list.remove (c);
+         restart();
+         return;
+      }
       c.active = false;
       list.remove(c);
       if (list.isEmpty()) stepEv.cancel();
    }
 
+   /**
+    * Starts the integration of the  @ref ContinuousVector `v`, which
+    * requires the Dormand-Prince method.
+    *  @exception IllegalStateException if the Dormand-Prince method is not
+    * selected.
+    */
+   protected void startInteg (ContinuousVector v) {
+      if (integMethod != IntegMethod.DORMANDPRINCE)
+         throw new IllegalStateException
+            ("Vectors can only be integrated by the Dormand-Prince method");
+      if (stepEv == null)
+         stepEv = new StepEvent(sim);
+      interrupt();
+      v.active = true;
+      vectors.add (v);
+      restart();
+   }
+
+   /**
+    * Stops the integration of the  @ref ContinuousVector `v`, which keeps
+    * its values at the current time.
+    */
+   protected void stopInteg (ContinuousVector v) {
+      if (!v.active)
+         return;
+      interrupt();
+      v.active = false;
+      vectors.remove (v);
+      restart();
+   }
+
    /**
     * Return an integer that represent the integration method in use.
     *  @return Interger that represent the integration method in use.
@@ -189,6 +333,36 @@ public class ContinuousState {
       C[0] = 0.0;  C[1] = 0.5;  C[2] = 0.5;  C[3] = 1.0;
    }
 
+   /**
+    * Selects the adaptive Dormand-Prince method of order&nbsp;5(4) as the
+    * integration method. The size of each step is chosen so that the
+    * estimated local error on each component @f$y_i@f$ of the state
+    * vector does not exceed, in root mean square,
+    * `absTol`&nbsp;+&nbsp;`relTol`&nbsp;@f$|y_i|@f$, and it never exceeds
+    * `hmax`. Since the values of the variables change only at the end of
+    * the steps, `hmax` also bounds the delay between the updates of these
+    * values.
+    *  @param hmax         maximal integration step, in simulation time
+    *                      units
+    *  @param absTol       absolute error tolerance
+    *  @param relTol       relative error tolerance
+    *  @exception IllegalArgumentException if `hmax` is not positive, a
+    * tolerance is negative, or both tolerances are 0.
+    */
+   public void selectDormandPrince (double hmax, double absTol,
+                                    double relTol) {
+      if (!(hmax > 0.0))
+         throw new IllegalArgumentException ("hmax must be positive");
+      if (absTol < 0.0 || relTol < 0.0 || absTol + relTol <= 0.0)
+         throw new IllegalArgumentException ("Invalid error tolerances");
+      integMethod = IntegMethod.DORMANDPRINCE;
+      stepSize = hmax;
+      order = 5;
+      this.absTol = absTol;
+      this.relTol = relTol;
+      nextStep = 0.0;
+   }
+
 
    private void oneStepEuler()  {
      Continuous v;
@@ -242,4 +416,321 @@ public class ContinuousState {
          v.afterEachStep();
       }
    }
-}
\ No newline at end of file
+
+   private void checkStateEvents() {
+      double t = sim.time();
+      for (int i = 0; i < stateEvents.size(); i++) {
+         StateEvent e = stateEvents.get(i);
+         double g = e.condition (t);
+         if (e.crosses (e.last, g))
+            e.trigger();
+         e.last = g;
+      }
+   }
+
+   // Called when a variable is reinitialized while being integrated.
+   void stateChanged() {
+      if (integMethod != IntegMethod.DORMANDPRINCE)
+         return;
+      interrupt();
+      restart();
+   }
+
+   // Sets the variables to their values at the current time and cancels
+   // the pending step, before the state is modified.
+   private void interrupt() {
+      fsal = false;
+      if (inStep)
+         return;   // the next step is computed after the modification
+      if (pending) {
+         double s = (sim.time() - tOld) / hOld;
+         if (s < 1.0) {
+            interpolate (s, ystage);
+            setValues (ystage);
+         }
+         else {
+            setValues (ynew);
+            if (crossing != null)
+               crossing.trigger();
+         }
+         pending = false;
+      }
+      crossing = null;
+      if (stepEv != null)
+         stepEv.cancel();
+   }
+
+   // Restarts the integration at the current time after interrupt.
+   private void restart() {
+      if (!inStep && (!list.isEmpty() || !vectors.isEmpty()))
+         stepEv.schedule (0.0);
+   }
+
+   private void oneStepDormandPrince() {
+      inStep = true;
+      try {
+         if (pending) {
+            pending = false;
+            double[] tmp = y;  y = ynew;  ynew = tmp;
+            setValues (y);
+            int current = list.size();
+            while (current > 0) {
+               Continuous v = list.get(--current);
+               if (v.ev != null) v.ev.scheduleNext();
+               v.afterEachStep();
+            }
+            current = vectors.size();
+            while (current > 0)
+               vectors.get(--current).afterEachStep();
+            if (crossing != null) {
+               crossing.trigger();
+               crossing = null;
+            }
+         }
+      } finally {
+         inStep = false;
+      }
+      computeStep();
+   }
+
+   // Computes the next step from the current time and schedules the step
+   // event at its end.
+   private void computeStep() {
+      double t = sim.time();
+      gather();
+      if (dim == 0)
+         return;
+      if (fsal) {
+         double[] tmp = k1;  k1 = k7;  k7 = tmp;
+      }
+      else
+         derivatives (t, y, k1);
+      for (int i = 0; i < stateEvents.size(); i++) {
+         StateEvent e = stateEvents.get(i);
+         e.last = e.condition (t);
+      }
+      double h = nextStep > 0.0 ? nextStep : initialStep();
+      double err;
+      while (true) {
+         h = Math.min (h, stepSize);
+         if (h < 16.0 * Math.ulp (Math.max (1.0, Math.abs (t))))
+            throw new IllegalStateException
+               ("Integration step size too small at time " + t);
+         err = tryStep (t, h);
+         if (err <= 1.0)
+            break;
+         h *= err > 1.0 ? Math.max (0.2, 0.9 * Math.pow (err, -0.2)) : 0.2;
+      }
+      nextStep = h * (err == 0.0 ? 10.0 :
+                 Math.min (10.0, Math.max (0.2, 0.9 * Math.pow (err, -0.2))));
+
+      // Coefficients of the continuous extension of order 4
+      for (int i = 0; i < dim; i++) {
+         double ydiff = ynew[i] - y[i];
+         double bspl = h * k1[i] - ydiff;
+         r2[i] = ydiff;
+         r3[i] = bspl;
+         r4[i] = ydiff - h * k7[i] - bspl;
+         r5[i] = h * (D1*k1[i] + D3*k3[i] + D4*k4[i] + D5*k5[i] +
+                      D6*k6[i] + D7*k7[i]);
+      }
+      tOld = t;
+      hOld = h;
+      fsal = true;
+      crossing = null;
+      if (!stateEvents.isEmpty())
+         locateCrossing();
+      setValues (y);
+      pending = true;
+      stepEv.schedule (hOld);
+   }
+
+   // Tries a step of size h from time t, and returns the norm of the
+   // estimated error relative to the tolerances.
+   private double tryStep (double t, double h) {
+      int i;
+      for (i = 0; i < dim; i++)
+         ystage[i] = y[i] + h * A21*k1[i];
+      derivatives (t + C2*h, ystage, k2);
+      for (i = 0; i < dim; i++)
+         ystage[i] = y[i] + h * (A31*k1[i] + A32*k2[i]);
+      derivatives (t + C3*h, ystage, k3);
+      for (i = 0; i < dim; i++)
+         ystage[i] = y[i] + h * (A41*k1[i] + A42*k2[i] + A43*k3[i]);
+      derivatives (t + C4*h, ystage, k4);
+      for (i = 0; i < dim; i++)
+         ystage[i] = y[i] + h * (A51*k1[i] + A52*k2[i] + A53*k3[i] +
+                                 A54*k4[i]);
+      derivatives (t + C5*h, ystage, k5);
+      for (i = 0; i < dim; i++)
+         ystage[i] = y[i] + h * (A61*k1[i] + A62*k2[i] + A63*k3[i] +
+                                 A64*k4[i] + A65*k5[i]);
+      derivatives (t + h, ystage, k6);
+      for (i = 0; i < dim; i++)
+         ynew[i] = y[i] + h * (A71*k1[i] + A73*k3[i] + A74*k4[i] +
+                               A75*k5[i] + A76*k6[i]);
+      derivatives (t + h, ynew, k7);
+      double sum = 0.0;
+      for (i = 0; i < dim; i++) {
+         double e = h * (E1*k1[i] + E3*k3[i] + E4*k4[i] + E5*k5[i] +
+                         E6*k6[i] + E7*k7[i]);
+         double sc = absTol + relTol * Math.max (Math.abs (y[i]),
+                                                 Math.abs (ynew[i]));
+         sum += (e / sc) * (e / sc);
+      }
+      return Math.sqrt (sum / dim);
+   }
+
+   // Initial step size, from the norms of y and of its derivative.
+   private double initialStep() {
+      double d0 = 0.0, d1 = 0.0;
+      for (int i = 0; i < dim; i++) {
+         double sc = absTol + relTol * Math.abs (y[i]);
+         d0 += (y[i] / sc) * (y[i] / sc);
+         d1 += (k1[i] / sc) * (k1[i] / sc);
+      }
+      d0 = Math.sqrt (d0 / dim);
+      d1 = Math.sqrt (d1 / dim);
+      return (d0 < 1.0E-5 || d1 < 1.0E-5) ? 1.0E-6 : 0.01 * d0 / d1;
+   }
+
+   // Shortens the pending step so that it ends at the first crossing of
+   // the monitored state events, if any. The conditions are evaluated at
+   // CROSSING_SAMPLES points of the step, to detect the crossings of a
+   // condition that returns to its sign within the step.
+   private void locateCrossing() {
+      double first = 2.0;
+      for (int i = 0; i < stateEvents.size(); i++) {
+         StateEvent e = stateEvents.get(i);
+         double s0 = 0.0, g0 = e.last;
+         if (g0 == 0.0) {
+            // e.g., after a reset at the threshold: the sign of the
+            // condition just after the start is used instead
+            s0 = ZERO_OFFSET;
+            g0 = conditionAt (e, s0);
+         }
+         for (int j = 1; j <= CROSSING_SAMPLES && s0 < first; j++) {
+            double s1 = (double) j / CROSSING_SAMPLES;
+            double g1 = conditionAt (e, s1);
+            if (e.crosses (g0, g1)) {
+               double s = findRoot (e, s0, g0, s1, g1);
+               if (s < first) {
+                  first = s;
+                  crossing = e;
+               }
+               break;
+            }
+            s0 = s1;
+            g0 = g1;
+         }
+      }
+      if (crossing != null && first < 1.0) {
+         interpolate (first, ynew);
+         hOld *= first;
+         fsal = false;
+      }
+   }
+
+   // Evaluates the condition of e at fraction s of the pending step.
+   private double conditionAt (StateEvent e, double s) {
+      if (s >= 1.0)
+         setValues (ynew);
+      else {
+         interpolate (s, ystage);
+         setValues (ystage);
+      }
+      return e.condition (tOld + s * hOld);
+   }
+
+   // Finds the crossing of e between the fractions a and b of the pending
+   // step by the Illinois method, and returns the fraction at which the
+   // condition has crossed zero.
+   private double findRoot (StateEvent e, double a, double fa,
+                            double b, double fb) {
+      double g0 = fa;
+      double tol = 4.0 * Math.ulp (Math.abs (tOld) + hOld) / hOld;
+      int side = 0;
+      for (int i = 0; i < 100 && b - a > tol; i++) {
+         double s = b - fb * (b - a) / (fb - fa);
+         if (!(s > a && s < b))
+            s = 0.5 * (a + b);
+         double fs = conditionAt (e, s);
+         if (e.crosses (g0, fs)) {
+            b = s;
+            fb = fs;
+            if (side == 1)
+               fa *= 0.5;
+            side = 1;
+         }
+         else {
+            a = s;
+            fa = fs;
+            if (side == -1)
+               fb *= 0.5;
+            side = -1;
+         }
+      }
+      return b;
+   }
+
+   // Puts in out the interpolated state at fraction s of the pending step.
+   private void interpolate (double s, double[] out) {
+      double s1 = 1.0 - s;
+      for (int i = 0; i < dim; i++)
+         out[i] = y[i] + s * (r2[i] + s1 * (r3[i] + s * (r4[i] +
+                  s1 * r5[i])));
+   }
+
+   // Reads the values of the variables in y, allocating the arrays if the
+   // dimension of the state vector has changed.
+   private void gather() {
+      int n = list.size();
+      for (int j = 0; j < vectors.size(); j++)
+         n += vectors.get(j).value.length;
+      if (n != dim) {
+         dim = n;
+         y = new double[n];    ynew = new double[n];  ystage = new double[n];
+         k1 = new double[n];   k2 = new double[n];    k3 = new double[n];
+         k4 = new double[n];   k5 = new double[n];    k6 = new double[n];
+         k7 = new double[n];
+         r2 = new double[n];   r3 = new double[n];
+         r4 = new double[n];   r5 = new double[n];
+         fsal = false;
+      }
+      int k = 0;
+      for (int i = 0; i < list.size(); i++)
+         y[k++] = list.get(i).value;
+      for (int j = 0; j < vectors.size(); j++) {
+         double[] val = vectors.get(j).value;
+         System.arraycopy (val, 0, y, k, val.length);
+         k += val.length;
+      }
+   }
+
+   // Sets the values of the variables to those of yy.
+   private void setValues (double[] yy) {
+      int k = 0;
+      for (int i = 0; i < list.size(); i++)
+         list.get(i).value = yy[k++];
+      for (int j = 0; j < vectors.size(); j++) {
+         double[] val = vectors.get(j).value;
+         System.arraycopy (yy, k, val, 0, val.length);
+         k += val.length;
+      }
+   }
+
+   // Computes the derivatives of the state vector yy at time t in dy,
+   // with the variables set to the values of yy.
+   private void derivatives (double t, double[] yy, double[] dy) {
+      setValues (yy);
+      int k = 0;
+      for (int i = 0; i < list.size(); i++)
+         dy[k++] = list.get(i).derivative (t);
+      for (int j = 0; j < vectors.size(); j++) {
+         ContinuousVector v = vectors.get(j);
+         v.derivative (t, v.value, v.deriv);
+         System.arraycopy (v.deriv, 0, dy, k, v.deriv.length);
+         k += v.deriv.length;
+      }
+   }
+}
@@ -0,0 +1,168 @@
+/*
+ * Class:        ContinuousVector
+ * Description:  vector of continuous-time variables whose derivatives are
+                 computed together
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents;
+
+/**
+ * Represents a vector of @f$d@f$ continuous-time variables, e.g., the
+ * state of a system of differential equations, whose derivatives are
+ * computed by a single call to  #derivative instead of one call per
+ * variable as with  @ref Continuous. Such vectors can only be integrated by
+ * the Dormand-Prince method (see  ContinuousState.selectDormandPrince),
+ * which packs their components, together with the active  @ref Continuous
+ * variables, in the state vector of the simulator.
+ *
+ * As for  @ref Continuous, a subclass may reimplement  #afterEachStep,
+ * which is executed after each integration step.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public abstract class ContinuousVector {
+
+   boolean active;   // This vector is currently being integrated.
+   double[] value;   // Current values of the components.
+   double[] deriv;   // Derivatives computed by the integrator.
+
+   private Simulator sim;
+
+   /**
+    * Constructs a new vector of dimension `dim` linked to the simulator
+    * `sim`, with all its components equal to 0.
+    *  @param sim          the simulator associated to this vector
+    *  @param dim          the number of components
+    *  @exception IllegalArgumentException if `dim` is not positive.
+    */
+   public ContinuousVector (Simulator sim, int dim) {
+      if (sim == null)
+         throw new NullPointerException();
+      if (dim <= 0)
+         throw new IllegalArgumentException ("dim must be positive");
+      this.sim = sim;
+      value = new double[dim];
+      deriv = new double[dim];
+   }
+
+   /**
+    * Constructs a new vector of dimension `dim` linked to the default
+    * simulator.
+    *  @param dim          the number of components
+    */
+   public ContinuousVector (int dim) {
+      this (Simulator.getDefaultSimulator(), dim);
+   }
+
+   /**
+    * Returns the number of components of this vector.
+    *  @return the dimension of the vector
+    */
+   public int dimension() {
+      return value.length;
+   }
+
+   /**
+    * Initializes or reinitializes the components of this vector to the
+    * values in `val`. If the vector is being integrated, the integration
+    * restarts from the current simulation time.
+    *  @param val          the initial values of the components
+    *  @exception IllegalArgumentException if `val` does not have
+    * `dimension()` elements.
+    */
+   public void init (double[] val) {
+      if (val.length != value.length)
+         throw new IllegalArgumentException ("Wrong number of values");
+      if (active)
+         sim.continuousState().stateChanged();
+      System.arraycopy (val, 0, value, 0, value.length);
+   }
+
+   /**
+    * Returns the current value of component `i` of this vector.
+    *  @param i            the index of the component
+    *  @return the current value of the component
+    */
+   public double value (int i) {
+      return value[i];
+   }
+
+   /**
+    * Returns a copy of the current values of the components.
+    *  @return the values of the components
+    */
+   public double[] getValues() {
+      return value.clone();
+   }
+
+   /**
+    * Returns the simulator linked to this vector.
+    *  @return the simulator of the vector
+    */
+   public Simulator simulator() {
+      return sim;
+   }
+
+   /**
+    * Starts the integration of this vector.
+    *  @exception IllegalStateException if the Dormand-Prince method is not
+    * selected.
+    */
+   public void startInteg() {
+      sim.continuousState().startInteg (this);
+   }
+
+   /**
+    * Same as  #startInteg, after initializing the vector to `val`.
+    *  @param val          initial values to start integration from
+    */
+   public void startInteg (double[] val) {
+      init (val);   startInteg();
+   }
+
+   /**
+    * Stops the integration of this vector, which keeps its values at the
+    * current time.
+    */
+   public void stopInteg() {
+      sim.continuousState().stopInteg (this);
+   }
+
+   /**
+    * Computes the derivatives with respect to time of the components at
+    * time @f$t@f$, for the values `y`, and puts them in `dydt`. The values
+    * of  #value are the same as those of `y` when this method is called by
+    * the integrator, and those of the other continuous variables are set
+    * accordingly.
+    *  @param t            time at which the derivatives must be computed
+    *  @param y            values of the components
+    *  @param dydt         array receiving the derivatives
+    */
+   public abstract void derivative (double t, double[] y, double[] dydt);
+
+   /**
+    * This method is executed after each integration step for this vector.
+    * Here, it does nothing, but a subclass may reimplement it.
+    */
+   public void afterEachStep() {
+   }
+}
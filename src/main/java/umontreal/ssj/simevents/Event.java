@@ -76,6 +76,19 @@ public abstract class Event implements Comparable<Event> {
    public final int getRa() { return myra; }
    public final void setRa(int r) { myra = r; }
 
+   private int listIndex = -1;
+   private long listSeq = 0;
+   // Position of this event in an array-based event list (-1 if it is not
+   // in such a list), and sequence number used by this list to order the
+   // events with the same time and priority. Used in IndexedHeap.java and
+   // CalendarQueue.java.
+
+   // For internal use
+   public final int getListIndex() { return listIndex; }
+   public final void setListIndex(int i) { listIndex = i; }
+   public final long getListSeq() { return listSeq; }
+   public final void setListSeq(long seq) { listSeq = seq; }
+
    /**
     * Constructs a new event instance, which can be placed afterwards into
     * the event list of the default simulator by calling one of the
@@ -166,6 +179,8 @@ public abstract class Event implements Comparable<Event> {
          throw new IllegalStateException ("Event already scheduled");
       eventTime = sim.time() + delay;
       sim.eventList.add (this);
+      if (sim.metrics != null)
+         sim.metrics.scheduled();
    }
 
    /**
@@ -178,6 +193,8 @@ public abstract class Event implements Comparable<Event> {
       eventTime = sim.time();
       priority  = 0.0;
       sim.eventList.addFirst (this);
+      if (sim.metrics != null)
+         sim.metrics.scheduled();
    }
 
    /**
@@ -200,6 +217,8 @@ public abstract class Event implements Comparable<Event> {
       eventTime = other.eventTime;
       priority = other.priority;
       sim.eventList.addBefore (this, other);
+      if (sim.metrics != null)
+         sim.metrics.scheduled();
    }
 
    /**
@@ -213,6 +232,8 @@ public abstract class Event implements Comparable<Event> {
       eventTime = other.eventTime;
       priority = other.priority;
       sim.eventList.addAfter (this, other);
+      if (sim.metrics != null)
+         sim.metrics.scheduled();
    }
 
    /**
@@ -229,6 +250,8 @@ public abstract class Event implements Comparable<Event> {
       sim.getEventList().remove (this);
       eventTime = sim.time() + delay;
       sim.getEventList().add (this);
+      if (sim.metrics != null)
+         sim.metrics.rescheduled();
    }
 
    /**
@@ -240,6 +263,8 @@ public abstract class Event implements Comparable<Event> {
    public boolean cancel() {
       boolean removed = false;
       if (eventTime >= sim.time()) removed = sim.getEventList().remove (this);
+      if (removed && sim.metrics != null)
+         sim.metrics.cancelled();
       eventTime = -10.0;
       return removed;
    }
@@ -0,0 +1,228 @@
+/*
+ * Class:        EventPool
+ * Description:  pool of recyclable events of a given type
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents;
+
+import java.util.function.Supplier;
+
+/**
+ * A pool of recyclable events of type `E`, all linked with the same
+ * simulator. The method  #get returns an event recycled earlier if there
+ * is one, and otherwise a new event created by the factory given to the
+ * constructor. The events return to the pool as explained in
+ * @ref RecyclableEvent. For example, a queueing model can use
+ * @code
+ *
+ *    EventPool<Departure> departures = sim.getEventPool (Departure.class,
+ *                                                        Departure::new);
+ *    ...
+ *    departures.get().schedule (serviceTime);
+ *
+ * @endcode
+ *  and each departure event will be reused once executed. At most
+ * #getMaxSize events are kept in the pool; the events recycled when the
+ * pool is full are left to the garbage collector.
+ *
+ * Like  @ref Simulator, this class is not thread-safe.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class EventPool<E extends RecyclableEvent> {
+   private Simulator sim;
+   private Supplier<? extends E> factory;
+   private RecyclableEvent[] free;
+   private int numFree = 0;
+   private int maxSize;
+   private boolean autoRecycle = true;
+   private boolean debug = false;
+   private long numCreated = 0;
+   private long numReused = 0;
+
+   /**
+    * Constructs a pool of events linked with `sim`, obtaining new events
+    * from `factory`, and keeping at most `maxSize` recycled events.
+    *  @param sim          simulator linked with the events
+    *  @param factory      creates a new event when the pool is empty
+    *  @param maxSize      maximal number of events kept in the pool
+    */
+   public EventPool (Simulator sim, Supplier<? extends E> factory,
+                     int maxSize) {
+      if (sim == null || factory == null)
+         throw new NullPointerException();
+      if (maxSize < 0)
+         throw new IllegalArgumentException ("maxSize must not be negative");
+      this.sim = sim;
+      this.factory = factory;
+      this.maxSize = maxSize;
+      free = new RecyclableEvent[Math.min (maxSize, 16)];
+   }
+
+   /**
+    * Constructs a pool of events linked with `sim`, obtaining new events
+    * from `factory`, with no limit on the number of recycled events kept.
+    *  @param sim          simulator linked with the events
+    *  @param factory      creates a new event when the pool is empty
+    */
+   public EventPool (Simulator sim, Supplier<? extends E> factory) {
+      this (sim, factory, Integer.MAX_VALUE - 8);
+   }
+
+   /**
+    * Returns the simulator linked with the events of this pool.
+    *  @return the simulator of this pool
+    */
+   public Simulator simulator() {
+      return sim;
+   }
+
+   /**
+    * Returns an unscheduled event with priority 1, recycled if possible.
+    *  @return an event of this pool
+    *  @exception IllegalStateException if the factory returns an event
+    * that already belongs to a pool.
+    */
+   @SuppressWarnings("unchecked")
+   public E get() {
+      if (numFree > 0) {
+         RecyclableEvent ev = free[--numFree];
+         free[numFree] = null;
+         ev.recycled = false;
+         ++numReused;
+         return (E) ev;
+      }
+      E ev = factory.get();
+      if (ev.pool != null)
+         throw new IllegalStateException
+            ("The factory returned an event of another pool");
+      if (ev.sim != sim)
+         ev.setSimulator (sim);
+      ev.pool = this;
+      ++numCreated;
+      return ev;
+   }
+
+   // Returns an unscheduled event to the pool.
+   void release (RecyclableEvent ev) {
+      ev.reset();
+      ev.recycled = true;
+      ev.eventTime = -10.0;
+      ev.priority = 1.0;
+      if (debug || numFree >= maxSize)
+         return;
+      if (numFree == free.length) {
+         RecyclableEvent[] a = new RecyclableEvent
+            [(int) Math.min (2L * free.length + 1, maxSize)];
+         System.arraycopy (free, 0, a, 0, numFree);
+         free = a;
+      }
+      free[numFree++] = ev;
+   }
+
+   /**
+    * Returns the number of recycled events waiting in this pool.
+    *  @return the number of available events
+    */
+   public int size() {
+      return numFree;
+   }
+
+   /**
+    * Returns the maximal number of recycled events kept in this pool.
+    *  @return the maximal size of the pool
+    */
+   public int getMaxSize() {
+      return maxSize;
+   }
+
+   /**
+    * Returns the number of events created by the factory of this pool.
+    *  @return the number of created events
+    */
+   public long getNumCreated() {
+      return numCreated;
+   }
+
+   /**
+    * Returns the number of times  #get has returned a recycled event.
+    *  @return the number of reused events
+    */
+   public long getNumReused() {
+      return numReused;
+   }
+
+   /**
+    * Determines if the events of this pool are recycled automatically
+    * after their execution.
+    *  @return `true` if automatic recycling is enabled
+    */
+   public boolean isAutoRecycle() {
+      return autoRecycle;
+   }
+
+   /**
+    * Enables or disables the automatic recycling of the events of this
+    * pool after their execution. When it is disabled, the events must be
+    * recycled explicitly with  RecyclableEvent.recycle.
+    *  @param b            `true` to enable automatic recycling
+    */
+   public void setAutoRecycle (boolean b) {
+      autoRecycle = b;
+   }
+
+   /**
+    * Determines if this pool is in debug mode.
+    *  @return `true` if recycled events are never reused
+    */
+   public boolean isDebug() {
+      return debug;
+   }
+
+   /**
+    * Sets the debug mode of this pool. In debug mode, recycled events are
+    * never returned by  #get, so that any later use of a recycled event
+    * throws an  IllegalStateException. Setting the debug mode empties the
+    * pool.
+    *  @param b            `true` to enable the debug mode
+    */
+   public void setDebug (boolean b) {
+      debug = b;
+      if (b)
+         clear();
+   }
+
+   /**
+    * Removes the recycled events from this pool. They will no longer be
+    * reused, and remain marked as recycled.
+    */
+   public void clear() {
+      for (int i = 0; i < numFree; i++)
+         free[i] = null;
+      numFree = 0;
+   }
+
+   public String toString() {
+      return "Event pool with " + numFree + " available events, " +
+             numCreated + " created, " + numReused + " reused";
+   }
+}
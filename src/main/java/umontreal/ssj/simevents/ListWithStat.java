@@ -467,29 +467,37 @@ public Simulator simulator() {
             throw new IllegalStateException
                 ("Calling report when no statistics were collected");
 
-        PrintfFormat str = new PrintfFormat();
-        str.append (PrintfFormat.NEWLINE +
-            "REPORT ON LIST : ").append (name).append (PrintfFormat.NEWLINE);
-        str.append ("   From time: ").append (7, 2, 2, initTime);
-        str.append (" to time: ").append (10, 2, 2, sim.time());
-        str.append ("                  min        max      average  ");
-        str.append ("standard dev.  nb. Obs");
-
-        str.append ("   Size    ");
-        str.append (9, (int)(blockSize.min()+0.5));
-        str.append (11, (int)(blockSize.max()+0.5));
-        str.append (14, 3, 2, blockSize.average()).append(PrintfFormat.NEWLINE);
-
-        str.append ("   Sojourn ");
-        str.append ( 12, 3, 2, blockSojourn.min()).append (" ");
-        str.append (10, 3, 2, blockSojourn.max()).append (" ");
-        str.append (10, 3, 2, blockSojourn.average()).append (" ");
-        str.append (10, 3, 2, blockSojourn.standardDeviation()).append (" ");
-        str.append (11, blockSojourn.numberObs()).append (PrintfFormat.NEWLINE);
-
-        return str.toString();
+        return report (name, initTime, sim.time(), blockSize, blockSojourn);
     }
 
+   // Formats the report of a list with statistics; also used by
+   // ArrayDequeStat.
+   static String report (String name, double initTime, double time,
+                         Accumulate size, Tally sojourn) {
+      PrintfFormat str = new PrintfFormat();
+      str.append (PrintfFormat.NEWLINE +
+          "REPORT ON LIST : ").append (name).append (PrintfFormat.NEWLINE);
+      str.append ("   From time: ").append (7, 2, 2, initTime);
+      str.append (" to time: ").append (10, 2, 2, time);
+      str.append (PrintfFormat.NEWLINE);
+      str.append ("                  min        max      average  ");
+      str.append ("standard dev.  nb. Obs").append (PrintfFormat.NEWLINE);
+
+      str.append ("   Size    ");
+      str.append (9, (int)(size.min()+0.5));
+      str.append (11, (int)(size.max()+0.5));
+      str.append (14, 3, 2, size.average()).append (PrintfFormat.NEWLINE);
+
+      str.append ("   Sojourn ");
+      str.append (12, 3, 2, sojourn.min()).append (" ");
+      str.append (10, 3, 2, sojourn.max()).append (" ");
+      str.append (10, 3, 2, sojourn.average()).append (" ");
+      str.append (10, 3, 2, sojourn.standardDeviation()).append (" ");
+      str.append (11, sojourn.numberObs()).append (PrintfFormat.NEWLINE);
+
+      return str.toString();
+   }
+
    /**
     * Returns the name associated to this list, or `null` if no name was
     * assigned.
@@ -0,0 +1,174 @@
+/*
+ * Class:        RecyclableEvent
+ * Description:  event that can be returned to an event pool and reused
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents;
+
+/**
+ * An event that can be obtained from an  @ref EventPool and returned to
+ * it once executed, so that simulations creating a new event for each
+ * arrival or departure do not allocate objects in steady state.
+ *
+ * An event obtained with  EventPool.get is *recycled*, i.e., returned to
+ * its pool, in one of two ways. If automatic recycling is enabled for the
+ * pool (the default), the simulator recycles the event right after its
+ * #actions method returns, unless the event was scheduled again by
+ * #actions or  #retain was called. Otherwise, or for an event that was
+ * retained or cancelled, the program calls  #recycle explicitly. When an
+ * event is recycled, the method  #reset is called to clear the fields of
+ * the subclass, e.g., references to customers, before the event is given
+ * again by  EventPool.get.
+ *
+ * A recycled event must no longer be used. The scheduling methods and
+ * #cancel throw an  IllegalStateException if they are called on an event
+ * waiting in its pool; in debug mode (see  EventPool.setDebug), recycled
+ * events are never reused, so that every such use is detected, even by a
+ * program that keeps a reference to an event after it was recycled.
+ * Events that are not obtained from a pool behave exactly like ordinary
+ * events and are never recycled.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public abstract class RecyclableEvent extends Event {
+
+   EventPool<?> pool = null;
+   // The pool this event was obtained from, null if none.
+
+   boolean recycled = false;
+   // True while this event is in its pool, or forever in debug mode.
+
+   private boolean retained = false;
+   // True if this event must not be recycled after its execution.
+
+   /**
+    * Constructs a new event linked with the default simulator.
+    */
+   public RecyclableEvent() {
+      super();
+   }
+
+   /**
+    * Constructs a new event linked with the simulator `sim`.
+    *  @param sim          simulator associated with the new event
+    */
+   public RecyclableEvent (Simulator sim) {
+      super (sim);
+   }
+
+   /**
+    * Returns the pool this event was obtained from, or `null` if it was
+    * not obtained from a pool.
+    *  @return the pool of this event
+    */
+   public final EventPool<?> getPool() {
+      return pool;
+   }
+
+   /**
+    * Returns `true` if this event was recycled and has not been obtained
+    * again from its pool.
+    *  @return `true` if this event must no longer be used
+    */
+   public final boolean isRecycled() {
+      return recycled;
+   }
+
+   /**
+    * Prevents the simulator from recycling this event automatically after
+    * its next execution. This must be called, usually in  #actions, if
+    * the program keeps a reference to the event after it has occurred;
+    * the event must then be recycled with  #recycle when it is no longer
+    * needed.
+    */
+   public final void retain() {
+      retained = true;
+   }
+
+   /**
+    * Returns this event to its pool. The event must not be scheduled; to
+    * recycle a scheduled event, it must first be cancelled.
+    *  @exception IllegalStateException if the event was not obtained from
+    * a pool, is scheduled, or was already recycled.
+    */
+   public void recycle() {
+      if (pool == null)
+         throw new IllegalStateException ("Event not obtained from a pool");
+      checkNotRecycled();
+      if (eventTime > -1.0)
+         throw new IllegalStateException ("Event still scheduled");
+      retained = false;
+      pool.release (this);
+   }
+
+   /**
+    * Called when this event is recycled, to reset the fields of the
+    * subclass to their initial values. The default implementation does
+    * nothing. The time and priority of the event are reset by the pool.
+    */
+   protected void reset() {}
+
+   // Called by the simulator after actions() has returned.
+   final void executed() {
+      if (pool == null)
+         return;
+      if (retained)
+         retained = false;
+      else if (eventTime < -1.0 && !recycled && pool.isAutoRecycle())
+         pool.release (this);
+   }
+
+   private void checkNotRecycled() {
+      if (recycled)
+         throw new IllegalStateException ("Event used after being recycled");
+   }
+
+   public void schedule (double delay) {
+      checkNotRecycled();
+      super.schedule (delay);
+   }
+
+   public void scheduleNext() {
+      checkNotRecycled();
+      super.scheduleNext();
+   }
+
+   public void scheduleBefore (Event other) {
+      checkNotRecycled();
+      super.scheduleBefore (other);
+   }
+
+   public void scheduleAfter (Event other) {
+      checkNotRecycled();
+      super.scheduleAfter (other);
+   }
+
+   public void reschedule (double delay) {
+      checkNotRecycled();
+      super.reschedule (delay);
+   }
+
+   public boolean cancel() {
+      checkNotRecycled();
+      return super.cancel();
+   }
+}
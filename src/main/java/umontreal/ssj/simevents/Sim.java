@@ -61,7 +61,7 @@ public final class Sim {
     * Reinitializes the simulation executive by clearing up the event
     * list, and resetting the simulation clock to zero. This method must
     * not be used to initialize process-driven simulation;
-    * umontreal.ssj.simprocs.SimProcess.init must be used instead.
+    * umontreal.ssj.simprocs.ProcessSimulator.init must be used instead.
     */
    public static void init() {
      // This has to be done another way in order to separate events and processes.
@@ -73,9 +73,7 @@ public final class Sim {
     * used. For example, calling `init(new DoublyLinked())` initializes
     * the simulation with a doubly linked linear structure for the event
     * list. This method must not be used to initialize process-driven
-    * simulation;  umontreal.ssj.simprocs.DSOLProcessSimulator(init)
-    * &nbsp;`(EventList)` or <br>
-    * umontreal.ssj.simprocs.ThreadProcessSimulator(init)
+    * simulation;  umontreal.ssj.simprocs.ProcessSimulator(init)
     * &nbsp;`(EventList)` must be used instead.
     *  @param evlist       selected event list implementation
     */
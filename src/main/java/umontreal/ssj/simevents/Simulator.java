@@ -24,6 +24,9 @@
  */
 package umontreal.ssj.simevents;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.function.Supplier;
 import umontreal.ssj.simevents.eventlist.EventList;
 import umontreal.ssj.simevents.eventlist.SplayTree;
 
@@ -65,6 +68,12 @@ public class Simulator {
 
    protected ContinuousState continuousState = null;
 
+   protected SimulatorMetrics metrics = null;
+      // The instrumentation of this simulator, null if disabled.
+
+   private HashMap<Class<?>, EventPool<?>> eventPools = null;
+      // The pools of recyclable events, by event class.
+
    /**
     * Represents the default simulator being used by the class  @ref Sim, and
     * the no-argument constructor of  @ref Event. This simulator is usually
@@ -106,6 +115,8 @@ public class Simulator {
      // This has to be done another way in order to separate events and processes.
 //      SimProcess.killAll();
       currentTime = 0.0;   eventList.clear();   stopped = false;  simulating = false;
+      if (metrics != null)
+         metrics.cleared();
    }
 
    /**
@@ -136,6 +147,78 @@ public class Simulator {
       return eventList;
    }
 
+   /**
+    * Schedules each event `events[i]` to happen in `delays[i]` time units,
+    * with the same result as calling  Event.schedule for each event in the
+    * order of the array, but inserting all the events in the event list at
+    * once with  umontreal.ssj.simevents.eventlist.EventList.addAll, which
+    * is faster for some event lists. This is useful to schedule the
+    * initial events of a model, e.g., one per entity.
+    *  @param events       the events to schedule
+    *  @param delays       the simulation time that must pass before each
+    *                      event happens
+    *  @exception IllegalArgumentException if the arrays do not have the
+    * same length, a delay is negative or an event is linked with another
+    * simulator.
+    *  @exception IllegalStateException if an event is already scheduled,
+    * appears twice in `events`, or is recycled in its pool.
+    */
+   public void scheduleAll (Event[] events, double[] delays) {
+      if (events.length != delays.length)
+         throw new IllegalArgumentException
+            ("events and delays must have the same length");
+      double now = time();
+      for (int i = 0; i < events.length; i++) {
+         try {
+            if (delays[i] < 0.0)
+               throw new IllegalArgumentException ("Cannot schedule in the past.");
+            checkSchedulable (events[i]);
+            if (events[i].eventTime > -1.0)
+               throw new IllegalStateException ("Event already scheduled");
+         } catch (RuntimeException e) {
+            for (int j = 0; j < i; j++)
+               events[j].eventTime = -10.0;
+            throw e;
+         }
+         events[i].eventTime = now + delays[i];
+      }
+      addAll (events);
+   }
+
+   /**
+    * Schedules the events of `events`, taken in the order of their
+    * iterator, in the same way as  #scheduleAll(Event[],double[]). The
+    * events must not be scheduled, i.e., their times must not have been
+    * set by  Event.schedule or  Event.setTime, exactly as for
+    * Event.schedule.
+    *  @param events       the events to schedule
+    *  @param delays       the simulation time that must pass before each
+    *                      event happens
+    *  @exception IllegalArgumentException if `delays` does not have the
+    * same size as `events`, a delay is negative or an event is linked
+    * with another simulator.
+    *  @exception IllegalStateException if an event is already scheduled,
+    * appears twice in `events`, or is recycled in its pool.
+    */
+   public void scheduleAll (Collection<? extends Event> events,
+                            double[] delays) {
+      scheduleAll (events.toArray (new Event[events.size()]), delays);
+   }
+
+   private void checkSchedulable (Event ev) {
+      if (ev.simulator() != this)
+         throw new IllegalArgumentException ("Event linked to another simulator");
+      if (ev instanceof RecyclableEvent && ((RecyclableEvent) ev).isRecycled())
+         throw new IllegalStateException ("Event recycled in its pool");
+   }
+
+   private void addAll (Event[] events) {
+      eventList.addAll (events);
+      if (metrics != null)
+         for (int i = 0; i < events.length; i++)
+            metrics.scheduled();
+   }
+
    /**
     * Determines if this simulator is currently running, i.e., executing
     * scheduled events.
@@ -179,6 +262,10 @@ public class Simulator {
         throw new IllegalStateException ("start() called with an empty event list");
       stopped = false;
       simulating = true;
+      if (metrics != null) {
+         startInstrumented();
+         return;
+      }
       Event ev;
       try {
          while ((ev = removeFirstEvent()) != null && !stopped) {
@@ -189,13 +276,105 @@ public class Simulator {
              // if ev is a thread object associated to a process,
              // the control will be transfered to this thread and the
              // executive will be passivated in the actions() method.
+             if (ev instanceof RecyclableEvent)
+                ((RecyclableEvent) ev).executed();
+         }
+      }
+      finally {
+         stopped = true; simulating = false;
+      }
+   }
+
+   // Same as the loop of start(), but also collects the metrics.
+   private void startInstrumented() {
+      SimulatorMetrics m = metrics;
+      m.runStarted();
+      Event ev;
+      try {
+         while ((ev = removeFirstEvent()) != null && !stopped) {
+            long t0 = System.nanoTime();
+            ev.actions();
+            m.executed (ev, System.nanoTime() - t0);
+            if (ev instanceof RecyclableEvent)
+               ((RecyclableEvent) ev).executed();
          }
       }
       finally {
+         m.runStopped();
          stopped = true; simulating = false;
       }
    }
 
+   /**
+    * Executes, in order, the events scheduled to happen strictly before
+    * time `time`, and returns when the next event occurs at time `time`
+    * or later, when the event list is empty, or when  #stop is called.
+    * Unlike  #start, this method can be called with an empty event list,
+    * and it does not stop the simulator; the simulation clock is left at
+    * the time of the last executed event. This can be used to advance
+    * the simulation by steps, e.g., in the windows of a parallel
+    * simulation.
+    *  @param time         the time before which the events are executed
+    */
+   public void startBefore (double time) {
+      stopped = false;
+      simulating = true;
+      SimulatorMetrics m = metrics;
+      if (m != null)
+         m.runStarted();
+      Event ev;
+      try {
+         while (!stopped && (ev = eventList.getFirst()) != null &&
+                ev.eventTime < time) {
+            eventList.removeFirst();
+            currentTime = ev.eventTime;
+            ev.eventTime = -10.0;
+            if (m == null)
+               ev.actions();
+            else {
+               long t0 = System.nanoTime();
+               ev.actions();
+               m.executed (ev, System.nanoTime() - t0);
+            }
+            if (ev instanceof RecyclableEvent)
+               ((RecyclableEvent) ev).executed();
+         }
+      }
+      finally {
+         if (m != null)
+            m.runStopped();
+         simulating = false;
+      }
+   }
+
+   /**
+    * Enables or disables the instrumentation of this simulator. When it
+    * is enabled, the simulator collects the metrics described in
+    * @ref SimulatorMetrics, which can be obtained with  #getMetrics; the
+    * metrics start from 0 each time the instrumentation is enabled. When
+    * it is disabled, which is the default, the only cost is a test per
+    * scheduling operation.
+    *  @param b            `true` to enable the instrumentation
+    */
+   public void enableMetrics (boolean b) {
+      if (!b) {
+         if (metrics != null)
+            metrics.unregisterMBean();
+         metrics = null;
+      }
+      else if (metrics == null)
+         metrics = new SimulatorMetrics();
+   }
+
+   /**
+    * Returns the metrics collected by this simulator, or `null` if its
+    * instrumentation is disabled.
+    *  @return the metrics of this simulator
+    */
+   public SimulatorMetrics getMetrics() {
+      return metrics;
+   }
+
    /**
     * Tells the simulation executive to stop as soon as it takes control,
     * and to return control to the program that called  #start. This
@@ -224,6 +403,29 @@ public class Simulator {
       return continuousState;
    }
 
+   /**
+    * Returns the pool of recyclable events of class `type` linked with
+    * this simulator, creating it with the factory `factory` if it does not
+    * exist yet. Each simulator has at most one such pool per event class,
+    * so that the different parts of a model share the same recycled
+    * events.
+    *  @param type         class of the events in the pool
+    *  @param factory      creates a new event when the pool is empty
+    *  @return the pool of events of class `type`
+    */
+   @SuppressWarnings("unchecked")
+   public <E extends RecyclableEvent> EventPool<E> getEventPool
+         (Class<E> type, Supplier<? extends E> factory) {
+      if (eventPools == null)
+         eventPools = new HashMap<Class<?>, EventPool<?>>();
+      EventPool<E> pool = (EventPool<E>) eventPools.get (type);
+      if (pool == null) {
+         pool = new EventPool<E> (this, factory);
+         eventPools.put (type, pool);
+      }
+      return pool;
+   }
+
    /**
     * @name Static methods
     * @{
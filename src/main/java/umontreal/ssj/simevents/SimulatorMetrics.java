@@ -0,0 +1,327 @@
+/*
+ * Class:        SimulatorMetrics
+ * Description:  counters and timers collected by an instrumented simulator
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import umontreal.ssj.util.PrintfFormat;
+
+/**
+ * Counters and timers collected by a simulator whose instrumentation was
+ * enabled with  Simulator.enableMetrics. They tell whether a model spends
+ * its time in the event list or in the `actions` methods of its events,
+ * and which classes of events are the most expensive:
+ *
+ * - the number of executed events and their rate per second of
+ *   wall-clock time spent in  Simulator.start;
+ * - the number of events scheduled, cancelled and rescheduled through
+ *   the methods of  @ref Event, and the current and largest size of the
+ *   event list deduced from them;
+ * - for each class of events, the number of executions of `actions`,
+ *   their total duration, and a histogram of their durations.
+ *
+ * The size of the event list does not take into account the events added
+ * to it directly, without using the methods of  @ref Event. The
+ * histogram of a class has 64 bins; bin @f$k>0@f$ counts the executions
+ * whose duration @f$d@f$ in nanoseconds satisfies @f$2^{k-1}\le d <
+ * 2^k@f$, and bin 0 those with @f$d=0@f$.
+ *
+ * These metrics can also be monitored by JMX clients after calling
+ * #registerMBean. The methods updating, reading and resetting the
+ * counters are synchronized, so JMX clients can read or  #reset them
+ * while the simulation runs; the lock is uncontended, hence cheap, when
+ * no client is connected. The set of classes of events is published as a
+ * new array each time a class is added, so the arrays returned for the
+ * classes always have the same length and order.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class SimulatorMetrics implements SimulatorMetricsMBean {
+
+   // Statistics on the events of one class.
+   private static class ClassStats {
+      final Class<?> cl;
+      long count;
+      long nanos;
+      final long[] hist = new long[64];
+
+      ClassStats (Class<?> cl) {
+         this.cl = cl;
+      }
+   }
+
+   private long numExecuted;
+   private long numScheduled;
+   private long numCancelled;
+   private long numRescheduled;
+   private long listSize;
+   private long maxListSize;
+   private long runNanos;           // wall-clock time in completed runs
+   private long runStart = -1;      // start of the current run, or -1
+   private final ConcurrentHashMap<Class<?>, ClassStats> classes =
+      new ConcurrentHashMap<Class<?>, ClassStats>();
+   // stats in the order of the first execution, copied on write
+   private volatile ClassStats[] order = new ClassStats[0];
+   private ClassStats last = null;  // stats of the last executed class
+   private ObjectName objectName = null;
+
+   /**
+    * Constructs metrics with all the counters set to 0.
+    */
+   public SimulatorMetrics() {}
+
+   synchronized void scheduled() {
+      ++numScheduled;
+      if (++listSize > maxListSize)
+         maxListSize = listSize;
+   }
+
+   synchronized void cancelled() {
+      ++numCancelled;
+      if (listSize > 0)
+         --listSize;
+   }
+
+   synchronized void rescheduled() {
+      ++numRescheduled;
+   }
+
+   synchronized void cleared() {
+      listSize = 0;
+   }
+
+   synchronized void runStarted() {
+      runStart = System.nanoTime();
+   }
+
+   synchronized void runStopped() {
+      runNanos += System.nanoTime() - runStart;
+      runStart = -1;
+   }
+
+   synchronized void executed (Event ev, long nanos) {
+      ++numExecuted;
+      if (listSize > 0)
+         --listSize;
+      Class<?> cl = ev.getClass();
+      ClassStats s = last;
+      if (s == null || s.cl != cl) {
+         s = classes.get (cl);
+         if (s == null) {
+            s = new ClassStats (cl);
+            classes.put (cl, s);
+            ClassStats[] o = Arrays.copyOf (order, order.length + 1);
+            o[o.length - 1] = s;
+            order = o;
+         }
+         last = s;
+      }
+      ++s.count;
+      s.nanos += nanos;
+      ++s.hist[64 - Long.numberOfLeadingZeros (Math.max (nanos, 0))];
+   }
+
+   public synchronized long getNumExecuted() {
+      return numExecuted;
+   }
+
+   public synchronized double getEventRate() {
+      long nanos = runNanos;
+      if (runStart >= 0)
+         nanos += System.nanoTime() - runStart;
+      return nanos == 0 ? 0.0 : numExecuted * 1.0e9 / nanos;
+   }
+
+   public synchronized long getNumScheduled() {
+      return numScheduled;
+   }
+
+   public synchronized long getNumCancelled() {
+      return numCancelled;
+   }
+
+   public synchronized long getNumRescheduled() {
+      return numRescheduled;
+   }
+
+   public synchronized long getListSize() {
+      return listSize;
+   }
+
+   public synchronized long getMaxListSize() {
+      return maxListSize;
+   }
+
+   /**
+    * Returns the wall-clock time, in nanoseconds, spent in
+    * Simulator.start.
+    *  @return the running time of the simulator
+    */
+   public synchronized long getRunNanos() {
+      return runStart >= 0 ? runNanos + System.nanoTime() - runStart
+                           : runNanos;
+   }
+
+   /**
+    * Returns the classes of the executed events, in the order of their
+    * first execution. The returned collection is a copy, which is not
+    * updated when new classes are executed.
+    *  @return the classes of the executed events
+    */
+   public Collection<Class<?>> getEventClasses() {
+      ClassStats[] o = order;
+      ArrayList<Class<?>> list = new ArrayList<Class<?>> (o.length);
+      for (ClassStats s : o)
+         list.add (s.cl);
+      return list;
+   }
+
+   public String[] getEventClassNames() {
+      ClassStats[] o = order;
+      String[] names = new String[o.length];
+      for (int i = 0; i < o.length; i++)
+         names[i] = o[i].cl.getName();
+      return names;
+   }
+
+   public synchronized long[] getActionsCounts() {
+      ClassStats[] o = order;
+      long[] counts = new long[o.length];
+      for (int i = 0; i < o.length; i++)
+         counts[i] = o[i].count;
+      return counts;
+   }
+
+   public synchronized long[] getActionsNanos() {
+      ClassStats[] o = order;
+      long[] nanos = new long[o.length];
+      for (int i = 0; i < o.length; i++)
+         nanos[i] = o[i].nanos;
+      return nanos;
+   }
+
+   /**
+    * Returns the number of executed events of class `cl`.
+    *  @param cl           class of events
+    *  @return the number of executions of `actions` for this class
+    */
+   public synchronized long getActionsCount (Class<?> cl) {
+      ClassStats s = classes.get (cl);
+      return s == null ? 0 : s.count;
+   }
+
+   /**
+    * Returns the total time, in nanoseconds, spent in the `actions`
+    * method of the events of class `cl`.
+    *  @param cl           class of events
+    *  @return the cumulative duration of `actions` for this class
+    */
+   public synchronized long getActionsNanos (Class<?> cl) {
+      ClassStats s = classes.get (cl);
+      return s == null ? 0 : s.nanos;
+   }
+
+   /**
+    * Returns a copy of the histogram of the durations of `actions` for
+    * the events of class `cl`, described in the class documentation.
+    *  @param cl           class of events
+    *  @return the 64 counts of the histogram
+    */
+   public synchronized long[] getActionsHistogram (Class<?> cl) {
+      ClassStats s = classes.get (cl);
+      return s == null ? new long[64] : s.hist.clone();
+   }
+
+   public synchronized void reset() {
+      numExecuted = numScheduled = numCancelled = numRescheduled = 0;
+      maxListSize = listSize;
+      runNanos = 0;
+      if (runStart >= 0)
+         runStart = System.nanoTime();
+      order = new ClassStats[0];
+      classes.clear();
+      last = null;
+   }
+
+   /**
+    * Registers these metrics in the platform MBean server under the name
+    * `umontreal.ssj.simevents:type=SimulatorMetrics,name=`<tt>name</tt>.
+    *  @param name         name distinguishing the simulator
+    *  @exception IllegalStateException if the registration fails, e.g.,
+    * if the name is already used.
+    */
+   public void registerMBean (String name) {
+      try {
+         ObjectName on = new ObjectName
+            ("umontreal.ssj.simevents:type=SimulatorMetrics,name=" +
+             ObjectName.quote (name));
+         ManagementFactory.getPlatformMBeanServer().registerMBean (this, on);
+         objectName = on;
+      } catch (JMException e) {
+         throw new IllegalStateException ("Cannot register the MBean", e);
+      }
+   }
+
+   /**
+    * Unregisters these metrics from the platform MBean server, if they
+    * were registered by  #registerMBean.
+    */
+   public void unregisterMBean() {
+      if (objectName == null)
+         return;
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      try {
+         if (server.isRegistered (objectName))
+            server.unregisterMBean (objectName);
+      } catch (JMException e) {
+         throw new IllegalStateException ("Cannot unregister the MBean", e);
+      }
+      objectName = null;
+   }
+
+   public synchronized String toString() {
+      StringBuilder sb = new StringBuilder();
+      sb.append ("Executed events:     " + numExecuted + PrintfFormat.NEWLINE);
+      sb.append ("Events per second:   " + PrintfFormat.g (10, 4,
+                 getEventRate()) + PrintfFormat.NEWLINE);
+      sb.append ("Scheduled:           " + numScheduled + PrintfFormat.NEWLINE);
+      sb.append ("Cancelled:           " + numCancelled + PrintfFormat.NEWLINE);
+      sb.append ("Rescheduled:         " + numRescheduled +
+                 PrintfFormat.NEWLINE);
+      sb.append ("Max event list size: " + maxListSize + PrintfFormat.NEWLINE);
+      for (ClassStats s : order)
+         sb.append ("   " + s.cl.getName() + ": " + s.count + " events, " +
+                    PrintfFormat.g (10, 4, s.count == 0 ? 0.0 :
+                                    (double) s.nanos / s.count) +
+                    " ns per event" + PrintfFormat.NEWLINE);
+      return sb.toString();
+   }
+}
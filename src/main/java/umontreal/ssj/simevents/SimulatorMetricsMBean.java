@@ -0,0 +1,92 @@
+/*
+ * Class:        SimulatorMetricsMBean
+ * Description:  management interface of the metrics of a simulator
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents;
+
+/**
+ * The JMX management interface of  @ref SimulatorMetrics. Its getters are
+ * the attributes shown by JMX clients such as JConsole; the per-class
+ * attributes are parallel arrays indexed like  #getEventClassNames.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public interface SimulatorMetricsMBean {
+
+   /**
+    * Returns the number of executed events.
+    */
+   public long getNumExecuted();
+
+   /**
+    * Returns the number of events executed per second of wall-clock time
+    * spent in  Simulator.start.
+    */
+   public double getEventRate();
+
+   /**
+    * Returns the number of scheduled events, excluding reschedulings.
+    */
+   public long getNumScheduled();
+
+   /**
+    * Returns the number of events cancelled while in the event list.
+    */
+   public long getNumCancelled();
+
+   /**
+    * Returns the number of rescheduled events.
+    */
+   public long getNumRescheduled();
+
+   /**
+    * Returns the current number of events in the event list.
+    */
+   public long getListSize();
+
+   /**
+    * Returns the largest number of events in the event list.
+    */
+   public long getMaxListSize();
+
+   /**
+    * Returns the names of the classes of the executed events.
+    */
+   public String[] getEventClassNames();
+
+   /**
+    * Returns the number of executed events of each class.
+    */
+   public long[] getActionsCounts();
+
+   /**
+    * Returns the total time, in nanoseconds, spent in the `actions`
+    * method of the events of each class.
+    */
+   public long[] getActionsNanos();
+
+   /**
+    * Resets all the counters to 0, except the list size.
+    */
+   public void reset();
+}
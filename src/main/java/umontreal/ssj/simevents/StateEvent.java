@@ -0,0 +1,136 @@
+/*
+ * Class:        StateEvent
+ * Description:  event triggered when a function of the continuous
+                 variables crosses zero
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents;
+
+/**
+ * An event that happens when a function @f$g(t)@f$ of the continuous
+ * variables, returned by  #condition, crosses zero. For example, the event
+ * happening when a tank of volume `vol` becomes full could be
+ * @code
+ *
+ *    class Full extends StateEvent {
+ *       public Full (Simulator sim) { super (sim, StateEvent.UP); }
+ *       public double condition (double t) { return level.value() - vol; }
+ *       public void actions() {  \dots  }
+ *    }
+ *
+ * @endcode
+ *  The event is monitored by the continuous state of its simulator once it
+ * has been added with  ContinuousState.addStateEvent, and it is scheduled,
+ * with  Event.scheduleNext, each time a crossing is detected, until it is
+ * removed with  ContinuousState.removeStateEvent. It should not be
+ * scheduled otherwise.
+ *
+ * With the Dormand-Prince method (see  ContinuousState.selectDormandPrince),
+ * the crossing time is located by root finding on the interpolated
+ * trajectory, the integration step is shortened to end at that time, and
+ * the event happens exactly at the crossing, with the continuous variables
+ * at their values at that time. Since the condition is evaluated at a few
+ * points of each step only, two crossings very close to each other may go
+ * undetected; the maximal step size limits this. With the fixed-step
+ * methods, @f$g@f$ is evaluated after each step only, and the event happens
+ * at the end of the step during which the crossing occurred.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public abstract class StateEvent extends Event {
+
+   /**
+    * Direction of the crossings from negative to positive values.
+    */
+   public static final int UP = 1;
+
+   /**
+    * Direction of the crossings from positive to negative values.
+    */
+   public static final int DOWN = -1;
+
+   /**
+    * Crossings in both directions.
+    */
+   public static final int BOTH = 0;
+
+   private int direction;
+
+   double last = Double.NaN;
+   // Value of the condition at the start of the current step.
+
+   /**
+    * Constructs a new state event linked to the simulator `sim`, which
+    * happens when  #condition crosses zero in the given direction, one of
+    * #UP,  #DOWN and  #BOTH.
+    *  @param sim          the simulator of the event
+    *  @param direction    the direction of the crossings
+    *  @exception IllegalArgumentException if `direction` is invalid.
+    */
+   public StateEvent (Simulator sim, int direction) {
+      super (sim);
+      if (direction != UP && direction != DOWN && direction != BOTH)
+         throw new IllegalArgumentException ("Invalid direction");
+      this.direction = direction;
+   }
+
+   /**
+    * Constructs a new state event linked to the default simulator.
+    *  @param direction    the direction of the crossings
+    */
+   public StateEvent (int direction) {
+      this (Simulator.getDefaultSimulator(), direction);
+   }
+
+   /**
+    * Returns the direction of the crossings that trigger this event.
+    *  @return the direction of the crossings
+    */
+   public final int direction() {
+      return direction;
+   }
+
+   /**
+    * Returns the value of the function @f$g(t)@f$ whose zero crossings
+    * trigger this event. This method should compute @f$g@f$ from the
+    * values of the continuous variables, and it is called by the
+    * integrator with these variables set to their (interpolated) values at
+    * time @f$t@f$, which is not necessarily the current simulation time.
+    *  @param t            the time at which the function is evaluated
+    *  @return the value of the function
+    */
+   public abstract double condition (double t);
+
+   // Returns true if the condition went from g0 to g1 in the direction of
+   // this event; a crossing ends at the first value of the new sign or 0.
+   final boolean crosses (double g0, double g1) {
+      if (direction != DOWN && g0 < 0.0 && g1 >= 0.0)
+         return true;
+      return direction != UP && g0 > 0.0 && g1 <= 0.0;
+   }
+
+   // Schedules this event at the current time, if it is not scheduled yet.
+   final void trigger() {
+      if (eventTime < -1.0)
+         scheduleNext();
+   }
+}
@@ -0,0 +1,493 @@
+/*
+ * Class:        CalendarQueue
+ * Description:  implementation of class EventList using a self-resizing
+                 calendar queue
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents.eventlist;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import umontreal.ssj.util.PrintfFormat;
+import umontreal.ssj.simevents.Event;
+
+/**
+ * An implementation of @ref EventList using the *calendar queue* of Brown
+ * (*Calendar queues: a fast O(1) priority queue implementation for the
+ * simulation event set problem*, CACM, 1988). The time axis is divided into
+ * *days* of equal width, and the events of day @f$d@f$ are kept, sorted, in
+ * the bucket @f$d \bmod m@f$, where the number of buckets @f$m@f$ is a power
+ * of 2. The first event is found by visiting the buckets in the order of the
+ * days, starting from the day of the last removed event. When the number of
+ * events becomes larger than @f$2m@f$ or smaller than @f$m/2@f$, the number
+ * of buckets is doubled or halved, and the width of the days is recomputed
+ * from the separation of the first events in the list. The width is also
+ * recomputed when the buckets become crowded or when many empty days must be
+ * skipped to find the next event, so that it follows the distribution of the
+ * event times. Adding and removing the first event then take @f$O(1)@f$
+ * amortized time for most event time distributions, which makes this list
+ * efficient for very large numbers of pending events.
+ *
+ * As in @ref SplayTree, events with the same time and priority occur in the
+ * order they were added; as in @ref IndexedHeap, this is achieved with a
+ * sequence number stored in each event (see
+ * umontreal.ssj.simevents.Event.getListSeq), so an event can be in at most
+ * one instance of this class or of @ref IndexedHeap at a time. The methods
+ * #addBefore and #addAfter assume, as when they are called by
+ * umontreal.ssj.simevents.Event.scheduleBefore, that the new event has the
+ * same time and priority as the reference event. The method #addFirst puts
+ * the new event before the events with the same time and priority. The
+ * iterators and #toString sort a copy of the list, and #getFirstOfClass
+ * examines all the events. The iterators do not support the <tt>add</tt>
+ * and <tt>set</tt> operations.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class CalendarQueue implements EventList {
+	private static final int MIN_BUCKETS = 16;
+	private static final int SAMPLE_SIZE = 25;
+
+	// Bucket b contains the events buckets[b][head[b] .. tail[b] - 1], sorted.
+	private Event[][] buckets;
+	private int[] head;
+	private int[] tail;
+	private int mask; // number of buckets - 1
+	private double width = 1.0; // width of a day
+	private double invWidth = 1.0;
+	private long curDay; // no event occurs before this day
+	private int curBucket; // bucket of curDay
+	private int skipped; // number of days skipped by the last firstBucket
+	private int size = 0;
+	private long nextSeq = 0; // sequence number of the next added event
+	private long firstSeq = 0; // sequence number of the last event added first
+	private int modCount = 0;
+	private int opsSinceResize = 0;
+
+	/**
+	 * Constructs an empty event list.
+	 */
+	public CalendarQueue() {
+		allocate(MIN_BUCKETS);
+	}
+
+	private void allocate(int nb) {
+		buckets = new Event[nb][];
+		head = new int[nb];
+		tail = new int[nb];
+		mask = nb - 1;
+		opsSinceResize = 0;
+	}
+
+	// Returns true if a must occur before b.
+	private static boolean before(Event a, Event b) {
+		double ta = a.time();
+		double tb = b.time();
+		if (ta != tb)
+			return ta < tb;
+		double pa = a.priority();
+		double pb = b.priority();
+		if (pa != pb)
+			return pa < pb;
+		return a.getListSeq() < b.getListSeq();
+	}
+
+	private static final Comparator<Event> ORDER = new Comparator<Event>() {
+		public int compare(Event a, Event b) {
+			return before(a, b) ? -1 : (before(b, a) ? 1 : 0);
+		}
+	};
+
+	private long dayOf(double time) {
+		double d = time * invWidth;
+		long day = (long) d;
+		return d < day ? day - 1 : day;   // floor
+	}
+
+	// Inserts ev in its bucket, without changing its sequence number, and
+	// returns the number of events in this bucket.
+	private int insert(Event ev) {
+		long day = dayOf(ev.time());
+		int b = (int) day & mask;
+		Event[] a = buckets[b];
+		if (a == null)
+			a = buckets[b] = new Event[4];
+		int h = head[b];
+		int t = tail[b];
+		if (t == a.length) {
+			if (h > 0) {
+				System.arraycopy(a, h, a, 0, t - h);
+				Arrays.fill(a, t - h, t, null);
+				t -= h;
+				h = 0;
+			} else
+				a = buckets[b] = Arrays.copyOf(a, 2 * a.length);
+		}
+		// new events are usually the last of their bucket
+		int i = t;
+		while (i > h && before(ev, a[i - 1])) {
+			a[i] = a[i - 1];
+			--i;
+		}
+		a[i] = ev;
+		head[b] = h;
+		tail[b] = t + 1;
+		if (size == 0 || day < curDay) {
+			curDay = day;
+			curBucket = b;
+		}
+		++size;
+		return t + 1 - h;
+	}
+
+	// Removes the event at index i of bucket b.
+	private void removeAt(int b, int i) {
+		Event[] a = buckets[b];
+		if (i == head[b])
+			a[head[b]++] = null;
+		else {
+			System.arraycopy(a, i + 1, a, i, tail[b] - i - 1);
+			a[--tail[b]] = null;
+		}
+		if (head[b] == tail[b])
+			head[b] = tail[b] = 0;
+		--size;
+	}
+
+	// Returns the bucket containing the first event, and moves the current
+	// day to the day of this event. The list must not be empty.
+	private int firstBucket() {
+		int b = curBucket;
+		long day = curDay;
+		for (int n = 0; n <= mask; n++) {
+			if (head[b] < tail[b] && dayOf(buckets[b][head[b]].time()) <= day) {
+				curBucket = b;
+				curDay = day;
+				skipped = n;
+				return b;
+			}
+			b = (b + 1) & mask;
+			++day;
+		}
+		// no event within one year: direct search
+		Event first = null;
+		for (int i = 0; i <= mask; i++)
+			if (head[i] < tail[i] && (first == null || before(buckets[i][head[i]], first))) {
+				first = buckets[i][head[i]];
+				b = i;
+			}
+		curBucket = b;
+		curDay = dayOf(first.time());
+		skipped = mask + 1;
+		return b;
+	}
+
+	// Returns a new width for the days, estimated from the separation of the
+	// first events, or the current width if it cannot be estimated.
+	private double newWidth() {
+		int n = Math.min(size, SAMPLE_SIZE);
+		if (n < 2)
+			return width;
+		Event[] sample = new Event[n];
+		for (int i = 0; i < n; i++) {
+			int b = firstBucket();
+			sample[i] = buckets[b][head[b]];
+			removeAt(b, head[b]);
+		}
+		for (int i = 0; i < n; i++)
+			insert(sample[i]);
+		double avg = (sample[n - 1].time() - sample[0].time()) / (n - 1);
+		double sum = 0.0;
+		int count = 0;
+		for (int i = 1; i < n; i++) {
+			double sep = sample[i].time() - sample[i - 1].time();
+			if (sep <= 2.0 * avg) {
+				sum += sep;
+				++count;
+			}
+		}
+		double w = 3.0 * sum / count;
+		if (w > 0.0 && w < Double.POSITIVE_INFINITY)
+			return w;
+		return width;
+	}
+
+	// Redistributes the events in nb buckets, with a new day width.
+	private void resize(int nb) {
+		double w = newWidth();
+		Event[][] oldBuckets = buckets;
+		int[] oldHead = head;
+		int[] oldTail = tail;
+		allocate(nb);
+		width = w;
+		invWidth = 1.0 / w;
+		size = 0;
+		for (int b = 0; b < oldBuckets.length; b++)
+			for (int i = oldHead[b]; i < oldTail[b]; i++)
+				insert(oldBuckets[b][i]);
+	}
+
+	// Adds ev, and adapts the buckets if necessary.
+	private void addEvent(Event ev) {
+		int len = insert(ev);
+		++modCount;
+		++opsSinceResize;
+		if (size > 2 * (mask + 1))
+			resize(2 * (mask + 1));
+		else if (len > 8 && len > 4 * size / (mask + 1) && opsSinceResize > mask)
+			// days too wide
+			resize(mask + 1);
+	}
+
+	// Adds inc to the sequence numbers, greater than or equal to seq, of the
+	// events with the same time and priority as other, which are all in the
+	// same bucket.
+	private void shiftSeq(Event other, long seq, long inc) {
+		int b = (int) dayOf(other.time()) & mask;
+		for (int i = head[b]; i < tail[b]; i++) {
+			Event e = buckets[b][i];
+			if (e.time() == other.time() && e.priority() == other.priority() && e.getListSeq() >= seq) {
+				e.setListSeq(e.getListSeq() + inc);
+				if (e.getListSeq() >= nextSeq)
+					nextSeq = e.getListSeq() + 1;
+			}
+		}
+	}
+
+	// Returns the index of ev in its bucket b, or -1 if it is not there.
+	private int indexOf(Event ev, int b) {
+		Event[] a = buckets[b];
+		for (int i = head[b]; i < tail[b]; i++)
+			if (a[i] == ev)
+				return i;
+		return -1;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		allocate(MIN_BUCKETS);
+		size = 0;
+		nextSeq = firstSeq = 0;
+		++modCount;
+	}
+
+	public void add(Event ev) {
+		ev.setListSeq(nextSeq++);
+		addEvent(ev);
+	}
+
+	public void addFirst(Event ev) {
+		ev.setListSeq(--firstSeq);
+		addEvent(ev);
+	}
+
+	public void addBefore(Event ev, Event other) {
+		if (indexOf(other, (int) dayOf(other.time()) & mask) < 0)
+			throw new IllegalArgumentException("Event not in list.");
+		long seq = other.getListSeq();
+		shiftSeq(other, seq, 1);
+		ev.setListSeq(seq);
+		addEvent(ev);
+	}
+
+	public void addAfter(Event ev, Event other) {
+		if (indexOf(other, (int) dayOf(other.time()) & mask) < 0)
+			throw new IllegalArgumentException("Event not in list.");
+		long seq = other.getListSeq() + 1;
+		shiftSeq(other, seq, 1);
+		ev.setListSeq(seq);
+		if (seq >= nextSeq)
+			nextSeq = seq + 1;
+		addEvent(ev);
+	}
+
+	public Event getFirst() {
+		if (size == 0)
+			return null;
+		int b = firstBucket();
+		return buckets[b][head[b]];
+	}
+
+	public Event getFirstOfClass(String cl) {
+		Event first = null;
+		for (int b = 0; b <= mask; b++)
+			for (int i = head[b]; i < tail[b]; i++) {
+				Event ev = buckets[b][i];
+				if (ev.getClass().getName().equals(cl) && (first == null || before(ev, first)))
+					first = ev;
+			}
+		return first;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <E extends Event> E getFirstOfClass(Class<E> cl) {
+		Event first = null;
+		for (int b = 0; b <= mask; b++)
+			for (int i = head[b]; i < tail[b]; i++) {
+				Event ev = buckets[b][i];
+				if (ev.getClass() == cl && (first == null || before(ev, first)))
+					first = ev;
+			}
+		return (E) first;
+	}
+
+	public Iterator<Event> iterator() {
+		return listIterator();
+	}
+
+	public ListIterator<Event> listIterator() {
+		return new CQItr();
+	}
+
+	public boolean remove(Event ev) {
+		if (size == 0)
+			return false;
+		int b = (int) dayOf(ev.time()) & mask;
+		int i = indexOf(ev, b);
+		if (i < 0)
+			return false;
+		removeAt(b, i);
+		++modCount;
+		++opsSinceResize;
+		if (size < (mask + 1) / 2 && mask + 1 > MIN_BUCKETS)
+			resize((mask + 1) / 2);
+		return true;
+	}
+
+	public Event removeFirst() {
+		if (size == 0)
+			return null;
+		int b = firstBucket();
+		Event first = buckets[b][head[b]];
+		removeAt(b, head[b]);
+		++modCount;
+		++opsSinceResize;
+		if (size < (mask + 1) / 2 && mask + 1 > MIN_BUCKETS)
+			resize((mask + 1) / 2);
+		else if (skipped > 8 && opsSinceResize > mask)
+			// days too narrow
+			resize(mask + 1);
+		return first;
+	}
+
+	// Returns the events in the order they will occur.
+	private Event[] sortedEvents() {
+		Event[] events = new Event[size];
+		int k = 0;
+		for (int b = 0; b <= mask; b++)
+			for (int i = head[b]; i < tail[b]; i++)
+				events[k++] = buckets[b][i];
+		Arrays.sort(events, ORDER);
+		return events;
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Contents of the event list CalendarQueue:");
+		for (Event ev : sortedEvents())
+			sb.append(PrintfFormat.NEWLINE + PrintfFormat.g(12, 7, ev.time()) + ", "
+					+ PrintfFormat.g(8, 4, ev.priority()) + " : " + ev.toString());
+		return sb.toString();
+	}
+
+	// Iterates over a sorted copy of the events.
+	private class CQItr implements ListIterator<Event> {
+		private final Event[] events;
+		private int length;
+		private int expectedModCount;
+		private int nextIndex;
+		private int lastRet;
+
+		CQItr() {
+			events = sortedEvents();
+			length = events.length;
+			expectedModCount = modCount;
+			nextIndex = 0;
+			lastRet = -1;
+		}
+
+		public void add(Event ev) {
+			throw new UnsupportedOperationException();
+		}
+
+		public boolean hasNext() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			return nextIndex < length;
+		}
+
+		public boolean hasPrevious() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			return nextIndex > 0;
+		}
+
+		public Event next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			lastRet = nextIndex++;
+			return events[lastRet];
+		}
+
+		public int nextIndex() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return nextIndex;
+		}
+
+		public Event previous() {
+			if (!hasPrevious())
+				throw new NoSuchElementException();
+			lastRet = --nextIndex;
+			return events[lastRet];
+		}
+
+		public int previousIndex() {
+			if (!hasPrevious())
+				throw new NoSuchElementException();
+			return nextIndex - 1;
+		}
+
+		public void remove() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (lastRet < 0)
+				throw new IllegalStateException();
+			CalendarQueue.this.remove(events[lastRet]);
+			System.arraycopy(events, lastRet + 1, events, lastRet, length - lastRet - 1);
+			events[--length] = null;
+			if (lastRet < nextIndex)
+				--nextIndex;
+			lastRet = -1;
+			expectedModCount = modCount;
+		}
+
+		public void set(Event ev) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -24,6 +24,7 @@
  */
 package umontreal.ssj.simevents.eventlist;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.ListIterator;
 import java.util.ConcurrentModificationException;
@@ -89,6 +90,41 @@ public class DoublyLinked implements EventList {
 		}
 	}
 
+	/**
+	 * Adds the events of <tt>events</tt> as #add, by sorting them and merging
+	 * them with the list in a single pass, in @f$O(m\log(m) + n)@f$ time
+	 * instead of @f$O(mn)@f$, where @f$m@f$ is the number of added events and
+	 * @f$n@f$ is the size of the list.
+	 * 
+	 * @param events events to be added
+	 */
+	public void addAll(Event[] events) {
+		Event[] sorted = events.clone();
+		Arrays.sort(sorted); // stable, keeps the order of the ties
+		Node node = null; // node after which the next event is inserted
+		Node next = first;
+		for (Event ev : sorted) {
+			while (next != null && next.ev.compareTo(ev) <= 0) {
+				node = next;
+				next = next.succ;
+			}
+			Node newNode = new Node();
+			newNode.ev = ev;
+			newNode.prec = node;
+			newNode.succ = next;
+			if (node == null)
+				first = newNode;
+			else
+				node.succ = newNode;
+			if (next == null)
+				last = newNode;
+			else
+				next.prec = newNode;
+			node = newNode;
+		}
+		++modCount;
+	}
+
 	public void addFirst(Event ev) {
 		Node newNode;
 		newNode = new Node();
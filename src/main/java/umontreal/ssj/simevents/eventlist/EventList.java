@@ -24,6 +24,7 @@
  */
 package umontreal.ssj.simevents.eventlist;
 
+import java.util.Collection;
 import java.util.ListIterator;
 import umontreal.ssj.simevents.Event;
 
@@ -86,6 +87,31 @@ public interface EventList extends Iterable<Event> {
 	 */
 	public void add(Event ev);
 
+	/**
+	 * Adds the events of the array <tt>events</tt> in the event list, according
+	 * to their times, with the same result as calling #add for each of them in
+	 * the order of the array. Some implementations build their structure for
+	 * all the events at once, which is faster than adding them one by one when
+	 * many events are added, e.g., the initial events of a simulation. The
+	 * default implementation calls #add for each event.
+	 * 
+	 * @param events events to be added
+	 */
+	public default void addAll(Event[] events) {
+		for (Event ev : events)
+			add(ev);
+	}
+
+	/**
+	 * Same as #addAll(Event[]), for the events of the collection <tt>events</tt>
+	 * in the order of its iterator.
+	 * 
+	 * @param events events to be added
+	 */
+	public default void addAll(Collection<? extends Event> events) {
+		addAll(events.toArray(new Event[events.size()]));
+	}
+
 	/**
 	 * Adds a new event at the beginning of the event list. The given event
 	 * <tt>ev</tt> will occur at the current simulation time.
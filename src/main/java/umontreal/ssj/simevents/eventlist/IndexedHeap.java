@@ -0,0 +1,394 @@
+/*
+ * Class:        IndexedHeap
+ * Description:  implementation of class EventList using an array-based
+                 4-ary heap indexed by the events
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents.eventlist;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import umontreal.ssj.util.PrintfFormat;
+import umontreal.ssj.simevents.Event;
+
+/**
+ * An implementation of @ref EventList using a 4-ary heap stored in an array.
+ * Each event keeps its position in the array (see
+ * umontreal.ssj.simevents.Event.getListIndex), so that no wrapper object is
+ * allocated when an event is added, and an event can be cancelled or
+ * rescheduled without searching for it. Adding an event and removing any
+ * event take @f$O(\log(n))@f$ time in the worst case, where @f$n@f$ is the
+ * size of the event list, and a 4-ary heap makes fewer cache misses than a
+ * binary one.
+ *
+ * As in @ref SplayTree, events with the same time and priority occur in the
+ * order they were added. For this, each event receives a sequence number when
+ * it is added. The methods #addBefore and #addAfter must renumber the events
+ * that have the same time and priority as the reference event, so they take
+ * @f$O(n)@f$ time; they assume, as when they are called by
+ * umontreal.ssj.simevents.Event.scheduleBefore, that the new event has the
+ * same time and priority as the reference event. The method #addFirst puts
+ * the new event before the events with the same time and priority. The
+ * events are not kept in sorted order, so the iterators and #toString sort a
+ * copy of the list, and #getFirstOfClass examines all the events. The
+ * iterators do not support the <tt>add</tt> and <tt>set</tt> operations.
+ *
+ * An event can be in at most one instance of this class at a time.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class IndexedHeap implements EventList {
+	private static final int D = 4; // number of children of each node
+
+	private Event[] heap;
+	private int size = 0;
+	private long nextSeq = 0; // sequence number of the next added event
+	private long firstSeq = 0; // sequence number of the last event added first
+	private int modCount = 0;
+
+	/**
+	 * Constructs an empty event list.
+	 */
+	public IndexedHeap() {
+		this(64);
+	}
+
+	/**
+	 * Constructs an empty event list with room for <tt>capacity</tt> events
+	 * before its array has to grow.
+	 *
+	 * @param capacity initial capacity of the event list
+	 */
+	public IndexedHeap(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive");
+		heap = new Event[capacity];
+	}
+
+	// Returns true if a must occur before b.
+	private static boolean before(Event a, Event b) {
+		double ta = a.time();
+		double tb = b.time();
+		if (ta != tb)
+			return ta < tb;
+		double pa = a.priority();
+		double pb = b.priority();
+		if (pa != pb)
+			return pa < pb;
+		return a.getListSeq() < b.getListSeq();
+	}
+
+	private static final Comparator<Event> ORDER = new Comparator<Event>() {
+		public int compare(Event a, Event b) {
+			return before(a, b) ? -1 : (before(b, a) ? 1 : 0);
+		}
+	};
+
+	private boolean contains(Event ev) {
+		int i = ev.getListIndex();
+		return i >= 0 && i < size && heap[i] == ev;
+	}
+
+	private void siftUp(int k, Event ev) {
+		while (k > 0) {
+			int parent = (k - 1) / D;
+			Event p = heap[parent];
+			if (!before(ev, p))
+				break;
+			heap[k] = p;
+			p.setListIndex(k);
+			k = parent;
+		}
+		heap[k] = ev;
+		ev.setListIndex(k);
+	}
+
+	private void siftDown(int k, Event ev) {
+		int c;
+		while ((c = D * k + 1) < size) {
+			// smallest of the children
+			int end = Math.min(c + D, size);
+			int m = c;
+			Event min = heap[c];
+			for (int j = c + 1; j < end; j++)
+				if (before(heap[j], min)) {
+					m = j;
+					min = heap[j];
+				}
+			if (!before(min, ev))
+				break;
+			heap[k] = min;
+			min.setListIndex(k);
+			k = m;
+		}
+		heap[k] = ev;
+		ev.setListIndex(k);
+	}
+
+	private void insert(Event ev) {
+		if (size == heap.length)
+			heap = Arrays.copyOf(heap, 2 * size);
+		siftUp(size++, ev);
+		++modCount;
+	}
+
+	private void removeAt(int i) {
+		Event ev = heap[i];
+		Event last = heap[--size];
+		heap[size] = null;
+		ev.setListIndex(-1);
+		if (i < size) {
+			siftDown(i, last);
+			if (heap[i] == last)
+				siftUp(i, last);
+		}
+		++modCount;
+	}
+
+	// Adds inc to the sequence numbers, greater than or equal to seq, of the
+	// events with the same time and priority as other.
+	private void shiftSeq(Event other, long seq, long inc) {
+		double t = other.time();
+		double p = other.priority();
+		for (int i = 0; i < size; i++) {
+			Event e = heap[i];
+			if (e.time() == t && e.priority() == p && e.getListSeq() >= seq) {
+				e.setListSeq(e.getListSeq() + inc);
+				if (e.getListSeq() >= nextSeq)
+					nextSeq = e.getListSeq() + 1;
+			}
+		}
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			heap[i].setListIndex(-1);
+			heap[i] = null;
+		}
+		size = 0;
+		nextSeq = firstSeq = 0;
+		++modCount;
+	}
+
+	public void add(Event ev) {
+		ev.setListSeq(nextSeq++);
+		insert(ev);
+	}
+
+	/**
+	 * Adds the events of <tt>events</tt> as #add, but, when there are at least
+	 * as many new events as events in the list, appends them to the array and
+	 * rebuilds the heap in @f$O(n)@f$ time, where @f$n@f$ is the new size of
+	 * the event list.
+	 * 
+	 * @param events events to be added
+	 */
+	public void addAll(Event[] events) {
+		int n = events.length;
+		if (n == 0)
+			return;
+		if (n < size) {
+			for (Event ev : events)
+				add(ev);
+			return;
+		}
+		if (size + n > heap.length)
+			heap = Arrays.copyOf(heap, Math.max(2 * heap.length, size + n));
+		for (Event ev : events) {
+			ev.setListSeq(nextSeq++);
+			ev.setListIndex(size);
+			heap[size++] = ev;
+		}
+		for (int k = (size - 2) / D; k >= 0; k--)
+			siftDown(k, heap[k]);
+		++modCount;
+	}
+
+	public void addFirst(Event ev) {
+		ev.setListSeq(--firstSeq);
+		insert(ev);
+	}
+
+	public void addBefore(Event ev, Event other) {
+		if (!contains(other))
+			throw new IllegalArgumentException("Event not in list.");
+		long seq = other.getListSeq();
+		shiftSeq(other, seq, 1);
+		ev.setListSeq(seq);
+		insert(ev);
+	}
+
+	public void addAfter(Event ev, Event other) {
+		if (!contains(other))
+			throw new IllegalArgumentException("Event not in list.");
+		long seq = other.getListSeq() + 1;
+		shiftSeq(other, seq, 1);
+		ev.setListSeq(seq);
+		if (seq >= nextSeq)
+			nextSeq = seq + 1;
+		insert(ev);
+	}
+
+	public Event getFirst() {
+		return size == 0 ? null : heap[0];
+	}
+
+	public Event getFirstOfClass(String cl) {
+		Event first = null;
+		for (int i = 0; i < size; i++)
+			if (heap[i].getClass().getName().equals(cl) && (first == null || before(heap[i], first)))
+				first = heap[i];
+		return first;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <E extends Event> E getFirstOfClass(Class<E> cl) {
+		Event first = null;
+		for (int i = 0; i < size; i++)
+			if (heap[i].getClass() == cl && (first == null || before(heap[i], first)))
+				first = heap[i];
+		return (E) first;
+	}
+
+	public Iterator<Event> iterator() {
+		return listIterator();
+	}
+
+	public ListIterator<Event> listIterator() {
+		return new IHItr();
+	}
+
+	public boolean remove(Event ev) {
+		if (!contains(ev))
+			return false;
+		removeAt(ev.getListIndex());
+		return true;
+	}
+
+	public Event removeFirst() {
+		if (size == 0)
+			return null;
+		Event first = heap[0];
+		removeAt(0);
+		return first;
+	}
+
+	// Returns the events in the order they will occur.
+	private Event[] sortedEvents() {
+		Event[] events = Arrays.copyOf(heap, size);
+		Arrays.sort(events, ORDER);
+		return events;
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Contents of the event list IndexedHeap:");
+		for (Event ev : sortedEvents())
+			sb.append(PrintfFormat.NEWLINE + PrintfFormat.g(12, 7, ev.time()) + ", "
+					+ PrintfFormat.g(8, 4, ev.priority()) + " : " + ev.toString());
+		return sb.toString();
+	}
+
+	// Iterates over a sorted copy of the events.
+	private class IHItr implements ListIterator<Event> {
+		private final Event[] events;
+		private int length;
+		private int expectedModCount;
+		private int nextIndex;
+		private int lastRet;
+
+		IHItr() {
+			events = sortedEvents();
+			length = events.length;
+			expectedModCount = modCount;
+			nextIndex = 0;
+			lastRet = -1;
+		}
+
+		public void add(Event ev) {
+			throw new UnsupportedOperationException();
+		}
+
+		public boolean hasNext() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			return nextIndex < length;
+		}
+
+		public boolean hasPrevious() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			return nextIndex > 0;
+		}
+
+		public Event next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			lastRet = nextIndex++;
+			return events[lastRet];
+		}
+
+		public int nextIndex() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return nextIndex;
+		}
+
+		public Event previous() {
+			if (!hasPrevious())
+				throw new NoSuchElementException();
+			lastRet = --nextIndex;
+			return events[lastRet];
+		}
+
+		public int previousIndex() {
+			if (!hasPrevious())
+				throw new NoSuchElementException();
+			return nextIndex - 1;
+		}
+
+		public void remove() {
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (lastRet < 0)
+				throw new IllegalStateException();
+			IndexedHeap.this.remove(events[lastRet]);
+			System.arraycopy(events, lastRet + 1, events, lastRet, length - lastRet - 1);
+			events[--length] = null;
+			if (lastRet < nextIndex)
+				--nextIndex;
+			lastRet = -1;
+			expectedModCount = modCount;
+		}
+
+		public void set(Event ev) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
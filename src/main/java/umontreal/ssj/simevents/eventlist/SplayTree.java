@@ -24,6 +24,7 @@
  */
 package umontreal.ssj.simevents.eventlist;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.ListIterator;
 import java.util.ConcurrentModificationException;
@@ -170,6 +171,36 @@ public class SplayTree implements EventList {
 		++modCount;
 	}
 
+	/**
+	 * Adds the events of <tt>events</tt> as #add, after sorting them. If the
+	 * tree is empty, a balanced tree is built in @f$O(n)@f$ time from the
+	 * sorted events; otherwise, they are added in ascending order, for which
+	 * splaying takes constant amortized time per event.
+	 * 
+	 * @param events events to be added
+	 */
+	public void addAll(Event[] events) {
+		Event[] sorted = events.clone();
+		Arrays.sort(sorted); // stable, keeps the order of the ties
+		if (root == null) {
+			root = build(sorted, 0, sorted.length - 1, null);
+			++modCount;
+		} else
+			for (Event ev : sorted)
+				add(ev);
+	}
+
+	// Builds a balanced tree with the sorted events from lo to hi.
+	private Entry build(Event[] sorted, int lo, int hi, Entry father) {
+		if (lo > hi)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		Entry e = add(sorted[mid], father);
+		e.left = build(sorted, lo, mid - 1, e);
+		e.right = build(sorted, mid + 1, hi, e);
+		return e;
+	}
+
 	public void addFirst(Event ev) {
 		if (root == null)
 			root = add(ev, null);
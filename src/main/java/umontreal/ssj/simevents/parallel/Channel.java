@@ -0,0 +1,145 @@
+/*
+ * Class:        Channel
+ * Description:  link through which a logical process sends events to
+                 another one
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents.parallel;
+
+import java.util.ArrayList;
+import umontreal.ssj.simevents.Event;
+
+/**
+ * A link through which a source logical process schedules events in a
+ * destination logical process. Each channel has a *lookahead*
+ * @f$L>0@f$: an event sent at time @f$t@f$ of the source must occur at
+ * time @f$t+L@f$ or later in the destination. The lookahead typically is a
+ * minimal transmission or travel time between the two parts of the model;
+ * the larger it is, the more events the logical processes can simulate
+ * between two synchronizations.
+ *
+ * The sent events are kept in the channel, and added to the event list of
+ * the destination when the logical processes synchronize, in the order
+ * they were sent. Channels are created by  ParallelSimulation.connect.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class Channel {
+   private LogicalProcess source;
+   private LogicalProcess destination;
+   private double lookahead;
+   private ArrayList<Event> pending = new ArrayList<Event>();
+   private long numSent = 0;
+
+   Channel (LogicalProcess source, LogicalProcess destination,
+            double lookahead) {
+      this.source = source;
+      this.destination = destination;
+      this.lookahead = lookahead;
+   }
+
+   /**
+    * Returns the logical process sending events through this channel.
+    *  @return the source logical process
+    */
+   public LogicalProcess getSource() {
+      return source;
+   }
+
+   /**
+    * Returns the logical process receiving the events sent through this
+    * channel.
+    *  @return the destination logical process
+    */
+   public LogicalProcess getDestination() {
+      return destination;
+   }
+
+   /**
+    * Returns the lookahead of this channel.
+    *  @return the lookahead
+    */
+   public double getLookahead() {
+      return lookahead;
+   }
+
+   /**
+    * Returns the number of events sent through this channel since the
+    * last initialization of the parallel simulation.
+    *  @return the number of sent events
+    */
+   public long getNumSent() {
+      return numSent;
+   }
+
+   /**
+    * Schedules the event `ev` to happen in the destination logical process
+    * in `delay` time units, i.e., at time `t + delay`, where `t` is the
+    * current time of the source. This method must be called by the source
+    * logical process, e.g., in the `actions` method of one of its events.
+    * The event must be linked with the simulator of the destination and
+    * not be scheduled; its priority must be set before it is sent.
+    *  @param ev           event to be scheduled in the destination
+    *  @param delay        simulation time that must pass before the event
+    *                      happens
+    *  @exception IllegalArgumentException if `delay` is smaller than the
+    * lookahead, or if `ev` is linked with another simulator.
+    *  @exception IllegalStateException if `ev` is already scheduled.
+    */
+   public void send (Event ev, double delay) {
+      if (delay < lookahead)
+         throw new IllegalArgumentException
+            ("The delay must not be smaller than the lookahead " + lookahead);
+      if (ev.simulator() != destination.simulator())
+         throw new IllegalArgumentException
+            ("The event must be linked with the simulator of the destination");
+      if (ev.time() > -1.0)
+         throw new IllegalStateException ("Event already scheduled");
+      ev.setTime (source.simulator().time() + delay);
+      pending.add (ev);
+      ++numSent;
+   }
+
+   // Adds the sent events to the event list of the destination, and
+   // returns the smallest of their times.
+   double deliver() {
+      double first = Double.POSITIVE_INFINITY;
+      for (Event ev : pending) {
+         destination.simulator().getEventList().add (ev);
+         first = Math.min (first, ev.time());
+      }
+      pending.clear();
+      return first;
+   }
+
+   void clear() {
+      for (Event ev : pending)
+         ev.cancel();
+      pending.clear();
+      numSent = 0;
+   }
+
+   public String toString() {
+      return "Channel from " + source.getId() + " to " +
+             destination.getId() + " with lookahead " + lookahead;
+   }
+}
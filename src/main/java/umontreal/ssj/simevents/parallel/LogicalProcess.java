@@ -0,0 +1,88 @@
+/*
+ * Class:        LogicalProcess
+ * Description:  part of a model simulated by its own simulator in a
+                 parallel simulation
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents.parallel;
+
+import umontreal.ssj.simevents.Event;
+import umontreal.ssj.simevents.Simulator;
+
+/**
+ * A logical process of a  @ref ParallelSimulation, i.e., a part of the
+ * model simulated by its own  @ref umontreal.ssj.simevents.Simulator. The
+ * events of a logical process must be linked with its simulator, returned
+ * by  #simulator, and must be scheduled as usual with the methods of
+ * @ref umontreal.ssj.simevents.Event; they must not use the default
+ * simulator nor access the state of other logical processes, which may
+ * be simulated at the same time by other threads. Events are sent to
+ * another logical process only through a  @ref Channel.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class LogicalProcess {
+   private ParallelSimulation psim;
+   private int id;
+   private Simulator sim;
+
+   LogicalProcess (ParallelSimulation psim, int id, Simulator sim) {
+      this.psim = psim;
+      this.id = id;
+      this.sim = sim;
+   }
+
+   /**
+    * Returns the parallel simulation this logical process belongs to.
+    *  @return the parallel simulation
+    */
+   public ParallelSimulation getParallelSimulation() {
+      return psim;
+   }
+
+   /**
+    * Returns the index of this logical process, i.e., the number of
+    * logical processes added to the parallel simulation before it.
+    *  @return the index of this logical process
+    */
+   public int getId() {
+      return id;
+   }
+
+   /**
+    * Returns the simulator of this logical process.
+    *  @return the simulator of this logical process
+    */
+   public Simulator simulator() {
+      return sim;
+   }
+
+   // Returns the time of the next event, or infinity if there is none.
+   double nextEventTime() {
+      Event ev = sim.getEventList().getFirst();
+      return ev == null ? Double.POSITIVE_INFINITY : ev.time();
+   }
+
+   public String toString() {
+      return "Logical process " + id;
+   }
+}
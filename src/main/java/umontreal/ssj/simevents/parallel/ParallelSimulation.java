@@ -0,0 +1,323 @@
+/*
+ * Class:        ParallelSimulation
+ * Description:  conservative parallel simulation of logical processes
+                 synchronized by time windows
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simevents.parallel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import umontreal.ssj.simevents.Simulator;
+import umontreal.ssj.simevents.eventlist.EventList;
+import umontreal.ssj.simevents.eventlist.SplayTree;
+
+/**
+ * Simulates a model partitioned into logical processes (see
+ * @ref LogicalProcess) with several threads, using conservative
+ * synchronization by time windows. Each logical process has its own
+ * simulator and event list, and sends events to the other ones through
+ * channels (see  @ref Channel), whose lookaheads bound from below the
+ * delays of the sent events.
+ *
+ * Let @f$L@f$ be the smallest lookahead of the channels, and @f$T@f$ the
+ * time of the next event over all the logical processes. No event sent
+ * at time @f$T@f$ or later can occur before @f$W = T + L@f$, so the
+ * logical processes can execute their events occurring before @f$W@f$
+ * independently, in parallel. When all of them have reached @f$W@f$, the
+ * events sent through the channels are added to the event lists of their
+ * destinations, in the order the channels were created and, for each
+ * channel, in the order the events were sent, and the next window starts.
+ * The added events are placed after the events of the destination
+ * scheduled at the same time and with the same priority.
+ *
+ * Since the order in which the events are executed by each logical
+ * process, and the order in which the sent events are added to the event
+ * lists, do not depend on the threads, the results are the same for any
+ * number of threads, and in particular the same as with a single thread.
+ * They are also the same as in a sequential simulation of the whole model
+ * with a single simulator, except when events occur at the same time and
+ * with the same priority, which may then be executed in a different
+ * order.
+ *
+ * If an event calls  umontreal.ssj.simevents.Simulator.stop on the
+ * simulator of its logical process, this logical process stops executing
+ * events, and the parallel simulation ends at the end of the current
+ * window.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class ParallelSimulation {
+   private int numThreads;
+   private ArrayList<LogicalProcess> lps = new ArrayList<LogicalProcess>();
+   private ArrayList<Channel> channels = new ArrayList<Channel>();
+   private double minLookahead = Double.POSITIVE_INFINITY;
+   private double windowStart = 0.0;
+   private long numWindows = 0;
+   private boolean simulating = false;
+
+   /**
+    * Constructs an empty parallel simulation using `numThreads` threads.
+    *  @param numThreads   the number of threads
+    *  @exception IllegalArgumentException if `numThreads` is not positive.
+    */
+   public ParallelSimulation (int numThreads) {
+      if (numThreads <= 0)
+         throw new IllegalArgumentException ("numThreads <= 0");
+      this.numThreads = numThreads;
+   }
+
+   /**
+    * Constructs an empty parallel simulation using one thread per
+    * available processor.
+    */
+   public ParallelSimulation() {
+      this (Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * Returns the number of threads used by this parallel simulation.
+    *  @return the number of threads
+    */
+   public int getNumThreads() {
+      return numThreads;
+   }
+
+   /**
+    * Adds a new logical process whose simulator uses a splay tree for the
+    * event list.
+    *  @return the new logical process
+    */
+   public LogicalProcess addLogicalProcess() {
+      return addLogicalProcess (new SplayTree());
+   }
+
+   /**
+    * Adds a new logical process whose simulator uses `eventList` for the
+    * event list.
+    *  @param eventList    the event list of the new logical process
+    *  @return the new logical process
+    */
+   public LogicalProcess addLogicalProcess (EventList eventList) {
+      checkNotSimulating();
+      LogicalProcess lp = new LogicalProcess (this, lps.size(),
+                                              new Simulator (eventList));
+      lps.add (lp);
+      return lp;
+   }
+
+   /**
+    * Creates a channel through which `source` sends events to
+    * `destination`, with lookahead `lookahead`.
+    *  @param source       the sending logical process
+    *  @param destination  the receiving logical process
+    *  @param lookahead    the minimal delay of the sent events
+    *  @return the new channel
+    *  @exception IllegalArgumentException if `lookahead` is not positive,
+    * or if a logical process belongs to another parallel simulation.
+    */
+   public Channel connect (LogicalProcess source, LogicalProcess destination,
+                           double lookahead) {
+      checkNotSimulating();
+      if (!(lookahead > 0.0))
+         throw new IllegalArgumentException ("The lookahead must be positive");
+      if (source.getParallelSimulation() != this ||
+          destination.getParallelSimulation() != this)
+         throw new IllegalArgumentException
+            ("The logical process belongs to another parallel simulation");
+      Channel c = new Channel (source, destination, lookahead);
+      channels.add (c);
+      minLookahead = Math.min (minLookahead, lookahead);
+      return c;
+   }
+
+   /**
+    * Returns the logical processes of this parallel simulation, in the
+    * order they were added.
+    *  @return the logical processes
+    */
+   public List<LogicalProcess> getLogicalProcesses() {
+      return Collections.unmodifiableList (lps);
+   }
+
+   /**
+    * Returns the channels of this parallel simulation, in the order they
+    * were created.
+    *  @return the channels
+    */
+   public List<Channel> getChannels() {
+      return Collections.unmodifiableList (channels);
+   }
+
+   /**
+    * Returns the start time of the current or last window. All the events
+    * occurring before this time have been executed.
+    *  @return a lower bound on the simulation time of all the logical
+    * processes
+    */
+   public double time() {
+      return windowStart;
+   }
+
+   /**
+    * Returns the number of windows simulated since the last call to
+    * #init.
+    *  @return the number of windows
+    */
+   public long getNumWindows() {
+      return numWindows;
+   }
+
+   /**
+    * Reinitializes the simulators of all the logical processes, and
+    * discards the events sent through the channels and not yet delivered.
+    */
+   public void init() {
+      checkNotSimulating();
+      for (LogicalProcess lp : lps)
+         lp.simulator().init();
+      for (Channel c : channels)
+         c.clear();
+      windowStart = 0.0;
+      numWindows = 0;
+   }
+
+   /**
+    * Equivalent to  #start(double) with an infinite end time: the
+    * simulation runs until no event remains or one is stopped.
+    */
+   public void start() {
+      start (Double.POSITIVE_INFINITY);
+   }
+
+   /**
+    * Executes the events of all the logical processes occurring before
+    * time `endTime`, as explained in the class documentation. The method
+    * returns when all these events are executed, or at the end of the
+    * window in which the simulator of a logical process was stopped. An
+    * exception thrown by an event stops the simulation at the end of the
+    * current window and is rethrown.
+    *  @param endTime      the time at which the simulation ends
+    */
+   public void start (double endTime) {
+      checkNotSimulating();
+      simulating = true;
+      ExecutorService executor = numThreads > 1 && lps.size() > 1 ?
+         Executors.newFixedThreadPool (Math.min (numThreads, lps.size()))
+         : null;
+      try {
+         double next = deliver();
+         for (LogicalProcess lp : lps)
+            next = Math.min (next, lp.nextEventTime());
+         while (next < endTime) {
+            windowStart = next;
+            double end = Math.min (next + minLookahead, endTime);
+            ++numWindows;
+            if (runWindow (executor, end))
+               break;
+            next = deliver();
+            for (LogicalProcess lp : lps)
+               next = Math.min (next, lp.nextEventTime());
+         }
+         deliver();
+      }
+      finally {
+         if (executor != null)
+            executor.shutdownNow();
+         simulating = false;
+      }
+   }
+
+   // Executes the events occurring before end in all the logical
+   // processes. Returns true if one of them was stopped.
+   private boolean runWindow (ExecutorService executor, final double end) {
+      ArrayList<LogicalProcess> active = new ArrayList<LogicalProcess>();
+      for (LogicalProcess lp : lps)
+         if (lp.nextEventTime() < end)
+            active.add (lp);
+      if (executor == null || active.size() == 1)
+         for (LogicalProcess lp : active)
+            lp.simulator().startBefore (end);
+      else {
+         List<Future<?>> futures = new ArrayList<Future<?>>();
+         for (final LogicalProcess lp : active)
+            futures.add (executor.submit (new Callable<Void>() {
+               public Void call() {
+                  lp.simulator().startBefore (end);
+                  return null;
+               }
+            }));
+         waitFor (futures);
+      }
+      for (LogicalProcess lp : active)
+         if (lp.simulator().isStopped())
+            return true;
+      return false;
+   }
+
+   // Delivers the sent events, and returns the smallest of their times.
+   private double deliver() {
+      double first = Double.POSITIVE_INFINITY;
+      for (Channel c : channels)
+         first = Math.min (first, c.deliver());
+      return first;
+   }
+
+   // Waits for all the tasks, and rethrows the first exception.
+   private static void waitFor (List<Future<?>> futures) {
+      Throwable thrown = null;
+      for (Future<?> f : futures) {
+         try {
+            f.get();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (thrown == null)
+               thrown = e;
+         } catch (ExecutionException e) {
+            if (thrown == null)
+               thrown = e.getCause();
+         }
+      }
+      if (thrown instanceof RuntimeException)
+         throw (RuntimeException) thrown;
+      if (thrown instanceof Error)
+         throw (Error) thrown;
+      if (thrown != null)
+         throw new IllegalStateException (thrown);
+   }
+
+   private void checkNotSimulating() {
+      if (simulating)
+         throw new IllegalStateException ("Already simulating");
+   }
+
+   public String toString() {
+      return "Parallel simulation with " + lps.size() + " logical processes, "
+             + channels.size() + " channels, " + numThreads + " threads";
+   }
+}
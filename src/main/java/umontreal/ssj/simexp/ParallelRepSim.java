@@ -0,0 +1,336 @@
+/*
+ * Class:        ParallelRepSim
+ * Description:  simulation with independent replications run concurrently
+                 by several threads
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simexp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import umontreal.ssj.simevents.Simulator;
+
+/**
+ * Performs a simulation experiment on a finite horizon with independent
+ * replications, as  @ref RepSim, but runs the replications concurrently
+ * with several threads. Each thread has its own  @ref Simulator and its
+ * own instance of the model, obtained from  #newModel, so that the
+ * threads share no simulation state. The model must therefore use the
+ * simulator given to  #newModel, and not the default simulator of the
+ * class  umontreal.ssj.simevents.Sim, and its events, random streams and
+ * statistical probes must belong to this model instance.
+ *
+ * During replication&nbsp;@f$r@f$, the model produces a vector of
+ * observations @f$\mathbf{X}_r@f$, returned by  Model.getReplicationObs.
+ * The vectors are passed to  #addReplicationObs by the thread calling
+ * #simulate, in increasing order of @f$r@f$, which is where they should be
+ * added to the statistical probes of the experiment, e.g.,
+ * umontreal.ssj.stat.Tally objects for the observations of each
+ * replication, including the time averages of
+ * umontreal.ssj.simevents.Accumulate probes of the model. If the random
+ * numbers used by replication&nbsp;@f$r@f$ depend only on @f$r@f$, e.g., if
+ * they are obtained from a  umontreal.ssj.rng.ParallelStreamAllocator or
+ * with  umontreal.ssj.rng.MRG32k3a.resetToSubstream, the results are then
+ * exactly the same as with a single thread, whatever the number of threads.
+ *
+ * Sequential sampling works as in  @ref RepSim: after the target number of
+ * replications has been simulated,  #getRequiredNewReplications is called
+ * and, if it returns a positive number, the target is adjusted with
+ * #adjustTargetReplications and the additional replications are
+ * simulated, continuing with the next replication index.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public abstract class ParallelRepSim {
+
+   /**
+    * A model simulated by one thread, linked with its own simulator.
+    */
+   public interface Model {
+
+      /**
+       * Initializes the model for replication&nbsp;`r`, e.g., positions its
+       * random streams and schedules the initial events. This is called
+       * just after the simulator of the model is initialized, and the
+       * simulator is started when this method returns.
+       *  @param r         the index of the replication.
+       */
+      public void initReplication (int r);
+
+      /**
+       * Returns the vector of observations of replication&nbsp;`r`, which
+       * has just been simulated. The returned array is copied.
+       *  @param r         the index of the replication.
+       *  @return the observations of the replication.
+       */
+      public double[] getReplicationObs (int r);
+   }
+
+   private int minReps;
+   private int maxReps;
+   private int targetReps;
+   private int doneReps;
+   private int numThreads;
+   private boolean simulating = false;
+
+   /**
+    * Constructs a new parallel replications-based simulator with a minimal
+    * number of runs `minReps`, a maximal number of runs `maxReps`, and
+    * using `numThreads` threads.
+    *  @param minReps      the minimal number of replications.
+    *  @param maxReps      the maximal number of replications.
+    *  @param numThreads   the number of threads.
+    *  @exception IllegalArgumentException if `minReps` or `numThreads` is
+    * not positive, or if `minReps` is greater than `maxReps`.
+    */
+   public ParallelRepSim (int minReps, int maxReps, int numThreads) {
+      if (minReps <= 0)
+         throw new IllegalArgumentException ("minReps <= 0");
+      if (minReps > maxReps)
+         throw new IllegalArgumentException ("minReps > maxReps");
+      if (numThreads <= 0)
+         throw new IllegalArgumentException ("numThreads <= 0");
+      this.minReps = minReps;
+      this.maxReps = maxReps;
+      this.numThreads = numThreads;
+      targetReps = minReps;
+   }
+
+   /**
+    * Constructs a new parallel replications-based simulator with a minimal
+    * number of runs `minReps`, no maximal number of runs, and one thread
+    * per available processor.
+    *  @param minReps      the minimal number of replications.
+    */
+   public ParallelRepSim (int minReps) {
+      this (minReps, Integer.MAX_VALUE,
+            Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * Returns the number of threads used to simulate the replications.
+    *  @return the number of threads.
+    */
+   public int getNumThreads() {
+      return numThreads;
+   }
+
+   /**
+    * Returns the minimal number of replications to be simulated before an
+    * error check.
+    *  @return the minimal number of replications.
+    */
+   public int getMinReplications() {
+      return minReps;
+   }
+
+   /**
+    * Returns the maximal number of replications.
+    *  @return the maximal number of replications.
+    */
+   public int getMaxReplications() {
+      return maxReps;
+   }
+
+   /**
+    * Returns the actual target number of replications to be simulated
+    * before an error check.
+    *  @return the target number of replications.
+    */
+   public int getTargetReplications() {
+      return targetReps;
+   }
+
+   /**
+    * Returns the total number of completed replications for the current
+    * experiment.
+    *  @return the number of completed replications.
+    */
+   public int getCompletedReplications() {
+      return doneReps;
+   }
+
+   /**
+    * Determines if the simulation is in progress.
+    *  @return `true` if  #simulate is running.
+    */
+   public boolean isSimulating() {
+      return simulating;
+   }
+
+   /**
+    * Constructs a new instance of the model, linked with the simulator
+    * `sim`. This is called once per thread, at each call to  #simulate,
+    * by the thread calling  #simulate.
+    *  @param sim          the simulator of the new model.
+    *  @return the new model.
+    */
+   protected abstract Model newModel (Simulator sim);
+
+   /**
+    * Initializes any statistical collector used to collect values for
+    * replications.
+    */
+   public abstract void initReplicationProbes();
+
+   /**
+    * Adds the vector of observations `x` of replication&nbsp;`r` to the
+    * statistical probes. This is called in increasing order of `r`, by
+    * the thread calling  #simulate.
+    *  @param r            the index of the replication.
+    *  @param x            the observations of the replication.
+    */
+   public abstract void addReplicationObs (int r, double[] x);
+
+   /**
+    * Returns the approximate number of additional replications to meet an
+    * experiment-specific stopping criterion, as in
+    * RepSim.getRequiredNewReplications. The default implementation returns
+    * 0.
+    *  @return the number of required additional replications.
+    */
+   public int getRequiredNewReplications() {
+      return 0;
+   }
+
+   /**
+    * Adjusts the target number of replications to simulate
+    * `numNewReplications` additional replications, without exceeding
+    * #getMaxReplications, as in  RepSim.adjustTargetReplications.
+    *  @param numNewReplications the number of additionnal replications
+    *                            needed.
+    */
+   public void adjustTargetReplications (int numNewReplications) {
+      if (numNewReplications < 0)
+         throw new IllegalArgumentException ("numReplications < 0");
+      if (numNewReplications == 0)
+         return;
+      targetReps = doneReps + numNewReplications;
+      if (targetReps > maxReps)
+         targetReps = maxReps;
+   }
+
+   /**
+    * Simulates the replications. This resets the number of completed
+    * replications to 0, calls  #initReplicationProbes, constructs one
+    * model per thread, and simulates  #getTargetReplications replications
+    * concurrently, adding their observations in order. Additional
+    * replications are then simulated until  #getRequiredNewReplications
+    * returns 0 or  #getMaxReplications replications are simulated. An
+    * exception thrown by a model stops the experiment and is rethrown.
+    */
+   public void simulate() {
+      if (simulating)
+         throw new IllegalStateException ("Already simulating");
+      doneReps = 0;
+      targetReps = minReps;
+      initReplicationProbes();
+      simulating = true;
+      final Simulator[] sims = new Simulator[numThreads];
+      final Model[] models = new Model[numThreads];
+      for (int w = 0; w < numThreads; w++) {
+         sims[w] = new Simulator();
+         models[w] = newModel (sims[w]);
+      }
+      ExecutorService executor = Executors.newFixedThreadPool (numThreads);
+      try {
+         while (doneReps < targetReps) {
+            final int first = doneReps;
+            final double[][] obs = new double[targetReps - first][];
+            final AtomicInteger next = new AtomicInteger (first);
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int w = 0; w < numThreads; w++) {
+               final Simulator sim = sims[w];
+               final Model model = models[w];
+               futures.add (executor.submit (new Callable<Void>() {
+                  public Void call() {
+                     int r;
+                     while ((r = next.getAndIncrement()) < first + obs.length)
+                        obs[r - first] = performReplication (sim, model, r);
+                     return null;
+                  }
+               }));
+            }
+            waitFor (futures);
+            for (int i = 0; i < obs.length; i++) {
+               addReplicationObs (first + i, obs[i]);
+               ++doneReps;
+            }
+            adjustTargetReplications (getRequiredNewReplications());
+         }
+      }
+      finally {
+         executor.shutdownNow();
+         simulating = false;
+      }
+   }
+
+   // Simulates replication r of model, linked with sim.
+   private static double[] performReplication (Simulator sim, Model model,
+                                               int r) {
+      sim.init();
+      model.initReplication (r);
+      sim.start();
+      return model.getReplicationObs (r).clone();
+   }
+
+   // Waits for all the tasks, and rethrows the first exception.
+   private static void waitFor (List<Future<?>> futures) {
+      try {
+         for (Future<?> f : futures)
+            f.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException ("Simulation interrupted", e);
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+         if (cause instanceof Error)
+            throw (Error) cause;
+         throw new IllegalStateException (cause);
+      }
+   }
+
+   public String toString() {
+      StringBuffer sb = new StringBuffer (getClass().getName());
+      sb.append ('[');
+      sb.append ("minimal number of replications: ").append (minReps);
+      if (maxReps < Integer.MAX_VALUE)
+         sb.append (", maximal number of replications: ").append (maxReps);
+      sb.append (", target number of replications: ").append (targetReps);
+      sb.append (", number of threads: ").append (numThreads);
+      if (simulating)
+         sb.append (", simulation in progress");
+      else
+         sb.append (", simulation stopped");
+      sb.append (", number of completed replications: ").append (doneReps);
+      sb.append (']');
+      return sb.toString();
+   }
+}
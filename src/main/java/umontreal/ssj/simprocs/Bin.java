@@ -0,0 +1,230 @@
+/*
+ * Class:        Bin
+ * Description:  pile of tokens produced and consumed by processes
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simprocs;
+
+import umontreal.ssj.simevents.Accumulate;
+import umontreal.ssj.simevents.LinkedListStat;
+
+/**
+ * A bin is a pile of identical tokens, e.g., items in a stock, produced by
+ * some processes with  #put and consumed by others with  #take. Unlike
+ * the units of a  @ref Resource, the number of tokens is not bounded and
+ * the tokens taken are not returned. A process taking more tokens than
+ * are available is suspended in the waiting list of the bin until enough
+ * tokens are put in it; the waiting processes are served in first-in,
+ * first-out order.
+ *
+ * When statistical collection is enabled with  #setStatCollecting, the
+ * bin collects statistics on the number of available tokens as a function
+ * of time ( #statOnAvail), and its waiting list collects statistics on its
+ * size and on the waiting times.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class Bin {
+   private ProcessSimulator sim;
+   private String name;
+   private int available = 0;
+   private LinkedListStat<SimProcess> waitList;
+   private boolean stats = false;
+   private Accumulate statAvail = null;
+
+   /**
+    * Constructs a new empty bin linked with the simulator `sim`.
+    *  @param sim          the simulator of the processes
+    *  @param name         the name of the bin
+    */
+   public Bin (ProcessSimulator sim, String name) {
+      this.sim = sim;
+      this.name = name;
+      waitList = new LinkedListStat<SimProcess> (sim, "Waiting list " + name);
+   }
+
+   /**
+    * Constructs a new unnamed empty bin.
+    *  @param sim          the simulator of the processes
+    */
+   public Bin (ProcessSimulator sim) {
+      this (sim, "");
+   }
+
+   /**
+    * Returns the name of this bin.
+    *  @return the name of the bin
+    */
+   public String getName() {
+      return name;
+   }
+
+   /**
+    * Returns the number of tokens in this bin.
+    *  @return the number of available tokens
+    */
+   public int getAvailable() {
+      return available;
+   }
+
+   /**
+    * Returns the list of the processes waiting for tokens.
+    *  @return the waiting list
+    */
+   public LinkedListStat<SimProcess> waitList() {
+      return waitList;
+   }
+
+   /**
+    * Removes all the tokens and empties the waiting list, without resuming
+    * the waiting processes. The statistical probes, if any, are also
+    * initialized.
+    */
+   public void init() {
+      available = 0;
+      waitList.clear();
+      if (stats)
+         initStat();
+   }
+
+   /**
+    * Takes `n` tokens from this bin for the current process. The process
+    * is suspended until it obtains the tokens.
+    *  @param n            the number of tokens
+    *  @exception IllegalStateException if not called by a process.
+    *  @exception IllegalArgumentException if `n` is not positive.
+    */
+   public void take (int n) {
+      SimProcess p = sim.currentProcess();
+      if (p == null)
+         throw new IllegalStateException ("take must be called by a process");
+      if (n <= 0)
+         throw new IllegalArgumentException ("n must be positive");
+      if (waitList.isEmpty() && available >= n) {
+         remove (n);
+         return;
+      }
+      p.requested = n;
+      p.waitingIn = this;
+      waitList.addLast (p);
+      p.suspend();
+   }
+
+   /**
+    * Puts `n` new tokens in this bin, and gives them to the waiting
+    * processes that can be served, which resume their execution at the
+    * current time.
+    *  @param n            the number of tokens
+    *  @exception IllegalArgumentException if `n` is not positive.
+    */
+   public void put (int n) {
+      if (n <= 0)
+         throw new IllegalArgumentException ("n must be positive");
+      available += n;
+      if (stats)
+         statAvail.update (available);
+      serve();
+   }
+
+   // Called when the waiting process p is killed.
+   void cancelWait (SimProcess p) {
+      if (waitList.remove (p))
+         serve();
+   }
+
+   // Gives the available tokens to the processes at the head of the
+   // waiting list, as long as their requests can be satisfied.
+   private void serve() {
+      while (!waitList.isEmpty()) {
+         SimProcess p = waitList.getFirst();
+         if (p.requested > available)
+            break;
+         waitList.removeFirst();
+         p.waitingIn = null;
+         remove (p.requested);
+         p.resume();
+      }
+   }
+
+   private void remove (int n) {
+      available -= n;
+      if (stats)
+         statAvail.update (available);
+   }
+
+   /**
+    * Starts or stops collecting statistics on this bin and its waiting
+    * list.
+    *  @param b            `true` to collect statistics
+    */
+   public void setStatCollecting (boolean b) {
+      if (b && !stats) {
+         if (statAvail == null)
+            statAvail = new Accumulate (sim, "Available tokens " + name);
+         stats = true;
+         initStat();
+      }
+      else if (!b)
+         stats = false;
+      if (b != waitList.getStatCollecting())
+         waitList.setStatCollecting (b);
+   }
+
+   /**
+    * Initializes the statistical probes of this bin and its waiting list.
+    *  @exception IllegalStateException if statistical collection is
+    * disabled.
+    */
+   public void initStat() {
+      if (!stats)
+         throw new IllegalStateException ("Statistical collection disabled");
+      statAvail.init (available);
+      if (waitList.getStatCollecting())
+         waitList.initStat();
+   }
+
+   /**
+    * Returns the probe on the number of available tokens as a function of
+    * time, which exists only if statistical collection was enabled.
+    *  @return the probe on the available tokens
+    */
+   public Accumulate statOnAvail() {
+      return statAvail;
+   }
+
+   /**
+    * Returns a statistical report on this bin and its waiting list.
+    *  @return the report
+    *  @exception IllegalStateException if no statistics were collected.
+    */
+   public String report() {
+      if (statAvail == null)
+         throw new IllegalStateException
+            ("Calling report when no statistics were collected");
+      return statAvail.report() + waitList.report();
+   }
+
+   public String toString() {
+      return "Bin " + name + ": " + available + " tokens, " +
+             waitList.size() + " waiting processes";
+   }
+}
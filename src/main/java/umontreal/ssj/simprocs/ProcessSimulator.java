@@ -0,0 +1,113 @@
+/*
+ * Class:        ProcessSimulator
+ * Description:  simulator controlling the execution of simulated processes
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simprocs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import umontreal.ssj.simevents.Simulator;
+import umontreal.ssj.simevents.eventlist.EventList;
+import umontreal.ssj.simevents.eventlist.SplayTree;
+
+/**
+ * A simulator that can also execute simulated processes (see
+ * @ref SimProcess). Processes are scheduled through the event list of the
+ * simulator, like events: when a process must resume its execution, an
+ * event transfers the control from the simulator to the thread of the
+ * process, and the simulator waits until the process is delayed,
+ * suspended or terminated. Thus, a single thread executes at a time, and
+ * the processes and events can share the state of the model without
+ * synchronization.
+ *
+ * The simulator keeps track of the processes that are alive;  #init kills
+ * them before reinitializing the simulator, so that their threads
+ * terminate. Processes still alive at the end of a simulation should be
+ * killed in the same way, with  #init or  #killAll.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class ProcessSimulator extends Simulator {
+
+   SimProcess current = null;
+   // The process being executed, null if none.
+
+   LinkedHashSet<SimProcess> alive = new LinkedHashSet<SimProcess>();
+   // The processes that are scheduled, delayed or suspended.
+
+   /**
+    * Constructs a new process simulator using a splay tree for the event
+    * list.
+    */
+   public ProcessSimulator() {
+      super (new SplayTree());
+   }
+
+   /**
+    * Constructs a new process simulator using `eventList` for the event
+    * list.
+    *  @param eventList    the event list of the simulator
+    */
+   public ProcessSimulator (EventList eventList) {
+      super (eventList);
+   }
+
+   /**
+    * Returns the process being executed, or `null` if the simulator is
+    * executing an event or is not simulating.
+    *  @return the current process
+    */
+   public SimProcess currentProcess() {
+      return current;
+   }
+
+   /**
+    * Returns the number of processes that are scheduled, delayed or
+    * suspended.
+    *  @return the number of processes alive
+    */
+   public int getNumAlive() {
+      return alive.size();
+   }
+
+   /**
+    * Kills all the processes alive, and terminates their threads. This
+    * must not be called by a process.
+    */
+   public void killAll() {
+      if (current != null)
+         throw new IllegalStateException ("killAll called by a process");
+      for (SimProcess p : new ArrayList<SimProcess> (alive))
+         p.kill();
+      alive.clear();
+   }
+
+   /**
+    * Kills all the processes alive, using  #killAll, then reinitializes
+    * the simulator as in  Simulator.init.
+    */
+   public void init() {
+      killAll();
+      super.init();
+   }
+}
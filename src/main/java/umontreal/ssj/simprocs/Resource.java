@@ -0,0 +1,252 @@
+/*
+ * Class:        Resource
+ * Description:  resource with a given number of units shared by processes
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simprocs;
+
+import umontreal.ssj.simevents.Accumulate;
+import umontreal.ssj.simevents.LinkedListStat;
+
+/**
+ * A resource with a fixed number of identical units, e.g., the servers of
+ * a queue, which processes request and release. A process requesting
+ * more units than are available is suspended in the waiting list of the
+ * resource until the units are released by other processes; the waiting
+ * processes are served in first-in, first-out order, and a process is not
+ * served before those that arrived earlier, even if enough units are
+ * available for it.
+ *
+ * When statistical collection is enabled with  #setStatCollecting, the
+ * resource collects statistics on the number of busy units as a function
+ * of time ( #statOnUtil), and its waiting list collects statistics on its
+ * size and on the waiting times (see
+ * umontreal.ssj.simevents.ListWithStat.statSize and
+ * umontreal.ssj.simevents.ListWithStat.statSojourn).
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class Resource {
+   private ProcessSimulator sim;
+   private String name;
+   private int capacity;
+   private int available;
+   private LinkedListStat<SimProcess> waitList;
+   private boolean stats = false;
+   private Accumulate statUtil = null;
+
+   /**
+    * Constructs a new resource with `capacity` units, linked with the
+    * simulator `sim`.
+    *  @param sim          the simulator of the processes
+    *  @param capacity     the number of units
+    *  @param name         the name of the resource
+    */
+   public Resource (ProcessSimulator sim, int capacity, String name) {
+      if (capacity <= 0)
+         throw new IllegalArgumentException ("capacity must be positive");
+      this.sim = sim;
+      this.capacity = available = capacity;
+      this.name = name;
+      waitList = new LinkedListStat<SimProcess> (sim, "Waiting list " + name);
+   }
+
+   /**
+    * Constructs a new unnamed resource with `capacity` units.
+    *  @param sim          the simulator of the processes
+    *  @param capacity     the number of units
+    */
+   public Resource (ProcessSimulator sim, int capacity) {
+      this (sim, capacity, "");
+   }
+
+   /**
+    * Returns the name of this resource.
+    *  @return the name of the resource
+    */
+   public String getName() {
+      return name;
+   }
+
+   /**
+    * Returns the number of units of this resource.
+    *  @return the capacity of the resource
+    */
+   public int getCapacity() {
+      return capacity;
+   }
+
+   /**
+    * Returns the number of units that are not used.
+    *  @return the number of available units
+    */
+   public int getAvailable() {
+      return available;
+   }
+
+   /**
+    * Returns the list of the processes waiting for units.
+    *  @return the waiting list
+    */
+   public LinkedListStat<SimProcess> waitList() {
+      return waitList;
+   }
+
+   /**
+    * Makes all the units available and empties the waiting list, without
+    * resuming the waiting processes. This should be called when the
+    * simulator is initialized. The statistical probes, if any, are also
+    * initialized.
+    */
+   public void init() {
+      available = capacity;
+      waitList.clear();
+      if (stats)
+         initStat();
+   }
+
+   /**
+    * Requests `n` units of this resource for the current process. The
+    * process is suspended until it obtains the units.
+    *  @param n            the number of requested units
+    *  @exception IllegalStateException if not called by a process.
+    *  @exception IllegalArgumentException if `n` is not in
+    * [1, `getCapacity()`].
+    */
+   public void request (int n) {
+      SimProcess p = sim.currentProcess();
+      if (p == null)
+         throw new IllegalStateException ("request must be called by a process");
+      if (n <= 0 || n > capacity)
+         throw new IllegalArgumentException ("n must be in [1, " + capacity + "]");
+      if (waitList.isEmpty() && available >= n) {
+         take (n);
+         return;
+      }
+      p.requested = n;
+      p.waitingIn = this;
+      waitList.addLast (p);
+      p.suspend();
+   }
+
+   /**
+    * Releases `n` units of this resource, and gives them to the waiting
+    * processes that can be served, which resume their execution at the
+    * current time.
+    *  @param n            the number of released units
+    *  @exception IllegalArgumentException if more units would be
+    * available than the capacity.
+    */
+   public void release (int n) {
+      if (n <= 0 || available + n > capacity)
+         throw new IllegalArgumentException ("Invalid number of released units");
+      available += n;
+      if (stats)
+         statUtil.update (capacity - available);
+      serve();
+   }
+
+   // Called when the waiting process p is killed.
+   void cancelWait (SimProcess p) {
+      if (waitList.remove (p))
+         serve();
+   }
+
+   // Gives the available units to the processes at the head of the
+   // waiting list, as long as their requests can be satisfied.
+   private void serve() {
+      while (!waitList.isEmpty()) {
+         SimProcess p = waitList.getFirst();
+         if (p.requested > available)
+            break;
+         waitList.removeFirst();
+         p.waitingIn = null;
+         take (p.requested);
+         p.resume();
+      }
+   }
+
+   private void take (int n) {
+      available -= n;
+      if (stats)
+         statUtil.update (capacity - available);
+   }
+
+   /**
+    * Starts or stops collecting statistics on this resource and its
+    * waiting list.
+    *  @param b            `true` to collect statistics
+    */
+   public void setStatCollecting (boolean b) {
+      if (b && !stats) {
+         if (statUtil == null)
+            statUtil = new Accumulate (sim, "Utilization " + name);
+         stats = true;
+         initStat();
+      }
+      else if (!b)
+         stats = false;
+      if (b != waitList.getStatCollecting())
+         waitList.setStatCollecting (b);
+   }
+
+   /**
+    * Initializes the statistical probes of this resource and its waiting
+    * list.
+    *  @exception IllegalStateException if statistical collection is
+    * disabled.
+    */
+   public void initStat() {
+      if (!stats)
+         throw new IllegalStateException ("Statistical collection disabled");
+      statUtil.init (capacity - available);
+      if (waitList.getStatCollecting())
+         waitList.initStat();
+   }
+
+   /**
+    * Returns the probe on the number of busy units as a function of time,
+    * which exists only if statistical collection was enabled.
+    *  @return the probe on the utilization
+    */
+   public Accumulate statOnUtil() {
+      return statUtil;
+   }
+
+   /**
+    * Returns a statistical report on the utilization of this resource and
+    * its waiting list.
+    *  @return the report
+    *  @exception IllegalStateException if no statistics were collected.
+    */
+   public String report() {
+      if (statUtil == null)
+         throw new IllegalStateException
+            ("Calling report when no statistics were collected");
+      return statUtil.report() + waitList.report();
+   }
+
+   public String toString() {
+      return "Resource " + name + ": " + available + " of " + capacity +
+             " units available, " + waitList.size() + " waiting processes";
+   }
+}
@@ -0,0 +1,392 @@
+/*
+ * Class:        SimProcess
+ * Description:  simulated process running in its own thread
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.simprocs;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import umontreal.ssj.simevents.Event;
+
+/**
+ * A simulated process, whose life is described by the method  #actions.
+ * Unlike an  @ref umontreal.ssj.simevents.Event, a process can be
+ * interrupted in the middle of its actions: it can be delayed by a given
+ * amount of simulation time with  #delay, or suspended with  #suspend until
+ * another process or an event calls  #resume. It can also wait for the
+ * units of a  @ref Resource or the tokens of a  @ref Bin. For example, a
+ * customer of a queue with one server could be
+ * @code
+ *
+ *    class Customer extends SimProcess {
+ *       public Customer (ProcessSimulator sim) { super (sim); }
+ *       public void actions() {
+ *          server.request (1);
+ *          delay (genServ.nextDouble());
+ *          server.release (1);
+ *       }
+ *    }
+ *
+ * @endcode
+ *  and be started with `new Customer (sim).schedule (arrivalTime)`.
+ *
+ * Each process runs in its own thread, but only one thread executes at a
+ * time, under the control of its  @ref ProcessSimulator: when the process
+ * is to resume its execution, an event of the event list transfers the
+ * control to its thread, and gets it back when the process is delayed,
+ * suspended or terminated. The threads are virtual threads when the Java
+ * runtime supports them (Java 21 or later), so that a model can contain
+ * hundreds of thousands of processes; otherwise, they are daemon threads
+ * with a small stack (see  #isUsingVirtualThreads).
+ *
+ * The methods  #delay and  #suspend must be called by the process itself,
+ * i.e., by its  #actions method. A process that is killed stops at the
+ * next of these calls by throwing an  Error that must not be caught by
+ * #actions.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public abstract class SimProcess {
+
+   /**
+    * The process has been constructed, but not scheduled yet.
+    */
+   public static final int INITIAL = 0;
+
+   /**
+    * The process is executing its actions.
+    */
+   public static final int EXECUTING = 1;
+
+   /**
+    * The process is scheduled to start or resume its execution at a given
+    * time.
+    */
+   public static final int DELAYED = 2;
+
+   /**
+    * The process is suspended until another process or an event resumes
+    * it.
+    */
+   public static final int SUSPENDED = 3;
+
+   /**
+    * The process has terminated or was killed.
+    */
+   public static final int DEAD = 4;
+
+   // Thrown in the thread of a killed process to terminate it.
+   private static class ProcessKilled extends Error {
+      private static final long serialVersionUID = 261016L;
+
+      ProcessKilled() {
+         super (null, null, false, false);
+      }
+   }
+
+   private static final ThreadFactory FACTORY;
+   private static final boolean VIRTUAL;
+   static {
+      ThreadFactory factory = null;
+      try {
+         // Thread.ofVirtual().factory(), available in Java 21 and later
+         Object builder = Thread.class.getMethod ("ofVirtual").invoke (null);
+         factory = (ThreadFactory) Class.forName ("java.lang.Thread$Builder")
+                   .getMethod ("factory").invoke (builder);
+      } catch (Exception e) {
+         factory = null;
+      }
+      VIRTUAL = factory != null;
+      if (factory == null)
+         factory = new ThreadFactory() {
+            public Thread newThread (Runnable r) {
+               Thread t = new Thread (null, r, "SimProcess", 1 << 18);
+               t.setDaemon (true);
+               return t;
+            }
+         };
+      FACTORY = factory;
+   }
+
+   private ProcessSimulator sim;
+   private int state = INITIAL;
+   private double priority = 1.0;
+   private Thread thread = null;
+   private final Semaphore running = new Semaphore (0);
+   private final Semaphore yielded = new Semaphore (0);
+   private boolean killed = false;
+   private Throwable failure = null;
+
+   int requested = 0;
+   // Number of units or tokens waited for in a Resource or a Bin.
+
+   Object waitingIn = null;
+   // Resource or Bin in whose waiting list this process is, if any.
+
+   // Gives the control to the process when it occurs.
+   private final Event wake;
+
+   /**
+    * Constructs a new process linked with the simulator `sim`. The
+    * process does not start until it is scheduled.
+    *  @param sim          the simulator of the process
+    */
+   public SimProcess (ProcessSimulator sim) {
+      if (sim == null)
+         throw new NullPointerException();
+      this.sim = sim;
+      wake = new Event (sim) {
+         public void actions() {
+            transfer();
+         }
+      };
+   }
+
+   /**
+    * Returns `true` if the threads of the processes are virtual threads,
+    * which requires Java 21 or later.
+    *  @return `true` if virtual threads are used
+    */
+   public static boolean isUsingVirtualThreads() {
+      return VIRTUAL;
+   }
+
+   /**
+    * Returns the simulator of this process.
+    *  @return the simulator of this process
+    */
+   public final ProcessSimulator simulator() {
+      return sim;
+   }
+
+   /**
+    * Returns the state of this process, which is one of  #INITIAL,
+    * #EXECUTING,  #DELAYED,  #SUSPENDED and  #DEAD.
+    *  @return the state of this process
+    */
+   public final int getState() {
+      return state;
+   }
+
+   /**
+    * Returns `true` if this process is scheduled, executing, delayed or
+    * suspended.
+    *  @return `true` if this process is alive
+    */
+   public final boolean isAlive() {
+      return state != INITIAL && state != DEAD;
+   }
+
+   /**
+    * Returns the time at which this process will resume its execution if
+    * it is delayed, and a negative value otherwise.
+    *  @return the time of the next activation of this process
+    */
+   public final double wakeTime() {
+      return state == DELAYED ? wake.time() : -10.0;
+   }
+
+   /**
+    * Returns the priority of the activations of this process. As for
+    * events, activations at the same time occur in ascending order of
+    * priority.
+    *  @return the priority of this process
+    */
+   public final double priority() {
+      return priority;
+   }
+
+   /**
+    * Sets the priority of the future activations of this process.
+    *  @param priority     the new priority
+    */
+   public final void setPriority (double priority) {
+      this.priority = priority;
+   }
+
+   /**
+    * Schedules this process to start its execution in `delay` time units.
+    *  @param delay        simulation time that must pass before the
+    *                      process starts
+    *  @exception IllegalStateException if the process was already
+    * scheduled.
+    */
+   public void schedule (double delay) {
+      if (state != INITIAL)
+         throw new IllegalStateException ("Process already scheduled");
+      activate (delay);
+      sim.alive.add (this);
+   }
+
+   /**
+    * Schedules this process to start its execution at the current time,
+    * after the events and processes already scheduled at this time.
+    */
+   public void start() {
+      schedule (0.0);
+   }
+
+   /**
+    * Delays this process by `delay` time units. This must be called by the
+    * process itself.
+    *  @param delay        simulation time that must pass before the
+    *                      process resumes its execution
+    */
+   public final void delay (double delay) {
+      checkCurrent();
+      activate (delay);
+      yieldControl();
+   }
+
+   /**
+    * Suspends this process until another process or an event calls
+    * #resume. This must be called by the process itself.
+    */
+   public final void suspend() {
+      checkCurrent();
+      state = SUSPENDED;
+      yieldControl();
+   }
+
+   /**
+    * Schedules this process, which must be suspended or delayed, to resume
+    * its execution at the current time, after the events and processes
+    * already scheduled at this time.
+    *  @exception IllegalStateException if the process is not suspended or
+    * delayed.
+    */
+   public final void resume() {
+      if (state == SUSPENDED)
+         activate (0.0);
+      else if (state == DELAYED) {
+         wake.cancel();
+         activate (0.0);
+      }
+      else
+         throw new IllegalStateException ("Process not suspended or delayed");
+   }
+
+   /**
+    * Terminates this process. If it is called by the process itself, this
+    * method does not return. A dead process cannot be scheduled again. If
+    * the process is waiting for a  @ref Resource or a  @ref Bin, it is
+    * removed from the waiting list, and the processes behind it that can
+    * now be served resume their execution.
+    */
+   public void kill() {
+      if (state == DEAD)
+         return;
+      if (state == DELAYED)
+         wake.cancel();
+      killed = true;
+      Object w = waitingIn;
+      waitingIn = null;
+      if (w instanceof Resource)
+         ((Resource) w).cancelWait (this);
+      else if (w instanceof Bin)
+         ((Bin) w).cancelWait (this);
+      if (Thread.currentThread() == thread && thread != null)
+         throw new ProcessKilled();
+      state = DEAD;
+      sim.alive.remove (this);
+      if (thread != null) {
+         // let the thread terminate
+         running.release();
+         yielded.acquireUninterruptibly();
+      }
+   }
+
+   /**
+    * Describes the life of this process. This method is executed by the
+    * thread of the process when it starts.
+    */
+   public abstract void actions();
+
+   private void activate (double delay) {
+      wake.setPriority (priority);
+      wake.schedule (delay);
+      state = DELAYED;
+   }
+
+   private void checkCurrent() {
+      if (Thread.currentThread() != thread)
+         throw new IllegalStateException
+            ("Method must be called by the process itself");
+   }
+
+   // Called by the simulator to give the control to this process, and
+   // returns when the process gives it back.
+   private void transfer() {
+      SimProcess previous = sim.current;
+      sim.current = this;
+      state = EXECUTING;
+      if (thread == null) {
+         thread = FACTORY.newThread (new Runnable() {
+            public void run() {
+               body();
+            }
+         });
+         thread.start();
+      }
+      else
+         running.release();
+      yielded.acquireUninterruptibly();
+      sim.current = previous;
+      if (failure != null) {
+         Throwable t = failure;
+         failure = null;
+         if (t instanceof RuntimeException)
+            throw (RuntimeException) t;
+         if (t instanceof Error)
+            throw (Error) t;
+         throw new IllegalStateException (t);
+      }
+   }
+
+   private void body() {
+      try {
+         actions();
+      } catch (ProcessKilled e) {
+      } catch (Throwable t) {
+         failure = t;
+      } finally {
+         state = DEAD;
+         sim.alive.remove (this);
+         yielded.release();
+      }
+   }
+
+   // Gives the control back to the simulator, and returns when the
+   // process resumes its execution.
+   private void yieldControl() {
+      yielded.release();
+      running.acquireUninterruptibly();
+      if (killed)
+         throw new ProcessKilled();
+   }
+
+   public String toString() {
+      return getClass().getSimpleName() + "@" +
+             Integer.toHexString (hashCode());
+   }
+}
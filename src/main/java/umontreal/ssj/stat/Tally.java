@@ -128,6 +128,66 @@ public class Tally extends StatProbe implements Cloneable {
 				add(x[i]);
 	}
 
+   /**
+    * Adds the observations collected by `other` to this tally, as if they
+    * had been given to this tally with  #add, but in constant time; `other`
+    * is not modified. The counters are combined with the pairwise update of
+    * Chan, Golub and LeVeque: if the two tallies contain @f$n_1@f$ and
+    * @f$n_2@f$ observations with averages @f$\bar X_1@f$ and @f$\bar
+    * X_2@f$ and sums of squared deviations @f$S_1@f$ and @f$S_2@f$, then
+    * @f$\delta= \bar X_2 - \bar X_1@f$, the new average is @f$\bar X_1 +
+    * \delta n_2/(n_1+n_2)@f$ and the new sum of squared deviations is
+    * @f$S_1 + S_2 + \delta^2 n_1 n_2/(n_1+n_2)@f$. Thus, tallies collected
+    * separately, e.g., by different threads, can be merged into one with the
+    * same results as a single tally collecting all the observations, up to
+    * rounding errors. The counters of `other` are read with its methods
+    * #numberObs, #average, #variance, #min and  #max, so that subclasses
+    * keeping their own counters can be merged too. The observations are
+    * not broadcast to the observers, and nothing is done if collecting is
+    * turned OFF.
+    *  @param other        the tally whose observations are added
+    */
+   public void merge (Tally other) {
+      if (!collect)
+         return;
+      int n2 = other.numberObs();
+      if (n2 == 0)
+         return;
+      double average2 = other.average();
+      double sum2 = n2 < 2 ? 0.0 : other.variance() * (n2 - 1);
+      double min2 = other.min();
+      double max2 = other.max();
+      if (min2 < minValue) minValue = min2;
+      if (max2 > maxValue) maxValue = max2;
+      int n1 = numObs;
+      double n = (double) n1 + n2;
+      double delta = average2 - curAverage;
+      curAverage += delta * (n2 / n);
+      curSum2 += sum2 + delta * delta * (n1 / n) * n2;
+      numObs = n1 + n2;
+   }
+
+   // Replaces the counters of this tally by those of t, whether collecting
+   // is ON or not.
+   void copyCounters (Tally t) {
+      minValue = t.minValue;
+      maxValue = t.maxValue;
+      numObs = t.numObs;
+      curAverage = t.curAverage;
+      curSum2 = t.curSum2;
+   }
+
+   // Sets the counters of this tally; sum2 is the sum of the squared
+   // deviations from the average.
+   void setCounters (int n, double min, double max, double average,
+                     double sum2) {
+      numObs = n;
+      minValue = min;
+      maxValue = max;
+      curAverage = average;
+      curSum2 = sum2;
+   }
+
 	/**
 	 * Returns the number of observations given to this probe since its last initialization.
 	 * 
@@ -0,0 +1,575 @@
+/*
+ * Class:        TallyArray
+ * Description:  Array of tallies stored in flat primitive arrays
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.stat;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A fixed-size array of @f$d@f$ tallies whose counters are kept in flat
+ * primitive arrays, one per counter, instead of @f$d@f$  @ref Tally
+ * objects. This is used by
+ * @ref umontreal.ssj.stat.list.FlatListOfTallies and
+ * @ref umontreal.ssj.stat.matrix.FlatMatrixOfTallies for models with many
+ * performance measures: the memory used is about 40 bytes per tally, and
+ * adding a vector of observations with  #add(double[]) is a loop over
+ * arrays, without any call per tally.
+ *
+ * As long as all the tallies have received the same number of
+ * observations, which is the case when observations are always added as
+ * vectors without `NaN` values, this number is kept in a single counter,
+ * and  #add(double[]) updates each tally with the same arithmetic
+ * operations, in a loop which the compiler can vectorize. Otherwise, a
+ * `long` array of counts is created, and the tallies are updated one at a
+ * time.
+ *
+ * The method  #view returns a  @ref Tally that reads and updates the
+ * counters of a given tally of the array, and can be used for reports.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class TallyArray implements Cloneable {
+
+   private int size;
+   private long commonCount;  // Number of observations of all the tallies,
+                              // or -1 if counts is used
+   private long[] counts;     // Numbers of observations, or null
+   private double[] mean;     // Averages
+   private double[] sum2;     // Sums of squared deviations from the average
+   private double[] min;
+   private double[] max;
+   private String[] names;    // Names of the tallies, or null
+   private View[] views;      // Views created by view(i), or null
+
+   /**
+    * Constructs a new array of `size` tallies.
+    *  @param size         the number of tallies
+    *  @exception NegativeArraySizeException if `size` is negative.
+    */
+   public TallyArray (int size) {
+      this.size = size;
+      mean = new double[size];
+      sum2 = new double[size];
+      min = new double[size];
+      max = new double[size];
+      init();
+   }
+
+   /**
+    * Returns the number of tallies in this array.
+    *  @return the number of tallies
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Initializes all the tallies of this array.
+    */
+   public void init() {
+      commonCount = 0;
+      counts = null;
+      Arrays.fill (mean, 0.0);
+      Arrays.fill (sum2, 0.0);
+      Arrays.fill (min, Double.POSITIVE_INFINITY);
+      Arrays.fill (max, Double.NEGATIVE_INFINITY);
+   }
+
+   /**
+    * Initializes the tally `i` of this array.
+    *  @param i            the index of the tally
+    */
+   public void init (int i) {
+      if (size > 1)
+         useCounts();
+      if (counts == null)
+         commonCount = 0;
+      else
+         counts[i] = 0;
+      mean[i] = 0.0;
+      sum2[i] = 0.0;
+      min[i] = Double.POSITIVE_INFINITY;
+      max[i] = Double.NEGATIVE_INFINITY;
+   }
+
+   /**
+    * Adds the observation `x[i]` to the tally `i`, for @f$i=0,…,d-1@f$.
+    * No observation is added to the tally `i` if `x[i]` is `Double.NaN`.
+    *  @param x            the observations
+    *  @exception IllegalArgumentException if the length of `x` is not
+    *                      #size.
+    */
+   public void add (double[] x) {
+      if (x.length != size)
+         throw new IllegalArgumentException
+            ("Incompatible array length: given " + x.length +
+             ", required " + size);
+      if (counts == null && !hasNaN (x)) {
+         double r = 1.0 / (commonCount + 1);
+         addSameCount (0, x, r);
+         ++commonCount;
+      }
+      else {
+         useCounts();
+         addEach (0, x);
+      }
+   }
+
+   /**
+    * Adds the observations `x[r][c]` to the tallies, the rows of `x` being
+    * concatenated: `x[0]` gives the observations of the first
+    * `x[0].length` tallies, and so on. This is used for matrices of
+    * tallies stored in row-major order.
+    *  @param x            the observations
+    *  @exception IllegalArgumentException if the total length of the rows
+    *                      of `x` is not  #size.
+    */
+   public void add (double[][] x) {
+      int len = 0;
+      boolean nan = false;
+      for (double[] row : x) {
+         len += row.length;
+         nan |= hasNaN (row);
+      }
+      if (len != size)
+         throw new IllegalArgumentException
+            ("Incompatible number of observations: given " + len +
+             ", required " + size);
+      int from = 0;
+      if (counts == null && !nan) {
+         double r = 1.0 / (commonCount + 1);
+         for (double[] row : x) {
+            addSameCount (from, row, r);
+            from += row.length;
+         }
+         ++commonCount;
+      }
+      else {
+         useCounts();
+         for (double[] row : x) {
+            addEach (from, row);
+            from += row.length;
+         }
+      }
+   }
+
+   /**
+    * Adds the observation `x` to the tally `i` only. Unless  #size is 1,
+    * the tallies then have different numbers of observations, and the
+    * slower update is used by  #add(double[]) until the next call to
+    * #init().
+    *  @param i            the index of the tally
+    *  @param x            the observation
+    */
+   public void add (int i, double x) {
+      if (size > 1)
+         useCounts();
+      long n = counts == null ? ++commonCount : ++counts[i];
+      double d = x - mean[i];
+      mean[i] += d / n;
+      sum2[i] += d * (x - mean[i]);
+      if (x < min[i]) min[i] = x;
+      if (x > max[i]) max[i] = x;
+   }
+
+   /**
+    * Adds the observations collected by `other` to the tally `i`, as in
+    * Tally.merge.
+    *  @param i            the index of the tally
+    *  @param other        the tally whose observations are added
+    */
+   public void merge (int i, Tally other) {
+      int n2 = other.numberObs();
+      if (n2 == 0)
+         return;
+      double s2 = n2 < 2 ? 0.0 : other.variance() * (n2 - 1);
+      if (size > 1)
+         useCounts();
+      mergeOne (i, n2, other.average(), s2, other.min(), other.max());
+   }
+
+   /**
+    * Merges each tally of `other` in the corresponding tally of this
+    * array, as in  Tally.merge.
+    *  @param other        the array whose observations are added
+    *  @exception IllegalArgumentException if `other` does not have the
+    *                      same size as this array.
+    */
+   public void merge (TallyArray other) {
+      if (other.size != size)
+         throw new IllegalArgumentException
+            ("Incompatible size: given " + other.size + ", required " + size);
+      if (counts == null && other.counts == null) {
+         long n1 = commonCount;
+         long n2 = other.commonCount;
+         if (n2 == 0)
+            return;
+         double n = (double) n1 + n2;
+         double w1 = n1 / n;
+         double w12 = w1 * n2;
+         for (int i = 0; i < size; i++) {
+            double delta = other.mean[i] - mean[i];
+            mean[i] += delta * (n2 / n);
+            sum2[i] += other.sum2[i] + delta * delta * w12;
+            min[i] = Math.min (min[i], other.min[i]);
+            max[i] = Math.max (max[i], other.max[i]);
+         }
+         commonCount = n1 + n2;
+         return;
+      }
+      useCounts();
+      for (int i = 0; i < size; i++)
+         mergeOne (i, other.numberObs (i), other.mean[i], other.sum2[i],
+                   other.min[i], other.max[i]);
+   }
+
+   /**
+    * Returns the number of observations of the tally `i`.
+    *  @param i            the index of the tally
+    *  @return the number of observations
+    */
+   public long numberObs (int i) {
+      return counts == null ? commonCount : counts[i];
+   }
+
+   /**
+    * Returns `true` if all the tallies of this array have the same number
+    * of observations.
+    *  @return the success indicator of the test
+    */
+   public boolean areAllNumberObsEqual() {
+      if (counts == null)
+         return true;
+      for (int i = 1; i < size; i++)
+         if (counts[i] != counts[0])
+            return false;
+      return true;
+   }
+
+   /**
+    * Returns the average of the tally `i`, or `Double.NaN` if it has no
+    * observation.
+    *  @param i            the index of the tally
+    *  @return the average
+    */
+   public double average (int i) {
+      return numberObs (i) == 0 ? Double.NaN : mean[i];
+   }
+
+   /**
+    * Returns the sample variance of the tally `i`, or `Double.NaN` if it
+    * has less than two observations.
+    *  @param i            the index of the tally
+    *  @return the sample variance
+    */
+   public double variance (int i) {
+      long n = numberObs (i);
+      return n < 2 ? Double.NaN : sum2[i] / (n - 1);
+   }
+
+   /**
+    * Returns the minimum of the observations of the tally `i`.
+    *  @param i            the index of the tally
+    *  @return the minimum
+    */
+   public double min (int i) {
+      return min[i];
+   }
+
+   /**
+    * Returns the maximum of the observations of the tally `i`.
+    *  @param i            the index of the tally
+    *  @return the maximum
+    */
+   public double max (int i) {
+      return max[i];
+   }
+
+   /**
+    * Returns the sum of the observations of the tally `i`.
+    *  @param i            the index of the tally
+    *  @return the sum
+    */
+   public double sum (int i) {
+      return numberObs (i) * mean[i];
+   }
+
+   /**
+    * Returns the name of the tally `i`, or `null`.
+    *  @param i            the index of the tally
+    *  @return the name of the tally
+    */
+   public String getName (int i) {
+      return names == null ? null : names[i];
+   }
+
+   /**
+    * Sets the name of the tally `i` to `name`.
+    *  @param i            the index of the tally
+    *  @param name         the name of the tally
+    */
+   public void setName (int i, String name) {
+      if (names == null)
+         names = new String[size];
+      names[i] = name;
+   }
+
+   /**
+    * Returns a  @ref Tally giving access to the tally `i` of this array:
+    * its methods return the counters of this tally, and the observations
+    * given to its  Tally.add method are added to this tally. The view is
+    * created on the first call, and the same object is returned after, so
+    * its settings (type of confidence interval, level, number of digits,
+    * collecting and broadcasting status, observation listeners) are kept.
+    * The view keeps no counter, and its settings apply only to the
+    * observations given to the view itself: the observations added with
+    * #add(double[]) or  #add(double[][]) are not broadcast to its
+    * listeners, and are added even if its collecting is turned OFF. A
+    * clone of this array creates its own views, with the default settings.
+    *  @param i            the index of the tally
+    *  @return a view of the tally
+    *  @exception ArrayIndexOutOfBoundsException if `i` is out of bounds.
+    */
+   public Tally view (int i) {
+      if (i < 0 || i >= size)
+         throw new ArrayIndexOutOfBoundsException ("Index out of bounds: " + i);
+      if (views == null)
+         views = new View[size];
+      View v = views[i];
+      if (v == null)
+         v = views[i] = new View (i);
+      return v;
+   }
+
+   /**
+    * Returns an unmodifiable list whose element `i` is  #view(i).
+    *  @return the list of the views of the tallies
+    */
+   public List<Tally> asList() {
+      return new ViewList();
+   }
+
+   /**
+    * Clones this object and its arrays.
+    */
+   public TallyArray clone() {
+      TallyArray t;
+      try {
+         t = (TallyArray)super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new IllegalStateException ("This TallyArray cannot be cloned");
+      }
+      if (counts != null)
+         t.counts = counts.clone();
+      t.mean = mean.clone();
+      t.sum2 = sum2.clone();
+      t.min = min.clone();
+      t.max = max.clone();
+      if (names != null)
+         t.names = names.clone();
+      t.views = null;
+      return t;
+   }
+
+   private static boolean hasNaN (double[] x) {
+      boolean nan = false;
+      for (double v : x)
+         nan |= v != v;
+      return nan;
+   }
+
+   // Adds x[j] to tally from+j, for tallies having all the same number of
+   // observations; r is 1 / (this number + 1).
+   private void addSameCount (int from, double[] x, double r) {
+      final double[] mean = this.mean, sum2 = this.sum2;
+      final double[] min = this.min, max = this.max;
+      for (int j = 0; j < x.length; j++) {
+         int i = from + j;
+         double v = x[j];
+         double d = v - mean[i];
+         double m = mean[i] + d * r;
+         mean[i] = m;
+         sum2[i] += d * (v - m);
+         min[i] = Math.min (min[i], v);
+         max[i] = Math.max (max[i], v);
+      }
+   }
+
+   // Adds x[j] to tally from+j, except for NaN values, with counts.
+   private void addEach (int from, double[] x) {
+      for (int j = 0; j < x.length; j++) {
+         double v = x[j];
+         if (v != v)
+            continue;
+         int i = from + j;
+         long n = ++counts[i];
+         double d = v - mean[i];
+         mean[i] += d / n;
+         sum2[i] += d * (v - mean[i]);
+         if (v < min[i]) min[i] = v;
+         if (v > max[i]) max[i] = v;
+      }
+   }
+
+   private void mergeOne (int i, long n2, double mean2, double s2,
+                          double min2, double max2) {
+      if (n2 == 0)
+         return;
+      long n1 = numberObs (i);
+      double n = (double) n1 + n2;
+      double delta = mean2 - mean[i];
+      mean[i] += delta * (n2 / n);
+      sum2[i] += s2 + delta * delta * (n1 / n) * n2;
+      if (min2 < min[i]) min[i] = min2;
+      if (max2 > max[i]) max[i] = max2;
+      if (counts == null)
+         commonCount = n1 + n2;
+      else
+         counts[i] = n1 + n2;
+   }
+
+   // Switches to one count per tally.
+   private void useCounts() {
+      if (counts == null) {
+         counts = new long[size];
+         Arrays.fill (counts, commonCount);
+         commonCount = -1;
+      }
+   }
+
+
+   private final class ViewList extends AbstractList<Tally>
+                                implements RandomAccess {
+      public Tally get (int i) {
+         return view (i);
+      }
+
+      public int size() {
+         return size;
+      }
+   }
+
+   // A tally whose counters are copied from the array before each use.
+   private final class View extends Tally {
+      private final int index;
+      private final boolean ready;
+
+      View (int index) {
+         super();
+         this.index = index;
+         this.name = TallyArray.this.getName (index);
+         ready = true;
+      }
+
+      // Copies the counters of the tally into those of this object.
+      private void load() {
+         long n = TallyArray.this.numberObs (index);
+         setCounters (n < Integer.MAX_VALUE ? (int) n : Integer.MAX_VALUE,
+                      min[index], max[index], mean[index], sum2[index]);
+      }
+
+      public void init() {
+         if (ready)
+            TallyArray.this.init (index);
+         else
+            super.init();
+      }
+
+      public void setName (String name) {
+         super.setName (name);
+         TallyArray.this.setName (index, name);
+      }
+
+      public void add (double x) {
+         if (collect)
+            TallyArray.this.add (index, x);
+         notifyListeners (x);
+      }
+
+      public void merge (Tally other) {
+         if (collect)
+            TallyArray.this.merge (index, other);
+      }
+
+      public int numberObs() {
+         load();
+         return super.numberObs();
+      }
+
+      public double sum() {
+         return TallyArray.this.sum (index);
+      }
+
+      public double average() {
+         load();
+         return super.average();
+      }
+
+      public double variance() {
+         load();
+         return super.variance();
+      }
+
+      public double min() {
+         return min[index];
+      }
+
+      public double max() {
+         return max[index];
+      }
+
+      public void confidenceIntervalNormal
+            (double level, double[] centerAndRadius) {
+         load();
+         super.confidenceIntervalNormal (level, centerAndRadius);
+      }
+
+      public void confidenceIntervalStudent
+            (double level, double[] centerAndRadius) {
+         load();
+         super.confidenceIntervalStudent (level, centerAndRadius);
+      }
+
+      public void confidenceIntervalVarianceChi2
+            (double level, double[] interval) {
+         load();
+         super.confidenceIntervalVarianceChi2 (level, interval);
+      }
+
+      public String report (double level, int d) {
+         load();
+         return super.report (level, d);
+      }
+
+      // Returns an independent tally with the counters of the view.
+      public Tally clone() {
+         Tally t = new Tally (name);
+         load();
+         t.copyCounters (this);
+         return t;
+      }
+   }
+}
@@ -0,0 +1,287 @@
+/*
+ * Class:        TallyConcurrent
+ * Description:  Tally collecting observations from several threads
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.stat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A variant of  @ref Tally to which several threads can add observations
+ * at the same time, without a `synchronized` wrapper around  #add. As in
+ * `java.util.concurrent.atomic.LongAdder`, the counters are striped over
+ * several *cells*, each one being a  @ref Tally protected by its own lock,
+ * and each thread adds its observations to a cell chosen by a hash code
+ * specific to the thread. When the cell of a thread is locked by another
+ * thread, the hash code of the thread is changed, so the threads quickly
+ * spread over different cells and rarely wait for each other, and the
+ * throughput grows with the number of cores. There are as many cells as
+ * the smallest power of 2 at least equal to the number of available
+ * processors.
+ *
+ * The cells are merged, as in  Tally.merge, each time the counters are
+ * needed, i.e., by  #numberObs,  #average,  #variance,  #min,  #max, the
+ * confidence intervals and the reports, so these methods are slower than in
+ * @ref Tally and should not be called for each observation. If other
+ * threads are adding observations at the same time, the returned values
+ * account for some of these observations only, since the cells are merged
+ * one after the other. The method  #snapshot returns the merged counters
+ * as a  @ref Tally.
+ *
+ * When broadcasting is ON, the observers are notified from the thread
+ * calling  #add, so they must themselves be thread-safe. The method  #init
+ * must not be called while other threads add observations.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class TallyConcurrent extends Tally {
+
+   private static final int NCELLS =
+      Integer.highestOneBit (Runtime.getRuntime().availableProcessors()
+                             * 2 - 1);
+
+   private static final AtomicInteger seeder = new AtomicInteger();
+
+   // Hash code of the current thread, used to choose its cell.
+   private static final ThreadLocal<int[]> probe = new ThreadLocal<int[]>() {
+      protected int[] initialValue() {
+         int h = seeder.getAndAdd (0x9e3779b9);
+         return new int[] { h == 0 ? 1 : h };
+      }
+   };
+
+   private Cell[] cells;
+   private Tally total = new Tally();   // Where the cells are merged
+
+   // A Tally with a lock, padded to avoid false sharing between cells.
+   private static final class Cell extends Tally {
+      final ReentrantLock lock = new ReentrantLock();
+      long p0, p1, p2, p3, p4, p5, p6;
+   }
+
+   /**
+    * Constructs a new unnamed concurrent tally.
+    */
+   public TallyConcurrent() {
+      super();
+      cells = newCells();
+   }
+
+   /**
+    * Constructs a new concurrent tally with name `name`.
+    *  @param name         the name of the tally
+    */
+   public TallyConcurrent (String name) {
+      super (name);
+      cells = newCells();
+   }
+
+   private static Cell[] newCells() {
+      Cell[] c = new Cell[NCELLS];
+      for (int i = 0; i < c.length; i++)
+         c[i] = new Cell();
+      return c;
+   }
+
+   public void init() {
+      super.init();
+      if (cells != null)
+         for (Cell c : cells) {
+            c.lock.lock();
+            try {
+               c.init();
+            } finally {
+               c.lock.unlock();
+            }
+         }
+   }
+
+   /**
+    * Adds one observation `x` to this probe. This method can be called by
+    * several threads at the same time.
+    */
+   public void add (double x) {
+      if (collect) {
+         Cell c = lockCell();
+         try {
+            c.add (x);
+         } finally {
+            c.lock.unlock();
+         }
+      }
+      notifyListeners (x);
+   }
+
+   /**
+    * Adds the first `number` observations from the array `x` to this
+    * probe, locking a cell only once.
+    */
+   public void add (double[] x, int number) {
+      if (!collect)
+         return;
+      Cell c = lockCell();
+      try {
+         for (int i = 0; i < number; i++)
+            c.add (x[i]);
+      } finally {
+         c.lock.unlock();
+      }
+      for (int i = 0; i < number; i++)
+         notifyListeners (x[i]);
+   }
+
+   /**
+    * Adds the observations collected by `other` to this tally, as in
+    * Tally.merge. If `other` is also a `TallyConcurrent`, its cells are
+    * merged first. This method can be called by several threads at the
+    * same time, and while other threads add observations.
+    *  @param other        the tally whose observations are added
+    */
+   public void merge (Tally other) {
+      if (!collect)
+         return;
+      if (other instanceof TallyConcurrent)
+         other = ((TallyConcurrent) other).snapshot();
+      Cell c = lockCell();
+      try {
+         c.merge (other);
+      } finally {
+         c.lock.unlock();
+      }
+   }
+
+   /**
+    * Returns a new  @ref Tally, with the name of this tally, which
+    * contains the counters of all the cells of this tally, merged.
+    *  @return the merged counters
+    */
+   public synchronized Tally snapshot() {
+      fold();
+      Tally t = new Tally (name);
+      t.copyCounters (total);
+      return t;
+   }
+
+   public synchronized int numberObs() {
+      fold();
+      return super.numberObs();
+   }
+
+   public synchronized double sum() {
+      fold();
+      return super.sum();
+   }
+
+   public synchronized double average() {
+      fold();
+      return super.average();
+   }
+
+   public synchronized double variance() {
+      fold();
+      return super.variance();
+   }
+
+   public synchronized double min() {
+      fold();
+      return super.min();
+   }
+
+   public synchronized double max() {
+      fold();
+      return super.max();
+   }
+
+   public synchronized void confidenceIntervalNormal
+         (double level, double[] centerAndRadius) {
+      fold();
+      super.confidenceIntervalNormal (level, centerAndRadius);
+   }
+
+   public synchronized void confidenceIntervalStudent
+         (double level, double[] centerAndRadius) {
+      fold();
+      super.confidenceIntervalStudent (level, centerAndRadius);
+   }
+
+   public synchronized void confidenceIntervalVarianceChi2 (double level,
+                                                            double[] interval) {
+      fold();
+      super.confidenceIntervalVarianceChi2 (level, interval);
+   }
+
+   public synchronized String report (double level, int d) {
+      fold();
+      return super.report (level, d);
+   }
+
+   public synchronized String shortReport() {
+      fold();
+      return super.shortReport();
+   }
+
+   /**
+    * Clones this object. The clone has its own cells, which contain the
+    * merged counters of this tally.
+    */
+   public synchronized TallyConcurrent clone() {
+      fold();
+      TallyConcurrent t = (TallyConcurrent)super.clone();
+      t.cells = newCells();
+      t.cells[0].copyCounters (total);
+      t.total = new Tally();
+      return t;
+   }
+
+   // Locks and returns the cell of the current thread. If this cell is
+   // locked by another thread, the thread moves to another cell.
+   private Cell lockCell() {
+      int[] p = probe.get();
+      int h = p[0];
+      Cell c = cells[h & (cells.length - 1)];
+      if (!c.lock.tryLock()) {
+         h ^= h << 13;      // xorshift
+         h ^= h >>> 17;
+         h ^= h << 5;
+         p[0] = h;
+         c = cells[h & (cells.length - 1)];
+         c.lock.lock();
+      }
+      return c;
+   }
+
+   // Merges the cells into total, and copies the result into the counters
+   // of this tally.
+   private void fold() {
+      total.init();
+      for (Cell c : cells) {
+         c.lock.lock();
+         try {
+            total.merge (c);
+         } finally {
+            c.lock.unlock();
+         }
+      }
+      copyCounters (total);
+   }
+}
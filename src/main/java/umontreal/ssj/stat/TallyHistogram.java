@@ -169,6 +169,32 @@ public class TallyHistogram extends Tally {
 		}
 	}
 
+	/**
+	 * Adds the observations collected by <tt>other</tt>, which must be a
+	 * <tt>TallyHistogram</tt> with the same interval and number of bins, to this
+	 * probe: the bin counters are added, and the other counters are merged as in
+	 * Tally.merge. Unlike #addHistograms, this modifies this object.
+	 * 
+	 * @param other
+	 *            the histogram whose observations are added
+	 * @exception IllegalArgumentException
+	 *                if <tt>other</tt> is not a histogram with the same bins.
+	 */
+	public void merge(Tally other) {
+		if (!(other instanceof TallyHistogram))
+			throw new IllegalArgumentException("A TallyHistogram can only be merged with a TallyHistogram");
+		TallyHistogram h = (TallyHistogram) other;
+		if (h.numBins != numBins || h.m_a != m_a || h.m_b != m_b)
+			throw new IllegalArgumentException("Histograms with different bins");
+		if (!collect)
+			return;
+		for (int i = 0; i < numBins; i++)
+			count[i] += h.count[i];
+		leftCount += h.leftCount;
+		rightCount += h.rightCount;
+		super.merge(other);
+	}
+
 	/**
 	 * Remove empty bins in the tails (left and right), without changing the bin size.
 	 * This gives a new @ref TallyHistogram which may have fewer bins.
@@ -0,0 +1,376 @@
+/*
+ * Class:        TallyKLL
+ * Description:  Tally estimating quantiles with a KLL sketch
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.stat;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import umontreal.ssj.rng.Philox4x32;
+import umontreal.ssj.rng.RandomStream;
+
+/**
+ * A  @ref TallyQuantileSketch which summarizes the observations by the
+ * randomized sketch of Karnin, Lang and Liberty (2016), called *KLL*. The
+ * sketch is a hierarchy of *compactors*: the compactor at level @f$h@f$
+ * holds observations of weight @f$2^h@f$, and new observations enter at
+ * level 0. When a compactor exceeds its capacity, its items are sorted,
+ * either those of even ranks or those of odd ranks are chosen at random,
+ * with probability 1/2, and moved to the next level, where they count twice,
+ * while the others are discarded. If there are @f$H@f$ levels, the
+ * capacity of level @f$h@f$ is @f$\max(8, \lceil k c^{H-1-h}\rceil)@f$
+ * with @f$c=2/3@f$, where @f$k@f$ is the size parameter, so the sketch
+ * keeps at most about @f$3k + 8\log_2(n/k)@f$ observations.
+ *
+ * The rank error of each compaction has mean 0, so the estimated
+ * quantiles are unbiased in rank, and the rank errors of all the
+ * compactions add up to a random error whose standard deviation is about
+ * @f$1/k@f$, whatever the distribution of the observations and the order
+ * in which they are given. The value returned by  #rankError is
+ * @f$\epsilon= 2.6/k@f$ once a compaction has occurred, and 0 before.
+ * With probability about 99%, the rank error of a given quantile is
+ * smaller than @f$\epsilon@f$, i.e., 1.3% for the default @f$k=200@f$;
+ * the maximal error over all the quantiles is somewhat larger.
+ * Adding an observation takes amortized time @f$O(\log k)@f$. Merged
+ * sketches have the same guarantee as a single sketch collecting all the
+ * observations.
+ *
+ * The random choices are made with a  @ref umontreal.ssj.rng.RandomStream
+ * which can be given to the constructor; otherwise, each sketch gets its
+ * own  @ref umontreal.ssj.rng.Philox4x32 stream, whose key is taken by
+ * counting down from `Long.MAX_VALUE`. These keys are never reached by the
+ * streams created with the  Philox4x32 constructor, which count up from
+ * the package seed, so the default sketches neither change the seeds of
+ * the other streams of the model nor share their random choices with
+ * them or with each other. The sketches created in the same order get the
+ * same keys, so the results are reproducible.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class TallyKLL extends TallyQuantileSketch {
+
+   private static final double C = 2.0 / 3.0;
+   private static final int MIN_CAPACITY = 8;
+   // Keys of the streams of the default sketches, counting down
+   private static final AtomicLong nextKey = new AtomicLong (Long.MAX_VALUE);
+
+   private int k;
+   private RandomStream stream;
+   private double[][] levels;  // Compactors; items of levels[h] have weight 2^h
+   private int[] sizes;        // Numbers of items in the compactors
+   private int[] capacities;
+   private int numLevels;
+   private boolean compacted;  // Whether an item was ever discarded
+
+   private double[] sortedValues;  // Cached sorted items for the quantiles
+   private long[] sortedRanks;     // Cumulated weights of the sorted items
+
+   /**
+    * Constructs a new KLL sketch with size parameter 200.
+    */
+   public TallyKLL() {
+      this (200);
+   }
+
+   /**
+    * Constructs a new KLL sketch with size parameter `k`, using its own
+    * private stream for the random choices.
+    *  @param k            the size parameter
+    *  @exception IllegalArgumentException if `k` is smaller than 8.
+    */
+   public TallyKLL (int k) {
+      this (null, k, Philox4x32.streamAt (nextKey.getAndDecrement()));
+   }
+
+   /**
+    * Constructs a new KLL sketch with name `name`, size parameter `k`,
+    * and using the stream `stream` for the random choices.
+    *  @param name         the name of the tally
+    *  @param k            the size parameter
+    *  @param stream       the random stream for the compactions
+    *  @exception IllegalArgumentException if `k` is smaller than 8.
+    *  @exception NullPointerException if `stream` is `null`.
+    */
+   public TallyKLL (String name, int k, RandomStream stream) {
+      super (name);
+      if (stream == null)
+         throw new NullPointerException ("stream is null");
+      if (k < MIN_CAPACITY)
+         throw new IllegalArgumentException ("k must be at least "
+                                             + MIN_CAPACITY);
+      this.k = k;
+      this.stream = stream;
+      levels = new double[1][k + 1];
+      sizes = new int[1];
+      capacities = new int[1];
+      initSketch();
+   }
+
+   /**
+    * Returns the size parameter @f$k@f$ of this sketch.
+    *  @return the size parameter
+    */
+   public int getK() {
+      return k;
+   }
+
+   /**
+    * Returns the random stream used by this sketch.
+    *  @return the random stream
+    */
+   public RandomStream getStream() {
+      return stream;
+   }
+
+   /**
+    * Sets the random stream used by this sketch to `stream`.
+    *  @param stream       the new random stream
+    *  @exception NullPointerException if `stream` is `null`.
+    */
+   public void setStream (RandomStream stream) {
+      if (stream == null)
+         throw new NullPointerException ("stream is null");
+      this.stream = stream;
+   }
+
+   /**
+    * Returns the number of observations currently kept by this sketch.
+    *  @return the number of items in the compactors
+    */
+   public int numberRetained() {
+      int n = 0;
+      for (int h = 0; h < numLevels; h++)
+         n += sizes[h];
+      return n;
+   }
+
+   public void init() {
+      super.init();
+      if (levels != null)
+         initSketch();
+   }
+
+   private void initSketch() {
+      numLevels = 1;
+      sizes[0] = 0;
+      capacities[0] = k;
+      compacted = false;
+      sortedValues = null;
+   }
+
+   /**
+    * Adds one observation `x` to this probe.
+    */
+   public void add (double x) {
+      if (collect) {
+         if (sizes[0] == levels[0].length)
+            grow (0, sizes[0] + 1);
+         levels[0][sizes[0]++] = x;
+         sortedValues = null;
+         if (sizes[0] >= capacities[0])
+            compress();
+      }
+      super.add (x);
+   }
+
+   /**
+    * Adds the items of each compactor of `other`, which must be a
+    * `TallyKLL` with the same size parameter, to the compactor of the
+    * same level of this sketch, compacts as needed, and merges the counters
+    * as in Tally.merge.
+    *  @param other        the probe whose observations are added
+    *  @exception IllegalArgumentException if `other` is not a `TallyKLL`
+    *                      with the same size parameter.
+    */
+   public void merge (Tally other) {
+      if (!(other instanceof TallyKLL) || ((TallyKLL) other).k != k)
+         throw new IllegalArgumentException
+            ("A TallyKLL can only be merged with a TallyKLL with the same k");
+      if (!collect)
+         return;
+      TallyKLL kll = (TallyKLL) other;
+      while (numLevels < kll.numLevels)
+         addLevel();
+      for (int h = 0; h < kll.numLevels; h++) {
+         int n = kll.sizes[h];
+         if (sizes[h] + n > levels[h].length)
+            grow (h, sizes[h] + n);
+         System.arraycopy (kll.levels[h], 0, levels[h], sizes[h], n);
+         sizes[h] += n;
+      }
+      compacted |= kll.compacted;
+      sortedValues = null;
+      compress();
+      super.merge (other);
+   }
+
+   public double quantile (double p) {
+      checkProbability (p);
+      if (numObs == 0)
+         return Double.NaN;
+      if (p == 0.0)
+         return minValue;
+      if (p == 1.0)
+         return maxValue;
+      sort();
+      // first item whose cumulated weight reaches p*n, up to rounding
+      double pn = p * sortedRanks[sortedRanks.length - 1];
+      long target = (long) Math.ceil (pn - 1.0E-12 * pn);
+      int lo = 0, hi = sortedRanks.length - 1;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (sortedRanks[mid] < target)
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      return sortedValues[lo];
+   }
+
+   public double cdf (double x) {
+      if (numObs == 0)
+         return Double.NaN;
+      sort();
+      // number of items <= x
+      int lo = 0, hi = sortedValues.length;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (sortedValues[mid] <= x)
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      if (lo == 0)
+         return 0.0;
+      return (double) sortedRanks[lo - 1] / sortedRanks[sortedRanks.length - 1];
+   }
+
+   public double rankError (double p) {
+      checkProbability (p);
+      return compacted ? 2.6 / k : 0.0;
+   }
+
+   /**
+    * Clones this object and its compactors. The clone shares the random
+    * stream of this object.
+    */
+   public TallyKLL clone() {
+      TallyKLL t = (TallyKLL)super.clone();
+      t.levels = new double[levels.length][];
+      for (int h = 0; h < levels.length; h++)
+         t.levels[h] = levels[h].clone();
+      t.sizes = sizes.clone();
+      t.capacities = capacities.clone();
+      t.sortedValues = null;
+      return t;
+   }
+
+   // Compacts the levels that have reached their capacity, from the bottom.
+   private void compress() {
+      for (int h = 0; h < numLevels; h++)
+         while (sizes[h] >= capacities[h])
+            compact (h);
+   }
+
+   // Moves half of the items of level h to level h+1.
+   private void compact (int h) {
+      if (h + 1 == numLevels)
+         addLevel();
+      double[] items = levels[h];
+      int n = sizes[h];
+      Arrays.sort (items, 0, n);
+      int m = n & ~1;       // an odd item, the largest, stays at level h
+      int offset = stream.nextDouble() < 0.5 ? 0 : 1;
+      int half = m / 2;
+      if (sizes[h + 1] + half > levels[h + 1].length)
+         grow (h + 1, sizes[h + 1] + half);
+      double[] up = levels[h + 1];
+      int s = sizes[h + 1];
+      for (int i = offset; i < m; i += 2)
+         up[s++] = items[i];
+      sizes[h + 1] = s;
+      if (m < n)
+         items[0] = items[n - 1];
+      sizes[h] = n - m;
+      compacted = true;
+   }
+
+   // Adds a level on top and updates the capacities.
+   private void addLevel() {
+      if (numLevels == levels.length) {
+         int len = 2 * numLevels;
+         levels = Arrays.copyOf (levels, len);
+         sizes = Arrays.copyOf (sizes, len);
+         capacities = Arrays.copyOf (capacities, len);
+      }
+      if (levels[numLevels] == null)
+         levels[numLevels] = new double[MIN_CAPACITY];
+      sizes[numLevels] = 0;
+      ++numLevels;
+      double cap = k;
+      for (int h = numLevels - 1; h >= 0; h--) {
+         capacities[h] = Math.max (MIN_CAPACITY, (int) Math.ceil (cap));
+         cap *= C;
+      }
+   }
+
+   private void grow (int h, int minLength) {
+      levels[h] = Arrays.copyOf (levels[h],
+                                 Math.max (minLength, 2 * levels[h].length));
+   }
+
+   // Builds the sorted items and their cumulated weights, if needed.
+   private void sort() {
+      if (sortedValues != null)
+         return;
+      int n = numberRetained();
+      double[] values = new double[n];
+      long[] weights = new long[n];
+      int len = 0;
+      // merge the sorted levels one at a time
+      double[] tmpValues = new double[n];
+      long[] tmpWeights = new long[n];
+      for (int h = 0; h < numLevels; h++) {
+         double[] items = Arrays.copyOf (levels[h], sizes[h]);
+         Arrays.sort (items);
+         long w = 1L << h;
+         int i = 0, j = 0, m = 0;
+         while (i < len || j < items.length) {
+            if (j == items.length || (i < len && values[i] <= items[j])) {
+               tmpValues[m] = values[i];
+               tmpWeights[m++] = weights[i++];
+            }
+            else {
+               tmpValues[m] = items[j++];
+               tmpWeights[m++] = w;
+            }
+         }
+         len = m;
+         double[] tv = values;  values = tmpValues;  tmpValues = tv;
+         long[] tw = weights;  weights = tmpWeights;  tmpWeights = tw;
+      }
+      for (int i = 1; i < n; i++)
+         weights[i] += weights[i - 1];
+      sortedValues = values;
+      sortedRanks = weights;
+   }
+}
@@ -0,0 +1,211 @@
+/*
+ * Class:        TallyQuantileSketch
+ * Description:  Tally estimating quantiles in constant memory
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.stat;
+import umontreal.ssj.util.PrintfFormat;
+import umontreal.ssj.probdist.NormalDist;
+
+/**
+ * A variant of  @ref Tally which, in addition to the counters of
+ * @ref Tally, maintains a *sketch* of the observations, i.e., a summary
+ * of bounded size from which the quantiles of the empirical distribution
+ * can be estimated. Contrary to  @ref TallyStore, which keeps every
+ * observation and sorts them, the memory used by the sketch does not grow
+ * (or grows very slowly) with the number of observations, so this class can
+ * handle billions of observations. Sketches filled separately, e.g., by
+ * different threads or replications, can be combined with  #merge.
+ *
+ * The accuracy of a sketch is measured by its *rank error*: if
+ * #quantile(p) returns @f$x@f$, then the true fraction of the
+ * observations smaller than or equal to @f$x@f$ differs from @f$p@f$ by
+ * about  #rankError(p), which depends on the sketch and on its size
+ * parameter. The subclasses  @ref TallyTDigest and  @ref TallyKLL give
+ * the bounds of their sketch.
+ *
+ * The method  #quantileConfidenceInterval returns a confidence interval
+ * for a quantile of the distribution from which the observations are
+ * drawn, and  #report adds the estimated quantiles given by
+ * #setReportedQuantiles to the report of  @ref Tally.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public abstract class TallyQuantileSketch extends Tally {
+
+   private double[] reportedQuantiles = { 0.01, 0.25, 0.5, 0.75, 0.99 };
+
+   /**
+    * Constructs a new unnamed quantile sketch.
+    */
+   public TallyQuantileSketch() {
+      super();
+   }
+
+   /**
+    * Constructs a new quantile sketch with name `name`.
+    *  @param name         the name of the tally
+    */
+   public TallyQuantileSketch (String name) {
+      super (name);
+   }
+
+   /**
+    * Returns an estimate of the @f$p@f$-quantile of the observations,
+    * i.e., a value @f$x@f$ such that a fraction @f$p@f$ of the observations
+    * are smaller than or equal to @f$x@f$. The estimate for @f$p=0@f$ is
+    * #min and the estimate for @f$p=1@f$ is  #max. Returns `NaN` if no
+    * observation has been collected.
+    *  @param p            the probability of the quantile
+    *  @return the estimated quantile
+    *  @exception IllegalArgumentException if @f$p@f$ is not in @f$[0,1]@f$.
+    */
+   public abstract double quantile (double p);
+
+   /**
+    * Returns an estimate of the empirical distribution function of the
+    * observations at @f$x@f$, i.e., of the fraction of the observations
+    * that are smaller than or equal to @f$x@f$. Returns `NaN` if no
+    * observation has been collected.
+    *  @param x            the value at which the function is evaluated
+    *  @return the estimated fraction of the observations @f$\le x@f$
+    */
+   public abstract double cdf (double x);
+
+   /**
+    * Returns a bound on the rank error of  #quantile(p), i.e., on the
+    * difference between @f$p@f$ and the true fraction of the observations
+    * that are smaller than or equal to the estimated quantile. Depending on
+    * the sketch, this bound holds with high probability only, or is an
+    * estimate; see the subclasses.
+    *  @param p            the probability of the quantile
+    *  @return the bound on the rank error
+    */
+   public abstract double rankError (double p);
+
+   /**
+    * Returns an estimate of the median of the observations; this is
+    * equivalent to  #quantile(0.5).
+    *  @return the estimated median
+    */
+   public double median() {
+      return quantile (0.5);
+   }
+
+   /**
+    * Computes an approximate confidence interval of level `level` for the
+    * @f$p@f$-quantile @f$\xi_p@f$ of the distribution of the observations,
+    * assumed i.i.d., and returns its bounds in `interval[0]` and
+    * `interval[1]`. The interval is based on order statistics: the number
+    * of observations smaller than @f$\xi_p@f$ is binomial with parameters
+    * @f$n@f$ and @f$p@f$, so @f$\xi_p@f$ lies between the quantiles of
+    * probabilities @f$p \mp z_{1-\alpha/2}\sqrt{p(1-p)/n}@f$ of the
+    * observations with probability approximately @f$1-\alpha@f$ =
+    * `level`, where @f$z_{1-\alpha/2}@f$ is the
+    * @f$1-\alpha/2@f$ quantile of the standard normal distribution. These
+    * probabilities are moved apart by  #rankError to account for the error
+    * of the sketch. The normal approximation requires that @f$np@f$ and
+    * @f$n(1-p)@f$ be large enough, say at least 10.
+    *  @param p            the probability of the quantile
+    *  @param level        desired probability that the (random) confidence
+    *                      interval covers the true quantile
+    *  @param interval     array of size 2 in which the bounds are returned
+    *  @exception IllegalArgumentException if @f$p@f$ is not in
+    *                      @f$[0,1]@f$ or if `level` is not in @f$(0,1)@f$.
+    */
+   public void quantileConfidenceInterval (double p, double level,
+                                           double[] interval) {
+      checkProbability (p);
+      if (level <= 0.0 || level >= 1.0)
+         throw new IllegalArgumentException ("level must be in (0,1)");
+      if (numObs == 0) {
+         interval[0] = interval[1] = Double.NaN;
+         return;
+      }
+      double z = NormalDist.inverseF01 (0.5 * (1.0 + level));
+      double h = z * Math.sqrt (p * (1.0 - p) / numObs) + rankError (p);
+      interval[0] = quantile (Math.max (0.0, p - h));
+      interval[1] = quantile (Math.min (1.0, p + h));
+   }
+
+   /**
+    * Returns the probabilities of the quantiles shown by  #report.
+    *  @return the probabilities of the reported quantiles
+    */
+   public double[] getReportedQuantiles() {
+      return reportedQuantiles.clone();
+   }
+
+   /**
+    * Sets the probabilities of the quantiles shown by  #report to `p`. By
+    * default, these are 0.01, 0.25, 0.5, 0.75 and 0.99; an empty array
+    * removes the quantiles from the report.
+    *  @param p            the probabilities of the reported quantiles
+    *  @exception IllegalArgumentException if a probability is not in
+    *                      @f$[0,1]@f$.
+    */
+   public void setReportedQuantiles (double... p) {
+      for (double q : p)
+         checkProbability (q);
+      reportedQuantiles = p.clone();
+   }
+
+   /**
+    * Returns the report of  @ref Tally followed by a table giving, for
+    * each reported quantile, its estimate and its confidence interval of
+    * level `level` computed by  #quantileConfidenceInterval.
+    *  @param level        desired probability that the confidence
+    *                      intervals cover the true mean and quantiles
+    *  @param d            number of fractional decimal digits
+    *  @return a statistical report formatted as a string
+    */
+   public String report (double level, int d) {
+      PrintfFormat str = new PrintfFormat();
+      str.append (super.report (level, d));
+      if (reportedQuantiles.length == 0 || numObs == 0)
+         return str.toString();
+      str.append ("    prob.      quantile       " + (100*level)
+                  + "% conf. interval" + PrintfFormat.NEWLINE);
+      double[] ci = new double[2];
+      for (double p : reportedQuantiles) {
+         quantileConfidenceInterval (p, level, ci);
+         str.append (9, 4, p);   str.append (" ");
+         str.append (9 + d, d, d-1, quantile (p));   str.append ("   (");
+         str.append (9 + d, d, d-1, ci[0]);   str.append (",");
+         str.append (9 + d, d, d-1, ci[1]);   str.append (" )");
+         str.append (PrintfFormat.NEWLINE);
+      }
+      return str.toString();
+   }
+
+   /**
+    * Clones this object.
+    */
+   public TallyQuantileSketch clone() {
+      return (TallyQuantileSketch)super.clone();
+   }
+
+   static void checkProbability (double p) {
+      if (!(p >= 0.0 && p <= 1.0))
+         throw new IllegalArgumentException ("p must be in [0,1]");
+   }
+}
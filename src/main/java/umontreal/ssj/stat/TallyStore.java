@@ -125,6 +125,28 @@ public class TallyStore extends Tally {
       super.add(x);
    }
 
+   /**
+    * Appends the observations stored in `other`, which must be a
+    * `TallyStore`, to those of this probe, and merges the counters as in
+    * Tally.merge.
+    *  @param other        the probe whose observations are added
+    *  @exception IllegalArgumentException if `other` is not a
+    * `TallyStore`.
+    */
+   public void merge (Tally other) {
+      if (!(other instanceof TallyStore))
+         throw new IllegalArgumentException
+            ("A TallyStore can only be merged with a TallyStore");
+      if (!collect)
+         return;
+      DoubleArrayList obs = ((TallyStore) other).array;
+      int n = obs.size();
+      array.ensureCapacity (array.size() + n);
+      for (int i = 0; i < n; i++)
+         array.add (obs.getQuick (i));
+      super.merge (other);
+   }
+
   /**
     * Returns the observations stored in this probe.
     * @return the array of observations associated with this object
@@ -0,0 +1,610 @@
+/*
+ * Class:        TallyStoreMapped
+ * Description:  Tally storing its observations in a memory-mapped file
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.stat;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import umontreal.ssj.probdist.NormalDist;
+
+/**
+ * This class is a variant of  @ref TallyStore which stores the
+ * observations in a file mapped in memory instead of an array on the heap,
+ * so that the number of observations is limited by the disk space only.
+ * The file is divided into *segments* of @f$2^s@f$ observations each,
+ * which are mapped when they are first needed; the operating system keeps
+ * the recently used pages in memory and writes the others to disk, so the
+ * observations take no heap space and cause no garbage collection. The
+ * file can be given to the constructor, in which case its previous content
+ * is lost, or is a temporary file. The method  #close releases the file
+ * and deletes it if it is temporary; a temporary file that was not closed
+ * is deleted after its probe is garbage collected, or when the program
+ * exits.
+ *
+ * The number of observations is a `long`, returned by  #numberObsLong,
+ * and the counters of  @ref Tally are maintained with this number, so
+ * #average,  #variance and the confidence intervals on the mean remain
+ * exact beyond @f$2^{31}-1@f$ observations; #numberObs returns at most
+ * `Integer.MAX_VALUE`. The observations can be read one at a time with
+ * #get, or by blocks with  #read. The method  #quickSort sorts them by
+ * an external merge sort which uses a heap array of one segment only, and
+ * #covariance,  #aggregate and  #extractSubrange read the mapped data
+ * sequentially and return, in the last two cases, new mapped stores.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class TallyStoreMapped extends Tally implements Closeable {
+
+   /**
+    * Default number of observations in a segment, @f$2^{22}@f$, which
+    * corresponds to 32 MiB.
+    */
+   public static final int DEFAULT_SEGMENT_SIZE = 1 << 22;
+
+   private static final int BLOCK = 8192;  // block size for sequential reads
+
+   private Segments data;
+   private long count;      // The number of observations
+   private double curMean;  // Their average
+   private double curSum2;  // The sum of the squared deviations
+   private Logger log = Logger.getLogger ("umontreal.ssj.stat");
+
+   /**
+    * Constructs a new `TallyStoreMapped` statistical probe storing its
+    * observations in a temporary file.
+    */
+   public TallyStoreMapped() {
+      this (null, null, DEFAULT_SEGMENT_SIZE);
+   }
+
+   /**
+    * Constructs a new `TallyStoreMapped` statistical probe with name
+    * `name`, storing its observations in a temporary file.
+    *  @param name         the name of the tally
+    */
+   public TallyStoreMapped (String name) {
+      this (name, null, DEFAULT_SEGMENT_SIZE);
+   }
+
+   /**
+    * Constructs a new `TallyStoreMapped` statistical probe with name
+    * `name`, storing its observations in the file `file`, in segments of
+    * `segmentSize` observations. If `file` is `null`, a temporary file is
+    * used.
+    *  @param name         the name of the tally
+    *  @param file         the file where the observations are stored
+    *  @param segmentSize  the number of observations per segment
+    *  @exception IllegalArgumentException if `segmentSize` is not a power
+    *                      of 2 between @f$2^4@f$ and @f$2^{27}@f$.
+    *  @exception UncheckedIOException if the file cannot be opened.
+    */
+   public TallyStoreMapped (String name, File file, int segmentSize) {
+      super (name);
+      if (Integer.bitCount (segmentSize) != 1 || segmentSize < 16 ||
+          segmentSize > (1 << 27))
+         throw new IllegalArgumentException
+            ("segmentSize must be a power of 2 between 2^4 and 2^27");
+      data = new Segments (file, Integer.numberOfTrailingZeros (segmentSize));
+   }
+
+   public void init() {
+      super.init();
+      count = 0;
+      curMean = 0.0;
+      curSum2 = 0.0;
+   }
+
+   /**
+    * Adds one observation `x` to this probe.
+    */
+   public void add (double x) {
+      if (collect) {
+         data.put (count, x);
+         if (x < minValue) minValue = x;
+         if (x > maxValue) maxValue = x;
+         ++count;
+         numObs = count < Integer.MAX_VALUE ? (int) count : Integer.MAX_VALUE;
+         double y = x - curMean;
+         curMean += y / count;
+         curSum2 += y * (x - curMean);
+      }
+      notifyListeners (x);
+   }
+
+   /**
+    * Appends the observations stored in `other`, which must be a
+    * `TallyStoreMapped`, to those of this probe, and merges the counters
+    * as in Tally.merge.
+    *  @param other        the probe whose observations are added
+    *  @exception IllegalArgumentException if `other` is not a
+    * `TallyStoreMapped`.
+    */
+   public void merge (Tally other) {
+      if (!(other instanceof TallyStoreMapped))
+         throw new IllegalArgumentException
+            ("A TallyStoreMapped can only be merged with a TallyStoreMapped");
+      if (!collect)
+         return;
+      TallyStoreMapped t = (TallyStoreMapped) other;
+      long n2 = t.count;
+      if (n2 == 0)
+         return;
+      double[] block = new double[BLOCK];
+      for (long i = 0; i < n2; i += BLOCK) {
+         int len = (int) Math.min (BLOCK, n2 - i);
+         t.data.read (i, block, 0, len);
+         data.write (count + i, block, 0, len);
+      }
+      if (t.minValue < minValue) minValue = t.minValue;
+      if (t.maxValue > maxValue) maxValue = t.maxValue;
+      long n1 = count;
+      double n = (double) n1 + n2;
+      double delta = t.curMean - curMean;
+      curMean += delta * (n2 / n);
+      curSum2 += t.curSum2 + delta * delta * (n1 / n) * n2;
+      count = n1 + n2;
+      numObs = count < Integer.MAX_VALUE ? (int) count : Integer.MAX_VALUE;
+   }
+
+   /**
+    * Returns the number of observations given to this probe since its last
+    * initialization, as a `long`.
+    *  @return the number of collected observations
+    */
+   public long numberObsLong() {
+      return count;
+   }
+
+   public double sum() {
+      return count * curMean;
+   }
+
+   public double average() {
+      return count < 1 ? super.average() : curMean;
+   }
+
+   public double variance() {
+      return count < 2 ? super.variance() : curSum2 / (count - 1);
+   }
+
+   public void confidenceIntervalNormal (double level,
+                                         double[] centerAndRadius) {
+      if (count <= Integer.MAX_VALUE) {
+         super.confidenceIntervalNormal (level, centerAndRadius);
+         return;
+      }
+      double z = NormalDist.inverseF01 (0.5 * (level + 1.0));
+      centerAndRadius[0] = average();
+      centerAndRadius[1] = z * Math.sqrt (variance() / (double) count);
+   }
+
+   public void confidenceIntervalStudent (double level,
+                                          double[] centerAndRadius) {
+      // beyond 2^31 observations, the Student and normal quantiles agree
+      if (count <= Integer.MAX_VALUE)
+         super.confidenceIntervalStudent (level, centerAndRadius);
+      else
+         confidenceIntervalNormal (level, centerAndRadius);
+   }
+
+   /**
+    * Returns the observation of index `i`, between 0 and
+    * #numberObsLong() @f$-1@f$.
+    *  @param i            the index of the observation
+    *  @return the observation
+    *  @exception IndexOutOfBoundsException if `i` is out of range.
+    */
+   public double get (long i) {
+      if (i < 0 || i >= count)
+         throw new IndexOutOfBoundsException ("index " + i + ", size " + count);
+      return data.get (i);
+   }
+
+   /**
+    * Copies the `len` observations starting at index `from` into `dest`,
+    * starting at index `off`.
+    *  @param from         the index of the first observation
+    *  @param dest         the destination array
+    *  @param off          the index of the first element in `dest`
+    *  @param len          the number of observations to copy
+    *  @exception IndexOutOfBoundsException if the indices are out of range.
+    */
+   public void read (long from, double[] dest, int off, int len) {
+      if (from < 0 || len < 0 || from + len > count ||
+          off < 0 || off + len > dest.length)
+         throw new IndexOutOfBoundsException();
+      data.read (from, dest, off, len);
+   }
+
+   /**
+    * Returns a copy of the observations stored in this probe, in a new
+    * array.
+    *  @return the array of observations
+    *  @exception IllegalStateException if there are too many observations
+    *                      for an array.
+    */
+   public double[] getArray() {
+      if (count > Integer.MAX_VALUE - 8)
+         throw new IllegalStateException
+            ("Too many observations for an array: " + count);
+      double[] a = new double[(int) count];
+      data.read (0, a, 0, a.length);
+      return a;
+   }
+
+   /**
+    * Returns the file in which the observations are stored.
+    *  @return the file of the observations
+    */
+   public File getFile() {
+      return data.file;
+   }
+
+   /**
+    * Sorts the observations of this probe in increasing order. Each
+    * segment is sorted in an array, and the sorted segments are then merged
+    * into a temporary file, which is copied back.
+    */
+   public void quickSort() {
+      if (count < 2)
+         return;
+      int seg = 1 << data.shift;
+      int numRuns = (int) ((count + seg - 1) >>> data.shift);
+      double[] buf = new double[(int) Math.min (count, seg)];
+      for (int r = 0; r < numRuns; r++) {
+         long from = (long) r << data.shift;
+         int len = (int) Math.min (seg, count - from);
+         data.read (from, buf, 0, len);
+         Arrays.sort (buf, 0, len);
+         data.write (from, buf, 0, len);
+      }
+      if (numRuns == 1)
+         return;
+
+      // k-way merge of the sorted runs with a binary heap of run indices
+      long[] pos = new long[numRuns];
+      long[] end = new long[numRuns];
+      int[] heap = new int[numRuns];
+      for (int r = 0; r < numRuns; r++) {
+         pos[r] = (long) r << data.shift;
+         end[r] = Math.min (pos[r] + seg, count);
+         heap[r] = r;
+      }
+      int size = numRuns;
+      for (int i = size / 2 - 1; i >= 0; i--)
+         siftDown (heap, size, i, pos);
+      Segments out = new Segments (null, data.shift);
+      try {
+         long o = 0;
+         while (size > 0) {
+            int r = heap[0];
+            out.put (o++, data.get (pos[r]));
+            if (++pos[r] == end[r])
+               heap[0] = heap[--size];
+            if (size > 0)
+               siftDown (heap, size, 0, pos);
+         }
+         for (long i = 0; i < count; i += buf.length) {
+            int len = (int) Math.min (buf.length, count - i);
+            out.read (i, buf, 0, len);
+            data.write (i, buf, 0, len);
+         }
+      } finally {
+         out.close();
+      }
+   }
+
+   private void siftDown (int[] heap, int size, int i, long[] pos) {
+      int r = heap[i];
+      double x = data.get (pos[r]);
+      while (2*i + 1 < size) {
+         int c = 2*i + 1;
+         double xc = data.get (pos[heap[c]]);
+         if (c + 1 < size) {
+            double xc1 = data.get (pos[heap[c + 1]]);
+            if (xc1 < xc) {
+               ++c;
+               xc = xc1;
+            }
+         }
+         if (x <= xc)
+            break;
+         heap[i] = heap[c];
+         i = c;
+      }
+      heap[i] = r;
+   }
+
+   /**
+    * Returns the sample covariance of the observations contained in this
+    * tally, and the other tally `t2`. Both tallies must have the same
+    * number of observations. This returns `Double.NaN` if the tallies do
+    * not contain the same number of observations, or if they contain less
+    * than two observations.
+    *  @param t2           the other tally.
+    *  @return the sample covariance.
+    */
+   public double covariance (TallyStoreMapped t2) {
+      if (count != t2.count) {
+         log.logp (Level.WARNING, "TallyStoreMapped", "covariance",
+            "This tally, with name " + getName() + ", contains " + count +
+            " observations while " + "the given tally, with name " +
+            t2.getName() + ", contains " + t2.count + " observations");
+         return Double.NaN;
+      }
+      if (count < 2) {
+         log.logp (Level.WARNING, "TallyStoreMapped", "covariance",
+            "This tally, with name " + getName() + ", contains " + count +
+            " observation");
+         return Double.NaN;
+      }
+      double mx = average();
+      double my = t2.average();
+      double[] bx = new double[BLOCK];
+      double[] by = new double[BLOCK];
+      double sum = 0.0;
+      for (long i = 0; i < count; i += BLOCK) {
+         int len = (int) Math.min (BLOCK, count - i);
+         data.read (i, bx, 0, len);
+         t2.data.read (i, by, 0, len);
+         for (int j = 0; j < len; j++)
+            sum += (bx[j] - mx) * (by[j] - my);
+      }
+      return sum / (count - 1);
+   }
+
+   /**
+    * Returns a new `TallyStoreMapped` instance, stored in a temporary file,
+    * that contains all the observations of this `TallyStoreMapped` that are
+    * in the interval (a, b). This method does not sort the observations.
+    *
+    * @return a new `TallyStoreMapped` object with the selected observations
+    */
+   public TallyStoreMapped extractSubrange (double a, double b) {
+      TallyStoreMapped t = new TallyStoreMapped (null, null, 1 << data.shift);
+      double[] block = new double[BLOCK];
+      for (long i = 0; i < count; i += BLOCK) {
+         int len = (int) Math.min (BLOCK, count - i);
+         data.read (i, block, 0, len);
+         for (int j = 0; j < len; j++)
+            if ((block[j] > a) & (block[j] < b))
+               t.add (block[j]);
+      }
+      return t;
+   }
+
+   /**
+    * Returns a new `TallyStoreMapped` instance, stored in a temporary file,
+    * that contains aggregate observations from this `TallyStoreMapped`, as
+    * in  TallyStore.aggregate: the observations are divided in blocks of
+    * `gsize` successive observations, and the averages of the blocks are
+    * added to the new probe. If `gsize` does not divide the number of
+    * observations, the last block is smaller. This method does not sort the
+    * observations.
+    *
+    * @param gsize the group size to use when performing the aggregation
+    *
+    * @return a new `TallyStoreMapped` object with aggregated observations
+    */
+   public TallyStoreMapped aggregate (int gsize) {
+      TallyStoreMapped t = new TallyStoreMapped (null, null, 1 << data.shift);
+      double[] block = new double[BLOCK];
+      double sum = 0.0;
+      int inGroup = 0;
+      for (long i = 0; i < count; i += BLOCK) {
+         int len = (int) Math.min (BLOCK, count - i);
+         data.read (i, block, 0, len);
+         for (int j = 0; j < len; j++) {
+            sum += block[j];
+            if (++inGroup == gsize) {
+               t.add (sum / gsize);
+               sum = 0.0;
+               inGroup = 0;
+            }
+         }
+      }
+      // This is if gsize does not divide the number of observations.
+      if (inGroup > 0)
+         t.add (sum / inGroup);
+      return t;
+   }
+
+   /**
+    * Clones this object and its observations, which are copied to a new
+    * temporary file.
+    */
+   public TallyStoreMapped clone() {
+      TallyStoreMapped t = (TallyStoreMapped)super.clone();
+      t.data = new Segments (null, data.shift);
+      double[] block = new double[BLOCK];
+      for (long i = 0; i < count; i += BLOCK) {
+         int len = (int) Math.min (BLOCK, count - i);
+         data.read (i, block, 0, len);
+         t.data.write (i, block, 0, len);
+      }
+      return t;
+   }
+
+   /**
+    * Closes the file of the observations, and deletes it if it is a
+    * temporary file. This probe must not be used after this method is
+    * called.
+    *  @exception UncheckedIOException if the file cannot be closed.
+    */
+   public void close() {
+      data.close();
+   }
+
+
+   // A file mapped in memory by segments of 2^shift doubles.
+   private static final class Segments {
+      final File file;
+      final TempFile tempFile;   // null if the file is not temporary
+      final int shift;
+      final int mask;
+      final FileChannel channel;
+      final ArrayList<DoubleBuffer> buffers = new ArrayList<DoubleBuffer>();
+
+      Segments (File file, int shift) {
+         this.shift = shift;
+         mask = (1 << shift) - 1;
+         boolean temporary = file == null;
+         try {
+            if (temporary)
+               file = File.createTempFile ("ssj-tally", ".dat");
+            channel = FileChannel.open (file.toPath(),
+               StandardOpenOption.CREATE, StandardOpenOption.READ,
+               StandardOpenOption.WRITE,
+               StandardOpenOption.TRUNCATE_EXISTING);
+         } catch (IOException e) {
+            if (temporary && file != null)
+               file.delete();
+            throw new UncheckedIOException (e);
+         }
+         this.file = file;
+         tempFile = temporary ? TempFile.register (this) : null;
+      }
+
+      // Returns the segment of index s, mapping it if needed.
+      DoubleBuffer segment (int s) {
+         while (buffers.size() <= s) {
+            long bytes = 8L << shift;
+            try {
+               buffers.add (channel.map (FileChannel.MapMode.READ_WRITE,
+                                         buffers.size() * bytes, bytes)
+                            .order (ByteOrder.nativeOrder()).asDoubleBuffer());
+            } catch (IOException e) {
+               throw new UncheckedIOException (e);
+            }
+         }
+         return buffers.get (s);
+      }
+
+      double get (long i) {
+         return buffers.get ((int) (i >>> shift)).get ((int) i & mask);
+      }
+
+      void put (long i, double x) {
+         segment ((int) (i >>> shift)).put ((int) i & mask, x);
+      }
+
+      void read (long from, double[] dest, int off, int len) {
+         while (len > 0) {
+            DoubleBuffer b = segment ((int) (from >>> shift)).duplicate();
+            b.position ((int) from & mask);
+            int n = Math.min (len, b.remaining());
+            b.get (dest, off, n);
+            from += n;
+            off += n;
+            len -= n;
+         }
+      }
+
+      void write (long from, double[] src, int off, int len) {
+         while (len > 0) {
+            DoubleBuffer b = segment ((int) (from >>> shift)).duplicate();
+            b.position ((int) from & mask);
+            int n = Math.min (len, b.remaining());
+            b.put (src, off, n);
+            from += n;
+            off += n;
+            len -= n;
+         }
+      }
+
+      void close() {
+         buffers.clear();
+         try {
+            channel.close();
+         } catch (IOException e) {
+            throw new UncheckedIOException (e);
+         } finally {
+            if (tempFile != null)
+               tempFile.delete();
+         }
+      }
+   }
+
+   // The temporary file of a Segments object that was not closed is
+   // deleted when this phantom reference is enqueued, which is checked
+   // each time a temporary file is created, or when the program exits.
+   // Unlike File.deleteOnExit, this keeps track of the open files only.
+   private static final class TempFile extends PhantomReference<Segments> {
+      private static final ReferenceQueue<Segments> queue =
+         new ReferenceQueue<Segments>();
+      private static final Set<TempFile> live = Collections.newSetFromMap
+         (new ConcurrentHashMap<TempFile, Boolean>());
+      static {
+         Runtime.getRuntime().addShutdownHook (new Thread() {
+            public void run() {
+               for (TempFile t : live)
+                  t.delete();
+            }
+         });
+      }
+
+      private final File file;
+      private final FileChannel channel;
+
+      private TempFile (Segments segments) {
+         super (segments, queue);
+         file = segments.file;
+         channel = segments.channel;
+      }
+
+      static TempFile register (Segments segments) {
+         Reference<? extends Segments> ref;
+         while ((ref = queue.poll()) != null)
+            ((TempFile) ref).delete();
+         TempFile t = new TempFile (segments);
+         live.add (t);
+         return t;
+      }
+
+      void delete() {
+         if (!live.remove (this))
+            return;
+         clear();
+         try {
+            channel.close();
+         } catch (IOException e) {}
+         file.delete();
+      }
+   }
+}
@@ -0,0 +1,332 @@
+/*
+ * Class:        TallyTDigest
+ * Description:  Tally estimating quantiles with a t-digest
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.stat;
+import java.util.Arrays;
+
+/**
+ * A  @ref TallyQuantileSketch which summarizes the observations by a
+ * *t-digest* (Dunning and Ertl, 2019), a sorted list of *centroids*, each
+ * one being the average and the number of a group of consecutive
+ * observations. The size of the groups is limited by the scale function
+ * @f$k(q) = (\delta/2\pi)\arcsin(2q-1)@f$, where @f$\delta@f$ is the
+ * *compression* parameter: the observations of ranks between @f$nq_1@f$ and
+ * @f$nq_2@f$ can form a single centroid only if @f$k(q_2) - k(q_1) \le
+ * 1@f$. The centroids are thus small near the extremes and larger near the
+ * median, and there are at most @f$\delta+1@f$ of them. The observations
+ * are first accumulated in a buffer of size @f$5\delta@f$, which is sorted
+ * and merged into the centroids when it is full, so adding an observation
+ * takes amortized time @f$O(\log\delta)@f$ and the memory used is
+ * @f$O(\delta)@f$, independently of the number of observations.
+ *
+ * The quantiles are estimated by linear interpolation between the
+ * averages of the centroids, placed at the midpoints of their ranks, and
+ * the exact  #min and  #max. A centroid of weight @f$w@f$ covering the
+ * @f$p@f$-quantile spans approximately at most @f$w/n \le
+ * 2\pi\sqrt{p(1-p)}/\delta@f$ in rank, so the accuracy is much better in
+ * the tails than at the median, which makes the t-digest well suited for
+ * extreme quantiles such as @f$p = 0.999@f$. The t-digest has no
+ * worst-case guarantee, since the ranges of adjacent centroids can
+ * overlap; the value returned by  #rankError is half the rank span of the
+ * two centroids around the interpolated quantile, which is a good
+ * estimate of the error in practice.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class TallyTDigest extends TallyQuantileSketch {
+
+   private double compression;
+   private double[] mean;      // Averages of the centroids, in increasing order
+   private double[] weight;    // Numbers of observations in the centroids
+   private int numCentroids;
+   private double[] buffer;    // Observations not yet merged into centroids
+   private int numBuffered;
+   private double[] tmpMean;   // Work space for merging
+   private double[] tmpWeight;
+
+   /**
+    * Constructs a new t-digest with compression parameter 100.
+    */
+   public TallyTDigest() {
+      this (100.0);
+   }
+
+   /**
+    * Constructs a new t-digest with compression parameter
+    * `compression`.
+    *  @param compression  the compression parameter @f$\delta@f$
+    *  @exception IllegalArgumentException if `compression` is smaller
+    *                      than 10.
+    */
+   public TallyTDigest (double compression) {
+      super();
+      setCompression (compression);
+   }
+
+   /**
+    * Constructs a new t-digest with name `name` and compression parameter
+    * `compression`.
+    *  @param name         the name of the tally
+    *  @param compression  the compression parameter @f$\delta@f$
+    *  @exception IllegalArgumentException if `compression` is smaller
+    *                      than 10.
+    */
+   public TallyTDigest (String name, double compression) {
+      super (name);
+      setCompression (compression);
+   }
+
+   private void setCompression (double compression) {
+      if (!(compression >= 10.0))
+         throw new IllegalArgumentException ("compression must be at least 10");
+      this.compression = compression;
+      int cap = (int) Math.ceil (compression) + 3;
+      int bufSize = 5 * cap;
+      mean = new double[cap];
+      weight = new double[cap];
+      buffer = new double[bufSize];
+      tmpMean = new double[cap + bufSize];
+      tmpWeight = new double[cap + bufSize];
+   }
+
+   /**
+    * Returns the compression parameter @f$\delta@f$ of this t-digest.
+    *  @return the compression parameter
+    */
+   public double getCompression() {
+      return compression;
+   }
+
+   /**
+    * Returns the current number of centroids of this t-digest, after
+    * merging the buffered observations.
+    *  @return the number of centroids
+    */
+   public int numberCentroids() {
+      flush();
+      return numCentroids;
+   }
+
+   public void init() {
+      super.init();
+      numCentroids = 0;
+      numBuffered = 0;
+   }
+
+   /**
+    * Adds one observation `x` to this probe.
+    */
+   public void add (double x) {
+      if (collect) {
+         if (numBuffered == buffer.length)
+            flush();
+         buffer[numBuffered++] = x;
+      }
+      super.add (x);
+   }
+
+   /**
+    * Merges the centroids of `other`, which must be a `TallyTDigest`,
+    * with those of this t-digest, and merges the counters as in
+    * Tally.merge. The two t-digests can have different compression
+    * parameters; the result has the compression of this t-digest.
+    *  @param other        the probe whose observations are added
+    *  @exception IllegalArgumentException if `other` is not a
+    * `TallyTDigest`.
+    */
+   public void merge (Tally other) {
+      if (!(other instanceof TallyTDigest))
+         throw new IllegalArgumentException
+            ("A TallyTDigest can only be merged with a TallyTDigest");
+      if (!collect)
+         return;
+      TallyTDigest td = (TallyTDigest) other;
+      td.flush();
+      flush();
+      int n = numCentroids + td.numCentroids;
+      if (tmpMean.length < n) {
+         tmpMean = new double[n];
+         tmpWeight = new double[n];
+      }
+      // merge the two sorted lists of centroids
+      int i = 0, j = 0;
+      for (int m = 0; m < n; m++) {
+         if (j == td.numCentroids ||
+             (i < numCentroids && mean[i] <= td.mean[j])) {
+            tmpMean[m] = mean[i];
+            tmpWeight[m] = weight[i++];
+         }
+         else {
+            tmpMean[m] = td.mean[j];
+            tmpWeight[m] = td.weight[j++];
+         }
+      }
+      compress (n);
+      super.merge (other);
+   }
+
+   public double quantile (double p) {
+      checkProbability (p);
+      if (numObs == 0)
+         return Double.NaN;
+      if (p == 0.0)
+         return minValue;
+      if (p == 1.0)
+         return maxValue;
+      flush();
+      double target = p * numObs;
+      // Piecewise-linear interpolation through (0, min), the points
+      // (rank of middle of centroid i, mean[i]), and (n, max).
+      double r0 = 0.0, x0 = minValue;
+      double cum = 0.0;
+      for (int i = 0; i < numCentroids; i++) {
+         double r1 = cum + 0.5 * weight[i];
+         if (target <= r1)
+            return interpolate (target, r0, x0, r1, mean[i]);
+         cum += weight[i];
+         r0 = r1;
+         x0 = mean[i];
+      }
+      return interpolate (target, r0, x0, numObs, maxValue);
+   }
+
+   public double cdf (double x) {
+      if (numObs == 0)
+         return Double.NaN;
+      if (x < minValue)
+         return 0.0;
+      if (x >= maxValue)
+         return 1.0;
+      flush();
+      double r0 = 0.0, x0 = minValue;
+      double cum = 0.0;
+      for (int i = 0; i < numCentroids; i++) {
+         double r1 = cum + 0.5 * weight[i];
+         if (x < mean[i])
+            return interpolate (x, x0, r0, mean[i], r1) / numObs;
+         cum += weight[i];
+         r0 = r1;
+         x0 = mean[i];
+      }
+      return interpolate (x, x0, r0, maxValue, numObs) / numObs;
+   }
+
+   public double rankError (double p) {
+      checkProbability (p);
+      if (numObs == 0)
+         return 0.0;
+      flush();
+      double target = p * numObs;
+      double cum = 0.0;
+      double w0 = 0.0;
+      for (int i = 0; i < numCentroids; i++) {
+         if (target <= cum + 0.5 * weight[i])
+            return 0.5 * (w0 + weight[i]) / numObs;
+         cum += weight[i];
+         w0 = weight[i];
+      }
+      return 0.5 * w0 / numObs;
+   }
+
+   /**
+    * Clones this object and its centroids.
+    */
+   public TallyTDigest clone() {
+      TallyTDigest t = (TallyTDigest)super.clone();
+      t.mean = mean.clone();
+      t.weight = weight.clone();
+      t.buffer = buffer.clone();
+      t.tmpMean = new double[tmpMean.length];
+      t.tmpWeight = new double[tmpWeight.length];
+      return t;
+   }
+
+   // Value at x of the line through (x0, y0) and (x1, y1), with x0 <= x <= x1.
+   private static double interpolate (double x, double x0, double y0,
+                                      double x1, double y1) {
+      if (x1 <= x0)
+         return y1;
+      return y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+   }
+
+   // Merges the buffered observations into the centroids.
+   private void flush() {
+      if (numBuffered == 0)
+         return;
+      Arrays.sort (buffer, 0, numBuffered);
+      int n = numCentroids + numBuffered;
+      int i = 0, j = 0;
+      for (int m = 0; m < n; m++) {
+         if (j == numBuffered || (i < numCentroids && mean[i] <= buffer[j])) {
+            tmpMean[m] = mean[i];
+            tmpWeight[m] = weight[i++];
+         }
+         else {
+            tmpMean[m] = buffer[j++];
+            tmpWeight[m] = 1.0;
+         }
+      }
+      numBuffered = 0;
+      compress (n);
+   }
+
+   // Greedily merges the n sorted centroids in tmpMean and tmpWeight into
+   // mean and weight, so that each centroid spans at most 1 in k(q).
+   private void compress (int n) {
+      if (n == 0)
+         return;
+      double total = 0.0;
+      for (int m = 0; m < n; m++)
+         total += tmpWeight[m];
+      double before = 0.0;       // weight of the completed centroids
+      double limit = qLimit (0.0);
+      int c = 0;
+      mean[0] = tmpMean[0];
+      weight[0] = tmpWeight[0];
+      for (int m = 1; m < n; m++) {
+         double w = tmpWeight[m];
+         if ((before + weight[c] + w) / total <= limit) {
+            weight[c] += w;
+            mean[c] += (tmpMean[m] - mean[c]) * w / weight[c];
+         }
+         else {
+            before += weight[c];
+            limit = qLimit (before / total);
+            ++c;
+            mean[c] = tmpMean[m];
+            weight[c] = w;
+         }
+      }
+      numCentroids = c + 1;
+   }
+
+   // Returns the largest q with k(q) <= k(q0) + 1.
+   private double qLimit (double q0) {
+      double k = compression * Math.asin (2.0 * q0 - 1.0) / (2.0 * Math.PI)
+                 + 1.0;
+      if (k >= 0.25 * compression)
+         return 1.0;
+      return 0.5 * (Math.sin (2.0 * Math.PI * k / compression) + 1.0);
+   }
+}
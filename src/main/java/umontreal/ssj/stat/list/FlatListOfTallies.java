@@ -0,0 +1,156 @@
+/*
+ * Class:        FlatListOfTallies
+ * Description:  List of tallies stored in flat primitive arrays
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package umontreal.ssj.stat.list;
+
+import umontreal.ssj.stat.Tally;
+import umontreal.ssj.stat.TallyArray;
+
+/**
+ * A list of tallies of fixed size whose counters are stored in a
+ * @ref umontreal.ssj.stat.TallyArray instead of individual
+ * @ref umontreal.ssj.stat.Tally objects. This saves memory and makes
+ * #add(double[]) much faster for lists containing many tallies, while
+ * giving the same results as  ListOfTallies.createWithTally. The elements
+ * of the list are views returned by  umontreal.ssj.stat.TallyArray.view,
+ * created when they are first requested; see this method for the
+ * settings kept by the views. They can be used for reports, or to add
+ * observations to a single tally, but the list itself cannot be modified.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class FlatListOfTallies extends ListOfTallies<Tally> {
+
+   private TallyArray tallies;
+
+   /**
+    * Constructs a new list of `size` tallies.
+    *  @param size         the size of the list.
+    */
+   public FlatListOfTallies (int size) {
+      this (null, size);
+   }
+
+   /**
+    * Constructs a new list of `size` tallies, with name `name`.
+    *  @param name         the name of the new list.
+    *  @param size         the size of the list.
+    */
+   public FlatListOfTallies (String name, int size) {
+      super (name);
+      tallies = new TallyArray (size);
+      setProbeList (tallies.asList());
+   }
+
+   /**
+    * Returns the array containing the counters of the tallies of this
+    * list.
+    *  @return the array of tallies
+    */
+   public TallyArray getTallyArray() {
+      return tallies;
+   }
+
+   public void init() {
+      tallies.init();
+   }
+
+   /**
+    * Adds the observation `x[i]` in tally `i` of this list, as in
+    * ListOfTallies.add(double[]).
+    *  @param x            the array of observations.
+    *  @exception NullPointerException if `x` is `null`.
+    *  @exception IllegalArgumentException if the length of `x` does not
+    * correspond to `size()`.
+    */
+   public void add (double[] x) {
+      if (x.length != tallies.size())
+         throw new IllegalArgumentException
+            ("Incompatible array length: given " +
+            x.length + ", required " + tallies.size());
+      if (collect)
+         tallies.add (x);
+      notifyListeners (x);
+   }
+
+   public void merge (ListOfTallies<? extends Tally> other) {
+      if (!(other instanceof FlatListOfTallies)) {
+         super.merge (other);
+         return;
+      }
+      if (collect)
+         tallies.merge (((FlatListOfTallies) other).tallies);
+   }
+
+   public int numberObs() {
+      if (tallies.size() == 0)
+         return 0;
+      long n = tallies.numberObs (0);
+      return n < Integer.MAX_VALUE ? (int) n : Integer.MAX_VALUE;
+   }
+
+   public boolean areAllNumberObsEqual() {
+      return tallies.areAllNumberObsEqual();
+   }
+
+   public void sum (double[] s) {
+      if (s.length != tallies.size())
+         throw new IllegalArgumentException
+            ("Invalid length of the given array: given length is " +
+             s.length + ", required length is " + tallies.size());
+      for (int i = 0; i < s.length; i++)
+         s[i] = tallies.sum (i);
+   }
+
+   public void average (double[] r) {
+      for (int i = 0; i < tallies.size(); i++)
+         r[i] = tallies.average (i);
+   }
+
+   public void variance (double[] v) {
+      if (tallies.size() != v.length)
+         throw new IllegalArgumentException
+            ("Invalid length of given array");
+      for (int i = 0; i < v.length; i++)
+         v[i] = tallies.variance (i);
+   }
+
+   public void standardDeviation (double[] std) {
+      if (tallies.size() != std.length)
+         throw new IllegalArgumentException
+            ("Invalid length of given array");
+      for (int i = 0; i < std.length; i++)
+         std[i] = Math.sqrt (tallies.variance (i));
+   }
+
+   /**
+    * Clones this object and its counters.
+    */
+   public FlatListOfTallies clone() {
+      FlatListOfTallies ta = (FlatListOfTallies)super.clone();
+      ta.tallies = tallies.clone();
+      ta.setProbeList (ta.tallies.asList());
+      return ta;
+   }
+}
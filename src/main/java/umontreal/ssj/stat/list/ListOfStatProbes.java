@@ -103,6 +103,17 @@ public class ListOfStatProbes<E extends StatProbe>
       this.name = name;
    }
 
+   /**
+    * Replaces the probes of this list by the elements of `probes`, which
+    * becomes the backing list of this object; any modification of this
+    * list is made on `probes`. This can be used by subclasses which create
+    * their probes on demand; `probes` should implement `RandomAccess`.
+    *  @param probes       the new backing list of probes.
+    */
+   protected void setProbeList (List<E> probes) {
+      this.probes = probes;
+   }
+
    /**
     * Determines if this list of statistical probes is modifiable, i.e.,
     * if probes can be added or removed. Any list of statistical probes is
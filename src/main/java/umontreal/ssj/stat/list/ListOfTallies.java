@@ -128,6 +128,31 @@ public class ListOfTallies<E extends Tally> extends ListOfStatProbes<E> {
          notifyListeners (x);
    }
 
+   /**
+    * Merges each tally of `other` in the corresponding tally of this list,
+    * using  umontreal.ssj.stat.Tally.merge. Lists of tallies filled
+    * separately, e.g., by different threads, can thus be combined with
+    * the same results as a single list receiving all the observations, up
+    * to rounding errors. Nothing is done if collecting is turned OFF.
+    *  @param other        the list whose observations are added
+    *  @exception IllegalArgumentException if the size of `other` does not
+    * correspond to `size()`.
+    */
+   public void merge (ListOfTallies<? extends Tally> other) {
+      int l = size();
+      if (other.size() != l)
+         throw new IllegalArgumentException
+            ("Incompatible list size: given " +
+            other.size() + ", required " + l);
+      if (collect)
+         for (int i = 0; i < l; i++) {
+            Tally ta = get (i);
+            Tally tb = other.get (i);
+            if (ta != null && tb != null)
+               ta.merge (tb);
+         }
+   }
+
    /**
     * Assuming that each tally in this list contains the same number of
     * observations, returns the number of observations in tally&nbsp;0, or
@@ -213,6 +213,49 @@ public void add (double[] x) {
    }
 
 
+   /**
+    * Merges the tallies of `other`, which must also be a list of tallies
+    * with covariance, with those of this list as in
+    * ListOfTallies.merge, and also merges the sums of products used to
+    * estimate the covariances, with the pairwise update used for the
+    * variances.
+    *  @param other        the list whose observations are added
+    *  @exception IllegalArgumentException if `other` is not a
+    * `ListOfTalliesWithCovariance` with the same size.
+    */
+   public void merge (ListOfTallies<? extends Tally> other) {
+      if (!(other instanceof ListOfTalliesWithCovariance))
+         throw new IllegalArgumentException
+            ("Cannot merge with a list of tallies without covariance");
+      ListOfTalliesWithCovariance<?> o = (ListOfTalliesWithCovariance<?>) other;
+      int l = size();
+      if (o.size() != l)
+         throw new IllegalArgumentException
+            ("Incompatible list size: given " + o.size() + ", required " + l);
+      if (!collect)
+         return;
+      int n1 = numberObs();
+      int n2 = o.numberObs();
+      if (n2 > 0) {
+         if (isStable) {
+            double n = (double) n1 + n2;
+            for (int i1 = 0; i1 < l - 1; i1++) {
+               double d1 = o.curAverages[i1] - curAverages[i1];
+               for (int i2 = i1 + 1; i2 < l; i2++)
+                  curSum2[i1][i2 - i1 - 1] += o.curSum2[i1][i2 - i1 - 1] +
+                     d1 * (o.curAverages[i2] - curAverages[i2]) * (n1 / n) * n2;
+            }
+            for (int i = 0; i < l; i++)
+               curAverages[i] += (o.curAverages[i] - curAverages[i]) * (n2 / n);
+         }
+         else
+            for (int i1 = 0; i1 < l - 1; i1++)
+               for (int i2 = i1 + 1; i2 < l; i2++)
+                  sxy[i1][i2 - i1 - 1] += o.sxy[i1][i2 - i1 - 1];
+      }
+      super.merge (other);
+   }
+
    public void add (DoubleMatrix1D x) {
       x.toArray (tempArray);
       add (tempArray);
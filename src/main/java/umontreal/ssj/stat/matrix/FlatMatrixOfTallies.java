@@ -0,0 +1,244 @@
+/*
+ * Class:        FlatMatrixOfTallies
+ * Description:  Matrix of tallies stored in flat primitive arrays
+ * Environment:  Java
+ * Software:     SSJ
+ * Copyright (C) 2001  Pierre L'Ecuyer and Universite de Montreal
+ * Organization: DIRO, Universite de Montreal
+ * @author
+ * @since
+
+ * SSJ is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License (GPL) as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * any later version.
+
+ * SSJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * A copy of the GNU General Public License is available at
+   <a href="http://www.gnu.org/licenses">GPL licence site</a>.
+ */
+package umontreal.ssj.stat.matrix;
+import umontreal.ssj.stat.Tally;
+import umontreal.ssj.stat.TallyArray;
+import java.util.Iterator;
+import cern.colt.matrix.DoubleMatrix2D;
+import cern.colt.matrix.impl.DenseDoubleMatrix2D;
+
+/**
+ * A matrix of tallies whose counters are stored, in row-major order, in a
+ * @ref umontreal.ssj.stat.TallyArray instead of individual
+ * @ref umontreal.ssj.stat.Tally objects. The methods
+ * #add(DoubleMatrix2D) and  #add(double[][]) then update flat arrays of
+ * primitive values, and give the same results as a matrix created by
+ * MatrixOfTallies.createWithTally. Each element of the matrix is a view
+ * returned by  umontreal.ssj.stat.TallyArray.view, created when it is
+ * first requested; see this method for the settings kept by the views.
+ * The elements and the dimensions of the matrix cannot be changed.
+ *
+ * <div class="SSJ-bigskip"></div>
+ */
+public class FlatMatrixOfTallies extends MatrixOfTallies<Tally> {
+
+   private TallyArray tallies;
+   private double[] row;
+
+   /**
+    * Constructs a new unnamed matrix of tallies with `numRows` rows, and
+    * `numColumns` columns.
+    *  @param numRows      the number of rows in the matrix.
+    *  @param numColumns   the number of columns in the matrix.
+    *  @exception NegativeArraySizeException if `numRows` or `numColumns`
+    * are negative.
+    */
+   public FlatMatrixOfTallies (int numRows, int numColumns) {
+      this (null, numRows, numColumns);
+   }
+
+   /**
+    * Constructs a new matrix of tallies with name `name`, `numRows` rows,
+    * and `numColumns` columns.
+    *  @param name         the global name of the matrix.
+    *  @param numRows      the number of rows in the matrix.
+    *  @param numColumns   the number of columns in the matrix.
+    *  @exception NegativeArraySizeException if `numRows` or `numColumns`
+    * are negative.
+    */
+   public FlatMatrixOfTallies (String name, int numRows, int numColumns) {
+      super (name, numRows, numColumns);
+      tallies = new TallyArray (numRows*numColumns);
+   }
+
+   /**
+    * Returns the array containing the counters of the tallies of this
+    * matrix, in row-major order.
+    *  @return the array of tallies
+    */
+   public TallyArray getTallyArray() {
+      return tallies;
+   }
+
+   public Tally get (int r, int c) {
+      if (r < 0 || r >= rows())
+         throw new ArrayIndexOutOfBoundsException
+            ("Row index out of bounds: " + r);
+      if (c < 0 || c >= columns())
+         throw new ArrayIndexOutOfBoundsException
+            ("Column index out of bounds: " + c);
+      return tallies.view (columns()*r + c);
+   }
+
+   public Iterator<Tally> iterator() {
+      return tallies.asList().iterator();
+   }
+
+   /**
+    * Throws an `UnsupportedOperationException`, because the elements of
+    * this matrix are views of its array of tallies.
+    */
+   public void set (int r, int c, Tally probe) {
+      throw new UnsupportedOperationException
+         ("Cannot change an element of a flat matrix of tallies");
+   }
+
+   /**
+    * Throws an `UnsupportedOperationException`, because the dimensions
+    * of this matrix are fixed.
+    */
+   public void setRows (int newRows) {
+      throw new UnsupportedOperationException
+         ("Cannot resize a flat matrix of tallies");
+   }
+
+   /**
+    * Throws an `UnsupportedOperationException`, because the dimensions
+    * of this matrix are fixed.
+    */
+   public void setColumns (int newColumns) {
+      throw new UnsupportedOperationException
+         ("Cannot resize a flat matrix of tallies");
+   }
+
+   public void init() {
+      tallies.init();
+   }
+
+   public void add (DoubleMatrix2D x) {
+      int rows = rows ();
+      int columns = columns ();
+      if (x.rows () != rows || x.columns () != columns)
+         throw new IllegalArgumentException (
+               "Incompatible matrix dimensions: given " + x.rows () + "x"
+                     + x.columns () + ", required " + rows () + "x"
+                     + columns ());
+      if (collect) {
+         if (row == null)
+            row = new double[rows*columns];
+         for (int r = 0; r < rows; r++)
+            for (int c = 0; c < columns; c++)
+               row[columns*r + c] = x.getQuick (r, c);
+         tallies.add (row);
+      }
+      notifyListeners (x);
+   }
+
+   public void add (double[][] x) {
+      int rows = rows ();
+      int columns = columns ();
+      if (x.length != rows)
+         throw new IllegalArgumentException (
+               "Incompatible number of rows: given " + x.length + ", required "
+                     + rows);
+      for (int r = 0; r < rows; r++)
+         if (x[r].length != columns)
+            throw new IllegalArgumentException (
+                  "Incompatible number of columns in row " + r + ": given "
+                        + x[r].length + ", but required " + columns);
+      if (collect)
+         tallies.add (x);
+      notifyListeners (new DenseDoubleMatrix2D (x));
+   }
+
+   /**
+    * Adds the observations collected by the tallies of `other` to the
+    * corresponding tallies of this matrix.
+    *  @param other        the matrix to merge.
+    *  @exception IllegalArgumentException if the dimensions of `other` do
+    * not correspond to the dimensions of this matrix.
+    */
+   public void merge (FlatMatrixOfTallies other) {
+      if (other.rows () != rows () || other.columns () != columns ())
+         throw new IllegalArgumentException (
+               "Incompatible matrix dimensions: given " + other.rows () + "x"
+                     + other.columns () + ", required " + rows () + "x"
+                     + columns ());
+      if (collect)
+         tallies.merge (other.tallies);
+   }
+
+   public int numberObs () {
+      if (tallies.size() == 0)
+         return 0;
+      long n = tallies.numberObs (0);
+      return n < Integer.MAX_VALUE ? (int) n : Integer.MAX_VALUE;
+   }
+
+   public boolean areAllNumberObsEqual () {
+      return tallies.areAllNumberObsEqual();
+   }
+
+   public void sum (DoubleMatrix2D m) {
+      checkDimensions (m);
+      final int nc = columns ();
+      for (int r = 0; r < rows (); r++)
+         for (int c = 0; c < nc; c++)
+            m.setQuick (r, c, tallies.sum (nc*r + c));
+   }
+
+   public void average (DoubleMatrix2D m) {
+      final int nc = columns ();
+      for (int i = 0; i < m.rows (); i++)
+         for (int j = 0; j < m.columns (); j++)
+            m.setQuick (i, j, tallies.average (nc*i + j));
+   }
+
+   public void variance (DoubleMatrix2D m) {
+      checkDimensions (m);
+      final int nc = columns ();
+      for (int r = 0; r < rows (); r++)
+         for (int c = 0; c < nc; c++)
+            m.setQuick (r, c, tallies.variance (nc*r + c));
+   }
+
+   public void standardDeviation (DoubleMatrix2D m) {
+      checkDimensions (m);
+      final int nc = columns ();
+      for (int r = 0; r < rows (); r++)
+         for (int c = 0; c < nc; c++)
+            m.setQuick (r, c, Math.sqrt (tallies.variance (nc*r + c)));
+   }
+
+   private void checkDimensions (DoubleMatrix2D m) {
+      if (m.rows () != rows ())
+         throw new IllegalArgumentException (
+               "Invalid number of rows in the given matrix: required "
+                     + rows () + " but found " + m.rows ());
+      if (m.columns () != columns ())
+         throw new IllegalArgumentException (
+               "Invalid number of columns in the given matrix: required "
+                     + columns () + " but found " + m.columns ());
+   }
+
+   /**
+    * Clones this object and its counters.
+    */
+   public FlatMatrixOfTallies clone() {
+      FlatMatrixOfTallies m = (FlatMatrixOfTallies)super.clone ();
+      m.tallies = tallies.clone();
+      m.row = null;
+      return m;
+   }
+}
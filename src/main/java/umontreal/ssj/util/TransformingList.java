@@ -75,7 +75,7 @@ public abstract OE convertFromInnerType (IE e);
 
    public void add (int index, OE element) {
       IE fe = convertToInnerType (element);
-      fromList.add (fe);
+      fromList.add (index, fe);
    }
 
    @Override
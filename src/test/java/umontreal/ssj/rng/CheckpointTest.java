@@ -0,0 +1,178 @@
+package umontreal.ssj.rng;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that `readState` restores exactly the current position and the
+ * stream and substream starting points saved by `writeState`.
+ */
+public class CheckpointTest {
+
+   private static RandomStreamBase[] generators() {
+      return new RandomStreamBase[] {
+         new MRG32k3a(), new MRG32k3aL(), new MRG31k3p(), new LFSR113(),
+         new LFSR258(), new WELL512(), new WELL607(), new WELL1024(),
+         new F2NL607(), new MT19937 (new LFSR113()), new Philox4x32(),
+         new RandRijndael() };
+   }
+
+   // Advances s to an arbitrary state with non-default flags.
+   private static void advance (RandomStreamBase s) {
+      s.resetNextSubstream();
+      s.resetNextSubstream();
+      for (int i = 0; i < 1237; i++)
+         s.nextDouble();
+      s.increasedPrecision (true);
+      s.nextDouble();
+   }
+
+   private static void checkSame (RandomStreamBase a, RandomStreamBase b) {
+      String name = a.getClass().getSimpleName();
+      for (int i = 0; i < 100; i++)
+         assertEquals (a.nextDouble(), b.nextDouble(), 0.0, name);
+      a.resetStartSubstream();
+      b.resetStartSubstream();
+      assertEquals (a.nextDouble(), b.nextDouble(), 0.0, name);
+      a.resetNextSubstream();
+      b.resetNextSubstream();
+      assertEquals (a.nextDouble(), b.nextDouble(), 0.0, name);
+      a.resetStartStream();
+      b.resetStartStream();
+      assertEquals (a.nextDouble(), b.nextDouble(), 0.0, name);
+   }
+
+   @Test
+   public void testDataOutput() throws IOException {
+      RandomStreamBase[] saved = generators();
+      RandomStreamBase[] restored = generators();
+      for (int k = 0; k < saved.length; k++) {
+         advance (saved[k]);
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         saved[k].writeState (new DataOutputStream (bytes));
+         restored[k].readState (new DataInputStream
+            (new ByteArrayInputStream (bytes.toByteArray())));
+         checkSame (saved[k], restored[k]);
+      }
+   }
+
+   @Test
+   public void testByteBuffer() {
+      RandomStreamBase[] saved = generators();
+      RandomStreamBase[] restored = generators();
+      ByteBuffer buf = ByteBuffer.allocate (1 << 16);
+      for (RandomStreamBase s : saved) {
+         advance (s);
+         s.writeState (buf);
+      }
+      buf.flip();
+      for (RandomStreamBase s : restored)
+         s.readState (buf);
+      assertFalse (buf.hasRemaining());
+      for (int k = 0; k < saved.length; k++)
+         checkSame (saved[k], restored[k]);
+      buf.rewind();
+      assertThrows (UncheckedIOException.class,
+                    () -> new LFSR113().readState (buf));
+   }
+
+   @Test
+   @SuppressWarnings("deprecation")
+   public void testRandomStreamManager() throws IOException {
+      RandomStreamManager saved = new RandomStreamManager();
+      RandomStreamManager restored = new RandomStreamManager();
+      for (int k = 0; k < 1000; k++) {
+         saved.add (new MRG32k3a()).nextDouble();
+         restored.add (new MRG32k3a());
+      }
+      saved.add (new RandMrg()).nextDouble();
+      restored.add (new RandMrg());
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      saved.saveStates (new DataOutputStream (bytes));
+      restored.restoreStates (new DataInputStream
+         (new ByteArrayInputStream (bytes.toByteArray())));
+      for (int k = 0; k <= 1000; k++) {
+         RandomStream a = (RandomStream) saved.getStreams().get (k);
+         RandomStream b = (RandomStream) restored.getStreams().get (k);
+         a.resetNextSubstream();
+         b.resetNextSubstream();
+         assertEquals (a.nextDouble(), b.nextDouble(), 0.0);
+      }
+   }
+
+   private static RandomStream[] wrappers() {
+      return new RandomStream[] {
+         new AntitheticStream (new MRG32k3a()),
+         new BakerTransformedStream (new LFSR113()),
+         new TruncatedRandomStream (new WELL512(), 0.25, 0.5),
+         new RandomStreamWithCache (new AntitheticStream (new MRG31k3p())),
+         new RandomStreamWithBoundedCache (new MRG32k3a(), 64),
+         new RandomStreamWithBoundedCache (new LFSR258(), 16, true) };
+   }
+
+   @Test
+   public void testWrappers() throws IOException {
+      RandomStream[] saved = wrappers();
+      RandomStream[] restored = wrappers();
+      RandomStreamManager m1 = new RandomStreamManager();
+      RandomStreamManager m2 = new RandomStreamManager();
+      for (int k = 0; k < saved.length; k++) {
+         m1.add (saved[k]);
+         m2.add (restored[k]);
+         saved[k].resetNextSubstream();
+         for (int i = 0; i < 300; i++)
+            saved[k].nextDouble();
+      }
+      RandomStreamWithCache cache = (RandomStreamWithCache) saved[3];
+      cache.setCacheIndex (100);
+      RandomStreamWithBoundedCache bounded =
+         (RandomStreamWithBoundedCache) saved[4];
+      bounded.rewind (250);
+      bounded.mark();
+      bounded.rewind (260);
+      RandomStreamWithBoundedCache spilled =
+         (RandomStreamWithBoundedCache) saved[5];
+      spilled.rewind (10);
+      try {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         m1.saveStates (new DataOutputStream (bytes));
+         m2.restoreStates (new DataInputStream
+            (new ByteArrayInputStream (bytes.toByteArray())));
+         RandomStreamWithCache cache2 = (RandomStreamWithCache) restored[3];
+         assertEquals (100, cache2.getCacheIndex());
+         assertEquals (300, cache2.getNumCachedValues());
+         assertEquals (cache.getCachedValues(), cache2.getCachedValues());
+         RandomStreamWithBoundedCache bounded2 =
+            (RandomStreamWithBoundedCache) restored[4];
+         assertEquals (260, bounded2.getPosition());
+         assertEquals (300, bounded2.getNumGenerated());
+         bounded.rewind();
+         bounded2.rewind();
+         assertEquals (250, bounded2.getPosition());
+         for (int k = 0; k < saved.length; k++) {
+            String name = saved[k].getClass().getSimpleName();
+            // replays the caches, then generates new values
+            for (int i = 0; i < 400; i++)
+               assertEquals (saved[k].nextDouble(), restored[k].nextDouble(),
+                             0.0, name);
+            saved[k].resetStartSubstream();
+            restored[k].resetStartSubstream();
+            assertEquals (saved[k].nextDouble(), restored[k].nextDouble(),
+                          0.0, name);
+         }
+
+         // the capacity of a bounded cache must match
+         ByteArrayOutputStream other = new ByteArrayOutputStream();
+         bounded.writeState (new DataOutputStream (other));
+         assertThrows (IOException.class,
+            () -> new RandomStreamWithBoundedCache (new MRG32k3a(), 32)
+                  .readState (new DataInputStream
+                     (new ByteArrayInputStream (other.toByteArray()))));
+      } finally {
+         spilled.close();
+         ((RandomStreamWithBoundedCache) restored[5]).close();
+      }
+   }
+}
@@ -0,0 +1,60 @@
+package umontreal.ssj.rng;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import umontreal.ssj.stat.Tally;
+
+/**
+ * Tests the class {@link umontreal.ssj.rng.Philox4x32}.
+ */
+public class Philox4x32Test {
+
+   // Known-answer tests of the Random123 distribution (kat_vectors).
+   @Test
+   public void testKnownAnswers() {
+      int[] out = new int[4];
+      Philox4x32.philox (0, 0, 0, 0, 0, 0, out);
+      assertArrayEquals (new int[] {0x6627e8d5, 0xe169c58d,
+                                    0xbc57ac4c, 0x9b00dbd8}, out);
+      Philox4x32.philox (-1, -1, -1, -1, -1, -1, out);
+      assertArrayEquals (new int[] {0x408f276d, 0x41c83b0e,
+                                    0xa20bc7c6, 0x6d5451fd}, out);
+      Philox4x32.philox (0x243f6a88, 0x85a308d3, 0x13198a2e, 0x03707344,
+                         0xa4093822, 0x299f31d0, out);
+      assertArrayEquals (new int[] {0xd16cfe09, 0x94fdcceb,
+                                    0x5001e420, 0x24126ea1}, out);
+   }
+
+   @Test
+   public void testPositions() {
+      Philox4x32 seq = Philox4x32.streamAt (7);
+      for (int k = 0; k < 3; k++)
+         seq.resetNextSubstream();
+      for (int i = 0; i < 10; i++)
+         seq.nextDouble();
+      Philox4x32 seek = Philox4x32.streamAt (7);
+      seek.resetToSubstream (3);
+      seek.resetToPosition (10);
+      assertArrayEquals (seq.getState(), seek.getState());
+      for (int i = 0; i < 10; i++)
+         assertEquals (seq.nextDouble(), seek.nextDouble(), 0.0);
+      seek.resetToPosition (20);
+      assertArrayEquals (seq.getState(), seek.getState());
+   }
+
+   @Test
+   public void testUniformity() {
+      Philox4x32 s = new Philox4x32();
+      Tally t = new Tally();
+      double[] u = new double[1000];
+      for (int i = 0; i < 1000; i++) {
+         s.nextArrayOfDouble (u, 0, u.length);
+         for (double x : u) {
+            assertTrue (x > 0.0 && x < 1.0);
+            t.add (x);
+         }
+      }
+      assertEquals (0.5, t.average(), 0.002);
+      assertEquals (1.0 / 12.0, t.variance(), 0.001);
+   }
+}
@@ -0,0 +1,128 @@
+package umontreal.ssj.rng;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the specialized `nextArrayOfDouble` and `nextArrayOfInt`
+ * methods return exactly the same numbers as successive calls to
+ * `nextDouble` and `nextInt`.
+ */
+public class RandomStreamBulkTest {
+
+   private static RandomStreamBase[] streams() {
+      return new RandomStreamBase[] { new MRG32k3a(), new MRG31k3p(),
+                                      new Philox4x32(), new WELL607(),
+                                      new WELL1024(),
+                                      new MT19937 (new LFSR113()) };
+   }
+
+   private static void checkDoubles (RandomStreamBase s, int n) {
+      RandomStreamBase ref = s.clone();
+      double[] u = new double[n + 3];
+      s.nextArrayOfDouble (u, 2, n);
+      for (int i = 0; i < n; i++)
+         assertEquals (ref.nextDouble(), u[i + 2], 0.0,
+                       s.getClass().getSimpleName() + " at " + i);
+      assertEquals (ref.nextDouble(), s.nextDouble(), 0.0);
+   }
+
+   private static void checkInts (RandomStreamBase s, int i, int j, int n) {
+      RandomStreamBase ref = s.clone();
+      int[] v = new int[n + 1];
+      s.nextArrayOfInt (i, j, v, 1, n);
+      for (int k = 0; k < n; k++)
+         assertEquals (ref.nextInt (i, j), v[k + 1],
+                       s.getClass().getSimpleName() + " at " + k);
+      assertEquals (ref.nextDouble(), s.nextDouble(), 0.0);
+   }
+
+   @Test
+   public void testNextArrayOfDouble() {
+      for (RandomStreamBase s : streams()) {
+         for (int n = 0; n < 8; n++)
+            checkDoubles (s, n);
+         checkDoubles (s, 1000);
+         s.increasedPrecision (true);
+         checkDoubles (s, 1001);
+         s.anti = true;
+         checkDoubles (s, 1002);
+      }
+   }
+
+   @Test
+   public void testNextArrayOfInt() {
+      for (RandomStreamBase s : streams()) {
+         checkInts (s, 0, 9, 1000);
+         checkInts (s, -5, Integer.MAX_VALUE - 1, 1000);
+         s.increasedPrecision (true);
+         checkInts (s, 3, 7, 1000);
+         s.anti = true;
+         checkInts (s, 3, 7, 1000);
+      }
+   }
+
+   @Test
+   public void testUnbiasedIntegers() {
+      RandomStreamBase[] gens = { new MRG32k3a(), new LFSR113(),
+                                  new LFSR258(), new WELL512(),
+                                  new WELL607(), new WELL1024(),
+                                  new MT19937 (new LFSR113()),
+                                  new Philox4x32() };
+      for (RandomStreamBase s : gens) {
+         s.unbiasedIntegers (true);
+         assertTrue (s.isUnbiasedIntegers());
+         checkInts (s, 0, 9, 1000);
+         checkInts (s, Integer.MIN_VALUE, Integer.MAX_VALUE, 100);
+         // range 2^31 + 1, where about half of the 32-bit words are
+         // rejected: 1000 integers use about 2000 words
+         checkInts (s, -1, Integer.MAX_VALUE, 100);
+         RandomStreamBase ref = s.clone();
+         for (int k = 0; k < 1000; k++)
+            s.nextInt (-1, Integer.MAX_VALUE);
+         int next = s.nextBits();
+         int words = 0;
+         while (ref.nextBits() != next)
+            words++;
+         assertTrue (words > 1800 && words < 2200,
+                     s.getClass().getSimpleName() + ": " + words);
+         int[] count = new int[3];
+         for (int k = 0; k < 30000; k++)
+            count[s.nextInt (-1, 1) + 1]++;
+         for (int c : count)
+            assertTrue (Math.abs (c - 10000) < 500,
+                        s.getClass().getSimpleName() + ": " + c);
+         for (int k = 0; k < 1000; k++) {
+            long x = s.nextLong (-3L, 1L << 40);
+            assertTrue (x >= -3L && x <= 1L << 40);
+            assertEquals (7L, s.nextLong (7L, 7L));
+            // range 2^63 + 1, where about half of the 64-bit words are
+            // rejected
+            assertTrue (s.nextLong (-1L, Long.MAX_VALUE) >= -1L);
+         }
+      }
+   }
+
+   @Test
+   public void testRandRijndaelBackends() {
+      RandRijndael jce = new RandRijndael();
+      RandRijndael ref = jce.clone();
+      ref.setUseJCE (false);
+      assertTrue (jce.getUseJCE());
+      for (int k = 0; k < 3; k++) {
+         for (int i = 0; i < 1000; i++)
+            assertEquals (ref.nextDouble(), jce.nextDouble(), 0.0);
+         assertArrayEquals (ref.getState(), jce.getState());
+         RandRijndael c = jce.clone();
+         double x = jce.nextDouble();
+         assertEquals (x, c.nextDouble(), 0.0);
+         assertEquals (ref.nextDouble(), x, 0.0);
+         ref.resetNextSubstream();
+         jce.resetNextSubstream();
+      }
+      jce.setUseJCE (false);
+      ref.setUseJCE (true);
+      for (int i = 0; i < 1000; i++)
+         assertEquals (ref.nextDouble(), jce.nextDouble(), 0.0);
+   }
+}
@@ -0,0 +1,59 @@
+package umontreal.ssj.rng;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the class {@link umontreal.ssj.rng.RandomStreamWithBoundedCache}.
+ */
+public class RandomStreamWithBoundedCacheTest {
+
+   private static double[] reference (int n) {
+      double[] u = new double[n];
+      new MRG32k3a().nextArrayOfDouble (u, 0, n);
+      return u;
+   }
+
+   @Test
+   public void testReplayWindow() {
+      MRG32k3a.setPackageSeed (new long[] {12345, 12345, 12345,
+                                           12345, 12345, 12345});
+      double[] ref = reference (1000);
+      MRG32k3a.setPackageSeed (new long[] {12345, 12345, 12345,
+                                           12345, 12345, 12345});
+      RandomStreamWithBoundedCache s =
+         new RandomStreamWithBoundedCache (new MRG32k3a(), 100);
+      for (int i = 0; i < 500; i++)
+         assertEquals (ref[i], s.nextDouble(), 0.0);
+      assertEquals (400, s.getOldestPosition());
+      s.rewind (420);
+      double[] u = new double[200];
+      s.nextArrayOfDouble (u, 0, u.length);
+      for (int i = 0; i < u.length; i++)
+         assertEquals (ref[420 + i], u[i], 0.0);
+      assertThrows (IllegalStateException.class, () -> s.rewind (10));
+   }
+
+   @Test
+   public void testSpill() {
+      MRG32k3a.setPackageSeed (new long[] {12345, 12345, 12345,
+                                           12345, 12345, 12345});
+      double[] ref = reference (5000);
+      MRG32k3a.setPackageSeed (new long[] {12345, 12345, 12345,
+                                           12345, 12345, 12345});
+      RandomStreamWithBoundedCache s =
+         new RandomStreamWithBoundedCache (new MRG32k3a(), 64, true);
+      double[] u = new double[5000];
+      s.nextArrayOfDouble (u, 0, 3000);
+      long m = s.mark();
+      s.nextArrayOfDouble (u, 3000, 2000);
+      assertArrayEquals (ref, u, 0.0);
+      s.rewind();
+      assertEquals (m, s.getPosition());
+      assertEquals (ref[3000], s.nextDouble(), 0.0);
+      s.rewind (0);
+      s.nextArrayOfDouble (u, 0, 5000);
+      assertArrayEquals (ref, u, 0.0);
+      s.close();
+   }
+}
@@ -0,0 +1,71 @@
+package umontreal.ssj.rng;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that `resetToSubstream` and `streamAt` reach the same states as
+ * successive calls to `resetNextSubstream` and to the constructor.
+ */
+public class SubstreamSeekTest {
+
+   @Test
+   public void testMRG32k3aSubstream() {
+      MRG32k3a seq = new MRG32k3a();
+      MRG32k3a seek = seq.clone();
+      for (int k = 0; k <= 300; k++) {
+         seek.resetToSubstream (k);
+         assertArrayEquals (seq.getState(), seek.getState(), "substream " + k);
+         assertEquals (seq.nextDouble(), seek.nextDouble(), 0.0);
+         seq.resetNextSubstream();
+      }
+      // The substream after the last one sought must also be the same.
+      seek.resetNextSubstream();
+      assertArrayEquals (seq.getState(), seek.getState());
+   }
+
+   @Test
+   public void testMRG31k3pSubstream() {
+      MRG31k3p seq = new MRG31k3p();
+      MRG31k3p seek = seq.clone();
+      for (int k = 0; k <= 300; k++) {
+         seek.resetToSubstream (k);
+         assertArrayEquals (seq.getState(), seek.getState(), "substream " + k);
+         assertEquals (seq.nextDouble(), seek.nextDouble(), 0.0);
+         seq.resetNextSubstream();
+      }
+      seek.resetNextSubstream();
+      assertArrayEquals (seq.getState(), seek.getState());
+   }
+
+   @Test
+   public void testStreamAt() {
+      MRG32k3a.setPackageSeed (new long[] {1, 2, 3, 4, 5, 6});
+      MRG31k3p.setPackageSeed (new int[] {1, 2, 3, 4, 5, 6});
+      for (int k = 0; k < 50; k++) {
+         MRG32k3a a = new MRG32k3a();
+         assertArrayEquals (a.getState(), MRG32k3a.streamAt (k).getState());
+         MRG31k3p b = new MRG31k3p();
+         assertArrayEquals (b.getState(), MRG31k3p.streamAt (k).getState());
+      }
+      MRG32k3a.setPackageSeed (new long[] {12345, 12345, 12345,
+                                           12345, 12345, 12345});
+      MRG31k3p.setPackageSeed (new int[] {12345, 12345, 12345,
+                                          12345, 12345, 12345});
+   }
+
+   @Test
+   public void testParallelStreamAllocator() {
+      ParallelStreamAllocator alloc = new ParallelStreamAllocator (3);
+      MRG32k3a seq = MRG32k3a.streamAt (3 * 2 + 1);
+      for (int r = 0; r < 20; r++) {
+         assertArrayEquals (seq.getState(),
+                            alloc.getStream (2, 1, r).getState());
+         seq.resetNextSubstream();
+      }
+      RandomStreamFactory f = alloc.getFactory (1, 5);
+      for (int s = 0; s < 3; s++)
+         assertArrayEquals (alloc.getStream (1, s, 5).getState(),
+                            ((MRG32k3a) f.newInstance()).getState());
+   }
+}
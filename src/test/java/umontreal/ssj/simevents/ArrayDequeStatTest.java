@@ -0,0 +1,87 @@
+package umontreal.ssj.simevents;
+
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares an array-backed list with a linked list with statistics, under
+ * the same random operations, and checks the priority discipline.
+ */
+public class ArrayDequeStatTest {
+
+   @Test
+   public void testSameAsLinkedList() {
+      final Simulator sim = new Simulator();
+      sim.init();
+      final ArrayDequeStat<Integer> array = new ArrayDequeStat<Integer> (sim, "a");
+      final LinkedListStat<Integer> linked = new LinkedListStat<Integer> (sim, "l");
+      array.setStatCollecting (true);
+      linked.setStatCollecting (true);
+      final Random rand = new Random (12345);
+      new Event (sim) {
+         int n = 0;
+         public void actions() {
+            int op = rand.nextInt (6);
+            int v = n++;
+            if (op <= 1 || array.isEmpty()) {
+               array.addLast (v);
+               linked.addLast (v);
+            }
+            else if (op == 2) {
+               array.addFirst (v);
+               linked.addFirst (v);
+            }
+            else if (op == 3)
+               assertEquals (linked.removeFirst(), array.removeFirst());
+            else if (op == 4)
+               assertEquals (linked.removeLast(), array.removeLast());
+            else {
+               int i = rand.nextInt (array.size());
+               if (rand.nextBoolean())
+                  assertEquals (linked.remove (i), array.remove (i));
+               else {
+                  array.add (i, v);
+                  linked.add (i, v);
+               }
+            }
+            assertEquals (linked, array);
+            if (n < 5000)
+               schedule (rand.nextDouble());
+         }
+      }.schedule (0.0);
+      sim.start();
+      assertEquals (linked.statSojourn().numberObs(),
+                    array.statSojourn().numberObs());
+      assertEquals (linked.statSojourn().average(),
+                    array.statSojourn().average(), 1.0E-12);
+      assertEquals (linked.statSize().average(),
+                    array.statSize().average(), 1.0E-12);
+      assertEquals (linked.statSize().max(), array.statSize().max(), 0.0);
+      String report = array.report();
+      assertEquals (linked.report().replace ("LIST : l", "LIST : a"), report);
+      assertEquals (5, report.trim().split ("\\R").length);
+   }
+
+   @Test
+   public void testPriority() {
+      Simulator sim = new Simulator();
+      sim.init();
+      ArrayDequeStat<int[]> queue = new ArrayDequeStat<int[]> (sim,
+         new Comparator<int[]>() {
+            public int compare (int[] a, int[] b) {
+               return Integer.compare (a[0], b[0]);
+            }
+         }, "priority");
+      int[][] items = { {3, 0}, {1, 1}, {2, 2}, {1, 3}, {3, 4}, {0, 5} };
+      for (int[] item : items)
+         queue.add (item);
+      int[] expected = { 5, 1, 3, 2, 0, 4 };
+      for (int e : expected)
+         assertEquals (e, queue.removeFirst()[1]);
+      assertTrue (queue.isEmpty());
+      assertThrows (UnsupportedOperationException.class,
+                    () -> queue.addLast (new int[] {0, 0}));
+   }
+}
@@ -0,0 +1,104 @@
+package umontreal.ssj.simevents;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the Dormand-Prince integration of continuous variables against
+ * analytic solutions, and the times of the state events.
+ */
+public class ContinuousStateTest {
+
+   static class Decay extends Continuous {
+      double maxError = 0.0;
+      int steps = 0;
+
+      Decay (Simulator sim) { super (sim); }
+
+      public double derivative (double t) {
+         return -value();
+      }
+
+      public void afterEachStep() {
+         ++steps;
+         double t = simulator().time();
+         maxError = Math.max (maxError, Math.abs (value() - Math.exp (-t)));
+      }
+   }
+
+   static void stopAt (final Simulator sim, double time) {
+      new Event (sim) {
+         public void actions() { sim.stop(); }
+      }.schedule (time);
+   }
+
+   @Test
+   public void testDecay() {
+      final Simulator sim = new Simulator();
+      sim.init();
+      sim.continuousState().selectDormandPrince (1.0, 1.0E-10, 1.0E-10);
+      final Decay y = new Decay (sim);
+      final double[] crossing = { -1.0, -1.0 };
+      StateEvent half = new StateEvent (sim, StateEvent.DOWN) {
+         public double condition (double t) { return y.value() - 0.5; }
+         public void actions() {
+            crossing[0] = sim.time();
+            crossing[1] = y.value();
+         }
+      };
+      sim.continuousState().addStateEvent (half);
+      y.startInteg (1.0);
+      stopAt (sim, 5.0);
+      sim.start();
+      assertEquals (Math.log (2.0), crossing[0], 1.0E-9);
+      assertEquals (0.5, crossing[1], 1.0E-9);
+      assertTrue (y.maxError < 1.0E-8);
+      assertTrue (y.steps < 100);
+   }
+
+   @Test
+   public void testBouncingBall() {
+      final Simulator sim = new Simulator();
+      sim.init();
+      sim.continuousState().selectDormandPrince (10.0, 1.0E-9, 1.0E-9);
+      // height and speed of a ball falling from 4.9 under gravity 9.8
+      final ContinuousVector ball = new ContinuousVector (sim, 2) {
+         public void derivative (double t, double[] y, double[] dydt) {
+            dydt[0] = y[1];
+            dydt[1] = -9.8;
+         }
+      };
+      final List<Double> bounces = new ArrayList<Double>();
+      StateEvent ground = new StateEvent (sim, StateEvent.DOWN) {
+         public double condition (double t) { return ball.value (0); }
+         public void actions() {
+            bounces.add (sim.time());
+            ball.init (new double[] { 0.0, -0.5 * ball.value (1) });
+         }
+      };
+      sim.continuousState().addStateEvent (ground);
+      ball.startInteg (new double[] { 4.9, 0.0 });
+      stopAt (sim, 2.8);
+      sim.start();
+      // bounces at times 1, 2, 2.5, 2.75, ...
+      assertEquals (4, bounces.size());
+      assertEquals (1.0, bounces.get (0), 1.0E-8);
+      assertEquals (2.0, bounces.get (1), 1.0E-8);
+      assertEquals (2.5, bounces.get (2), 1.0E-8);
+      assertEquals (2.75, bounces.get (3), 1.0E-8);
+   }
+
+   @Test
+   public void testVectorNeedsDormandPrince() {
+      Simulator sim = new Simulator();
+      sim.continuousState().selectRungeKutta4 (0.1);
+      ContinuousVector v = new ContinuousVector (sim, 1) {
+         public void derivative (double t, double[] y, double[] dydt) {
+            dydt[0] = 1.0;
+         }
+      };
+      assertThrows (IllegalStateException.class, () -> v.startInteg());
+   }
+}
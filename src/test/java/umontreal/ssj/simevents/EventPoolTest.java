@@ -0,0 +1,101 @@
+package umontreal.ssj.simevents;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that executed events are recycled and reused, that events which
+ * reschedule themselves or are retained are not, and that the use of a
+ * recycled event is detected.
+ */
+public class EventPoolTest {
+
+   static class Departure extends RecyclableEvent {
+      int customer = -1;
+      int count = 0;
+
+      public void actions() {
+         ++count;
+      }
+
+      protected void reset() {
+         customer = -1;
+      }
+   }
+
+   static class Arrival extends Event {
+      EventPool<Departure> departures;
+      int n = 0;
+
+      Arrival (Simulator sim, EventPool<Departure> departures) {
+         super (sim);
+         this.departures = departures;
+      }
+
+      public void actions() {
+         Departure d = departures.get();
+         d.customer = n;
+         d.schedule (0.5);
+         if (++n < 1000)
+            schedule (1.0);
+      }
+   }
+
+   @Test
+   public void testReuse() {
+      Simulator sim = new Simulator();
+      EventPool<Departure> pool = sim.getEventPool (Departure.class,
+                                                    Departure::new);
+      assertSame (pool, sim.getEventPool (Departure.class, Departure::new));
+      new Arrival (sim, pool).schedule (0.0);
+      sim.start();
+      assertEquals (1, pool.getNumCreated());
+      assertEquals (999, pool.getNumReused());
+      assertEquals (1, pool.size());
+      Departure d = pool.get();
+      assertSame (sim, d.simulator());
+      assertEquals (-1, d.customer);
+      assertEquals (1000, d.count);
+   }
+
+   @Test
+   public void testRetainAndReschedule() {
+      Simulator sim = new Simulator();
+      EventPool<Departure> pool = new EventPool<Departure> (sim,
+         () -> new Departure() {
+            public void actions() {
+               if (++count < 3)
+                  schedule (1.0);
+            }
+         });
+      Departure d = pool.get();
+      d.schedule (1.0);
+      sim.start();
+      assertEquals (3, d.count);
+      assertTrue (d.isRecycled());
+
+      d = pool.get();
+      d.retain();
+      d.schedule (1.0);
+      sim.start();
+      assertFalse (d.isRecycled());
+      d.recycle();
+      assertTrue (d.isRecycled());
+      assertThrows (IllegalStateException.class, d::recycle);
+   }
+
+   @Test
+   public void testDebug() {
+      Simulator sim = new Simulator();
+      EventPool<Departure> pool = new EventPool<Departure> (sim,
+                                                            Departure::new);
+      pool.setDebug (true);
+      Departure d = pool.get();
+      d.schedule (1.0);
+      sim.start();
+      assertTrue (d.isRecycled());
+      assertNotSame (d, pool.get());
+      assertThrows (IllegalStateException.class, () -> d.schedule (1.0));
+      assertThrows (IllegalStateException.class, d::cancel);
+   }
+}
@@ -0,0 +1,116 @@
+package umontreal.ssj.simevents;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the counters collected by an instrumented simulator and their
+ * registration as an MBean.
+ */
+public class SimulatorMetricsTest {
+
+   static class Tick extends Event {
+      int n = 0;
+      Event timeout;
+
+      Tick (Simulator sim, Event timeout) {
+         super (sim);
+         this.timeout = timeout;
+      }
+
+      public void actions() {
+         if (++n < 100)
+            schedule (1.0);
+         timeout.reschedule (5.0);
+      }
+   }
+
+   static class Timeout extends Event {
+      Timeout (Simulator sim) {
+         super (sim);
+      }
+
+      public void actions() {
+         simulator().stop();
+      }
+   }
+
+   @Test
+   public void testCounters() throws Exception {
+      Simulator sim = new Simulator();
+      assertNull (sim.getMetrics());
+      sim.enableMetrics (true);
+      SimulatorMetrics m = sim.getMetrics();
+      Timeout timeout = new Timeout (sim);
+      timeout.schedule (10.0);
+      new Tick (sim, timeout).schedule (0.0);
+      Timeout other = new Timeout (sim);
+      other.schedule (50.0);
+      other.cancel();
+      sim.start();
+
+      assertEquals (101, m.getNumExecuted());
+      assertEquals (102, m.getNumScheduled());
+      assertEquals (100, m.getNumRescheduled());
+      assertEquals (1, m.getNumCancelled());
+      assertEquals (3, m.getMaxListSize());
+      assertEquals (0, m.getListSize());
+      assertEquals (100, m.getActionsCount (Tick.class));
+      assertEquals (1, m.getActionsCount (Timeout.class));
+      long total = 0;
+      for (long c : m.getActionsHistogram (Tick.class))
+         total += c;
+      assertEquals (100, total);
+      assertArrayEquals (new String[] { Tick.class.getName(),
+                                        Timeout.class.getName() },
+                         m.getEventClassNames());
+      assertTrue (m.getEventRate() > 0.0);
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      m.registerMBean ("test");
+      ObjectName name = new ObjectName
+         ("umontreal.ssj.simevents:type=SimulatorMetrics,name=\"test\"");
+      assertEquals (101L, server.getAttribute (name, "NumExecuted"));
+      sim.enableMetrics (false);
+      assertFalse (server.isRegistered (name));
+      assertNull (sim.getMetrics());
+   }
+
+   static class Step extends Event {
+      int n = 0;
+
+      Step (Simulator sim) {
+         super (sim);
+      }
+
+      public void actions() {
+         if (++n < 1000000)
+            schedule (1.0);
+      }
+   }
+
+   @Test
+   public void testConcurrentReset() throws InterruptedException {
+      final Simulator sim = new Simulator();
+      sim.enableMetrics (true);
+      final SimulatorMetrics m = sim.getMetrics();
+      new Step (sim).schedule (0.0);
+      new Timeout (sim).schedule (2000000.0);
+      Thread runner = new Thread (() -> sim.start());
+      runner.start();
+      while (runner.isAlive()) {
+         m.reset();
+         Thread.sleep (1);
+      }
+      runner.join();
+      // no execution is counted in stats removed by a reset
+      long total = 0;
+      for (long c : m.getActionsCounts())
+         total += c;
+      assertEquals (m.getNumExecuted(), total);
+      assertEquals (0, m.getListSize());
+   }
+}
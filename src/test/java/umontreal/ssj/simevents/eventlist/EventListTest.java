@@ -0,0 +1,175 @@
+package umontreal.ssj.simevents.eventlist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import umontreal.ssj.simevents.Event;
+import umontreal.ssj.simevents.Simulator;
+
+/**
+ * Checks that the event lists return the events in the same order as
+ * `SplayTree`, including the FIFO order of the events with the same time
+ * and priority, under random sequences of operations.
+ */
+public class EventListTest {
+
+   private static final Simulator SIM = new Simulator();
+
+   private static class Ev extends Event {
+      Ev (double time, double priority) {
+         super (SIM);
+         setPriority (priority);
+         setTime (time);
+      }
+      public void actions() {}
+   }
+
+   private static void checkSameOrder (EventList list, long seed) {
+      EventList ref = new SplayTree();
+      ArrayList<Event> present = new ArrayList<Event>();
+      Random rand = new Random (seed);
+      double now = 0.0;
+      for (int step = 0; step < 20000; step++) {
+         int op = rand.nextInt (10);
+         if (op < 4 || present.isEmpty()) {
+            // few distinct times and priorities, to get many ties
+            Event ev = new Ev (now + rand.nextInt (20), 1 + rand.nextInt (2));
+            list.add (ev);
+            ref.add (ev);
+            present.add (ev);
+         }
+         else if (op < 6) {
+            Event ev = ref.removeFirst();
+            assertSame (ev, list.removeFirst(), "step " + step);
+            present.remove (ev);
+            now = ev.time();
+         }
+         else if (op == 6) {
+            Event ev = present.get (rand.nextInt (present.size()));
+            assertTrue (list.remove (ev));
+            assertTrue (ref.remove (ev));
+            assertFalse (list.remove (ev));
+            present.remove (ev);
+         }
+         else if (op < 9) {
+            Event other = present.get (rand.nextInt (present.size()));
+            Event ev = new Ev (other.time(), other.priority());
+            if (op == 7) {
+               list.addBefore (ev, other);
+               ref.addBefore (ev, other);
+            } else {
+               list.addAfter (ev, other);
+               ref.addAfter (ev, other);
+            }
+            present.add (ev);
+         }
+         else {
+            Event ev = new Ev (now, 0.0);
+            list.addFirst (ev);
+            ref.addFirst (ev);
+            present.add (ev);
+         }
+         assertSame (ref.getFirst(), list.getFirst());
+      }
+      Iterator<Event> it = ref.iterator();
+      for (Event ev : list)
+         assertSame (it.next(), ev);
+      assertFalse (it.hasNext());
+      while (!ref.isEmpty())
+         assertSame (ref.removeFirst(), list.removeFirst());
+      assertTrue (list.isEmpty());
+   }
+
+   // Adds a batch of events to a list that already contains events, and
+   // checks that they are removed as if they had been added one by one.
+   private static void checkAddAll (EventList list, long seed) {
+      EventList ref = new SplayTree();
+      Random rand = new Random (seed);
+      list.addAll (new Event[0]);
+      assertTrue (list.isEmpty());
+      for (int round = 0; round < 3; round++) {
+         int n = round == 1 ? 10 : 3000;
+         Event[] batch = new Event[n];
+         for (int i = 0; i < n; i++) {
+            batch[i] = new Ev (rand.nextInt (50), 1 + rand.nextInt (2));
+            ref.add (batch[i]);
+         }
+         list.addAll (batch);
+         for (int i = 0; i < n / 3; i++)
+            assertSame (ref.removeFirst(), list.removeFirst());
+      }
+      while (!ref.isEmpty())
+         assertSame (ref.removeFirst(), list.removeFirst());
+      assertTrue (list.isEmpty());
+   }
+
+   @Test
+   public void testAddAll() {
+      for (long seed = 1; seed <= 3; seed++) {
+         checkAddAll (new SplayTree(), seed);
+         checkAddAll (new DoublyLinked(), seed);
+         checkAddAll (new IndexedHeap(), seed);
+         checkAddAll (new CalendarQueue(), seed);
+         checkAddAll (new BinaryTree(), seed);
+      }
+   }
+
+   @Test
+   public void testScheduleAll() {
+      final Simulator sim = new Simulator (new IndexedHeap());
+      sim.init();
+      final ArrayList<Integer> order = new ArrayList<Integer>();
+      Event[] events = new Event[100];
+      double[] delays = new double[100];
+      for (int i = 0; i < events.length; i++) {
+         final int k = i;
+         events[i] = new Event (sim) {
+            public void actions() { order.add (k); }
+         };
+         delays[i] = (i * 7) % 10;
+      }
+      sim.scheduleAll (events, delays);
+      assertThrows (IllegalStateException.class,
+                    () -> sim.scheduleAll (events, delays));
+      final double[] one = { 20.0 };
+      assertThrows (IllegalStateException.class,
+                    () -> sim.scheduleAll (Arrays.asList (events[3]), one));
+      final Event extra = new Event (sim) {
+         public void actions() {}
+      };
+      assertThrows (IllegalStateException.class,
+                    () -> sim.scheduleAll (Arrays.asList (extra, extra),
+                                           new double[] { 20.0, 20.0 }));
+      // the failed call leaves the event unscheduled
+      sim.scheduleAll (Arrays.asList (extra), one);
+      final Event timed = new Event (sim) {
+         public void actions() {}
+      };
+      timed.setTime (20.0);
+      assertThrows (IllegalStateException.class,
+                    () -> sim.scheduleAll (new Event[] { timed }, one));
+      assertThrows (IllegalStateException.class,
+                    () -> sim.scheduleAll (Arrays.asList (timed), one));
+      sim.start();
+      assertEquals (100, order.size());
+      for (int i = 1; i < order.size(); i++) {
+         int a = order.get (i - 1), b = order.get (i);
+         assertTrue (delays[a] < delays[b] || (delays[a] == delays[b] && a < b));
+      }
+   }
+
+   @Test
+   public void testIndexedHeap() {
+      for (long seed = 1; seed <= 5; seed++)
+         checkSameOrder (new IndexedHeap (2), seed);
+   }
+
+   @Test
+   public void testCalendarQueue() {
+      for (long seed = 1; seed <= 5; seed++)
+         checkSameOrder (new CalendarQueue(), seed);
+   }
+}
@@ -0,0 +1,121 @@
+package umontreal.ssj.simevents.parallel;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import umontreal.ssj.randvar.ExponentialGen;
+import umontreal.ssj.rng.MRG32k3a;
+import umontreal.ssj.rng.ParallelStreamAllocator;
+import umontreal.ssj.simevents.Event;
+import umontreal.ssj.simevents.Simulator;
+
+/**
+ * Simulates tokens travelling around a ring of nodes, with a parallel
+ * simulation using one and several threads, and with a single simulator,
+ * and checks that the results are identical.
+ */
+public class ParallelSimulationTest {
+
+   static final int NODES = 6;
+   static final int TOKENS = 20;
+   static final double LOOKAHEAD = 0.5;
+   static final ParallelStreamAllocator ALLOC =
+      new ParallelStreamAllocator (NODES);
+
+   static class Node {
+      Simulator sim;
+      MRG32k3a stream;
+      Node next;
+      Channel out;        // null in the sequential simulation
+      long count = 0;
+      double sumTimes = 0.0;
+
+      Node (Simulator sim, int id) {
+         this.sim = sim;
+         stream = ALLOC.getStream (0, id, 0);
+      }
+
+      class Arrival extends Event {
+         Arrival (Simulator sim) { super (sim); }
+
+         public void actions() {
+            ++count;
+            sumTimes += sim.time();
+            double delay = LOOKAHEAD + ExponentialGen.nextDouble (stream, 1.0);
+            if (out == null)
+               next.new Arrival (sim).schedule (delay);
+            else
+               out.send (next.new Arrival (next.sim), delay);
+         }
+      }
+   }
+
+   static Node[] parallel (int numThreads, double endTime) {
+      ParallelSimulation psim = new ParallelSimulation (numThreads);
+      Node[] nodes = new Node[NODES];
+      for (int i = 0; i < NODES; i++)
+         nodes[i] = new Node (psim.addLogicalProcess().simulator(), i);
+      for (int i = 0; i < NODES; i++) {
+         nodes[i].next = nodes[(i + 1) % NODES];
+         nodes[i].out = psim.connect (psim.getLogicalProcesses().get (i),
+            psim.getLogicalProcesses().get ((i + 1) % NODES), LOOKAHEAD);
+      }
+      psim.init();
+      for (int k = 0; k < TOKENS; k++)
+         nodes[k % NODES].new Arrival (nodes[k % NODES].sim).schedule (0.1 * k);
+      psim.start (endTime);
+      assertTrue (psim.getNumWindows() > 1);
+      return nodes;
+   }
+
+   static Node[] sequential (double endTime) {
+      final Simulator sim = new Simulator();
+      sim.init();
+      Node[] nodes = new Node[NODES];
+      for (int i = 0; i < NODES; i++)
+         nodes[i] = new Node (sim, i);
+      for (int i = 0; i < NODES; i++)
+         nodes[i].next = nodes[(i + 1) % NODES];
+      for (int k = 0; k < TOKENS; k++)
+         nodes[k % NODES].new Arrival (sim).schedule (0.1 * k);
+      new Event (sim) {
+         public void actions() { sim.stop(); }
+      }.schedule (endTime);
+      sim.start();
+      return nodes;
+   }
+
+   @Test
+   public void testSameResults() {
+      double endTime = 200.0;
+      Node[] seq = sequential (endTime);
+      Node[] one = parallel (1, endTime);
+      Node[] four = parallel (4, endTime);
+      for (int i = 0; i < NODES; i++) {
+         assertTrue (seq[i].count > 100);
+         assertEquals (seq[i].count, one[i].count);
+         assertEquals (seq[i].sumTimes, one[i].sumTimes, 0.0);
+         assertEquals (seq[i].count, four[i].count);
+         assertEquals (seq[i].sumTimes, four[i].sumTimes, 0.0);
+      }
+   }
+
+   @Test
+   public void testLookahead() {
+      ParallelSimulation psim = new ParallelSimulation (2);
+      LogicalProcess a = psim.addLogicalProcess();
+      LogicalProcess b = psim.addLogicalProcess();
+      assertThrows (IllegalArgumentException.class,
+                    () -> psim.connect (a, b, 0.0));
+      Channel c = psim.connect (a, b, 1.0);
+      Event ev = new Event (b.simulator()) {
+         public void actions() {}
+      };
+      assertThrows (IllegalArgumentException.class, () -> c.send (ev, 0.5));
+      assertThrows (IllegalArgumentException.class, () -> c.send (
+         new Event (a.simulator()) { public void actions() {} }, 2.0));
+      c.send (ev, 2.0);
+      psim.start();
+      assertEquals (1, c.getNumSent());
+      assertEquals (2.0, b.simulator().time(), 0.0);
+   }
+}
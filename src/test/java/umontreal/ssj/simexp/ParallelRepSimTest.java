@@ -0,0 +1,106 @@
+package umontreal.ssj.simexp;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import umontreal.ssj.randvar.ExponentialGen;
+import umontreal.ssj.rng.MRG32k3a;
+import umontreal.ssj.rng.ParallelStreamAllocator;
+import umontreal.ssj.simevents.Accumulate;
+import umontreal.ssj.simevents.Event;
+import umontreal.ssj.simevents.Simulator;
+import umontreal.ssj.stat.Tally;
+
+/**
+ * Checks that the results of a parallel experiment, with or without
+ * sequential sampling, do not depend on the number of threads.
+ */
+public class ParallelRepSimTest {
+
+   static final ParallelStreamAllocator ALLOC = new ParallelStreamAllocator (1);
+
+   // A population that grows by one at exponential times, until time 100.
+   static class Growth implements ParallelRepSim.Model {
+      Simulator sim;
+      MRG32k3a stream;
+      Accumulate size;
+      int n;
+
+      Growth (Simulator sim) {
+         this.sim = sim;
+         size = new Accumulate (sim);
+      }
+
+      class Birth extends Event {
+         Birth() { super (Growth.this.sim); }
+
+         public void actions() {
+            size.update (++n);
+            if (sim.time() < 100.0)
+               new Birth().schedule (ExponentialGen.nextDouble (stream, 1.0));
+            else
+               sim.stop();
+         }
+      }
+
+      public void initReplication (int r) {
+         stream = ALLOC.getStream (0, 0, r);
+         n = 0;
+         size.init (0.0);
+         new Birth().schedule (ExponentialGen.nextDouble (stream, 1.0));
+      }
+
+      public double[] getReplicationObs (int r) {
+         size.update (n);
+         return new double[] { n, size.average() };
+      }
+   }
+
+   static class Experiment extends ParallelRepSim {
+      Tally count = new Tally();
+      Tally avgSize = new Tally();
+      boolean sequential;
+
+      Experiment (int numThreads, boolean sequential) {
+         super (20, 200, numThreads);
+         this.sequential = sequential;
+      }
+
+      protected Model newModel (Simulator sim) {
+         return new Growth (sim);
+      }
+
+      public void initReplicationProbes() {
+         count.init();
+         avgSize.init();
+      }
+
+      public void addReplicationObs (int r, double[] x) {
+         count.add (x[0]);
+         avgSize.add (x[1]);
+      }
+
+      public int getRequiredNewReplications() {
+         return sequential ? SimExp.getRequiredNewObservationsTally
+            (count, 0.01, 0.95) : 0;
+      }
+   }
+
+   @Test
+   public void testSameResults() {
+      for (boolean sequential : new boolean[] { false, true }) {
+         Experiment seq = new Experiment (1, sequential);
+         seq.simulate();
+         Experiment par = new Experiment (4, sequential);
+         par.simulate();
+         assertEquals (seq.getCompletedReplications(),
+                       par.getCompletedReplications());
+         assertEquals (seq.count.average(), par.count.average(), 0.0);
+         assertEquals (seq.count.variance(), par.count.variance(), 0.0);
+         assertEquals (seq.avgSize.average(), par.avgSize.average(), 0.0);
+         if (sequential)
+            assertTrue (par.getCompletedReplications() > 20);
+         else
+            assertEquals (20, par.getCompletedReplications());
+      }
+   }
+}
@@ -0,0 +1,146 @@
+package umontreal.ssj.simprocs;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.*;
+import umontreal.ssj.simevents.Event;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the interaction of processes through delays, resources, bins,
+ * suspension and killing.
+ */
+public class SimProcessTest {
+
+   @Test
+   public void testResource() {
+      final ProcessSimulator sim = new ProcessSimulator();
+      final Resource server = new Resource (sim, 1, "server");
+      server.setStatCollecting (true);
+      final List<Double> departures = new ArrayList<Double>();
+      for (int i = 0; i < 3; i++)
+         new SimProcess (sim) {
+            public void actions() {
+               server.request (1);
+               delay (5.0);
+               server.release (1);
+               departures.add (sim.time());
+            }
+         }.schedule (i);
+      sim.start();
+      assertEquals (java.util.Arrays.asList (5.0, 10.0, 15.0), departures);
+      assertEquals (0, sim.getNumAlive());
+      assertEquals (1, server.getAvailable());
+      assertEquals (2, server.waitList().statSojourn().numberObs());
+      assertEquals (6.0, server.waitList().statSojourn().average(), 1e-12);
+      assertEquals (1.0, server.statOnUtil().average(), 1e-12);
+   }
+
+   @Test
+   public void testBinAndSuspend() {
+      final ProcessSimulator sim = new ProcessSimulator();
+      final Bin stock = new Bin (sim, "stock");
+      final double[] got = new double[2];
+      final SimProcess consumer = new SimProcess (sim) {
+         public void actions() {
+            stock.take (3);
+            got[0] = sim.time();
+            suspend();
+            got[1] = sim.time();
+         }
+      };
+      consumer.start();
+      new SimProcess (sim) {
+         public void actions() {
+            for (int i = 0; i < 4; i++) {
+               delay (1.0);
+               stock.put (1);
+            }
+            delay (10.0);
+            consumer.resume();
+         }
+      }.start();
+      sim.start();
+      assertEquals (3.0, got[0], 0.0);
+      assertEquals (14.0, got[1], 0.0);
+      assertEquals (1, stock.getAvailable());
+      assertEquals (SimProcess.DEAD, consumer.getState());
+   }
+
+   @Test
+   public void testKillAndMany() {
+      final ProcessSimulator sim = new ProcessSimulator();
+      final Resource r = new Resource (sim, 1);
+      final int n = 1000;
+      for (int i = 0; i < n; i++)
+         new SimProcess (sim) {
+            public void actions() {
+               r.request (1);
+               delay (1.0);
+            }
+         }.start();
+      sim.start();
+      // the first process never releases the resource
+      assertEquals (n - 1, sim.getNumAlive());
+      assertEquals (n - 1, r.waitList().size());
+      sim.init();
+      assertEquals (0, sim.getNumAlive());
+
+      SimProcess p = new SimProcess (sim) {
+         public void actions() {
+            delay (1.0);
+            throw new ArithmeticException();
+         }
+      };
+      p.start();
+      assertThrows (ArithmeticException.class, sim::start);
+      assertThrows (IllegalStateException.class, () -> p.delay (1.0));
+   }
+
+   @Test
+   public void testKillWaiting() {
+      final ProcessSimulator sim = new ProcessSimulator();
+      final Resource r = new Resource (sim, 2);
+      final Bin bin = new Bin (sim);
+      final double[] served = { -1.0, -1.0 };
+      new SimProcess (sim) {
+         public void actions() {
+            r.request (1);
+            bin.put (1);
+            delay (100.0);
+            r.release (1);
+         }
+      }.start();
+      final SimProcess b = new SimProcess (sim) {
+         public void actions() {
+            r.request (2);
+         }
+      };
+      b.schedule (1.0);
+      final SimProcess b2 = new SimProcess (sim) {
+         public void actions() {
+            bin.take (2);
+         }
+      };
+      b2.schedule (1.0);
+      new SimProcess (sim) {
+         public void actions() {
+            r.request (1);
+            served[0] = sim.time();
+            bin.take (1);
+            served[1] = sim.time();
+         }
+      }.schedule (2.0);
+      new Event (sim) {
+         public void actions() {
+            b.kill();
+            b2.kill();
+         }
+      }.schedule (5.0);
+      sim.start();
+      assertEquals (5.0, served[0], 0.0);
+      assertEquals (5.0, served[1], 0.0);
+      assertEquals (0, r.waitList().size());
+      assertEquals (0, bin.waitList().size());
+   }
+}
@@ -0,0 +1,126 @@
+package umontreal.ssj.stat;
+
+import java.util.Random;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import cern.colt.matrix.DoubleMatrix2D;
+import cern.colt.matrix.impl.DenseDoubleMatrix2D;
+import umontreal.ssj.stat.list.FlatListOfTallies;
+import umontreal.ssj.stat.list.ListOfTallies;
+import umontreal.ssj.stat.matrix.FlatMatrixOfTallies;
+import umontreal.ssj.stat.matrix.MatrixOfTallies;
+
+/**
+ * Checks that the flat lists and matrices of tallies give the same
+ * counters as the lists and matrices of individual tallies.
+ */
+public class TallyArrayTest {
+
+   static final double EPS = 1.0E-10;
+
+   static void assertSameCounters (Tally expected, Tally actual) {
+      assertEquals (expected.numberObs(), actual.numberObs());
+      assertEquals (expected.min(), actual.min(), 0.0);
+      assertEquals (expected.max(), actual.max(), 0.0);
+      assertEquals (expected.sum(), actual.sum(), EPS);
+      assertEquals (expected.average(), actual.average(), EPS);
+      assertEquals (expected.variance(), actual.variance(), EPS);
+   }
+
+   @Test
+   public void testList() {
+      final int d = 7;
+      ListOfTallies<Tally> list = ListOfTallies.createWithTally (d);
+      FlatListOfTallies flat = new FlatListOfTallies ("flat", d);
+      Random rand = new Random (5);
+      double[] x = new double[d];
+      for (int n = 0; n < 1000; n++) {
+         for (int i = 0; i < d; i++)
+            x[i] = i + rand.nextGaussian();
+         if (n % 100 == 99)
+            x[3] = Double.NaN;
+         list.add (x);
+         flat.add (x);
+      }
+      // adding through a view gives different numbers of observations
+      list.get (1).add (4.0);
+      flat.get (1).add (4.0);
+      for (int i = 0; i < d; i++)
+         assertSameCounters (list.get (i), flat.get (i));
+      assertFalse (flat.areAllNumberObsEqual());
+      // the views are cached, with their settings
+      assertTrue (flat.get (1) == flat.get (1));
+      flat.get (4).setBroadcasting (true);
+      assertTrue (flat.get (4).isBroadcasting());
+
+      double[] v1 = new double[d];
+      double[] v2 = new double[d];
+      list.variance (v1);
+      flat.variance (v2);
+      assertArrayEquals (v1, v2, EPS);
+
+      FlatListOfTallies copy = flat.clone();
+      copy.merge (flat);
+      assertEquals (2 * flat.get (0).numberObs(), copy.get (0).numberObs());
+      assertEquals (flat.get (2).average(), copy.get (2).average(), EPS);
+      assertTrue (flat.report().contains ("flat"));
+
+      Tally merged = new Tally();
+      merged.merge (flat.get (2));
+      assertSameCounters (list.get (2), merged);
+
+      flat.init();
+      assertEquals (0, flat.numberObs());
+      assertEquals (1000, copy.numberObs() / 2);
+   }
+
+   @Test
+   public void testMatrix() {
+      final int nr = 3, nc = 4;
+      MatrixOfTallies<Tally> matrix = MatrixOfTallies.createWithTally (nr, nc);
+      FlatMatrixOfTallies flat = new FlatMatrixOfTallies (nr, nc);
+      Random rand = new Random (9);
+      double[][] x = new double[nr][nc];
+      for (int n = 0; n < 500; n++) {
+         for (int r = 0; r < nr; r++)
+            for (int c = 0; c < nc; c++)
+               x[r][c] = r - c + rand.nextDouble();
+         if (n % 2 == 0) {
+            matrix.add (x);
+            flat.add (x);
+         }
+         else {
+            DoubleMatrix2D m = new DenseDoubleMatrix2D (x);
+            matrix.add (m);
+            flat.add (m);
+         }
+      }
+      for (int r = 0; r < nr; r++)
+         for (int c = 0; c < nc; c++)
+            assertSameCounters (matrix.get (r, c), flat.get (r, c));
+      assertTrue (flat.areAllNumberObsEqual());
+      assertEquals (500, flat.numberObs());
+
+      DoubleMatrix2D s1 = new DenseDoubleMatrix2D (nr, nc);
+      DoubleMatrix2D s2 = new DenseDoubleMatrix2D (nr, nc);
+      matrix.standardDeviation (s1);
+      flat.standardDeviation (s2);
+      for (int r = 0; r < nr; r++)
+         assertArrayEquals (s1.viewRow (r).toArray(),
+                            s2.viewRow (r).toArray(), EPS);
+
+      assertTrue (flat.get (1, 2) == flat.viewRow (1).get (2));
+      int count = 0;
+      for (Tally t : flat)
+         count += t.numberObs();
+      assertEquals (500 * nr * nc, count);
+
+      FlatMatrixOfTallies copy = flat.clone();
+      assertFalse (copy.get (1, 2) == flat.get (1, 2));
+      copy.init();
+      assertEquals (0, copy.get (2, 3).numberObs());
+      assertEquals (500, flat.get (2, 3).numberObs());
+      assertThrows (UnsupportedOperationException.class,
+                    () -> flat.setRows (2));
+   }
+}
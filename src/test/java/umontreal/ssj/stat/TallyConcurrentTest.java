@@ -0,0 +1,84 @@
+package umontreal.ssj.stat;
+
+import java.util.Random;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that observations added by several threads at the same time give
+ * the same counters as a single tally.
+ */
+public class TallyConcurrentTest {
+
+   static final double EPS = 1.0E-10;
+
+   @Test
+   public void testThreads() throws InterruptedException {
+      final int numThreads = 8;
+      final int n = 50000;
+      final TallyConcurrent concurrent = new TallyConcurrent ("concurrent");
+      final double[][] obs = new double[numThreads][n];
+      Tally all = new Tally();
+      Random rand = new Random (11);
+      for (int t = 0; t < numThreads; t++)
+         for (int i = 0; i < n; i++) {
+            obs[t][i] = t + rand.nextGaussian();
+            all.add (obs[t][i]);
+         }
+      Thread[] threads = new Thread[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+         final double[] x = obs[t];
+         final boolean bulk = t == 0;
+         threads[t] = new Thread() {
+            public void run() {
+               if (bulk)
+                  concurrent.add (x, x.length);
+               else
+                  for (double v : x)
+                     concurrent.add (v);
+            }
+         };
+         threads[t].start();
+      }
+      // reading while the threads are adding must not disturb them
+      while (concurrent.numberObs() < numThreads * n / 2)
+         concurrent.average();
+      for (Thread th : threads)
+         th.join();
+
+      assertEquals (all.numberObs(), concurrent.numberObs());
+      assertEquals (all.min(), concurrent.min(), 0.0);
+      assertEquals (all.max(), concurrent.max(), 0.0);
+      assertEquals (all.average(), concurrent.average(), EPS);
+      assertEquals (all.variance(), concurrent.variance(), EPS);
+      Tally snap = concurrent.snapshot();
+      assertEquals (all.variance(), snap.variance(), EPS);
+      assertTrue (concurrent.report().contains ("concurrent"));
+
+      TallyConcurrent copy = concurrent.clone();
+      copy.merge (concurrent);
+      assertEquals (2 * all.numberObs(), copy.numberObs());
+      assertEquals (all.average(), copy.average(), EPS);
+      assertEquals (all.numberObs(), concurrent.numberObs());
+
+      concurrent.init();
+      assertEquals (0, concurrent.numberObs());
+   }
+
+   @Test
+   public void testMergeIntoTally() {
+      TallyConcurrent concurrent = new TallyConcurrent();
+      Tally expected = new Tally();
+      for (int i = 1; i <= 10; i++) {
+         concurrent.add (i);
+         expected.add (i);
+      }
+      Tally t = new Tally();
+      t.merge (concurrent);
+      assertEquals (10, t.numberObs());
+      assertEquals (expected.average(), t.average(), EPS);
+      assertEquals (expected.variance(), t.variance(), EPS);
+      assertEquals (1.0, t.min(), 0.0);
+      assertEquals (10.0, t.max(), 0.0);
+   }
+}
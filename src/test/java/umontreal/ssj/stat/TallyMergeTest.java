@@ -0,0 +1,96 @@
+package umontreal.ssj.stat;
+
+import java.util.Random;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import umontreal.ssj.stat.list.ListOfTalliesWithCovariance;
+
+/**
+ * Checks that merging probes filled with parts of a sample gives the same
+ * results as a single probe filled with the whole sample.
+ */
+public class TallyMergeTest {
+
+   static final double EPS = 1.0E-10;
+
+   static void assertSameTally (Tally expected, Tally actual) {
+      assertEquals (expected.numberObs(), actual.numberObs());
+      assertEquals (expected.min(), actual.min(), 0.0);
+      assertEquals (expected.max(), actual.max(), 0.0);
+      assertEquals (expected.average(), actual.average(),
+                    EPS * Math.abs (expected.average()));
+      assertEquals (expected.variance(), actual.variance(),
+                    EPS * expected.variance());
+   }
+
+   @Test
+   public void testMerge() {
+      Random rand = new Random (1);
+      Tally all = new Tally();
+      TallyStore allStore = new TallyStore();
+      TallyHistogram allHist = new TallyHistogram (0.0, 200.0, 20);
+      Tally[] parts = new Tally[4];
+      TallyStore[] storeParts = new TallyStore[4];
+      TallyHistogram[] histParts = new TallyHistogram[4];
+      for (int p = 0; p < parts.length; p++) {
+         parts[p] = new Tally();
+         storeParts[p] = new TallyStore();
+         histParts[p] = new TallyHistogram (0.0, 200.0, 20);
+      }
+      // parts of very different sizes and means
+      int[] sizes = { 1, 1000, 37, 5000 };
+      for (int p = 0; p < parts.length; p++)
+         for (int i = 0; i < sizes[p]; i++) {
+            double x = 50.0 * p + 1.0E-3 + 10.0 * rand.nextDouble();
+            all.add (x);
+            allStore.add (x);
+            allHist.add (x);
+            parts[p].add (x);
+            storeParts[p].add (x);
+            histParts[p].add (x);
+         }
+      Tally merged = new Tally();
+      TallyStore mergedStore = new TallyStore();
+      TallyHistogram mergedHist = new TallyHistogram (0.0, 200.0, 20);
+      for (int p = 0; p < parts.length; p++) {
+         merged.merge (parts[p]);
+         mergedStore.merge (storeParts[p]);
+         mergedHist.merge (histParts[p]);
+      }
+      assertSameTally (all, merged);
+      assertSameTally (all, mergedStore);
+      assertSameTally (all, mergedHist);
+      assertArrayEquals (allStore.getArray(), mergedStore.getArray(), 0.0);
+      assertArrayEquals (allHist.getCounters(), mergedHist.getCounters());
+      assertEquals (1000, parts[1].numberObs());
+      assertThrows (IllegalArgumentException.class,
+                    () -> mergedStore.merge (new Tally()));
+      assertThrows (IllegalArgumentException.class,
+                    () -> mergedHist.merge (new TallyHistogram (0.0, 100.0, 20)));
+   }
+
+   @Test
+   public void testMergeListWithCovariance() {
+      Random rand = new Random (2);
+      ListOfTalliesWithCovariance<Tally> all =
+         ListOfTalliesWithCovariance.createWithTally (3);
+      ListOfTalliesWithCovariance<Tally> a =
+         ListOfTalliesWithCovariance.createWithTally (3);
+      ListOfTalliesWithCovariance<Tally> b =
+         ListOfTalliesWithCovariance.createWithTally (3);
+      double[] x = new double[3];
+      for (int i = 0; i < 3000; i++) {
+         x[0] = rand.nextGaussian();
+         x[1] = 5.0 + x[0] + rand.nextGaussian();
+         x[2] = i < 1000 ? -x[1] : 3.0 * x[0];
+         all.add (x);
+         (i < 1000 ? a : b).add (x);
+      }
+      a.merge (b);
+      for (int i = 0; i < 3; i++) {
+         assertSameTally (all.get (i), a.get (i));
+         for (int j = 0; j < 3; j++)
+            assertEquals (all.covariance (i, j), a.covariance (i, j), EPS);
+      }
+   }
+}
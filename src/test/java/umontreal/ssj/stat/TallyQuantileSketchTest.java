@@ -0,0 +1,136 @@
+package umontreal.ssj.stat;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import umontreal.ssj.rng.MRG32k3a;
+import umontreal.ssj.rng.Philox4x32;
+
+/**
+ * Compares the quantiles estimated by the sketches with the exact
+ * quantiles of the sorted observations.
+ */
+public class TallyQuantileSketchTest {
+
+   static final double[] PROBS = { 0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9,
+                                   0.99, 0.999 };
+
+   // Fraction of the sorted observations s that are <= x.
+   static double rank (double[] s, double x) {
+      int lo = 0, hi = s.length;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (s[mid] <= x)
+            lo = mid + 1;
+         else
+            hi = mid;
+      }
+      return (double) lo / s.length;
+   }
+
+   static void checkRanks (double[] sorted, TallyQuantileSketch sketch) {
+      for (double p : PROBS) {
+         double r = rank (sorted, sketch.quantile (p));
+         // a centroid or an item may hold the observations of ranks up to
+         // one unit on each side
+         double tol = 2.0 * sketch.rankError (p) + 1.0 / sorted.length;
+         assertEquals (p, r, tol, "p = " + p);
+         assertEquals (p, sketch.cdf (sketch.quantile (p)), tol, "p = " + p);
+      }
+      assertEquals (sorted[0], sketch.quantile (0.0), 0.0);
+      assertEquals (sorted[sorted.length - 1], sketch.quantile (1.0), 0.0);
+   }
+
+   static void checkSketches (TallyQuantileSketch[] parts,
+                              TallyQuantileSketch merged) {
+      Random rand = new Random (7);
+      int n = 200000;
+      double[] x = new double[n];
+      for (int i = 0; i < n; i++) {
+         x[i] = Math.exp (2.0 * rand.nextGaussian());
+         parts[i % parts.length].add (x[i]);
+      }
+      double[] sorted = x.clone();
+      Arrays.sort (sorted);
+      for (TallyQuantileSketch part : parts)
+         merged.merge (part);
+      assertEquals (n, merged.numberObs());
+      checkRanks (sorted, merged);
+
+      double[] ci = new double[2];
+      merged.quantileConfidenceInterval (0.5, 0.95, ci);
+      assertTrue (ci[0] < 1.0 && 1.0 < ci[1]);   // the true median is 1
+      assertTrue (merged.report().contains ("conf. interval"));
+   }
+
+   @Test
+   public void testTDigest() {
+      TallyTDigest[] parts = new TallyTDigest[3];
+      for (int i = 0; i < parts.length; i++)
+         parts[i] = new TallyTDigest (100.0);
+      TallyTDigest merged = new TallyTDigest (100.0);
+      checkSketches (parts, merged);
+      assertTrue (merged.numberCentroids() <= 101);
+      // the tails are much more accurate than the median
+      assertTrue (merged.rankError (0.001) < 0.1 * merged.rankError (0.5));
+   }
+
+   @Test
+   public void testKLL() {
+      MRG32k3a stream = new MRG32k3a();
+      stream.setSeed (new long[] { 1, 2, 3, 4, 5, 6 });
+      TallyKLL[] parts = new TallyKLL[3];
+      for (int i = 0; i < parts.length; i++)
+         parts[i] = new TallyKLL (null, 200, stream);
+      TallyKLL merged = new TallyKLL (null, 200, stream);
+      checkSketches (parts, merged);
+      assertTrue (merged.numberRetained() < 3 * 200 + 8 * 20);
+   }
+
+   @Test
+   public void testDefaultStream() {
+      long[] seed = { 12345, 12345, 12345, 12345, 12345, 12345 };
+      MRG32k3a.setPackageSeed (seed);
+      TallyKLL a = new TallyKLL (50);
+      TallyKLL b = new TallyKLL (50);
+      double u = new MRG32k3a().nextDouble();
+      MRG32k3a.setPackageSeed (seed);
+      assertEquals (new MRG32k3a().nextDouble(), u, 0.0);
+      // the sketches do not share their coins with each other, nor with
+      // the first Philox4x32 stream of the model
+      assertNotEquals (a.getStream().nextDouble(),
+                       b.getStream().nextDouble());
+      assertNotEquals (new Philox4x32().nextDouble(),
+                       new TallyKLL().getStream().nextDouble());
+      assertThrows (NullPointerException.class,
+                    () -> new TallyKLL (null, 200, null));
+   }
+
+   @Test
+   public void testExactWhenSmall() {
+      TallyKLL kll = new TallyKLL (200);
+      TallyTDigest td = new TallyTDigest (100.0);
+      Random rand = new Random (3);
+      double[] x = new double[150];
+      for (int i = 0; i < x.length; i++) {
+         x[i] = rand.nextInt (50);
+         kll.add (x[i]);
+         td.add (x[i]);
+      }
+      Arrays.sort (x);
+      assertEquals (0.0, kll.rankError (0.3), 0.0);
+      for (int i = 1; i <= x.length; i++)
+         assertEquals (x[i - 1], kll.quantile ((double) i / x.length), 0.0);
+      assertEquals (rank (x, 20.0), kll.cdf (20.0), 0.0);
+      assertEquals (rank (x, 20.0), td.cdf (20.0), td.rankError (0.5));
+
+      kll.init();
+      assertEquals (0, kll.numberObs());
+      assertTrue (Double.isNaN (kll.quantile (0.5)));
+      assertThrows (IllegalArgumentException.class, () -> kll.quantile (1.5));
+      assertThrows (IllegalArgumentException.class, () -> kll.merge (td));
+      assertThrows (IllegalArgumentException.class,
+                    () -> kll.merge (new TallyKLL (100)));
+   }
+}
@@ -0,0 +1,116 @@
+package umontreal.ssj.stat;
+
+import java.io.File;
+import java.util.Random;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares a mapped store using small segments with a  TallyStore filled
+ * with the same observations.
+ */
+public class TallyStoreMappedTest {
+
+   static final double EPS = 1.0E-10;
+
+   @Test
+   public void testSameAsTallyStore() {
+      Random rand = new Random (5);
+      int n = 10000;
+      TallyStore store = new TallyStore();
+      TallyStore store2 = new TallyStore();
+      TallyStoreMapped mapped = new TallyStoreMapped (null, null, 256);
+      TallyStoreMapped mapped2 = new TallyStoreMapped (null, null, 256);
+      try {
+         for (int i = 0; i < n; i++) {
+            double x = rand.nextGaussian();
+            double y = x + rand.nextDouble();
+            store.add (x);
+            mapped.add (x);
+            store2.add (y);
+            mapped2.add (y);
+         }
+         assertEquals (n, mapped.numberObsLong());
+         assertEquals (store.average(), mapped.average(), EPS);
+         assertEquals (store.variance(), mapped.variance(), EPS);
+         assertArrayEquals (store.getArray(), mapped.getArray(), 0.0);
+         assertEquals (store.getArray()[4321], mapped.get (4321), 0.0);
+         assertEquals (store.covariance (store2), mapped.covariance (mapped2),
+                       EPS);
+
+         TallyStore agg = store.aggregate (7);
+         TallyStoreMapped magg = mapped.aggregate (7);
+         assertArrayEquals (agg.getArray(), magg.getArray(), EPS);
+         magg.close();
+         TallyStore sub = store.extractSubrange (-0.5, 1.0);
+         TallyStoreMapped msub = mapped.extractSubrange (-0.5, 1.0);
+         assertArrayEquals (sub.getArray(), msub.getArray(), 0.0);
+         msub.close();
+
+         store.quickSort();
+         mapped.quickSort();
+         assertArrayEquals (store.getArray(), mapped.getArray(), 0.0);
+         assertEquals (store.min(), mapped.get (0), 0.0);
+
+         mapped.merge (mapped2);
+         store.merge (store2);
+         assertEquals (2 * n, mapped.numberObsLong());
+         assertEquals (store.average(), mapped.average(), EPS);
+         assertEquals (store.variance(), mapped.variance(), EPS);
+         assertEquals (store.max(), mapped.max(), 0.0);
+         assertThrows (IndexOutOfBoundsException.class,
+                       () -> mapped.get (2 * n));
+         assertThrows (IllegalArgumentException.class,
+                       () -> mapped.merge (new Tally()));
+
+         mapped.init();
+         assertEquals (0, mapped.numberObs());
+         mapped.add (3.0);
+         assertEquals (3.0, mapped.get (0), 0.0);
+      } finally {
+         mapped.close();
+         mapped2.close();
+      }
+      assertFalse (mapped.getFile().exists());
+   }
+
+   @Test
+   public void testMergeIntoTally() {
+      TallyStoreMapped mapped = new TallyStoreMapped (null, null, 16);
+      Tally expected = new Tally();
+      try {
+         for (int i = 1; i <= 10; i++) {
+            mapped.add (i);
+            expected.add (i);
+         }
+         Tally t = new Tally();
+         t.add (-2.0);
+         expected.add (-2.0);
+         t.merge (mapped);
+         assertEquals (11, t.numberObs());
+         assertEquals (expected.average(), t.average(), EPS);
+         assertEquals (expected.variance(), t.variance(), EPS);
+         assertEquals (-2.0, t.min(), 0.0);
+         assertEquals (10.0, t.max(), 0.0);
+      } finally {
+         mapped.close();
+      }
+   }
+
+   @Test
+   public void testUnclosedFileDeleted() throws InterruptedException {
+      TallyStoreMapped mapped = new TallyStoreMapped (null, null, 16);
+      mapped.add (1.0);
+      File file = mapped.getFile();
+      assertTrue (file.exists());
+      mapped = null;
+      // the file is deleted when the next temporary file is created after
+      // the collection of the probe
+      for (int i = 0; i < 50 && file.exists(); i++) {
+         System.gc();
+         Thread.sleep (10);
+         new TallyStoreMapped (null, null, 16).close();
+      }
+      assertFalse (file.exists());
+   }
+}